@@ -3,6 +3,8 @@ package com.github.dimiro1.mynes;
 import com.github.dimiro1.mynes.mappers.IRQHandler;
 import com.github.dimiro1.mynes.state.StateIO;
 
+import java.util.List;
+
 /**
  * APU implements the audio unit built into the CPU: the 2A03 of the NTSC NES, or the 2A07 of the
  * PAL one.
@@ -10,14 +12,30 @@ import com.github.dimiro1.mynes.state.StateIO;
  * Five channels -- two pulses, a triangle, a noise generator and a delta modulation channel --
  * each of which is a divider driving a sequencer, gated by counters that a shared frame counter
  * clocks sixty times a second. Nothing here knows about sound cards or sample rates beyond the one
- * it decimates to: {@link #tick()} advances the chip by one CPU cycle and the front end pulls
- * finished samples out with {@link #drainSamples}.
+ * it decimates to: {@link #tick()} advances the chip by one CPU cycle, and finished samples are
+ * pushed a block at a time into whichever {@link AudioSink} the front end gave it.
  * <p>
  * {@link #tick()} is called once per CPU cycle, from {@link NES#tick()} and before the CPU's own
  * cycle, so that a $4015 read in a given cycle sees a flag the frame counter raised in that same
  * cycle. The chip's own clock is half of that -- the pulse and noise dividers count APU cycles,
  * which is every other call -- while the triangle and the DMC are clocked at the full CPU rate.
  * <p>
+ * Most of those calls only count. On nearly every cycle the dividers are counting down and nothing
+ * else happens, so the chip remembers which cycle it has clocked everything up to. It runs the
+ * channels on in one go when something needs them:
+ * <ul>
+ *   <li>a register write;</li>
+ *   <li>a $4015 read;</li>
+ *   <li>the samples being flushed;</li>
+ *   <li>a cycle on which it does something the rest of the machine could see -- a frame counter
+ *       step, an interrupt, a DMC fetch.</li>
+ * </ul>
+ * The cycles in that last case are worked out ahead of time, to the cycle, so each one still lands
+ * on the call it always did. Even the catching up is done a stretch at a time. Between two moments
+ * the mixer's level can move, every cycle is the same, so the samples are made from the whole
+ * stretch at once. The state and the samples come out exactly as clocking every cycle would have
+ * made them.
+ * <p>
  * The two interrupts it can raise, the frame counter's and the DMC's, go out through
  * {@link IRQHandler} lambdas rather than through a reference to the bus, because they are levels
  * on a wire shared with the cartridge: see {@link BUS#setAPUFrameIRQ}.
@@ -28,24 +46,33 @@ import com.github.dimiro1.mynes.state.StateIO;
 public class APU {
 
     /**
-     * How many samples a second {@link #drainSamples} hands out.
-     * <p>
-     * The core owns this rather than the front end: the decimator has to be built around some
-     * rate, and having the UI pick it would mean the machine's tuning depended on a menu. 44.1kHz
-     * is what every sound card takes without resampling.
+     * How many samples a second the chip hands its {@link AudioSink} unless told otherwise: 44.1kHz,
+     * which is what a CD is and what every sound card has always taken.
      */
     public static final int SAMPLE_RATE = 44_100;
 
     /**
-     * How many samples the ring between the chip and the front end holds, which at 44.1kHz is
-     * about a fifth of a second.
+     * The rates {@link #setSampleRate} offers, lowest first.
+     * <p>
+     * 48kHz because it is what most computers' mixers actually run at, and a stream at 44.1kHz is
+     * resampled again on its way through them -- a second resampler, behind the emulator's back,
+     * adding its own latency and its own aliasing to a sound that had just been band-limited
+     * properly. 96kHz for a host that runs at that. Each of them is made straight from the CPU
+     * clock rather than from 44.1kHz, which is the point: there is only ever the one resampling.
+     */
+    public static final List<Integer> SAMPLE_RATES = List.of(SAMPLE_RATE, 48_000, 96_000);
+
+    /**
+     * How many samples go to the {@link AudioSink} in one call, unless {@link #flushSamples()}
+     * sends a block early: about six milliseconds at 44.1kHz, so a frame is three blocks and a
+     * bit.
      * <p>
-     * Far more than the runner needs -- it drains every frame, so about 735 at a time -- because
-     * the point of the slack is what happens when nothing drains at all: a test running the
-     * machine headless, or a front end that has stopped asking. The oldest samples are dropped in
-     * that case, so a ring that is never read costs a fixed amount of memory and nothing else.
+     * Small enough that a sound card fed from the sink hears about a block as soon as it is made
+     * rather than once a whole frame has been run, and large enough that the call itself -- through
+     * an interface, into somebody else's code -- is a rounding error beside the mixing that filled
+     * it.
      */
-    private static final int SAMPLE_RING_SIZE = 8192;
+    public static final int BLOCK_SAMPLES = 256;
 
     /**
      * What a sample of 1.0 comes out as. The mixer's two tables add up to just under one at their
@@ -87,6 +114,23 @@ public class APU {
      */
     private static final double[] TND_TABLE = tndTable();
 
+    /**
+     * The two ladders again, as whole numbers at {@link #LEVEL_SCALE}, which is what both ways of
+     * making samples add up. The band-limited mixer writes the steps between one level and the
+     * next, and a step has to be a whole number for a run of them to add up to the same level every
+     * time. The box filter adds the level up over a sample's cycles, a stretch at a time, and whole
+     * numbers come to the same total whichever way the cycles are grouped.
+     */
+    private static final int[] PULSE_LEVELS = levels(PULSE_TABLE);
+    private static final int[] TND_LEVELS = levels(TND_TABLE);
+
+    /**
+     * What a mixer output of 1.0 is as a level in {@link #PULSE_LEVELS} and {@link #TND_LEVELS}.
+     * Sixteen bits, which is finer than the sixteen bit samples need, since the loudest the two
+     * ladders can get together is a little under one.
+     */
+    private static final int LEVEL_SCALE = 1 << 16;
+
     private static double[] pulseTable() {
         var table = new double[31];
 
@@ -107,6 +151,16 @@ public class APU {
         return table;
     }
 
+    private static int[] levels(final double[] table) {
+        var levels = new int[table.length];
+
+        for (var n = 0; n < table.length; n++) {
+            levels[n] = (int) Math.round(table[n] * LEVEL_SCALE);
+        }
+
+        return levels;
+    }
+
     // ---------------------------------------------------------------- frame counter timing
     //
     // The sequence the frame counter steps through is in CPU cycles and differs between the two
@@ -158,12 +212,17 @@ public class APU {
      */
     private final Region region;
 
+    /**
+     * How many samples a second are made. See {@link #setSampleRate}.
+     */
+    private int sampleRate = SAMPLE_RATE;
+
     /**
      * How many CPU cycles go into one output sample. Not a whole number, which is the whole
-     * difficulty: see {@link #sample()}. About 40.6 on NTSC and 37.7 on PAL -- a PAL machine makes
-     * fewer cycles a second and the sound card still wants 44100 samples out of them.
+     * difficulty: see {@link #sample()}. About 40.6 on NTSC and 37.7 on PAL at 44.1kHz -- a PAL
+     * machine makes fewer cycles a second and the sound card still wants 44100 samples out of them.
      */
-    private final double cyclesPerSample;
+    private double cyclesPerSample;
 
     private final Pulse pulse1 = new Pulse(true);
     private final Pulse pulse2 = new Pulse(false);
@@ -178,6 +237,19 @@ public class APU {
      */
     private long cycles;
 
+    /**
+     * The cycle the channels, the frame counter's count and the samples have been clocked up to:
+     * everything from here to {@link #cycles} has only been counted so far. See {@link #catchUp()}.
+     */
+    private long updated;
+
+    /**
+     * The first cycle {@link #tick()} has to clock for real, because something the rest of the
+     * machine can see happens on it. Worked out again by {@link #schedule()} whenever anything that
+     * decides it changes.
+     */
+    private long horizon;
+
     /**
      * A $4015 read is waiting to clear the frame counter's interrupt flag.
      * <p>
@@ -197,15 +269,43 @@ public class APU {
     // have to become one sample. They are averaged rather than picked from, which is a box filter
     // -- crude as filters go, but it is the difference between a triangle at an ultrasonic period
     // aliasing down into an audible whine and it averaging out to the DC level it really is.
-    // Everything below belongs to the emulation thread; nothing here is synchronised.
+    //
+    // Or, with setBandLimited, they are not averaged at all: the mixer's level is worked out again
+    // only on the cycles something could have moved it, and each move is written into a BlipBuffer
+    // as a band-limited step. Both ways end in the same three filters. Everything below belongs to
+    // the emulation thread; nothing here is synchronised.
 
-    private final HighPass highPass90 = new HighPass(90.0);
-    private final HighPass highPass440 = new HighPass(440.0);
-    private final LowPass lowPass14k = new LowPass(14_000.0);
+    private HighPass highPass90 = new HighPass(90.0, SAMPLE_RATE);
+    private HighPass highPass440 = new HighPass(440.0, SAMPLE_RATE);
+    private LowPass lowPass14k = new LowPass(14_000.0, SAMPLE_RATE);
 
-    private double sampleSum;
+    /**
+     * The levels of the cycles averaged into the sample being made so far, at
+     * {@link #LEVEL_SCALE}, and how many cycles that is.
+     */
+    private long sampleSum;
     private int sampleCycles;
 
+    /**
+     * Whether the samples are made by {@link #blip} rather than by the box filter. See
+     * {@link #setBandLimited}.
+     */
+    private boolean bandLimited;
+
+    private BlipBuffer blip;
+
+    /**
+     * The level last written into {@link #blip}, at {@link #LEVEL_SCALE}.
+     */
+    private int level;
+
+    /**
+     * Something may have moved the mixer's level since {@link #level} was worked out: a divider
+     * stepped a sequencer, the frame counter clocked an envelope or a length counter, or a register
+     * was written. True to begin with, so that the level a machine powers on at is the first step.
+     */
+    private boolean levelMoved = true;
+
     /**
      * How many CPU cycles are left before the next sample is due. Fractional, and carried across
      * samples rather than rounded, which is what keeps 44100 samples a second exact over an hour
@@ -213,10 +313,17 @@ public class APU {
      */
     private double cyclesToNextSample;
 
-    private final short[] sampleRing = new short[SAMPLE_RING_SIZE];
-    private int sampleRead;
-    private int sampleWrite;
-    private int sampleCount;
+    /**
+     * Where the finished samples go, or null when nobody is listening -- in which case they are not
+     * made at all. See {@link #setAudioSink}.
+     */
+    private AudioSink sink;
+
+    /**
+     * The block being filled for {@link #sink}, and how much of it is.
+     */
+    private final short[] block = new short[BLOCK_SAMPLES];
+    private int blockCount;
 
     /**
      * @param frameIRQHandler the frame counter's end of the shared /IRQ line.
@@ -240,12 +347,24 @@ public class APU {
         this.region = region;
         this.cyclesPerSample = region.cpuClockHz() / SAMPLE_RATE;
         this.cyclesToNextSample = cyclesPerSample;
+        this.blip = new BlipBuffer(region.cpuClockHz(), SAMPLE_RATE);
     }
 
     /**
      * Advances the chip by one CPU cycle.
+     * <p>
+     * Which, up to the next cycle on which something happens that the rest of the machine could
+     * see, is a count and nothing more: the channels are run on to here only when they are wanted.
+     * See {@link #catchUp()}.
      */
     public void tick() {
+        if (cycles < horizon) {
+            cycles++;
+            return;
+        }
+
+        catchUp();
+
         // Before anything else, because this is the edge the cycle starts on rather than work done
         // during it: a read that happened on the previous cycle has to have cleared the flag by the
         // time this cycle's own read of $4015 sees it.
@@ -254,22 +373,289 @@ public class APU {
         }
 
         frameCounter.tick();
+        scheduleChannels();
 
-        // The pulse and noise dividers are clocked by the APU clock, which is the CPU clock
-        // halved. The triangle and the DMC are clocked by the CPU clock itself, which is why the
-        // triangle can reach frequencies the pulses cannot.
-        triangle.tickTimer();
-        dmc.tickTimer();
+        cycles++;
+        clockChannels(cycles);
+
+        horizon = cycles + uneventfulCycles();
+    }
 
-        if ((cycles & 1) == 0) {
-            pulse1.tickTimer();
-            pulse2.tickTimer();
-            noise.tickTimer();
+    /**
+     * Runs everything that has only been counted so far -- the frame counter's count, the channels
+     * and the samples -- up to the cycle the chip has been clocked to, and brings every channel's
+     * divider level with it.
+     * <p>
+     * Called before anything reads or changes what those cycles would have moved. None of them is a
+     * cycle on which the frame counter does anything but count: those are clocked for real, by
+     * {@link #tick()}, so the sequence only has to be moved along.
+     */
+    private void catchUp() {
+        if (updated < cycles) {
+            frameCounter.cycle += (int) (cycles - updated);
+            clockChannels(cycles);
         }
 
-        cycles++;
+        pulse1.runTo(updated);
+        pulse2.runTo(updated);
+        triangle.runTo(updated);
+        noise.runTo(updated);
+        dmc.runTo(updated);
+    }
+
+    /**
+     * Runs the samples on from {@link #updated} to the given cycle, clocking each channel only on
+     * the cycles it is due.
+     * <p>
+     * A stretch at a time. Up to the next cycle on which a channel's level can move or a sample is
+     * finished, each cycle is the one before it again, and {@link #hold} makes the samples of all
+     * of them at once. That cycle is then clocked on its own, by {@link #clock()}, and the next
+     * stretch begins.
+     */
+    private void clockChannels(final long until) {
+        while (updated < until) {
+            var next = Math.min(until, nextChange());
+
+            if (next > updated) {
+                hold((int) (next - updated));
+            }
+
+            if (updated < until) {
+                clock();
+            }
+        }
+    }
+
+    /**
+     * The next cycle from {@link #updated} on which a channel is due or a sample is finished.
+     * Without a {@link #sink} no sample ever is.
+     */
+    private long nextChange() {
+        var due = Math.min(Math.min(pulse1.due, pulse2.due), Math.min(triangle.due, noise.due));
+
+        if (sink == null) {
+            return Math.min(due, dmc.due);
+        }
+
+        var sampler = bandLimited
+                ? blip.idleCycles()
+                : (long) Math.ceil(cyclesToNextSample) - 1;
+
+        return Math.min(Math.min(due, dmc.due), updated + sampler);
+    }
+
+    /**
+     * That many cycles of the level the mixer is at now, which {@link #nextChange()} has promised
+     * nothing moves.
+     */
+    private void hold(final int held) {
+        updated += held;
+
+        if (sink == null) {
+            return;
+        }
+
+        if (bandLimited) {
+            moveLevel();
+            blip.skip(held);
+        } else {
+            sampleSum += (long) mix() * held;
+            sampleCycles += held;
+            cyclesToNextSample -= held;
+        }
+    }
+
+    /**
+     * The cycle at {@link #updated}: the channels due on it, and whichever way the samples are made.
+     * <p>
+     * The pulse and noise dividers are clocked by the APU clock, which is the CPU clock halved. The
+     * triangle and the DMC are clocked by the CPU clock itself, which is why the triangle can reach
+     * frequencies the pulses cannot.
+     */
+    private void clock() {
+        if (pulse1.due == updated) {
+            levelMoved |= pulse1.clockAt(updated);
+        }
+        if (pulse2.due == updated) {
+            levelMoved |= pulse2.clockAt(updated);
+        }
+        if (triangle.due == updated) {
+            levelMoved |= triangle.clockAt(updated);
+        }
+        if (noise.due == updated) {
+            levelMoved |= noise.clockAt(updated);
+        }
+        if (dmc.due == updated) {
+            levelMoved |= dmc.clockAt(updated);
+        }
+
+        updated++;
+
+        if (sink == null) {
+            return;
+        }
+
+        if (bandLimited) {
+            synthesize();
+        } else {
+            sample();
+        }
+    }
+
+    /**
+     * Works out when each channel is next due, after the frame counter or a register has changed
+     * what they are doing. Only called with the chip caught up.
+     */
+    private void scheduleChannels() {
+        pulse1.schedule();
+        pulse2.schedule();
+        triangle.schedule();
+        noise.schedule();
+        dmc.schedule();
+    }
+
+    /**
+     * Works out every channel's next cycle and {@link #horizon} again, after something from outside
+     * the chip has changed it. Only called with the chip caught up.
+     */
+    private void schedule() {
+        scheduleChannels();
+        horizon = cycles + uneventfulCycles();
+    }
+
+    /**
+     * How many cycles from now can go by with nothing happening that the rest of the machine could
+     * see: no frame counter step, no change on /IRQ and no DMC fetch asked for.
+     * <p>
+     * None at all while a $4017 write or a $4015 acknowledgement is making its way across the chip,
+     * or a sample $4015 has just started is waiting to ask for its first byte. Those last a few
+     * cycles and are clocked one by one. Otherwise it is the fewer of the cycles to the frame
+     * counter's next step and, if a sample is playing with a byte in hand, the cycles to the bit
+     * that empties the buffer and asks for the next one. An interrupt from the DMC is not on the
+     * list because it is raised by a fetch, which the bus hands over itself.
+     */
+    private long uneventfulCycles() {
+        if (frameIRQClearPending || frameCounter.writeDelay > 0 || dmc.loadDelay > 0) {
+            return 0;
+        }
+
+        var uneventful = frameCounter.cyclesToNextStep();
+
+        if (dmc.bytesRemaining > 0 && dmc.sampleBufferFilled) {
+            // Counted from wherever the DMC's divider has been run to, which need not be now.
+            uneventful = Math.min(uneventful, dmc.at + dmc.cyclesToEmptyBuffer() - cycles);
+        }
+
+        return uneventful;
+    }
+
+    /**
+     * Chooses how the chip's output is made into samples.
+     * <p>
+     * Off, which is how a machine starts, every cycle's output goes into an average and each sample
+     * is the average of its forty-odd cycles. On, the level is worked out only when something could
+     * have moved it, and each move is written into a {@link BlipBuffer} as a step that has been
+     * band-limited to the sample rate, so that the samples are the output as a sound card should
+     * hear it: nothing above 22kHz is left to fold back down as a tone that was never played, and a
+     * cycle on which nothing moves costs next to nothing. The same three filters follow either way,
+     * and either way a run is the same samples every time it is made.
+     * <p>
+     * Not machine state, in the same way that {@link NES#setCatchUp} is not: the game cannot tell,
+     * and a save state taken with it on loads with it off. Meant to be chosen before the machine
+     * runs. Changing it part way through works, but the one it changes to picks up from wherever it
+     * was left, which is a click.
+     */
+    public void setBandLimited(final boolean bandLimited) {
+        catchUp();
+
+        this.bandLimited = bandLimited;
+        levelMoved = true;
+    }
+
+    public boolean isBandLimited() {
+        return bandLimited;
+    }
+
+    /**
+     * Chooses how many samples a second are made: one of {@link #SAMPLE_RATES}.
+     * <p>
+     * Whichever way the samples are made, they are made at this rate straight from the chip's own
+     * clock. The box filter averages fewer cycles into each sample at a higher rate, and the
+     * band-limited steps are laid down at positions between samples of this rate -- they are
+     * already a polyphase filter, in fixed point, from the CPU clock to the sound card's. So a
+     * sound card that runs at 48kHz is handed 48kHz, and nothing resamples anything a second time.
+     * <p>
+     * Not machine state, for the reason {@link #setBandLimited} is not. Meant to be chosen before
+     * the machine runs: what is still in the filters and the steps half written out were made for
+     * the old rate, so they are started again, and changing it part way through is a click. What
+     * was already made goes to the {@link AudioSink} first, at the rate it was made at.
+     *
+     * @throws IllegalArgumentException for a rate that is not one of {@link #SAMPLE_RATES}.
+     */
+    public void setSampleRate(final int sampleRate) {
+        if (!SAMPLE_RATES.contains(sampleRate)) {
+            throw new IllegalArgumentException(
+                    sampleRate + "Hz is not a sample rate the APU makes: " + SAMPLE_RATES);
+        }
+
+        flushSamples();
+
+        this.sampleRate = sampleRate;
+
+        cyclesPerSample = region.cpuClockHz() / sampleRate;
+        cyclesToNextSample = cyclesPerSample;
+        sampleSum = 0;
+        sampleCycles = 0;
+
+        blip = new BlipBuffer(region.cpuClockHz(), sampleRate);
+        level = 0;
+        levelMoved = true;
 
-        sample();
+        highPass90 = new HighPass(90.0, sampleRate);
+        highPass440 = new HighPass(440.0, sampleRate);
+        lowPass14k = new LowPass(14_000.0, sampleRate);
+    }
+
+    /**
+     * How many samples a second the {@link AudioSink} is handed.
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Writes this cycle's step, if the level took one, and finishes a sample when one falls due.
+     */
+    private void synthesize() {
+        moveLevel();
+
+        if (!blip.clock()) {
+            return;
+        }
+
+        var mixed = blip.read() / LEVEL_SCALE;
+        var filtered = lowPass14k.filter(highPass440.filter(highPass90.filter(mixed)));
+
+        emit(clamp(filtered * OUTPUT_SCALE));
+    }
+
+    /**
+     * Writes the step the level took into {@link #blip}, if something could have moved it and it
+     * did move.
+     */
+    private void moveLevel() {
+        if (!levelMoved) {
+            return;
+        }
+
+        levelMoved = false;
+
+        var now = mix();
+
+        if (now != level) {
+            blip.addDelta(now - level);
+            level = now;
+        }
     }
 
     /**
@@ -285,7 +671,7 @@ public class APU {
             return;
         }
 
-        var averaged = sampleSum / sampleCycles;
+        var averaged = (double) sampleSum / ((long) sampleCycles * LEVEL_SCALE);
 
         sampleSum = 0;
         sampleCycles = 0;
@@ -301,14 +687,14 @@ public class APU {
     }
 
     /**
-     * @return this cycle's output, 0 to about 1, on the two nonlinear ladders the five channels
-     * really share.
+     * @return this cycle's output, 0 to about {@link #LEVEL_SCALE}, on the two nonlinear ladders
+     * the five channels really share.
      */
-    private double mix() {
+    private int mix() {
         var pulses = pulse1.output() + pulse2.output();
         var rest = 3 * triangle.output() + 2 * noise.output() + dmc.output;
 
-        return PULSE_TABLE[pulses] + TND_TABLE[rest];
+        return PULSE_LEVELS[pulses] + TND_LEVELS[rest];
     }
 
     private static short clamp(final double sample) {
@@ -324,51 +710,56 @@ public class APU {
     }
 
     /**
-     * Puts a finished sample in the ring, dropping the oldest one if nothing has drained it.
-     * <p>
-     * Dropping the oldest rather than refusing the newest is the right way round for sound: what
-     * a front end that has fallen behind wants when it comes back is the audio from now, not a
-     * fifth of a second of history to play before it.
+     * Puts a finished sample in the block, and hands the block over once it is full.
      */
     private void emit(final short sample) {
-        sampleRing[sampleWrite] = sample;
-        sampleWrite = (sampleWrite + 1) % SAMPLE_RING_SIZE;
+        block[blockCount++] = sample;
 
-        if (sampleCount == SAMPLE_RING_SIZE) {
-            sampleRead = sampleWrite;
-        } else {
-            sampleCount++;
+        if (blockCount == BLOCK_SAMPLES) {
+            blockCount = 0;
+            sink.write(block, BLOCK_SAMPLES);
         }
     }
 
     /**
-     * Takes the finished samples out of the chip.
+     * Says where the finished samples go, or that nobody is listening.
+     * <p>
+     * Null is the default, and is not the same as a sink that throws the samples away: without a
+     * sink the chip does not make them at all. The channels are clocked exactly as they always are
+     * -- the DMC's fetches and the frame counter's interrupts are the same either way, and so is
+     * everything a save state holds about them -- but the mixer, the decimator and the three
+     * filters are never run. For a headless run that only wants the picture, that is most of what
+     * the chip costs.
      * <p>
-     * Signed sixteen bit, one channel, at {@link #SAMPLE_RATE}. Called from whichever thread
-     * clocks the machine and from no other: the ring is not synchronised, and it does not need to
-     * be, because the emulation thread is the only thread that ever touches the NES.
+     * What is in the block when the sink changes goes to the old one first. Whatever the filters
+     * were holding when the sound was switched off is picked up again where it was left when it is
+     * switched back on, so the first few samples after that can have a click in them.
      *
-     * @param out where to put them.
-     * @return how many were written, which is the smaller of what was waiting and what fits.
+     * @param sink where to push the samples, or null to stop making them.
      */
-    public int drainSamples(final short[] out) {
-        var drained = Math.min(out.length, sampleCount);
-
-        for (var i = 0; i < drained; i++) {
-            out[i] = sampleRing[sampleRead];
-            sampleRead = (sampleRead + 1) % SAMPLE_RING_SIZE;
-        }
-
-        sampleCount -= drained;
+    public void setAudioSink(final AudioSink sink) {
+        flushSamples();
 
-        return drained;
+        this.sink = sink;
+        levelMoved = true;
     }
 
     /**
-     * How many finished samples are waiting to be drained.
+     * Runs the chip on to the cycle it has been clocked to and hands over whatever is in the block,
+     * full or not.
+     * <p>
+     * For a front end that thinks in frames: called at the end of each, it means every sample the
+     * frame made has reached the sink by the time the call returns, rather than up to
+     * {@link #BLOCK_SAMPLES} of them waiting here for the next one.
      */
-    public int availableSamples() {
-        return sampleCount;
+    public void flushSamples() {
+        catchUp();
+
+        if (blockCount > 0 && sink != null) {
+            sink.write(block, blockCount);
+        }
+
+        blockCount = 0;
     }
 
     /**
@@ -392,23 +783,34 @@ public class APU {
      * and is what stops a sample that was playing loudly from leaving a step behind it.
      */
     public void reset() {
+        catchUp();
+
+        levelMoved = true;
         writeStatus(0);
         setFrameIRQFlag(false);
         frameCounter.reset();
         triangle.resetSequencer();
         dmc.output &= 1;
+
+        schedule();
     }
 
     /**
      * Reads or writes the five channels, the frame counter, and the pipeline that turns their
      * output into samples.
      * <p>
-     * What is not here is the ring buffer, along with its three indices. That is the queue between
-     * this chip and the sound card rather than anything the chip remembers, and it is empty at the
-     * moment a state is written anyway -- both drivers drain it at the end of every frame. What
-     * <em>is</em> here is everything upstream of it: the box filter's running sum, the fractional
-     * count to the next sample, and the three filters' accumulated state, because those decide what
-     * the next few hundred samples sound like and dropping them would put a click in.
+     * What is not here is the block on its way to the {@link AudioSink}, or the sink itself. That is
+     * the way out to the sound card rather than anything the chip remembers, and every front end
+     * flushes it at the end of each frame, so it is empty at the moment a state is written anyway.
+     * What <em>is</em> here is everything upstream of it: the box filter's running sum, the fractional
+     * count to the next sample, the band-limited steps still being written out, and the three
+     * filters' accumulated state, because those decide what the next few hundred samples sound like
+     * and dropping them would put a click in. Which of the two makes the samples is not here: see
+     * {@link #setBandLimited}.
+     * <p>
+     * Written with the chip caught up, so the state is the one clocking every cycle would have left.
+     * How far behind it is allowed to fall, and when each channel is next due, are not here either:
+     * a loaded chip works those out again from everything that is.
      * <p>
      * The nested classes are all private and stay that way. They are nestmates, so this can call
      * straight into them without widening anything.
@@ -416,6 +818,12 @@ public class APU {
      * @see com.github.dimiro1.mynes.state.SaveState
      */
     public void serialize(final StateIO io) {
+        // Only on the way out. On the way in, whatever this chip was owed belongs to the run being
+        // replaced.
+        if (io.saving()) {
+            catchUp();
+        }
+
         cycles = io.u64(cycles);
         frameIRQClearPending = io.bool(frameIRQClearPending);
 
@@ -426,13 +834,27 @@ public class APU {
         dmc.serialize(io);
         frameCounter.serialize(io);
 
-        sampleSum = io.f64(sampleSum);
+        // Carried as the level it adds up to, which is how the format has always had it. The sum is
+        // a whole number of 65536ths, so nothing is lost on the way through.
+        sampleSum = Math.round(io.f64((double) sampleSum / LEVEL_SCALE) * LEVEL_SCALE);
         sampleCycles = io.u16(sampleCycles);
         cyclesToNextSample = io.f64(cyclesToNextSample);
 
         highPass90.serialize(io);
         highPass440.serialize(io);
         lowPass14k.serialize(io);
+
+        level = io.u32(level);
+        levelMoved = io.bool(levelMoved);
+        blip.serialize(io);
+
+        updated = cycles;
+        pulse1.at = cycles;
+        pulse2.at = cycles;
+        triangle.at = cycles;
+        noise.at = cycles;
+        dmc.at = cycles;
+        schedule();
     }
 
     /**
@@ -446,6 +868,10 @@ public class APU {
      * @param data    the byte written.
      */
     public void write(final int address, final int data) {
+        catchUp();
+
+        levelMoved = true;
+
         switch (address) {
             case 0x4000, 0x4001, 0x4002, 0x4003 -> pulse1.write(address & 3, data);
             case 0x4004, 0x4005, 0x4006, 0x4007 -> pulse2.write(address & 3, data);
@@ -456,6 +882,8 @@ public class APU {
             case 0x4017 -> frameCounter.write(data);
             default -> { /* $4014 and $4016 are not the APU's, and neither is $4018-$401F */ }
         }
+
+        schedule();
     }
 
     /**
@@ -469,6 +897,8 @@ public class APU {
      * @return the status byte.
      */
     public int readStatus() {
+        catchUp();
+
         var status = 0;
 
         if (pulse1.lengthCounter.value > 0) {
@@ -494,6 +924,7 @@ public class APU {
         }
 
         frameIRQClearPending = true;
+        schedule();
 
         return status;
     }
@@ -582,6 +1013,8 @@ public class APU {
      * and asking for the next byte. See MMU.scheduleAbortedDMA.
      */
     public boolean isDMCReloadImminent() {
+        catchUp();
+
         return dmc.bytesRemaining > 0 && dmc.sampleBufferFilled && dmc.loadDelay == 0
                 && dmc.isReloadImminent();
     }
@@ -595,6 +1028,34 @@ public class APU {
         return CPUBus.isGetCycle(cycles - 1);
     }
 
+    /**
+     * How many whole CPU cycles can go by before this chip moves its end of /IRQ or asks for a DMC
+     * fetch -- the only two things it does that the CPU would notice without reading $4015.
+     * <p>
+     * The frame counter's interrupt comes at a cycle that can be read straight off the sequence,
+     * and never comes at all in five step mode or with the inhibit bit set. The DMC is not worth
+     * predicting: a channel that is playing asks for a byte every few hundred cycles and every one
+     * of them is a transfer, so while it plays the answer is nought. So it is while a $4017 write
+     * or a $4015 acknowledgement is still making its way across the chip.
+     * <p>
+     * Pessimistic by two cycles, which costs nothing and means an off-by-one here cannot move an
+     * interrupt. See {@link NES#setCatchUp}.
+     */
+    int quietCycles() {
+        if (frameIRQClearPending || frameCounter.writeDelay > 0
+                || dmc.bytesRemaining > 0 || dmc.isFetchPending()) {
+            return 0;
+        }
+
+        if (frameCounter.fiveStep || frameCounter.irqInhibit) {
+            return Integer.MAX_VALUE;
+        }
+
+        var frameCycle = frameCounter.cycle + (int) (cycles - updated);
+
+        return Math.max(0, region.irqFirstCycle() - frameCycle - 2);
+    }
+
     /**
      * Where the next byte of the sample is.
      *
@@ -614,7 +1075,12 @@ public class APU {
      *         schedules an aborted DMA -- an implicit stop. See MMU.scheduleAbortedDMA.
      */
     public boolean finishDMCFetch(final int data) {
-        return dmc.finishFetch(data);
+        catchUp();
+
+        var stopped = dmc.finishFetch(data);
+        schedule();
+
+        return stopped;
     }
 
     // ---------------------------------------------------------------- for the tests
@@ -622,7 +1088,8 @@ public class APU {
     // $4015 is the only register the chip answers, it says no more than whether each counter is
     // above zero, and reading it clears the frame interrupt on the way out. That is too coarse and
     // too destructive to check the counters with, so the counters themselves are visible to the
-    // tests in the same package.
+    // tests in the same package. Those a divider moves catch the chip up first; the rest are only
+    // ever moved by the frame counter or a register, both of which are always up to date.
 
     /**
      * The frame counter's interrupt flag, which is bit 6 of $4015, without a $4015 read's side
@@ -636,6 +1103,8 @@ public class APU {
      * How many CPU cycles into its sequence the frame counter is.
      */
     int frameCounterCycle() {
+        catchUp();
+
         return frameCounter.cycle;
     }
 
@@ -689,20 +1158,28 @@ public class APU {
     }
 
     int pulse1Output() {
+        catchUp();
+
         return pulse1.output();
     }
 
     // Symmetric debug accessor mirroring pulse1Output(); kept for parity even when unused.
     @SuppressWarnings("unused")
     int pulse2Output() {
+        catchUp();
+
         return pulse2.output();
     }
 
     int triangleOutput() {
+        catchUp();
+
         return triangle.output();
     }
 
     int noiseOutput() {
+        catchUp();
+
         return noise.output();
     }
 
@@ -711,6 +1188,8 @@ public class APU {
      * channel and cannot be measured from the outside in any reasonable number of cycles.
      */
     int noiseShiftRegister() {
+        catchUp();
+
         return noise.shiftRegister;
     }
 
@@ -719,6 +1198,8 @@ public class APU {
      * it.
      */
     int dmcOutput() {
+        catchUp();
+
         return dmc.output;
     }
 
@@ -817,6 +1298,41 @@ public class APU {
             }
         }
 
+        /**
+         * How many cycles from now go by before {@link #tick()} does anything but count: the next
+         * cycle of the sequence that clocks something, raises or settles the interrupt, or starts
+         * the sequence over.
+         */
+        private long cyclesToNextStep() {
+            var next = Integer.MAX_VALUE;
+
+            next = sooner(region.step1Cycle(), next);
+            next = sooner(region.step2Cycle(), next);
+            next = sooner(region.step3Cycle(), next);
+
+            if (fiveStep) {
+                next = sooner(region.step5Cycle(), next);
+                next = sooner(region.fiveStepPeriod(), next);
+            } else {
+                next = sooner(region.irqFirstCycle(), next);
+                next = sooner(region.step4Cycle(), next);
+                next = sooner(region.fourStepPeriod(), next);
+            }
+
+            // A count past the end of the sequence, which only a damaged state can leave behind,
+            // never reaches a step again, in this model or the one clocked every cycle.
+            if (next == Integer.MAX_VALUE) {
+                return Long.MAX_VALUE / 2;
+            }
+
+            // The cycle that moves the count onto the step is the one that takes it.
+            return next - cycle - 1;
+        }
+
+        private int sooner(final int step, final int next) {
+            return step > cycle && step < next ? step : next;
+        }
+
         // The two below would read better as a switch, and were one until the step cycles moved to
         // Region: a case label has to be a compile-time constant, and which sequence this chip
         // steps through is now a question about the machine it is in. The order is the order the
@@ -939,6 +1455,8 @@ public class APU {
      * counter.
      */
     private void clockQuarterFrame() {
+        levelMoved = true;
+
         pulse1.envelope.clock();
         pulse2.envelope.clock();
         noise.envelope.clock();
@@ -949,6 +1467,8 @@ public class APU {
      * Clocks everything that runs at a half frame: the length counters and the sweep units.
      */
     private void clockHalfFrame() {
+        levelMoved = true;
+
         pulse1.lengthCounter.clock();
         pulse2.lengthCounter.clock();
         triangle.lengthCounter.clock();
@@ -1088,17 +1608,17 @@ public class APU {
         private double lastOutput;
 
         /**
-         * The coefficient is not here: it is final and derived from the cutoff, so it is the same
-         * number in every build. Only what the filter has accumulated travels.
+         * The coefficient is not here: it is final and derived from the cutoff and the rate, so it
+         * is the same number in every build. Only what the filter has accumulated travels.
          */
         private void serialize(final StateIO io) {
             lastInput = io.f64(lastInput);
             lastOutput = io.f64(lastOutput);
         }
 
-        private HighPass(final double cutoffHz) {
+        private HighPass(final double cutoffHz, final int sampleRate) {
             var rc = 1.0 / (2.0 * Math.PI * cutoffHz);
-            var dt = 1.0 / SAMPLE_RATE;
+            var dt = 1.0 / sampleRate;
 
             coefficient = rc / (rc + dt);
         }
@@ -1124,9 +1644,9 @@ public class APU {
             lastOutput = io.f64(lastOutput);
         }
 
-        private LowPass(final double cutoffHz) {
+        private LowPass(final double cutoffHz, final int sampleRate) {
             var rc = 1.0 / (2.0 * Math.PI * cutoffHz);
-            var dt = 1.0 / SAMPLE_RATE;
+            var dt = 1.0 / sampleRate;
 
             coefficient = dt / (rc + dt);
         }
@@ -1140,6 +1660,105 @@ public class APU {
 
     // =================================================================== the channels
 
+    /**
+     * What the five channels have in common as far as clocking them goes: a divider, counted every
+     * CPU cycle or every other one, that is only run on when something needs it.
+     * <p>
+     * Each channel keeps the cycle it has been clocked up to and the next cycle on which it could
+     * move the mixer's level. Up to that cycle its divider only counts down, or runs through periods
+     * nobody can hear, and {@link #skip} does all of them at once. A channel that is silent is never
+     * due at all. So the chip spends its time on the channels that are actually playing, and only
+     * on the cycles where their output changes.
+     */
+    private abstract static class Channel {
+        /**
+         * Whether the divider counts APU cycles -- only the even CPU cycles -- rather than every
+         * CPU cycle.
+         */
+        private final boolean halved;
+
+        /**
+         * The cycle the divider has been run up to.
+         */
+        long at;
+
+        /**
+         * The next cycle on which clocking the divider could move the channel's output, or
+         * {@link Long#MAX_VALUE} while nothing can.
+         */
+        long due;
+
+        Channel(final boolean halved) {
+            this.halved = halved;
+        }
+
+        /**
+         * One tick of the divider.
+         *
+         * @return whether that moved the channel's output.
+         */
+        abstract boolean tickTimer();
+
+        /**
+         * How many ticks of the divider can go by before one of them moves the output, or
+         * {@link Integer#MAX_VALUE} while nothing can. Only the frame counter and the registers
+         * change the answer, other than the ticks themselves.
+         */
+        abstract int idleTicks();
+
+        /**
+         * That many ticks at once, as {@link #tickTimer()} would have run them, none of which
+         * {@link #idleTicks()} says moves the output.
+         */
+        abstract void skip(int ticks);
+
+        /**
+         * Runs the divider on to the given cycle, not including it.
+         */
+        void runTo(final long cycle) {
+            if (cycle <= at) {
+                return;
+            }
+
+            var cycles = (int) (cycle - at);
+
+            // The even cycles from one to the other, counting the first.
+            skip(halved ? (cycles + 1 - (int) (at & 1)) / 2 : cycles);
+            at = cycle;
+        }
+
+        /**
+         * Clocks the divider for the cycle it is due on.
+         *
+         * @return whether that moved the output.
+         */
+        boolean clockAt(final long cycle) {
+            runTo(cycle);
+
+            var moved = (!halved || (cycle & 1) == 0) && tickTimer();
+
+            at = cycle + 1;
+            schedule();
+
+            return moved;
+        }
+
+        /**
+         * Works out {@link #due} again, from where the divider is now.
+         */
+        void schedule() {
+            var idle = idleTicks();
+
+            if (idle == Integer.MAX_VALUE) {
+                due = Long.MAX_VALUE;
+            } else if (halved) {
+                due = at + (at & 1) + 2L * idle;
+            } else {
+                due = at + idle;
+            }
+        }
+    }
+
     /**
      * One of the two pulse channels: a square wave with four duty cycles, an envelope and a sweep
      * unit.
@@ -1147,7 +1766,7 @@ public class APU {
      * The two are the same circuit twice over with one difference, in how the sweep unit negates
      * -- see {@link #onesComplementNegate} -- which is why they are one class and not two.
      */
-    private static final class Pulse {
+    private static final class Pulse extends Channel {
         /**
          * The four duty cycles, one bit per step of the eight step sequencer.
          * <p>
@@ -1204,6 +1823,7 @@ public class APU {
         private int sweepDivider;
 
         private Pulse(final boolean onesComplementNegate) {
+            super(true);
             this.onesComplementNegate = onesComplementNegate;
         }
 
@@ -1260,15 +1880,50 @@ public class APU {
 
         /**
          * One APU cycle of the divider, which is every other CPU cycle.
+         *
+         * @return whether the sequencer stepped, which is the only way this can move the output.
          */
-        private void tickTimer() {
+        @Override
+        boolean tickTimer() {
             if (timer > 0) {
                 timer--;
-                return;
+                return false;
             }
 
             timer = period;
             sequencerStep = (sequencerStep + 1) & 7;
+
+            return true;
+        }
+
+        /**
+         * How many APU cycles can go by before one of them moves the output: until the sequencer
+         * next steps, or for ever while nothing that gates the channel lets it be heard. Those
+         * gates are moved only by the frame counter and the registers.
+         */
+        @Override
+        int idleTicks() {
+            if (lengthCounter.value == 0 || isMuted() || envelope.volume() == 0) {
+                return Integer.MAX_VALUE;
+            }
+
+            return timer;
+        }
+
+        /**
+         * That many APU cycles of the divider at once, as {@link #tickTimer()} would have run them.
+         */
+        @Override
+        void skip(final int ticks) {
+            if (ticks <= timer) {
+                timer -= ticks;
+                return;
+            }
+
+            var after = ticks - timer - 1;
+
+            sequencerStep = (sequencerStep + 1 + after / (period + 1)) & 7;
+            timer = period - after % (period + 1);
         }
 
         /**
@@ -1347,7 +2002,7 @@ public class APU {
      * same period. Its second gate, on top of the length counter every channel has, is the linear
      * counter: a finer grained timer clocked at a quarter frame instead of a half.
      */
-    private static final class Triangle {
+    private static final class Triangle extends Channel {
         /**
          * The waveform, which is the whole channel: fifteen down to zero and back up again, at one
          * step per divider tick. Nothing scales it, so the triangle is either playing at full
@@ -1379,6 +2034,10 @@ public class APU {
         private int timer;
         private int sequencerStep;
 
+        private Triangle() {
+            super(false);
+        }
+
         private void serialize(final StateIO io) {
             lengthCounter.serialize(io);
 
@@ -1426,18 +2085,51 @@ public class APU {
          * The two counters do not silence this channel, they stop it: the sequencer simply holds
          * wherever it had got to. Which is exactly what makes the triangle click rather than fade
          * when a note ends, and why an emulator that zeroed the output instead sounds wrong.
+         *
+         * @return whether the sequencer stepped.
          */
-        private void tickTimer() {
+        @Override
+        boolean tickTimer() {
             if (timer > 0) {
                 timer--;
-                return;
+                return false;
             }
 
             timer = period;
 
             if (linearCounter > 0 && lengthCounter.value > 0) {
                 sequencerStep = (sequencerStep + 1) & 31;
+                return true;
             }
+
+            return false;
+        }
+
+        /**
+         * How many CPU cycles can go by before one of them steps the sequencer: for ever while the
+         * counters are holding it still.
+         */
+        @Override
+        int idleTicks() {
+            if (linearCounter == 0 || lengthCounter.value == 0) {
+                return Integer.MAX_VALUE;
+            }
+
+            return timer;
+        }
+
+        /**
+         * That many CPU cycles of the divider at once. Past its next reload only while the
+         * sequencer is held, so the step stays where it is.
+         */
+        @Override
+        void skip(final int ticks) {
+            if (ticks <= timer) {
+                timer -= ticks;
+                return;
+            }
+
+            timer = period - (ticks - timer - 1) % (period + 1);
         }
 
         /**
@@ -1460,7 +2152,7 @@ public class APU {
      * The noise channel: a shift register whose feedback makes a sequence long enough to hear as
      * hiss, gated by an envelope and a length counter like a pulse.
      */
-    private final class Noise {
+    private final class Noise extends Channel {
         private final LengthCounter lengthCounter = new LengthCounter();
         private final Envelope envelope = new Envelope();
 
@@ -1481,6 +2173,10 @@ public class APU {
         private int period;
         private int timer;
 
+        private Noise() {
+            super(true);
+        }
+
         private void serialize(final StateIO io) {
             lengthCounter.serialize(io);
             envelope.serialize(io);
@@ -1525,21 +2221,63 @@ public class APU {
 
         /**
          * One APU cycle of the divider, which is every other CPU cycle.
+         *
+         * @return whether the shift register moved.
          */
-        private void tickTimer() {
+        @Override
+        boolean tickTimer() {
             if (timer > 0) {
                 timer--;
-                return;
+                return false;
             }
 
             timer = period;
+            shift();
 
+            return true;
+        }
+
+        private void shift() {
             var tap = shortMode ? 6 : 1;
             var feedback = (shiftRegister & 1) ^ ((shiftRegister >> tap) & 1);
 
             shiftRegister = (shiftRegister >> 1) | (feedback << 14);
         }
 
+        /**
+         * How many APU cycles can go by before one of them shifts the register into the output:
+         * for ever while the channel cannot be heard.
+         */
+        @Override
+        int idleTicks() {
+            if (lengthCounter.value == 0 || envelope.volume() == 0) {
+                return Integer.MAX_VALUE;
+            }
+
+            return timer;
+        }
+
+        /**
+         * That many APU cycles of the divider at once. The register has no shortcut: every shift
+         * it would have made is made, since where the sequence has got to is what the channel
+         * sounds like once it can be heard again.
+         */
+        @Override
+        void skip(final int ticks) {
+            if (ticks <= timer) {
+                timer -= ticks;
+                return;
+            }
+
+            var after = ticks - timer - 1;
+
+            for (var shifts = 1 + after / (period + 1); shifts > 0; shifts--) {
+                shift();
+            }
+
+            timer = period - after % (period + 1);
+        }
+
         /**
          * @return the four bit level the channel is putting into the mixer.
          */
@@ -1569,7 +2307,7 @@ public class APU {
      * the bus off the CPU for four cycles and reads the next byte itself, which is what
      * {@link APU#isDMCFetchPending()} and its two companions are for.
      */
-    private final class DMC {
+    private final class DMC extends Channel {
         /**
          * The highest level the output can be stepped up to. Steps are two at a time from a seven
          * bit level, so 126 is the top and 125 the last one a step can start from.
@@ -1634,6 +2372,10 @@ public class APU {
          */
         private int loadDelay;
 
+        private DMC() {
+            super(false);
+        }
+
         /**
          * Including the read-ahead buffer and whether it is filled, because a DMA fetch in flight is
          * the one piece of this channel the CPU can see the effect of: the cycle it steals is what
@@ -1685,19 +2427,81 @@ public class APU {
 
         /**
          * One CPU cycle of the divider.
+         *
+         * @return whether the level moved. Asked of the level itself rather than of whether the
+         *         output unit was clocked, because until a game writes $4010 the divider reloads
+         *         every cycle and the unit is clocked on all of them, silent or not.
          */
-        private void tickTimer() {
+        @Override
+        boolean tickTimer() {
             if (loadDelay > 0) {
                 loadDelay--;
             }
 
             if (timer > 0) {
                 timer--;
-                return;
+                return false;
             }
 
             timer = period;
+
+            var before = output;
             clockOutputUnit();
+
+            return output != before;
+        }
+
+        /**
+         * How many CPU cycles can go by before one of them moves the level. While it is playing
+         * that is the next bit; while it is silent, the bit that ends the silence by taking the
+         * byte in the buffer, or never if there is none there -- only a fetch fills it.
+         */
+        @Override
+        int idleTicks() {
+            // Every cycle, while a sample $4015 has just started counts down to its first fetch.
+            if (loadDelay > 0) {
+                return 0;
+            }
+
+            if (!silence) {
+                return timer;
+            }
+
+            if (!sampleBufferFilled) {
+                return Integer.MAX_VALUE;
+            }
+
+            return cyclesToEmptyBuffer();
+        }
+
+        /**
+         * How many CPU cycles from now the bit that empties the buffer is clocked on: the rest of
+         * the divider's count, and a whole period for each bit after this one.
+         */
+        private int cyclesToEmptyBuffer() {
+            return timer + (bitsRemaining - 1) * (period + 1);
+        }
+
+        /**
+         * That many CPU cycles of the divider at once, on which {@link #idleTicks()} has promised
+         * the output unit only counts bits off: it is silent, and the bit that would take a byte
+         * in is not among them.
+         */
+        @Override
+        void skip(final int ticks) {
+            loadDelay = Math.max(0, loadDelay - ticks);
+
+            if (ticks <= timer) {
+                timer -= ticks;
+                return;
+            }
+
+            var after = ticks - timer - 1;
+            var bits = 1 + after / (period + 1);
+
+            timer = period - after % (period + 1);
+            shiftRegister = bits >= 8 ? 0 : shiftRegister >> bits;
+            bitsRemaining = 8 - (8 - bitsRemaining + bits) % 8;
         }
 
         /**
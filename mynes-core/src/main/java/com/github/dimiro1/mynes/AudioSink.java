@@ -0,0 +1,29 @@
+package com.github.dimiro1.mynes;
+
+/**
+ * Where the APU's finished samples go: a WAV file, a sound card, the ring rewinding plays back.
+ * <p>
+ * Pushed rather than pulled. The chip hands each block over as it fills, so nothing between the two
+ * has to be big enough for however long the front end goes without asking -- there is no queue to
+ * overflow and nothing is ever dropped on the chip's side of the call. What a sink does with a block
+ * it cannot keep up with is its own decision, and the right one differs: a file writes everything,
+ * a sound card running ahead of real time throws the excess away.
+ * <p>
+ * Called on the emulation thread, from inside whatever call clocked the chip -- usually
+ * {@link NES#runFrame()} -- so it had better not take long. A sink that blocks holds the machine up
+ * for as long as it does.
+ *
+ * @see APU#setAudioSink
+ */
+@FunctionalInterface
+public interface AudioSink {
+    /**
+     * Takes a block of samples: signed sixteen bit, one channel, at {@link APU#getSampleRate()}.
+     *
+     * @param samples the block. Lent rather than given: the chip writes the next block into the
+     *                same array once this returns, so anything kept has to be copied out.
+     * @param count   how many of them, from the start of the array, are this block. Up to
+     *                {@link APU#BLOCK_SAMPLES}, and fewer when the block was flushed part full.
+     */
+    void write(short[] samples, int count);
+}
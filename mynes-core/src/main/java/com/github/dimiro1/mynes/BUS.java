@@ -35,6 +35,13 @@ public class BUS implements CPUBus, PPUBus {
     private boolean apuFrameIRQ;
     private boolean dmcIRQ;
 
+    /**
+     * Brings the PPU and the APU level with the CPU, on a console that lets them fall behind it;
+     * null on one that clocks all three in lockstep, which is the default and costs one null check
+     * per access. See {@link NES#setCatchUp}.
+     */
+    private Runnable catchUp;
+
     /**
      * Creates a new Bus with the specified components.
      *
@@ -87,6 +94,10 @@ public class BUS implements CPUBus, PPUBus {
      */
     @Override
     public int read(final int address) {
+        if (catchUp != null && address >= 0x2000 && address < 0x4020) {
+            catchUp.run();
+        }
+
         return mmu.read(address);
     }
 
@@ -98,9 +109,27 @@ public class BUS implements CPUBus, PPUBus {
      */
     @Override
     public void write(final int address, final int data) {
+        // Every write from $2000 up, and not only the registers: a write to the cartridge can
+        // switch the banks or the mirroring the PPU is about to fetch through, or acknowledge an
+        // interrupt, and the PPU has to have drawn everything before it with the old ones.
+        if (catchUp != null && address >= 0x2000) {
+            catchUp.run();
+        }
+
         mmu.write(address, data);
     }
 
+    /**
+     * Who to tell before the CPU reaches the PPU, the APU or the cartridge, or null to tell nobody.
+     * <p>
+     * Reads are only caught between $2000 and $401F. Nothing else the CPU can read is answered by
+     * a chip that has a clock of its own: RAM and the cartridge's PRG give the same byte whether or
+     * not the PPU is up to date.
+     */
+    void setCatchUp(final Runnable catchUp) {
+        this.catchUp = catchUp;
+    }
+
     /**
      * Reads a byte without the side effects a real read would have.
      *
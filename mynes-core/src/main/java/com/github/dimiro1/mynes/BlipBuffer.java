@@ -0,0 +1,238 @@
+package com.github.dimiro1.mynes;
+
+import com.github.dimiro1.mynes.state.StateIO;
+
+/**
+ * Turns a level that moves in steps at the CPU clock into samples at any rate -- one of
+ * {@link APU#SAMPLE_RATES} -- without averaging it and without aliasing.
+ * <p>
+ * The chip's output is a staircase: it holds one value for tens or thousands of cycles and then
+ * jumps. Averaging the staircase over each sample's forty-odd cycles, which is what the APU does
+ * by default, is a box filter, and a box filter lets a good part of everything above 22kHz through
+ * to fold back down as tones that were never played -- a pulse at its highest notes brings a whine
+ * a few kilohertz below it. This does what blargg's blip_buf does instead. Each jump is written
+ * into a short run of samples as a step that has been band-limited to below half the sample rate,
+ * and the samples are the sum of the steps written so far. The work is done per step rather than
+ * per cycle: a run of cycles on which nothing moves is one addition to the clock.
+ * <p>
+ * The steps are built once, at {@link #PHASES} positions between one sample and the next, and
+ * stored as integers that add up to exactly {@link #UNIT} at every position. So a step always
+ * settles at exactly its own height, and nothing a run does can make the sum creep away from the
+ * level it stands for. Time is counted in fixed point too. Everything from the step to the sum is
+ * integer arithmetic, and the tables are built with {@link StrictMath}, so a given run comes out
+ * as the same samples on every machine and every JVM.
+ * <p>
+ * Belongs to the emulation thread, like the rest of the APU.
+ *
+ * @see <a href="https://www.slack.net/~ant/bl-synth/">blargg: band-limited sound synthesis</a>
+ */
+final class BlipBuffer {
+    /**
+     * How many samples one step is spread over. Sixteen puts the edge of the pass band at about
+     * 12kHz, which the APU's own 14kHz low pass rolls off through anyway, and stops everything that
+     * would fold back below 17kHz at a few hundredths of a percent.
+     */
+    static final int WIDTH = 16;
+
+    /**
+     * How many positions between one sample and the next a step can be placed at. A step that
+     * falls between two of them lands on the one before, which is out by less than a 64th of a
+     * sample -- under one cycle of the CPU's clock.
+     */
+    static final int PHASES = 64;
+
+    /**
+     * What a step of one comes to once it has settled: the steps are stored at fifteen bits.
+     */
+    static final int UNIT = 1 << 15;
+
+    private static final int PHASE_BITS = 6;
+
+    /**
+     * Where the clock is between two samples is kept in 32 bits of fraction, which puts the rate out
+     * by less than a sample an hour.
+     */
+    private static final int TIME_BITS = 32;
+    private static final long ONE = 1L << TIME_BITS;
+
+    /**
+     * Where the pass band ends, as a fraction of the sample rate: 0.9 of the way to half of it.
+     */
+    private static final double CUTOFF = 0.9;
+
+    /**
+     * How finely each sample's share of a step is integrated while the tables are being built.
+     */
+    private static final int SLICES = 32;
+
+    /**
+     * The steps, one row per phase: how much of a step at that phase lands in each of the
+     * {@link #WIDTH} samples from the one it falls in.
+     */
+    private static final int[][] STEPS = steps();
+
+    /**
+     * How far one CPU cycle moves the clock, in the fixed point {@link #time} is kept in.
+     */
+    private final long cycle;
+
+    /**
+     * The steps written so far and not yet added up, as differences between one sample and the
+     * next: a ring of {@link #WIDTH} samples starting at {@link #head}, the one being made.
+     */
+    private final long[] deltas = new long[WIDTH];
+    private int head;
+
+    /**
+     * How far the clock has got into the sample being made, in 32 bits of fraction.
+     */
+    private long time;
+
+    /**
+     * What the samples already finished add up to, {@link #UNIT} to each step of one.
+     */
+    private long sum;
+
+    /**
+     * @param clockHz    how many cycles a second the level is stepped at.
+     * @param sampleRate how many samples a second to make of it.
+     */
+    BlipBuffer(final double clockHz, final int sampleRate) {
+        cycle = Math.round(sampleRate * (double) ONE / clockHz);
+    }
+
+    /**
+     * Writes a step in the level at the cycle the clock is on.
+     *
+     * @param delta how far the level moved, in whatever units the caller keeps it in.
+     */
+    void addDelta(final int delta) {
+        var step = STEPS[(int) (time >>> (TIME_BITS - PHASE_BITS))];
+
+        for (var i = 0; i < WIDTH; i++) {
+            deltas[(head + i) & (WIDTH - 1)] += (long) delta * step[i];
+        }
+    }
+
+    /**
+     * Moves the clock on by one cycle.
+     *
+     * @return true if that finished a sample, in which case {@link #read()} is to be called before
+     * anything else, since the next step belongs after it.
+     */
+    boolean clock() {
+        time += cycle;
+
+        if (time < ONE) {
+            return false;
+        }
+
+        time -= ONE;
+
+        return true;
+    }
+
+    /**
+     * How many cycles the clock can be moved on by before one of them finishes a sample.
+     */
+    int idleCycles() {
+        return (int) ((ONE - 1 - time) / cycle);
+    }
+
+    /**
+     * Moves the clock on by that many cycles at once, none of which {@link #idleCycles()} says
+     * finishes a sample.
+     */
+    void skip(final int cycles) {
+        time += cycle * cycles;
+    }
+
+    /**
+     * Adds the finished sample into the running sum and hands the sum out.
+     *
+     * @return the level at that sample, in the units the deltas were written in.
+     */
+    double read() {
+        sum += deltas[head];
+        deltas[head] = 0;
+        head = (head + 1) & (WIDTH - 1);
+
+        return (double) sum / UNIT;
+    }
+
+    /**
+     * All of it: the steps still being written out are the next sixteen samples.
+     */
+    void serialize(final StateIO io) {
+        io.longs(deltas);
+        head = io.u8(head) & (WIDTH - 1);
+        time = io.u64(time);
+        sum = io.u64(sum);
+    }
+
+    /**
+     * Builds {@link #STEPS}: a windowed sinc, integrated over each sample's width, from a step at
+     * each of the phases.
+     * <p>
+     * Each row is rounded as a running total rather than tap by tap, and normalised to its own
+     * total before that, so that whatever the rounding does to the shape every row still adds up to
+     * exactly {@link #UNIT}.
+     */
+    private static int[][] steps() {
+        var steps = new int[PHASES][WIDTH];
+        var edges = new double[WIDTH + 1];
+
+        for (var phase = 0; phase < PHASES; phase++) {
+            var offset = (double) phase / PHASES;
+
+            for (var i = 0; i < WIDTH; i++) {
+                edges[i + 1] = edges[i] + area(i - WIDTH / 2.0 - offset);
+            }
+
+            var total = edges[WIDTH];
+            var previous = 0L;
+
+            for (var i = 0; i < WIDTH; i++) {
+                var running = Math.round(edges[i + 1] / total * UNIT);
+
+                steps[phase][i] = (int) (running - previous);
+                previous = running;
+            }
+        }
+
+        return steps;
+    }
+
+    /**
+     * The impulse's area over the sample's width that starts at {@code from}.
+     */
+    private static double area(final double from) {
+        var area = 0.0;
+
+        for (var i = 0; i < SLICES; i++) {
+            area += impulse(from + (i + 0.5) / SLICES);
+        }
+
+        return area / SLICES;
+    }
+
+    /**
+     * A sinc cut off at {@link #CUTOFF}, under a Blackman window the width of a step.
+     */
+    private static double impulse(final double x) {
+        var half = WIDTH / 2.0;
+
+        if (Math.abs(x) >= half) {
+            return 0.0;
+        }
+
+        var sinc = x == 0.0
+                ? CUTOFF
+                : StrictMath.sin(Math.PI * CUTOFF * x) / (Math.PI * x);
+        var window = 0.42
+                + 0.5 * StrictMath.cos(Math.PI * x / half)
+                + 0.08 * StrictMath.cos(2.0 * Math.PI * x / half);
+
+        return sinc * window;
+    }
+}
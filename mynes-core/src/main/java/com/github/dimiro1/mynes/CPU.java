@@ -124,10 +124,12 @@ public class CPU {
     /**
      * Everything a cycle can change that a halted CPU must not have changed.
      * <p>
-     * Allocated per halted cycle rather than kept in a field, which costs a short lived object a
-     * few times per transfer and buys two things: nothing can leak from one cycle into the next,
-     * and {@code SaveStateCompletenessTests} does not have to be told about twenty-one fields that
-     * are only meaningful in the middle of a call.
+     * One of these lives as long as the CPU and is written over by every halted cycle, rather than
+     * a fresh one being made for each: an OAM transfer is over five hundred halted cycles and nearly
+     * every game runs one a frame, which was that many short lived objects a frame on the emulation
+     * thread. Nothing leaks from one cycle into the next all the same, because {@link #save} writes
+     * every field before {@link #restore} reads any. Between cycles what it holds means nothing,
+     * which is why a save state leaves it out.
      * <p>
      * Deliberately <em>not</em> the three interrupt lines: those are driven from outside
      * {@link #tick()}, and {@link #sampleNMI()} keeps watching /NMI while the CPU is held off the
@@ -142,6 +144,11 @@ public class CPU {
         private int interruptVector;
     }
 
+    /**
+     * Where {@link #haltedCycle()} keeps the CPU while it finds out what the cycle was going to do.
+     */
+    private final Registers beforeHalt = new Registers();
+
     /**
      * How many bytes each opcode takes, which is all this class needs to know about the shape of an
      * instruction: enough to hand a tracer the operands that went with it.
@@ -174,6 +181,256 @@ public class CPU {
             /* F */ 2, 2, 1, 2, 2, 2, 2, 2, 1, 3, 1, 3, 3, 3, 3, 3,
     };
 
+    // ---------------------------------------------------------------- the decode tables
+    //
+    // What an opcode means never changes, so it is worked out once, here, rather than on every
+    // cycle. runCycle() used to find the addressing mode with a switch of two hundred and fifty-six
+    // cases, and the mode's last cycle then found the operation with a second switch and the
+    // branches and the implied instructions with a third. A switch that size compiles to a jump
+    // table at best and a binary search at worst, and the three of them were the most executed
+    // code in the emulator. Each is now an array indexed by the opcode, and a cycle is one load and
+    // one call.
+    //
+    // The tables are static for the same reason LENGTH_PER_OPCODE is, and hold lambdas that take
+    // the CPU as an argument rather than capturing one: they describe the 6502, not this 6502.
+
+    /**
+     * One cycle of an instruction: the addressing mode's own switch on {@link #tick}, which is
+     * where the timing lives and which stays exactly as it was.
+     */
+    @FunctionalInterface
+    private interface Mode {
+        void cycle(CPU cpu);
+    }
+
+    /**
+     * What a read instruction does with its operand. See {@link #readOperation(int)}.
+     */
+    @FunctionalInterface
+    private interface ReadOperation {
+        void apply(CPU cpu, int value);
+    }
+
+    /**
+     * What a read-modify-write instruction does to its operand. See {@link #modifyOperation(int)}.
+     */
+    @FunctionalInterface
+    private interface ModifyOperation {
+        int apply(CPU cpu, int value);
+    }
+
+    /**
+     * An operation with no operand: a store, whose address the mode has already worked out, or one
+     * of the implied instructions, which act on the registers alone.
+     */
+    @FunctionalInterface
+    private interface Operation {
+        void apply(CPU cpu);
+    }
+
+    /**
+     * Whether a branch is taken, read off the flags on its second cycle.
+     */
+    @FunctionalInterface
+    private interface Condition {
+        boolean test(CPU cpu);
+    }
+
+    private static final Mode[] MODES = new Mode[256];
+    private static final ReadOperation[] READ_OPERATIONS = new ReadOperation[256];
+    private static final ModifyOperation[] MODIFY_OPERATIONS = new ModifyOperation[256];
+    private static final Operation[] WRITE_OPERATIONS = new Operation[256];
+    private static final Operation[] IMPLIED_OPERATIONS = new Operation[256];
+    private static final Condition[] BRANCH_CONDITIONS = new Condition[256];
+
+    static {
+        bind(MODES, CPU::brk, 0x00);
+        bind(MODES, CPU::rti, 0x40);
+        bind(MODES, CPU::rts, 0x60);
+        bind(MODES, CPU::php, 0x08);
+        bind(MODES, CPU::pha, 0x48);
+        bind(MODES, CPU::plp, 0x28);
+        bind(MODES, CPU::pla, 0x68);
+        bind(MODES, CPU::jsr, 0x20);
+        bind(MODES, CPU::accumulatorOrImplied,
+                0x0A, 0x1A, 0x18, 0x2A, 0x38, 0x3A, 0x4A, 0x58, 0x5A, 0x6A, 0x78, 0x7A, 0x88, 0x8A, 0x98, 0x9A, 0xA8,
+                0xAA, 0xB8, 0xBA, 0xC8, 0xCA, 0xD8, 0xDA, 0xE8, 0xEA, 0xF8, 0xFA);
+        bind(MODES, CPU::immediate,
+                0x09, 0x0B, 0x2B, 0x29, 0x49, 0x4B, 0x69, 0x6B, 0x80, 0x82, 0x89, 0x8B, 0xA0, 0xA2, 0xA9, 0xAB, 0xC0,
+                0xC2, 0xC9, 0xCB, 0xE0, 0xE2, 0xE9, 0xEB);
+        bind(MODES, CPU::absoluteJump, 0x4C);
+        bind(MODES, CPU::absoluteRead,
+                0x0C, 0x0D, 0x2C, 0x2D, 0x4D, 0x6D, 0xAC, 0xAD, 0xAE, 0xAF, 0xCC, 0xCD, 0xEC, 0xED);
+        bind(MODES, CPU::absoluteModify,
+                0x0E, 0x0F, 0x2E, 0x2F, 0x4F, 0x4E, 0x6E, 0x6F, 0xCE, 0xCF, 0xEE, 0xEF);
+        bind(MODES, CPU::absoluteWrite, 0x8C, 0x8D, 0x8E, 0x8F);
+        bind(MODES, CPU::zeroPageRead,
+                0x04, 0x05, 0x24, 0x25, 0x44, 0x45, 0x64, 0x65, 0xA4, 0xA5, 0xA6, 0xA7, 0xC4, 0xC5, 0xE4, 0xE5);
+        bind(MODES, CPU::zeroPageModify,
+                0x06, 0x07, 0x26, 0x27, 0x46, 0x47, 0x66, 0x67, 0xC6, 0xC7, 0xE6, 0xE7);
+        bind(MODES, CPU::zeroPageWrite, 0x84, 0x85, 0x86, 0x87);
+        bind(MODES, CPU::zeroPageYRead, 0xB6, 0xB7);
+        bind(MODES, CPU::zeroPageXRead,
+                0x15, 0x35, 0x55, 0x75, 0xB4, 0xB5, 0xD5, 0xF5, 0x14, 0x34, 0x54, 0x74, 0xD4, 0xF4);
+        bind(MODES, CPU::zeroPageYWrite, 0x96, 0x97);
+        bind(MODES, CPU::zeroPageXWrite, 0x94, 0x95);
+        bind(MODES, CPU::zeroPageXModify,
+                0x16, 0x17, 0x36, 0x37, 0x56, 0x57, 0x76, 0x77, 0xD6, 0xD7, 0xF6, 0xF7);
+        bind(MODES, CPU::absoluteIndexedYRead, 0x19, 0x39, 0x59, 0x79, 0xB9, 0xBB, 0xBE, 0xBF, 0xD9, 0xF9);
+        bind(MODES, CPU::absoluteIndexedXRead,
+                0x1D, 0x3D, 0x5D, 0x7D, 0xBC, 0xBD, 0xDD, 0xFD, 0x1C, 0xFC, 0xDC, 0x7C, 0x5C, 0x3C);
+        bind(MODES, CPU::absoluteIndexedYModify, 0x1B, 0x3B, 0x5B, 0x7B, 0xDB, 0xFB);
+        bind(MODES, CPU::absoluteIndexedXModify,
+                0x1E, 0x1F, 0x3E, 0x3F, 0x5E, 0x5F, 0x7E, 0x7F, 0xDE, 0xDF, 0xFE, 0xFF);
+        bind(MODES, CPU::absoluteIndexedYWrite, 0x99, 0x9B, 0x9E, 0x9F);
+        bind(MODES, CPU::absoluteIndexedXWrite, 0x9C, 0x9D);
+        bind(MODES, CPU::relative, 0x10, 0x30, 0x50, 0x70, 0x90, 0xB0, 0xD0, 0xF0);
+        bind(MODES, CPU::indexedIndirectRead, 0x01, 0x21, 0x41, 0x61, 0xA1, 0xA3, 0xC1, 0xE1);
+        bind(MODES, CPU::indexedIndirectModify, 0x03, 0x23, 0x43, 0x63, 0xC3, 0xE3);
+        bind(MODES, CPU::indexedIndirectWrite, 0x81, 0x83);
+        bind(MODES, CPU::indirectIndexedRead, 0x11, 0x31, 0x51, 0x71, 0xB1, 0xB3, 0xD1, 0xF1);
+        bind(MODES, CPU::indirectIndexedModify, 0x13, 0x33, 0x53, 0x73, 0xD3, 0xF3);
+        bind(MODES, CPU::indirectIndexedWrite, 0x91, 0x93);
+        bind(MODES, CPU::absoluteIndirectJump, 0x6C);
+        bind(MODES, CPU::kil, 0x02, 0x12, 0x22, 0x32, 0x42, 0x52, 0x62, 0x72, 0x92, 0xB2, 0xD2, 0xF2);
+
+        bind(READ_OPERATIONS, CPU::ora, 0x01, 0x05, 0x09, 0x0D, 0x11, 0x15, 0x19, 0x1D);
+        bind(READ_OPERATIONS, CPU::and, 0x21, 0x25, 0x29, 0x2D, 0x31, 0x35, 0x39, 0x3D);
+        bind(READ_OPERATIONS, CPU::eor, 0x41, 0x45, 0x49, 0x4D, 0x51, 0x55, 0x59, 0x5D);
+        bind(READ_OPERATIONS, CPU::adc, 0x61, 0x65, 0x69, 0x6D, 0x71, 0x75, 0x79, 0x7D);
+        bind(READ_OPERATIONS, CPU::lda, 0xA1, 0xA5, 0xA9, 0xAD, 0xB1, 0xB5, 0xB9, 0xBD);
+        bind(READ_OPERATIONS, CPU::cmp, 0xC1, 0xC5, 0xC9, 0xCD, 0xD1, 0xD5, 0xD9, 0xDD);
+        bind(READ_OPERATIONS, CPU::sbc, 0xE1, 0xE5, 0xE9, 0xEB, 0xED, 0xF1, 0xF5, 0xF9, 0xFD);
+        bind(READ_OPERATIONS, CPU::ldx, 0xA2, 0xA6, 0xAE, 0xB6, 0xBE);
+        bind(READ_OPERATIONS, CPU::ldy, 0xA0, 0xA4, 0xAC, 0xB4, 0xBC);
+        bind(READ_OPERATIONS, CPU::cpx, 0xE0, 0xE4, 0xEC);
+        bind(READ_OPERATIONS, CPU::cpy, 0xC0, 0xC4, 0xCC);
+        bind(READ_OPERATIONS, CPU::bit, 0x24, 0x2C);
+
+        // The illegal reads: LAX in six addressing modes, LAS in one -- absolute indexed by Y -- and
+        // the rest immediate only, the last two of those being the ones real hardware is unstable
+        // about. See UNSTABLE_MAGIC.
+        bind(READ_OPERATIONS, CPU::lax, 0xA3, 0xA7, 0xAF, 0xB3, 0xB7, 0xBF);
+        bind(READ_OPERATIONS, CPU::las, 0xBB);
+        bind(READ_OPERATIONS, CPU::anc, 0x0B, 0x2B);
+        bind(READ_OPERATIONS, CPU::asr, 0x4B);
+        bind(READ_OPERATIONS, CPU::arr, 0x6B);
+        bind(READ_OPERATIONS, CPU::axs, 0xCB);
+        bind(READ_OPERATIONS, CPU::xaa, 0x8B);
+        bind(READ_OPERATIONS, CPU::lxa, 0xAB);
+        bind(READ_OPERATIONS, (cpu, value) -> cpu.nop(),
+                0x04, 0x0C, 0x14, 0x1C, 0x34, 0x3C, 0x44, 0x54, 0x5C, 0x64, 0x74, 0x7C,
+                0x80, 0x82, 0x89, 0xC2, 0xD4, 0xDC, 0xE2, 0xF4, 0xFC);
+
+        bind(MODIFY_OPERATIONS, CPU::asl, 0x06, 0x0E, 0x16, 0x1E);
+        bind(MODIFY_OPERATIONS, CPU::slo, 0x03, 0x07, 0x0F, 0x13, 0x17, 0x1B, 0x1F);
+        bind(MODIFY_OPERATIONS, CPU::rol, 0x26, 0x2E, 0x36, 0x3E);
+        bind(MODIFY_OPERATIONS, CPU::rla, 0x23, 0x27, 0x2F, 0x33, 0x37, 0x3B, 0x3F);
+        bind(MODIFY_OPERATIONS, CPU::lsr, 0x46, 0x4E, 0x56, 0x5E);
+        bind(MODIFY_OPERATIONS, CPU::sre, 0x43, 0x47, 0x4F, 0x53, 0x57, 0x5B, 0x5F);
+        bind(MODIFY_OPERATIONS, CPU::ror, 0x66, 0x6E, 0x76, 0x7E);
+        bind(MODIFY_OPERATIONS, CPU::rra, 0x63, 0x67, 0x6F, 0x73, 0x77, 0x7B, 0x7F);
+        bind(MODIFY_OPERATIONS, CPU::dec, 0xC6, 0xCE, 0xD6, 0xDE);
+        bind(MODIFY_OPERATIONS, CPU::dcp, 0xC3, 0xC7, 0xCF, 0xD3, 0xD7, 0xDB, 0xDF);
+        bind(MODIFY_OPERATIONS, CPU::inc, 0xE6, 0xEE, 0xF6, 0xFE);
+        bind(MODIFY_OPERATIONS, CPU::isc, 0xE3, 0xE7, 0xEF, 0xF3, 0xF7, 0xFB, 0xFF);
+
+        bind(WRITE_OPERATIONS, cpu -> cpu.write(cpu.tickAddress, cpu.a), 0x81, 0x85, 0x8D, 0x91, 0x95, 0x99, 0x9D);
+        bind(WRITE_OPERATIONS, cpu -> cpu.write(cpu.tickAddress, cpu.x), 0x86, 0x8E, 0x96);
+        bind(WRITE_OPERATIONS, cpu -> cpu.write(cpu.tickAddress, cpu.y), 0x84, 0x8C, 0x94);
+        bind(WRITE_OPERATIONS, cpu -> cpu.write(cpu.tickAddress, cpu.a & cpu.x), 0x83, 0x87, 0x8F, 0x97);
+        bind(WRITE_OPERATIONS, cpu -> cpu.storeHigh(cpu.y), 0x9C);
+        bind(WRITE_OPERATIONS, cpu -> cpu.storeHigh(cpu.x), 0x9E);
+        bind(WRITE_OPERATIONS, cpu -> cpu.storeHigh(cpu.a & cpu.x), 0x93, 0x9F);
+        bind(WRITE_OPERATIONS, cpu -> {
+            // TAS/SHS also copies A & X into the stack pointer.
+            cpu.setSP(cpu.a & cpu.x);
+            cpu.storeHigh(cpu.sp);
+        }, 0x9B);
+
+        bind(IMPLIED_OPERATIONS, cpu -> cpu.setA(cpu.asl(cpu.a)), 0x0A);
+        bind(IMPLIED_OPERATIONS, CPU::clc, 0x18);
+        bind(IMPLIED_OPERATIONS, cpu -> cpu.setA(cpu.rol(cpu.a)), 0x2A);
+        bind(IMPLIED_OPERATIONS, CPU::sec, 0x38);
+        bind(IMPLIED_OPERATIONS, cpu -> cpu.setA(cpu.lsr(cpu.a)), 0x4A);
+        bind(IMPLIED_OPERATIONS, CPU::cli, 0x58);
+        bind(IMPLIED_OPERATIONS, cpu -> cpu.setA(cpu.ror(cpu.a)), 0x6A);
+        bind(IMPLIED_OPERATIONS, CPU::sei, 0x78);
+        bind(IMPLIED_OPERATIONS, CPU::dey, 0x88);
+        bind(IMPLIED_OPERATIONS, CPU::txa, 0x8A);
+        bind(IMPLIED_OPERATIONS, CPU::tya, 0x98);
+        bind(IMPLIED_OPERATIONS, CPU::txs, 0x9A);
+        bind(IMPLIED_OPERATIONS, CPU::tay, 0xA8);
+        bind(IMPLIED_OPERATIONS, CPU::tax, 0xAA);
+        bind(IMPLIED_OPERATIONS, CPU::clv, 0xB8);
+        bind(IMPLIED_OPERATIONS, CPU::tsx, 0xBA);
+        bind(IMPLIED_OPERATIONS, CPU::iny, 0xC8);
+        bind(IMPLIED_OPERATIONS, CPU::dex, 0xCA);
+        bind(IMPLIED_OPERATIONS, CPU::cld, 0xD8);
+        bind(IMPLIED_OPERATIONS, CPU::inx, 0xE8);
+        bind(IMPLIED_OPERATIONS, CPU::sed, 0xF8);
+        bind(IMPLIED_OPERATIONS, CPU::nop, 0x1A, 0xFA, 0x3A, 0x5A, 0x7A, 0xDA, 0xEA);
+
+        bind(BRANCH_CONDITIONS, cpu -> cpu.getFlagN() == 0, 0x10);
+        bind(BRANCH_CONDITIONS, cpu -> cpu.getFlagN() == 1, 0x30);
+        bind(BRANCH_CONDITIONS, cpu -> cpu.getFlagV() == 0, 0x50);
+        bind(BRANCH_CONDITIONS, cpu -> cpu.getFlagV() == 1, 0x70);
+        bind(BRANCH_CONDITIONS, cpu -> cpu.getFlagC() == 0, 0x90);
+        bind(BRANCH_CONDITIONS, cpu -> cpu.getFlagC() == 1, 0xB0);
+        bind(BRANCH_CONDITIONS, cpu -> cpu.getFlagZ() == 0, 0xD0);
+        bind(BRANCH_CONDITIONS, cpu -> cpu.getFlagZ() == 1, 0xF0);
+
+        // Every opcode has a mode -- the twelve that have none jam the processor, which is a mode
+        // of its own -- so a hole in that table is a typo above and is better found at class load
+        // than the first time a game executes it.
+        for (var opcode = 0; opcode < MODES.length; opcode++) {
+            if (MODES[opcode] == null) {
+                throw new IllegalStateException("No addressing mode for opcode: " + opcode);
+            }
+        }
+
+        // The other tables are sparse on purpose, and their holes are what the switches' default
+        // branches used to be: reachable only through a mode bound to the wrong opcode.
+        fill(READ_OPERATIONS, (cpu, value) -> cpu.unexpectedOpcode());
+        fill(MODIFY_OPERATIONS, (cpu, value) -> cpu.unexpectedOpcode());
+        fill(WRITE_OPERATIONS, CPU::unexpectedOpcode);
+        fill(IMPLIED_OPERATIONS, CPU::unexpectedOpcode);
+        fill(BRANCH_CONDITIONS, cpu -> cpu.unexpectedOpcode() != 0);
+    }
+
+    /**
+     * Puts one handler in a decode table against every opcode given, refusing to put a second one
+     * where there already is one: two handlers for an opcode is a typo that a switch would have
+     * caught as a duplicate label, and this is where that check went.
+     */
+    private static <T> void bind(final T[] table, final T handler, final int... opcodes) {
+        for (var opcode : opcodes) {
+            if (table[opcode] != null) {
+                throw new IllegalStateException("Opcode bound twice: " + opcode);
+            }
+
+            table[opcode] = handler;
+        }
+    }
+
+    private static <T> void fill(final T[] table, final T handler) {
+        for (var opcode = 0; opcode < table.length; opcode++) {
+            if (table[opcode] == null) {
+                table[opcode] = handler;
+            }
+        }
+    }
+
+    /**
+     * What the old switches' default branches did: an operation table asked about an opcode it has
+     * nothing for, which only a mode bound to the wrong opcode can do.
+     *
+     * @return nothing; it always throws. Typed to fit every table's handler shape.
+     */
+    private int unexpectedOpcode() {
+        throw new IllegalStateException("Unexpected opcode: " + opcode);
+    }
+
     public CPU(final CPUBus bus) {
         this.bus = bus;
 
@@ -201,6 +458,13 @@ public class CPU {
         this.cycles = cycles;
     }
 
+    /**
+     * The cycle counter on its own, without the record {@link #getState()} allocates around it.
+     */
+    long getCycles() {
+        return cycles;
+    }
+
     /**
      * Returns the architectural state of the CPU.
      *
@@ -380,6 +644,17 @@ public class CPU {
         nmiLineLastSample = nmiLine;
     }
 
+    /**
+     * Whether the last {@link #sampleNMI()} saw the /NMI line where it is now.
+     * <p>
+     * False for the stretch between the PPU moving the line and the next sample, which is the one
+     * moment the sample has to happen on time: an edge sampled a cycle late is an NMI serviced an
+     * instruction late. {@link NES} asks before it lets the PPU fall behind.
+     */
+    boolean isNMISampled() {
+        return nmiLine == nmiLineLastSample;
+    }
+
     /**
      * Whether the CPU is between instructions.
      * <p>
@@ -393,6 +668,105 @@ public class CPU {
         return !stalled && tick == 1 && intTick == 1;
     }
 
+    /**
+     * How many cycles one pass of the loop starting at {@link #pc} takes, if it is a loop that does
+     * nothing but wait; nought if it is anything else.
+     * <p>
+     * Two shapes are recognised, which between them are how nearly every game spends the end of a
+     * frame:
+     * <ul>
+     *   <li>{@code JMP *}, which waits for an NMI to take it somewhere else;</li>
+     *   <li>a load or {@code BIT} of internal RAM or of $2002, and a branch back to it that is going
+     *       to be taken -- {@code LDA $2002 / BPL}, or a flag in zero page that the NMI handler
+     *       sets.</li>
+     * </ul>
+     * Every pass of one of those reads the same bytes from places nothing but the CPU can change,
+     * writes nothing, and leaves the registers as the pass before it did. So any number of passes
+     * are the same as one, and {@link NES} runs one for real after it has skipped the rest. $2002 is
+     * the exception that is let in on conditions: only its VBlank bit may be tested, and only while
+     * it is clear, because that bit moves only on the two dots the skip is never allowed to cross,
+     * and every other effect of reading it -- the write latch, the open bus -- is one the real pass
+     * repeats.
+     * <p>
+     * Nought as well whenever an interrupt could be taken at the boundary, and whenever anybody is
+     * listening to instructions go by, who would see fewer of them.
+     *
+     * @param status what a read of $2002 would return now.
+     */
+    int idleLoopCycles(final int status) {
+        if (!isAtInstructionBoundary() || !listeners.isEmpty()
+                || rstPending || nmiPending || interruptPending || sequence != Sequence.NONE
+                || (irqLine && getFlagI() == 0) || !isQuietToRead(pc)) {
+            return 0;
+        }
+
+        var first = bus.peek(pc);
+
+        if (first == 0x4C) {
+            return ByteUtils.joinBytes(bus.peek(pc + 2), bus.peek(pc + 1)) == pc ? 3 : 0;
+        }
+
+        var zeroPage = first == 0xA5 || first == 0xA6 || first == 0xA4 || first == 0x24;
+        var absolute = first == 0xAD || first == 0xAE || first == 0xAC || first == 0x2C;
+
+        if (!zeroPage && !absolute) {
+            return 0;
+        }
+
+        var address = zeroPage ? bus.peek(pc + 1) : ByteUtils.joinBytes(bus.peek(pc + 2), bus.peek(pc + 1));
+        var branchAt = ByteUtils.ensureWord(pc + (zeroPage ? 2 : 3));
+        var branch = bus.peek(branchAt);
+        var next = ByteUtils.ensureWord(branchAt + 2);
+
+        if ((branch & 0x1F) != 0x10 || !isQuietToRead(next)
+                || ByteUtils.ensureWord(next + (byte) bus.peek(branchAt + 1)) != pc) {
+            return 0;
+        }
+
+        final int value;
+
+        if (address < 0x2000) {
+            value = bus.peek(address);
+        } else if (address < 0x4000 && (address & 7) == 2 && branch == 0x10 && (status & 0x80) == 0) {
+            value = status;
+        } else {
+            return 0;
+        }
+
+        var bit = first == 0x24 || first == 0x2C;
+        var zero = bit ? (a & value) == 0 : value == 0;
+
+        // Bits 7-6 of a branch opcode name the flag and bit 5 the value that takes it.
+        var flag = switch (branch >> 6) {
+            case 0 -> (value & 0x80) != 0;
+            case 1 -> bit ? (value & 0x40) != 0 : getFlagV() != 0;
+            case 2 -> getFlagC() != 0;
+            default -> zero;
+        };
+
+        if (flag != ((branch & 0x20) != 0)) {
+            return 0;
+        }
+
+        return (zeroPage ? 3 : 4) + 3 + (ByteUtils.isDifferentPage(next, pc) ? 1 : 0);
+    }
+
+    /**
+     * Whether reading this address has no effect anywhere but the CPU: internal RAM, the
+     * cartridge's RAM, or its ROM, which are where a loop's own bytes can be.
+     */
+    private static boolean isQuietToRead(final int address) {
+        return address < 0x2000 || address >= 0x6000;
+    }
+
+    /**
+     * Moves the cycle counter on by passes of an idle loop that were worked out rather than run.
+     * See {@link #idleLoopCycles(int)}.
+     */
+    void skipIdleCycles(final long skipped) {
+        cycles += skipped;
+    }
+
     /**
      * Assert or release the IRQ line.
      * <p>
@@ -473,6 +847,30 @@ public class CPU {
         runCycle();
     }
 
+    /**
+     * A cycle a transfer has the bus for, spent by somebody other than {@link #tick()}: exactly what
+     * the {@link CPUBus.DMACycle#TRANSFER} branch there does, for {@link NES}'s bulk OAM transfer,
+     * which has already done the transfer's half.
+     */
+    void transferCycle() {
+        rdyHistory = ((rdyHistory << 1) | 1) & 0x07;
+        stalled = true;
+        cycles++;
+    }
+
+    /**
+     * The same for a whole run of them, which is how {@link NES} charges an OAM transfer it has
+     * landed in one go.
+     */
+    void transferCycles(final int count) {
+        // One bit in per cycle, as that many transferCycle() calls would: only three are kept, so
+        // a run of three or more leaves nothing but ones.
+        var shifted = Math.min(count, 3);
+        rdyHistory = ((rdyHistory << shifted) | ((1 << shifted) - 1)) & 0x07;
+        stalled = true;
+        cycles += count;
+    }
+
     /**
      * A cycle spent held off the bus, by running it and then taking it back.
      * <p>
@@ -490,7 +888,7 @@ public class CPU {
      * is writing, so the write goes through and the halt is simply one cycle later.
      */
     private void haltedCycle() {
-        var before = save();
+        save(beforeHalt);
         speculating = true;
         wroteThisCycle = false;
 
@@ -503,7 +901,7 @@ public class CPU {
             return;
         }
 
-        restore(before);
+        restore(beforeHalt);
         bus.endHaltCycle(false);
 
         stalled = true;
@@ -529,72 +927,9 @@ public class CPU {
             incPC();
         }
 
-        switch (opcode) {
-            case 0x00 -> brk();
-            case 0x40 -> rti();
-            case 0x60 -> rts();
-            case 0x08 -> php();
-            case 0x48 -> pha();
-            case 0x28 -> plp();
-            case 0x68 -> pla();
-            case 0x20 -> jsr();
-
-            case 0x0A, 0x1A, 0x18, 0x2A, 0x38, 0x3A, 0x4A, 0x58, 0x5A, 0x6A, 0x78, 0x7A, 0x88, 0x8A, 0x98, 0x9A, 0xA8,
-                 0xAA, 0xB8, 0xBA, 0xC8, 0xCA, 0xD8, 0xDA, 0xE8, 0xEA, 0xF8, 0xFA -> accumulatorOrImplied();
-
-            case 0x09, 0x0B, 0x2B, 0x29, 0x49, 0x4B, 0x69, 0x6B, 0x80, 0x82, 0x89, 0x8B, 0xA0, 0xA2, 0xA9, 0xAB, 0xC0,
-                 0xC2, 0xC9, 0xCB, 0xE0, 0xE2, 0xE9, 0xEB -> immediate();
-
-            case 0x4C -> absoluteJump();
-
-            case 0x0C, 0x0D, 0x2C, 0x2D, 0x4D, 0x6D, 0xAC, 0xAD, 0xAE, 0xAF, 0xCC, 0xCD, 0xEC, 0xED -> absoluteRead();
-
-            case 0x0E, 0x0F, 0x2E, 0x2F, 0x4F, 0x4E, 0x6E, 0x6F, 0xCE, 0xCF, 0xEE, 0xEF -> absoluteModify();
-
-            case 0x8C, 0x8D, 0x8E, 0x8F -> absoluteWrite();
-
-            case 0x04, 0x05, 0x24, 0x25, 0x44, 0x45, 0x64, 0x65, 0xA4, 0xA5, 0xA6, 0xA7, 0xC4, 0xC5, 0xE4,
-                 0xE5 -> zeroPageRead();
-
-            case 0x06, 0x07, 0x26, 0x27, 0x46, 0x47, 0x66, 0x67, 0xC6, 0xC7, 0xE6, 0xE7 -> zeroPageModify();
-
-            case 0x84, 0x85, 0x86, 0x87 -> zeroPageWrite();
-            case 0xB6, 0xB7 -> zeroPageYRead();
-
-            case 0x15, 0x35, 0x55, 0x75, 0xB4, 0xB5, 0xD5, 0xF5, 0x14, 0x34, 0x54, 0x74, 0xD4, 0xF4 -> zeroPageXRead();
-
-            case 0x96, 0x97 -> zeroPageYWrite();
-            case 0x94, 0x95 -> zeroPageXWrite();
-
-            case 0x16, 0x17, 0x36, 0x37, 0x56, 0x57, 0x76, 0x77, 0xD6, 0xD7, 0xF6, 0xF7 -> zeroPageXModify();
-
-            case 0x19, 0x39, 0x59, 0x79, 0xB9, 0xBB, 0xBE, 0xBF, 0xD9, 0xF9 -> absoluteIndexedYRead();
-
-            case 0x1D, 0x3D, 0x5D, 0x7D, 0xBC, 0xBD, 0xDD, 0xFD, 0x1C, 0xFC,
-                 0xDC, 0x7C, 0x5C, 0x3C -> absoluteIndexedXRead();
-
-            case 0x1B, 0x3B, 0x5B, 0x7B, 0xDB, 0xFB -> absoluteIndexedYModify();
-
-            case 0x1E, 0x1F, 0x3E, 0x3F, 0x5E, 0x5F,
-                 0x7E, 0x7F, 0xDE, 0xDF, 0xFE, 0xFF -> absoluteIndexedXModify();
-
-            case 0x99, 0x9B, 0x9E, 0x9F -> absoluteIndexedYWrite();
-            case 0x9C, 0x9D -> absoluteIndexedXWrite();
-            case 0x10, 0x30, 0x50, 0x70, 0x90, 0xB0, 0xD0, 0xF0 -> relative();
-
-            case 0x01, 0x21, 0x41, 0x61, 0xA1, 0xA3, 0xC1, 0xE1 -> indexedIndirectRead();
-
-            case 0x03, 0x23, 0x43, 0x63, 0xC3, 0xE3 -> indexedIndirectModify();
-            case 0x81, 0x83 -> indexedIndirectWrite();
-
-            case 0x11, 0x31, 0x51, 0x71, 0xB1, 0xB3, 0xD1, 0xF1 -> indirectIndexedRead();
-
-            case 0x13, 0x33, 0x53, 0x73, 0xD3, 0xF3 -> indirectIndexedModify();
-            case 0x91, 0x93 -> indirectIndexedWrite();
-            case 0x6C -> absoluteIndirectJump();
-
-            case 0x02, 0x12, 0x22, 0x32, 0x42, 0x52, 0x62, 0x72, 0x92, 0xB2, 0xD2, 0xF2 -> kil();
-        }
+        // The mode knows what cycle of the instruction this is, and on the last one it asks the
+        // operation tables what the opcode does. See the decode tables at the top of the class.
+        MODES[opcode].cycle(this);
     }
 
     // Increments instruction clock cycles.
@@ -789,9 +1124,7 @@ public class CPU {
         bus.write(ByteUtils.ensureWord(address), ByteUtils.ensureByte(data));
     }
 
-    private Registers save() {
-        var into = new Registers();
-
+    private void save(final Registers into) {
         into.a = a;
         into.x = x;
         into.y = y;
@@ -813,8 +1146,6 @@ public class CPU {
         into.interruptPending = interruptPending;
         into.sequence = sequence;
         into.interruptVector = interruptVector;
-
-        return into;
     }
 
     private void restore(final Registers from) {
@@ -1337,21 +1668,7 @@ public class CPU {
                 pollInterrupts();
                 tickBaseAddress = fetchPCInc();
 
-                if (
-                        switch (opcode) {
-                            case 0x10 -> getFlagN() == 0;
-                            case 0x30 -> getFlagN() == 1;
-                            case 0x50 -> getFlagV() == 0;
-                            case 0x70 -> getFlagV() == 1;
-                            case 0x90 -> getFlagC() == 0;
-                            case 0xB0 -> getFlagC() == 1;
-                            case 0xD0 -> getFlagZ() == 0;
-                            case 0xF0 -> getFlagZ() == 1;
-                            default -> throw new IllegalStateException(
-                                    "Unexpected opcode: " + opcode
-                            );
-                        }
-                ) {
+                if (BRANCH_CONDITIONS[opcode].test(this)) {
                     incTick();
                 } else {
                     resetTick();
@@ -1613,30 +1930,7 @@ public class CPU {
                 pollInterrupts();
                 fetchPC();
 
-                switch (opcode) {
-                    case 0x0A -> setA(asl(a));
-                    case 0x18 -> clc();
-                    case 0x2A -> setA(rol(a));
-                    case 0x38 -> sec();
-                    case 0x4A -> setA(lsr(a));
-                    case 0x58 -> cli();
-                    case 0x6A -> setA(ror(a));
-                    case 0x78 -> sei();
-                    case 0x88 -> dey();
-                    case 0x8A -> txa();
-                    case 0x98 -> tya();
-                    case 0x9A -> txs();
-                    case 0xA8 -> tay();
-                    case 0xAA -> tax();
-                    case 0xB8 -> clv();
-                    case 0xBA -> tsx();
-                    case 0xC8 -> iny();
-                    case 0xCA -> dex();
-                    case 0xD8 -> cld();
-                    case 0xE8 -> inx();
-                    case 0xF8 -> sed();
-                    case 0x1A, 0xFA, 0x3A, 0x5A, 0x7A, 0xDA, 0xEA -> nop();
-                }
+                IMPLIED_OPERATIONS[opcode].apply(this);
 
                 resetTick();
             }
@@ -1855,7 +2149,7 @@ public class CPU {
      * What a read instruction does with the byte its addressing mode fetched.
      * <p>
      * Nine modes reach here and every one of them used to carry its own copy of this switch, which
-     * is nine places for one fact to be written down and eight of them to be forgotten. One switch
+     * is nine places for one fact to be written down and eight of them to be forgotten. One table
      * can serve all nine because an opcode has exactly one addressing mode: the nine sets are
      * disjoint, so there is nothing for the mode to disambiguate. What stays with each mode is its
      * cycle switch, which is where the timing lives.
@@ -1865,38 +2159,7 @@ public class CPU {
      *              have not stored there.
      */
     private void readOperation(final int value) {
-        switch (opcode) {
-            case 0x01, 0x05, 0x09, 0x0D, 0x11, 0x15, 0x19, 0x1D -> ora(value);
-            case 0x21, 0x25, 0x29, 0x2D, 0x31, 0x35, 0x39, 0x3D -> and(value);
-            case 0x41, 0x45, 0x49, 0x4D, 0x51, 0x55, 0x59, 0x5D -> eor(value);
-            case 0x61, 0x65, 0x69, 0x6D, 0x71, 0x75, 0x79, 0x7D -> adc(value);
-            case 0xA1, 0xA5, 0xA9, 0xAD, 0xB1, 0xB5, 0xB9, 0xBD -> lda(value);
-            case 0xC1, 0xC5, 0xC9, 0xCD, 0xD1, 0xD5, 0xD9, 0xDD -> cmp(value);
-            case 0xE1, 0xE5, 0xE9, 0xEB, 0xED, 0xF1, 0xF5, 0xF9, 0xFD -> sbc(value);
-
-            case 0xA2, 0xA6, 0xAE, 0xB6, 0xBE -> ldx(value);
-            case 0xA0, 0xA4, 0xAC, 0xB4, 0xBC -> ldy(value);
-            case 0xE0, 0xE4, 0xEC -> cpx(value);
-            case 0xC0, 0xC4, 0xCC -> cpy(value);
-            case 0x24, 0x2C -> bit(value);
-
-            // The illegal reads: LAX in six addressing modes, LAS in one -- absolute indexed by Y
-            // -- and the rest immediate only, the last two of those being the ones real hardware
-            // is unstable about. See UNSTABLE_MAGIC.
-            case 0xA3, 0xA7, 0xAF, 0xB3, 0xB7, 0xBF -> lax(value);
-            case 0xBB -> las(value);
-            case 0x0B, 0x2B -> anc(value);
-            case 0x4B -> asr(value);
-            case 0x6B -> arr(value);
-            case 0xCB -> axs(value);
-            case 0x8B -> xaa(value);
-            case 0xAB -> lxa(value);
-
-            case 0x04, 0x0C, 0x14, 0x1C, 0x34, 0x3C, 0x44, 0x54, 0x5C, 0x64, 0x74, 0x7C,
-                 0x80, 0x82, 0x89, 0xC2, 0xD4, 0xDC, 0xE2, 0xF4, 0xFC -> nop();
-
-            default -> throw new IllegalStateException("Unexpected opcode: " + opcode);
-        }
+        READ_OPERATIONS[opcode].apply(this, value);
     }
 
     /**
@@ -1911,21 +2174,7 @@ public class CPU {
      * @return what to write over it on the cycle after next.
      */
     private int modifyOperation(final int value) {
-        return switch (opcode) {
-            case 0x06, 0x0E, 0x16, 0x1E -> asl(value);
-            case 0x03, 0x07, 0x0F, 0x13, 0x17, 0x1B, 0x1F -> slo(value);
-            case 0x26, 0x2E, 0x36, 0x3E -> rol(value);
-            case 0x23, 0x27, 0x2F, 0x33, 0x37, 0x3B, 0x3F -> rla(value);
-            case 0x46, 0x4E, 0x56, 0x5E -> lsr(value);
-            case 0x43, 0x47, 0x4F, 0x53, 0x57, 0x5B, 0x5F -> sre(value);
-            case 0x66, 0x6E, 0x76, 0x7E -> ror(value);
-            case 0x63, 0x67, 0x6F, 0x73, 0x77, 0x7B, 0x7F -> rra(value);
-            case 0xC6, 0xCE, 0xD6, 0xDE -> dec(value);
-            case 0xC3, 0xC7, 0xCF, 0xD3, 0xD7, 0xDB, 0xDF -> dcp(value);
-            case 0xE6, 0xEE, 0xF6, 0xFE -> inc(value);
-            case 0xE3, 0xE7, 0xEF, 0xF3, 0xF7, 0xFB, 0xFF -> isc(value);
-            default -> throw new IllegalStateException("Unexpected opcode: " + opcode);
-        };
+        return MODIFY_OPERATIONS[opcode].apply(this, value);
     }
 
     /**
@@ -1936,23 +2185,7 @@ public class CPU {
      * unstable ones, that it goes out through {@link #storeHigh(int)} rather than straight.
      */
     private void writeOperation() {
-        switch (opcode) {
-            case 0x81, 0x85, 0x8D, 0x91, 0x95, 0x99, 0x9D -> write(tickAddress, a);
-            case 0x86, 0x8E, 0x96 -> write(tickAddress, x);
-            case 0x84, 0x8C, 0x94 -> write(tickAddress, y);
-            case 0x83, 0x87, 0x8F, 0x97 -> write(tickAddress, a & x);
-
-            case 0x9C -> storeHigh(y);
-            case 0x9E -> storeHigh(x);
-            case 0x93, 0x9F -> storeHigh(a & x);
-            case 0x9B -> {
-                // TAS/SHS also copies A & X into the stack pointer.
-                setSP(a & x);
-                storeHigh(sp);
-            }
-
-            default -> throw new IllegalStateException("Unexpected opcode: " + opcode);
-        }
+        WRITE_OPERATIONS[opcode].apply(this);
     }
 
     /**
@@ -28,6 +28,30 @@ public class MMU {
     // Internal RAM: 2KB, mirrored 4 times in $0000-$1FFF
     private final int[] internalRAM = new int[0x0800];
 
+    /**
+     * The cartridge's PRG ROM, when the mapper is willing to say where its banks are -- see
+     * {@link Mapper#prgPageOffset}. Null on a board that is not.
+     */
+    private final byte[] prgROM;
+
+    /**
+     * Where each 8KB page of $8000-$FFFF starts in {@link #prgROM}, or -1 for one that has to be read
+     * through the mapper.
+     * <p>
+     * Nearly every read the CPU makes is an opcode or an operand out of here, and asking the mapper
+     * for each one means working out the bank from its registers every time -- for MMC3, a switch on
+     * the page and the PRG mode for every byte of every instruction. The banks only move when the
+     * game writes a register, so the mapper says when they have through
+     * {@link Mapper#setPRGBankListener} and the answers are kept here until then.
+     * <p>
+     * A page is -1 whenever something other than the ROM may answer for it: a Game Genie substitutes
+     * bytes on their way out, so all four go back to the mapper while one is plugged in.
+     * <p>
+     * Not in {@link #serialize}: it is worked out from the mapper's registers, and the mapper's own
+     * load says they have moved.
+     */
+    private final int[] prgPages = new int[4];
+
     /**
      * The last byte anything drove onto the CPU's data bus.
      * <p>
@@ -138,6 +162,12 @@ public class MMU {
     // read. Whichever comes next waits for a cycle of the right phase.
     private boolean dmaReadPhase = true;
 
+    /**
+     * Where {@link #transferOAMBlock()} gathers the bytes it hands the PPU. Scratch, like the
+     * block the APU fills: nothing is in it between one transfer and the next.
+     */
+    private final int[] oamBlock = new int[0x100];
+
     /**
      * Whoever is watching the bus, or null when nobody is -- which is nearly always, and is why this
      * is a reference to check rather than a do-nothing listener always installed. A write happens a
@@ -178,6 +208,10 @@ public class MMU {
         this.mapper = mapper;
         this.controller1 = controller1;
         this.controller2 = controller2;
+        this.prgROM = mapper.prgROM();
+
+        mapper.setPRGBankListener(this::mapPRGPages);
+        mapPRGPages();
     }
 
     /**
@@ -207,6 +241,16 @@ public class MMU {
             return dataBus = internalRAM[addr & 0x07FF];
         }
 
+        // PRG ROM ($8000-$FFFF) through the page table, which is the CPU fetching its own program
+        // almost every time. A page the table cannot answer for falls through to the mapper below.
+        if (addr >= 0x8000) {
+            var page = prgPages[(addr >> 13) & 3];
+
+            if (page >= 0) {
+                return dataBus = Byte.toUnsignedInt(prgROM[page + (addr & 0x1FFF)]);
+            }
+        }
+
         // PPU Registers and mirrors ($2000-$3FFF)
         if (addr < 0x4000) {
             return dataBus = ppu.read(addr & 0x0007);
@@ -642,6 +686,100 @@ public class MMU {
         return CPUBus.DMACycle.HALT;
     }
 
+    /**
+     * Whether the OAM transfer in flight can be run to its end by {@link #transferOAMByte()} alone,
+     * starting with the read the next cycle is due to make.
+     * <p>
+     * Once a transfer has the bus and is on a get cycle with a read to make, every cycle after it
+     * until the last byte lands is one of its own -- a read on each get, a write on each put -- and
+     * {@link #beginDMACycle} spends most of its time deciding what it already knew. That stays true
+     * for as long as nothing else wants the bus and nothing is reading along:
+     * <ul>
+     *   <li>the DMC is not playing, so it cannot ask for a byte before the transfer is over -- it
+     *       takes a $4015 write to start one, and the CPU is in no position to make it;</li>
+     *   <li>no strobe or aborted fetch is waiting for a cycle of its own;</li>
+     *   <li>the page is RAM or the cartridge, where a read is only a read, and the CPU is not
+     *       parked in the APU's window, where a read could also hit a register;</li>
+     *   <li>there is no Game Genie and no watchpoint to see each byte go past.</li>
+     * </ul>
+     *
+     * @param cpuCycle the cycle about to run, whose parity is the get/put phase.
+     */
+    boolean canFinishOAMTransfer(final long cpuCycle) {
+        return dmaInProgress && halted && dmaReadPhase && CPUBus.isGetCycle(cpuCycle)
+                && !dmcFetching && !dmcRequested && dmcAbortDelay == 0 && pendingStrobe < 0
+                && !apu.isDMCSampleActive() && !apu.isDMCFetchPending()
+                && (dmaPage < 0x20 || dmaPage >= 0x60) && !apuRegistersActive()
+                && genie == null && writeListener == null;
+    }
+
+    /**
+     * How many cycles are left of an OAM transfer {@link #canFinishOAMTransfer} has vouched for: a
+     * get and a put for every byte still to go.
+     */
+    int oamTransferCyclesLeft() {
+        return 2 * (0x100 - dmaAddress);
+    }
+
+    /**
+     * All of what is left of an OAM transfer {@link #canFinishOAMTransfer} has vouched for, at
+     * once, for a PPU that has said nothing it does over those cycles can see OAM -- see
+     * {@link PPU#isOAMIdleFor}. The caller still owes the chips and the CPU the
+     * {@link #oamTransferCyclesLeft()} cycles it took.
+     * <p>
+     * A page of work RAM is one copy, since it cannot change under a CPU that is not running. The
+     * cartridge is read a byte at a time through {@link #busRead}, the way the transfer always
+     * reads it, so the mapper answers for its own banks.
+     */
+    void transferOAMBlock() {
+        var count = 0x100 - dmaAddress;
+
+        if (dmaPage < 0x20) {
+            var from = ((dmaPage << 8) | dmaAddress) & 0x07FF;
+
+            System.arraycopy(internalRAM, from, oamBlock, 0, count);
+            dataBus = oamBlock[count - 1];
+            lastPortRead = 0;
+        } else {
+            for (var i = 0; i < count; i++) {
+                oamBlock[i] = busRead((dmaPage << 8) | (dmaAddress + i));
+            }
+        }
+
+        ppu.writeOAMBlock(oamBlock, count);
+
+        dmaData = oamBlock[count - 1];
+        dmaInProgress = false;
+        dmaAddress = 0;
+    }
+
+    /**
+     * One cycle of an OAM transfer {@link #canFinishOAMTransfer} has vouched for: the read on a get,
+     * the write on a put, exactly as {@link #beginDMACycle} would have made them.
+     *
+     * @return false once the last byte has been written.
+     */
+    boolean transferOAMByte() {
+        if (dmaReadPhase) {
+            dmaData = busRead((dmaPage << 8) | dmaAddress);
+            dmaReadPhase = false;
+
+            return true;
+        }
+
+        ppu.write(0x04, dmaData);
+        dmaReadPhase = true;
+
+        if (++dmaAddress < 0x100) {
+            return true;
+        }
+
+        dmaInProgress = false;
+        dmaAddress = 0;
+
+        return false;
+    }
+
     /**
      * Arranges the one cycle a fetch costs when it is called off before it can begin.
      * <p>
@@ -702,6 +840,17 @@ public class MMU {
         return dmaInProgress;
     }
 
+    /**
+     * Whether the transfer engine has nothing in flight and nothing scheduled: no OAM transfer, no
+     * DMC fetch asked for or under way, and no aborted one waiting to spend its halt cycle.
+     * <p>
+     * The engine is the one part of this class that runs on the APU's clock rather than on the
+     * CPU's accesses, so this is what {@link NES} asks before letting the APU fall behind.
+     */
+    boolean isTransferIdle() {
+        return !dmaInProgress && !dmcRequested && !dmcFetching && dmcAbortDelay == 0;
+    }
+
     /**
      * Gets the internal RAM array (for testing/debugging).
      */
@@ -720,6 +869,21 @@ public class MMU {
      */
     public void setGameGenie(final GameGenie genie) {
         this.genie = genie;
+        mapPRGPages();
+    }
+
+    /**
+     * Asks the mapper afresh where each page of PRG ROM is, for {@link #prgPages}.
+     * <p>
+     * A page the ROM does not hold the whole of is left to the mapper, which is where a read of it
+     * went before there was a table at all.
+     */
+    private void mapPRGPages() {
+        for (var page = 0; page < prgPages.length; page++) {
+            var offset = genie == null && prgROM != null ? mapper.prgPageOffset(page) : -1;
+
+            prgPages[page] = offset >= 0 && offset + 0x2000 <= prgROM.length ? offset : -1;
+        }
     }
 
     /**
@@ -1,6 +1,12 @@
 package com.github.dimiro1.mynes;
 
 public class NES {
+    /**
+     * What {@link #quiet} holds while a lockstep cycle's CPU half runs and nothing has asked for the
+     * chips yet.
+     */
+    private static final int UNTOUCHED = -1;
+
     private final BUS bus;
 
     /**
@@ -17,6 +23,38 @@ public class NES {
      */
     private final Region region;
 
+    private final CPU cpu;
+    private final PPU ppu;
+    private final APU apu;
+
+    /**
+     * Whether the PPU and the APU are allowed to fall behind the CPU. See {@link #setCatchUp}.
+     */
+    private boolean catchUp;
+
+    /**
+     * CPU cycles that have run without their PPU and APU halves, which {@link #synchronize()} owes
+     * the two chips. Always nought in lockstep.
+     */
+    private int owed;
+
+    /**
+     * How many more cycles may run ahead before the chips have to be brought level, as the chips
+     * themselves last worked it out. Dropped to nought by anything that could have changed the
+     * answer.
+     * <p>
+     * {@link #UNTOUCHED} while the CPU's half of a lockstep cycle is running, for as long as the CPU
+     * leaves the chips alone. A cycle that touches one may have moved /NMI, and the cycle after it
+     * has to sample the line on time, so it is clocked in lockstep whatever the chips say.
+     */
+    private int quiet;
+
+    /**
+     * Whether {@link #runFrame()} may skip the passes of a waiting loop. See
+     * {@link #setSkipIdleLoops}.
+     */
+    private boolean skipIdleLoops;
+
     /**
      * A machine for this cartridge, of whichever kind its header asks for.
      */
@@ -35,6 +73,9 @@ public class NES {
         this.region = region;
         bus = new BUS(cart.mapper(), controller1, controller2, region);
         bus.initialize();
+        cpu = bus.getCPU();
+        ppu = bus.getPPU();
+        apu = bus.getAPU();
     }
 
     public Cart getCart() {
@@ -82,9 +123,135 @@ public class NES {
      * off" save rituals to warm boot detection.
      */
     public void reset() {
+        synchronize();
         bus.triggerRST();
     }
 
+    /**
+     * Lets the PPU and the APU fall behind the CPU and catch up only when something could tell.
+     * <p>
+     * In lockstep, which is the default, every CPU cycle is preceded by its three dots and its APU
+     * cycle, and the CPU is clocked between them. That is the machine as it is wired, and it is
+     * also three kinds of work interleaved a cycle at a time for the whole run, when nearly all of
+     * the time nothing passes between them at all. With this on, the CPU runs on alone and the two
+     * chips are owed the cycles it has run; they are paid, in order and exactly as lockstep would
+     * have clocked them, at the first of:
+     * <ul>
+     *   <li>a CPU read of $2000-$401F, or a write anywhere from $2000 up, which are the only
+     *       accesses that reach a chip with a clock of its own -- see {@link BUS#write};</li>
+     *   <li>the cycle before the PPU could move /NMI, or a cartridge watching its address bus could
+     *       move /IRQ, or the frame could end -- see {@link PPU#quietCycles()};</li>
+     *   <li>the cycle before the APU could move /IRQ or ask for a DMC fetch -- see
+     *       {@link APU#quietCycles()};</li>
+     *   <li>anything in flight in the transfer engine, during which everything runs in lockstep.</li>
+     * </ul>
+     * Which is to say the two runs are the same machine, and the pictures, the sound and the save
+     * states they produce are byte for byte the same. What differs is only what an observer sees
+     * <em>between</em> two {@link #tick()}s: the PPU and APU can be behind. {@link #step()}, a frame
+     * ending, {@link #reset()} and a save state all call {@link #synchronize()}, and anything else
+     * that inspects the chips mid-frame should too.
+     */
+    public void setCatchUp(final boolean catchUp) {
+        synchronize();
+
+        this.catchUp = catchUp;
+        bus.setCatchUp(catchUp ? this::synchronize : null);
+    }
+
+    public boolean isCatchUp() {
+        return catchUp;
+    }
+
+    /**
+     * Lets {@link #runFrame()} skip the CPU through a loop that is only waiting, instead of running
+     * every pass of it.
+     * <p>
+     * A game that has finished its frame's work sits in {@code JMP *} or {@code LDA $2002 / BPL}
+     * until the NMI arrives, which is most of the frame for most games, and every cycle of it is
+     * the CPU doing the same thing again. {@link CPU#idleLoopCycles} recognises the loops whose
+     * passes are all alike; when the CPU reaches the top of one, as many passes as fit in what
+     * {@link #setCatchUp catch-up} has worked out the CPU may run ahead are added to its cycle
+     * counter without being run, and the PPU and APU are owed them like any other. One pass is
+     * always left to run for real, so the registers and the bus end up as they would have. The
+     * next interrupt, the frame's end and every other event catch-up stops for are still where
+     * they were, which is what makes the run byte for byte the one lockstep produces.
+     * <p>
+     * Has no effect without catch-up, which is where the horizon comes from, and none on
+     * {@link #tick()} or {@link #step()}, which promise a cycle and an instruction.
+     */
+    public void setSkipIdleLoops(final boolean skipIdleLoops) {
+        this.skipIdleLoops = skipIdleLoops;
+    }
+
+    public boolean isSkipIdleLoops() {
+        return skipIdleLoops;
+    }
+
+    /**
+     * Drops every cycle the PPU and the APU are owed without running them, and has the next cycle
+     * clocked in lockstep.
+     * <p>
+     * Only for a machine whose chips are about to be overwritten wholesale, which is what loading a
+     * save state does: the cycles belong to the run being thrown away, and paying them would be
+     * work done on state that is about to be replaced -- or, if they were left owing, work done on
+     * the state that replaced it.
+     */
+    public void forgetOwedCycles() {
+        owed = 0;
+        quiet = 0;
+    }
+
+    /**
+     * Whether the PPU and the APU are behind the CPU right now, which is never true in lockstep and
+     * never true after a {@link #synchronize()}.
+     */
+    boolean isBehind() {
+        return owed > 0;
+    }
+
+    /**
+     * Pays the PPU and the APU every cycle the CPU has run ahead of them, and has the next cycle
+     * clocked in lockstep. Does nothing in lockstep beyond that, because nothing is owed.
+     * <p>
+     * Called from inside a CPU cycle as well as between them: an access that reaches a chip arrives
+     * here before the chip sees it, and the cycle in hand is one of those owed, so the chip is
+     * exactly where lockstep would have had it when the access lands.
+     */
+    public void synchronize() {
+        if (owed > 0) {
+            payOwedCycles();
+        }
+
+        quiet = 0;
+    }
+
+    /**
+     * The chips' halves of every owed cycle, the PPU's all in one go.
+     * <p>
+     * {@link #clockChips()} interleaves the three chips a cycle at a time because /NMI has to be
+     * sampled one dot into each cycle and the APU has to go before the CPU. Neither matters here.
+     * The CPU has already run these cycles, and they were only allowed to go unpaid because
+     * nothing in them could move /NMI: every sample taken in them sees the same line, whether it
+     * is taken between the dots or after all of them. Nothing in them reached the APU from the PPU
+     * or the other way round either. So the PPU is handed all of its dots at once, which lets it
+     * draw whole scanlines at a time rather than a dot at a time -- see {@link PPU#run} -- and the
+     * samples and the APU follow.
+     */
+    private void payOwedCycles() {
+        var dots = 0;
+
+        for (var cycle = 0; cycle < owed; cycle++) {
+            dots += ppu.beginCPUCycle();
+        }
+
+        ppu.run(dots);
+
+        for (; owed > 0; owed--) {
+            cpu.sampleNMI();
+            apu.tick();
+        }
+    }
+
     /**
      * Advances the whole machine by one CPU cycle.
      * <p>
@@ -110,14 +277,34 @@ public class NES {
      * dots do: a $4015 read has to see the interrupt flag the frame counter raised in the cycle
      * doing the reading. It is clocked here rather than from the CPU because it keeps running
      * through an OAM DMA transfer, which the CPU spends held off the bus.
+     * <p>
+     * All of that is still true with {@link #setCatchUp catch-up} on; the chips' half of the cycle
+     * is only put off until something could tell the difference, and then run in this same order.
      *
      * @see CPU#sampleNMI()
      */
     public void tick() {
-        var ppu = bus.getPPU();
-        var cpu = bus.getCPU();
-        var apu = bus.getAPU();
+        if (quiet > 0) {
+            quiet--;
+            owed++;
+            cpu.tick();
+            return;
+        }
+
+        synchronize();
+        clockChips();
+
+        quiet = UNTOUCHED;
+        cpu.tick();
 
+        quiet = catchUp && quiet == UNTOUCHED ? quietCycles() : 0;
+    }
+
+    /**
+     * The PPU's and the APU's half of a CPU cycle, which is everything {@link #tick()} does before
+     * the CPU's own.
+     */
+    private void clockChips() {
         var dots = ppu.beginCPUCycle();
 
         ppu.tick();
@@ -128,7 +315,123 @@ public class NES {
         }
 
         apu.tick();
-        cpu.tick();
+    }
+
+    /**
+     * How many cycles the CPU may now run ahead: the fewer of what the two chips say, and none at
+     * all while a transfer needs them cycle by cycle or an /NMI edge is waiting to be sampled.
+     */
+    private int quietCycles() {
+        if (!bus.getMMU().isTransferIdle() || !cpu.isNMISampled()) {
+            return 0;
+        }
+
+        return Math.min(ppu.quietCycles(), apu.quietCycles());
+    }
+
+    /**
+     * Advances the machine until the PPU completes a frame.
+     * <p>
+     * Stops on the CPU cycle whose dots finished it, which is the earliest a whole cycle can stop:
+     * the rest of that cycle's dots belong to the next frame and are already drawn. That is two at
+     * most on NTSC, whose cycles are three dots, and three on PAL, whose 3.2 come as threes and
+     * fours -- so the PPU is left on scanline 0, inside the overscan crop, no further than dot 3.
+     * That is where every front end's own loop used to stop as well, so the two are
+     * interchangeable; this one waits on the PPU's frame-complete signal rather than reading its
+     * counter back once a cycle, and {@link #step()} reports the same signal to a front end running
+     * a frame an instruction at a time.
+     * <p>
+     * With {@link #setCatchUp catch-up} on the chips are level when this returns, because the frame
+     * edge is one of the things they are never allowed to run past.
+     */
+    public void runFrame() {
+        var memory = bus.getMMU();
+
+        ppu.clearFrameCompleted();
+
+        do {
+            if (skipIdleLoops && quiet > 0) {
+                skipIdleLoop();
+            }
+
+            if (owed == 0 && memory.canFinishOAMTransfer(cpu.getCycles())) {
+                finishOAMTransfer(memory);
+            } else {
+                tick();
+            }
+        } while (!ppu.isFrameCompleted());
+    }
+
+    /**
+     * Runs an OAM transfer to its end, or to the end of the frame if that comes first, without
+     * asking the CPU or the transfer engine what each cycle is for.
+     * <p>
+     * Every one of these cycles is a {@link CPUBus.DMACycle#TRANSFER}: the CPU only counts it, and
+     * the engine reads on the get and writes on the put. {@link MMU#canFinishOAMTransfer} is what
+     * says nothing else can want the bus until the last byte lands, so the two can be done here in
+     * a loop of their own. The PPU and the APU are still clocked first in every cycle, as
+     * {@link #tick()} would: a rendering PPU reads OAM on its own schedule, so each byte has to
+     * land between the same two dots it always did.
+     * <p>
+     * Unless the PPU says that nothing it does before the transfer is over can see OAM, which is
+     * the case for a transfer made in vblank or with rendering off -- and so for nearly every one a
+     * game makes. Then the bytes are copied in as one block, the CPU is charged the whole stall at
+     * once, and only the chips are still clocked a cycle at a time, since the NMI edge and the APU
+     * go on regardless.
+     */
+    private void finishOAMTransfer(final MMU memory) {
+        var cycles = memory.oamTransferCyclesLeft();
+
+        if (ppu.isOAMIdleFor(cycles)) {
+            memory.transferOAMBlock();
+
+            for (var cycle = 0; cycle < cycles; cycle++) {
+                clockChips();
+            }
+
+            cpu.transferCycles(cycles);
+            return;
+        }
+
+        boolean transferring;
+
+        do {
+            clockChips();
+            transferring = memory.transferOAMByte();
+            cpu.transferCycle();
+        } while (transferring && !ppu.isFrameCompleted());
+    }
+
+    /**
+     * Skips every pass but the last of the idle loop the CPU is at the top of, if it is at the top
+     * of one and there is room before the horizon for two passes or more.
+     */
+    private void skipIdleLoop() {
+        var pass = cpu.idleLoopCycles(ppu.peek(2));
+
+        if (pass == 0) {
+            return;
+        }
+
+        var skipped = (quiet / pass - 1) * pass;
+
+        if (skipped > 0) {
+            cpu.skipIdleCycles(skipped);
+            owed += skipped;
+            quiet -= skipped;
+        }
+    }
+
+    /**
+     * Advances the machine by exactly this many CPU cycles, whatever frames they cross, and leaves
+     * the PPU and the APU level with the CPU.
+     */
+    public void runCycles(final long cycles) {
+        for (var cycle = 0L; cycle < cycles; cycle++) {
+            tick();
+        }
+
+        synchronize();
     }
 
     /**
@@ -137,10 +440,25 @@ public class NES {
      * Driven from here rather than from {@link CPU#step()} so that the PPU keeps running: a step
      * that only clocked the CPU would leave the PPU frozen, and an OAM DMA transfer would hold
      * the picture still for five hundred cycles.
+     * <p>
+     * Says whether the PPU finished a frame on the way, by the same signal {@link #runFrame()}
+     * waits on. That is how a debugger's frame is run: an instruction at a time, so that a
+     * breakpoint can stop it part way, and over once the instruction that crossed the edge is. So
+     * it ends up to one instruction later than {@link #runFrame()} would have -- seven cycles
+     * usually, and around five hundred when that instruction is held up by an OAM DMA transfer,
+     * which is a few scanlines of the next frame and all of them inside the overscan crop.
+     *
+     * @return true if a frame was completed during the instruction.
      */
-    public void step() {
+    public boolean step() {
+        ppu.clearFrameCompleted();
+
         do {
             tick();
-        } while (!bus.getCPU().isAtInstructionBoundary());
+        } while (!cpu.isAtInstructionBoundary());
+
+        synchronize();
+
+        return ppu.isFrameCompleted();
     }
 }
@@ -183,6 +183,13 @@ public class PPU {
      */
     private long frame = 0;
 
+    /**
+     * Raised on the dot that starts a frame and lowered by whoever was waiting for one -- see
+     * {@link NES#runFrame()}. The signal rather than the counter, so that a loop waiting for the
+     * edge tests a flag instead of remembering a number and comparing against it every cycle.
+     */
+    private boolean frameCompleted = false;
+
     /**
      * Dots since power on, and the clock OAM decay is measured against.
      * <p>
@@ -359,6 +366,21 @@ public class PPU {
      */
     private final ExtraSprites extraSprites = new ExtraSprites();
 
+    /**
+     * What the sprites put out along the scanline being drawn, one entry per pixel in the form
+     * {@link #spritePixel} gives, nought where every unit is transparent. Filled at dot 1 of every
+     * visible line that starts with rendering on, so that every dot after it asks one array rather
+     * than all eight units and however many extra ones. See {@link #resolveSpriteLine()}.
+     */
+    private final int[] spriteLine = new int[SCREEN_WIDTH];
+
+    /**
+     * Whether {@link #spriteLine} is the line being drawn, which is also whether the units behind
+     * it are owed the dots since it was worked out: while it is, nothing counts or shifts them,
+     * and {@link #settleSpriteLine} brings them up to date the moment anybody needs them to be.
+     */
+    private boolean spriteLineResolved;
+
     // ---------------------------------------------------------------- open bus
 
     private final OpenBus openBus = new OpenBus();
@@ -376,6 +398,22 @@ public class PPU {
     private boolean backgroundLayerVisible = true;
     private boolean spriteLayerVisible = true;
 
+    /**
+     * Whether the picture is being left undrawn, for a front end that knows nobody will see this
+     * frame. See {@link #setSkipRendering}.
+     */
+    private boolean skipRendering;
+
+    // ---------------------------------------------------------------- cartridge
+
+    /**
+     * {@link Mapper#interruptsFromPPU()}, asked once: whether the board is told about every dot,
+     * and whether its interrupt keeps this chip from running ahead or drawing a line at once. Only
+     * MMC3 does, and every other board would otherwise be told about every dot of every frame for
+     * nothing.
+     */
+    private final boolean mapperInterrupts;
+
     public PPU(final PPUBus bus, final Mapper mapper) {
         this(bus, mapper, Region.NTSC);
     }
@@ -384,6 +422,7 @@ public class PPU {
         this.bus = bus;
         this.mapper = mapper;
         this.vram = new VRAM(mapper);
+        this.mapperInterrupts = mapper.interruptsFromPPU();
         this.region = region;
         this.preRenderLine = region.preRenderLine();
         this.oamDecayDots = region.oamDecayDots();
@@ -403,6 +442,8 @@ public class PPU {
      * @see <a href="https://www.nesdev.org/wiki/PPU_power_up_state">NESdev: PPU power up state</a>
      */
     public void reset() {
+        settleSpriteLine(dot - 1);
+
         warmingUp = true;
 
         ctrl = 0;
@@ -443,6 +484,55 @@ public class PPU {
         return available / region.ppuDivider();
     }
 
+    /**
+     * How many whole CPU cycles can go by before this chip does anything the CPU would notice
+     * without asking: moving /NMI, moving /IRQ through a cartridge that watches the address bus,
+     * or finishing a frame, which is what every front end's loop is waiting to see.
+     * <p>
+     * Everything else the chip does between now and then -- the flags in $2002, the read buffer,
+     * OAM decaying, the picture itself -- reaches the CPU only through a register access, and
+     * {@link NES} brings the chip level before every one of those. So this only has to be right
+     * about the three signals, and it is deliberately pessimistic about them: it counts the widest
+     * cycle the region has, allows for the dot an odd frame drops, and keeps a cycle in hand.
+     * <p>
+     * Nought while anything decided on an earlier dot is still waiting to land, because each of
+     * those can reach a cartridge watching A12 -- and while the picture is being fetched for one
+     * that does, because every fetch can.
+     */
+    int quietCycles() {
+        if (maskDelay > 0 || addressDelay > 0 || corruptionPending) {
+            return 0;
+        }
+
+        // The frame ends on drawing the pre-render line's last dot, or the one before it on a frame
+        // that skips one. Both are here because once the first has gone by only the second is left.
+        var dots = Math.min(
+                Math.min(dotsUntil(VBLANK_START_LINE, STATUS_DOT), dotsUntil(preRenderLine, STATUS_DOT)),
+                Math.min(dotsUntil(preRenderLine, LAST_DOT - 1), dotsUntil(preRenderLine, LAST_DOT)));
+
+        if (isRenderingEnabled() && mapperInterrupts) {
+            if (isRenderingLine()) {
+                return 0;
+            }
+
+            dots = Math.min(dots, dotsUntil(preRenderLine, 0));
+        }
+
+        var widestCycle = (region.cpuDivider() + region.ppuDivider() - 1) / region.ppuDivider();
+
+        return Math.max(0, (dots - 1) / widestCycle - 1);
+    }
+
+    /**
+     * How many dots from the one about to be drawn to the given one, going forwards and wrapping
+     * round the frame. Nought when that dot is the next one.
+     */
+    private int dotsUntil(final int line, final int at) {
+        var distance = (line - scanline) * (LAST_DOT + 1) + (at - dot);
+
+        return distance < 0 ? distance + (preRenderLine + 1) * (LAST_DOT + 1) : distance;
+    }
+
     /**
      * Advances the PPU by one dot.
      * <p>
@@ -453,7 +543,9 @@ public class PPU {
     public void tick() {
         // Before the dot's own work, so that a mapper counting how long the address bus has been
         // idle counts this dot as idle if nothing on it touches the bus.
-        mapper.ppuTick();
+        if (mapperInterrupts) {
+            mapper.ppuTick();
+        }
 
         clock++;
 
@@ -489,6 +581,105 @@ public class PPU {
         advance();
     }
 
+    /**
+     * Advances the PPU by this many dots, none of which anything outside it will look at until
+     * they are all over.
+     * <p>
+     * That is what {@link NES} promises when it pays the PPU the cycles the CPU ran ahead by: the
+     * chip's {@link #quietCycles()} said nothing it does in them can reach the CPU, and nothing
+     * the CPU did in them reached the chip. So whenever a visible scanline's drawing dots lie wholly
+     * inside the run, they can go by in {@link #drawLine()} rather than one {@link #tick()} at a
+     * time. Every other dot is ticked as usual, and a run that starts or ends part way through a
+     * line simply ticks its way to the next line or to its end.
+     */
+    void run(final int dots) {
+        for (var left = dots; left > 0; ) {
+            if (left >= SCREEN_WIDTH && canDrawLine()) {
+                drawLine();
+                left -= SCREEN_WIDTH;
+            } else {
+                tick();
+                left--;
+            }
+        }
+    }
+
+    /**
+     * @return whether the beam is at the first drawing dot of a visible scanline that
+     * {@link #drawLine()} can draw the way 256 ticks would: rendering on, and nothing decided on an
+     * earlier dot still waiting to land, so that it stays on for the whole line. And a cartridge
+     * that interrupts off the PPU, and so counts its dots, has them one at a time -- which in
+     * practice never comes up, because the only one is MMC3 and the CPU is never allowed far
+     * enough ahead of it to leave a line owing.
+     */
+    private boolean canDrawLine() {
+        return dot == 1 && scanline < POST_RENDER_LINE && isRenderingEnabled()
+                && maskDelay == 0 && addressDelay == 0 && !corruptionPending
+                && !mapperInterrupts;
+    }
+
+    /**
+     * Dots 1 to 256 of a visible scanline with rendering on, all at once.
+     * <p>
+     * Everything a tick does on these dots is still done, and in the same order where the order is
+     * something anybody can see: the background fetches, so a cartridge watching the bus sees the
+     * same addresses in the same sequence -- one that also counts dots is never drawn for here --
+     * and every dot of the sprite evaluation with {@link #clock} where it would be, so OAM decays
+     * and refreshes as it would. The overflow flag is raised by the same dot of the same
+     * evaluation.
+     * <p>
+     * What goes is the work that only the picture needed done a dot at a time. The sprites are
+     * read out of {@link #spriteLine} the way a tick reads them, and the units are settled once at
+     * the end of the line rather than counted and shifted on every dot of it. The sprite 0 hit
+     * flag is raised by the same pixel meeting it would be raised by; only the dot it happens on is
+     * no longer anybody's business, since nobody can read $2002 before the line is over.
+     */
+    private void drawLine() {
+        var row = scanline * SCREEN_WIDTH;
+
+        resolveSpriteLine();
+
+        for (var x = 0; x < SCREEN_WIDTH; x++) {
+            clock++;
+            dot = x + 1;
+
+            if (dot >= 2) {
+                background.shift();
+            }
+
+            switch (dot & 7) {
+                case 1 -> {
+                    background.reload();
+                    background.nameTableLatch = vram.read(0x2000 | (v & 0x0FFF));
+                }
+                case 3 -> background.attributeLatch = fetchAttribute();
+                case 5 -> background.patternLowLatch = vram.read(patternAddress());
+                case 7 -> background.patternHighLatch = vram.read(patternAddress() + 8);
+                case 0 -> incrementCoarseX();
+                default -> { }
+            }
+
+            if (dot <= 64) {
+                clearSecondaryOAM();
+            } else {
+                evaluation.tick();
+            }
+
+            var sprite = isSpriteShown(x) ? spriteLine[x] : 0;
+
+            if (!skipRendering) {
+                var index = layer(x, backgroundPixel(x), sprite);
+                frameBuffer[row + x] = toPixel(readPalette(0x3F00 | index));
+            } else if ((sprite & SPRITE_ZERO) != 0) {
+                layer(x, backgroundPixel(x), sprite);
+            }
+        }
+
+        settleSpriteLine(SCREEN_WIDTH);
+        incrementY();
+        dot = SCREEN_WIDTH + 1;
+    }
+
     /**
      * The four things decided on an earlier dot that land on this one, before the dot does any work
      * of its own.
@@ -513,6 +704,12 @@ public class PPU {
             var wasRendering = isRenderingEnabled();
             mask = pendingMask;
 
+            // The units were worked out on the understanding that they would be shifting all the
+            // way along the line, and from this dot on they are not.
+            if (!isRenderingEnabled()) {
+                settleSpriteLine(dot - 1);
+            }
+
             // The seed is taken where the mask actually lands rather than where it was written,
             // which is what makes the corrupted row depend on the delay above.
             if (wasRendering && !isRenderingEnabled() && isRenderingLine()) {
@@ -534,7 +731,7 @@ public class PPU {
             // no access going with it. That is how a game with the picture switched off clocks an
             // MMC3's scanline counter, and it happens here rather than at the write because until
             // this dot the bus is still holding the old address.
-            mapper.ppuAddress(v & 0x3FFF);
+            vram.drive(v & 0x3FFF);
         }
     }
 
@@ -596,6 +793,7 @@ public class PPU {
         scanline = 0;
         dot = 0;
         frame++;
+        frameCompleted = true;
         oddFrame = !oddFrame;
     }
 
@@ -682,7 +880,7 @@ public class PPU {
      * <p>
      * Nothing here knows where the beam is or what $2001 says: the fetch calls {@link #reload()}
      * at the dot the hardware does, the dot machine calls {@link #shift()} on the dots the hardware
-     * does, and {@link #pixel(int)} answers for whichever bit fine X points at. Which dots those
+     * does, and {@link #pixel(int)} answers for whichever pixel fine X points at. Which dots those
      * are is the PPU's business and stays there.
      */
     private static final class Background {
@@ -696,26 +894,27 @@ public class PPU {
         private int patternHighLatch;
 
         /**
-         * The pattern shift registers, sixteen bits each: the tile on screen in the top half and
-         * the one after it in the bottom half. A pixel is whichever bit fine X points at.
+         * The pattern shift registers, both bit planes in one int: sixteen pixels of two bits
+         * each, the tile on screen in the top half and the one after it in the bottom half. The
+         * hardware has a pair of sixteen bit registers, one per plane, and reads one bit out of
+         * each; keeping the pair interleaved means a pixel is one shift and mask rather than two
+         * tests, and a reload drops a whole row of eight pixels in at once.
          */
-        private int patternShiftLow;
-        private int patternShiftHigh;
+        private int patternShift;
 
         /**
-         * The attribute shift registers, alongside the pattern ones and holding the palette number
-         * for the same pixels.
+         * The attribute shift registers, kept the same way and holding the palette number for the
+         * same pixels.
          */
-        private int attributeShiftLow;
-        private int attributeShiftHigh;
+        private int attributeShift;
 
         /**
-         * Shifts all four registers along by one pixel.
+         * Shifts both registers along by one pixel.
          * <p>
          * Something has to come in at the far end, and what comes in is wired rather than fetched:
          * a 0 into the low bit plane, a 1 into the high one, and for the attributes the one bit
          * latch that fed the parallel load. It normally makes no difference at all -- the eight
-         * bits a reload puts in are the eight the beam reads out, and the serial input never
+         * pixels a reload puts in are the eight the beam reads out, and the serial input never
          * reaches the top half of the register before the next reload overwrites the bottom.
          * <p>
          * It shows when a game arranges for the reload not to happen: switch rendering off just
@@ -725,10 +924,8 @@ public class PPU {
          * of it and then puts a sprite over it to prove the background was not transparent.
          */
         private void shift() {
-            patternShiftLow = (patternShiftLow << 1) & 0xFFFF;
-            patternShiftHigh = ((patternShiftHigh << 1) | 1) & 0xFFFF;
-            attributeShiftLow = ((attributeShiftLow << 1) | (attributeLatch & 1)) & 0xFFFF;
-            attributeShiftHigh = ((attributeShiftHigh << 1) | ((attributeLatch >> 1) & 1)) & 0xFFFF;
+            patternShift = (patternShift << 2) | 2;
+            attributeShift = (attributeShift << 2) | (attributeLatch & 3);
         }
 
         /**
@@ -736,53 +933,47 @@ public class PPU {
          * eight dots before the beam needs it.
          * <p>
          * The attribute is two bits for the whole tile rather than one per pixel, so its shift
-         * registers are filled with eight copies of each bit. Real hardware keeps a one bit latch
-         * and a narrower shifter instead; the picture is the same.
+         * register is filled with eight copies of it. Real hardware keeps a one bit latch and a
+         * narrower shifter instead; the picture is the same.
          */
         private void reload() {
-            patternShiftLow = (patternShiftLow & 0xFF00) | patternLowLatch;
-            patternShiftHigh = (patternShiftHigh & 0xFF00) | patternHighLatch;
-            attributeShiftLow =
-                    (attributeShiftLow & 0xFF00) | ((attributeLatch & 1) != 0 ? 0xFF : 0x00);
-            attributeShiftHigh =
-                    (attributeShiftHigh & 0xFF00) | ((attributeLatch & 2) != 0 ? 0xFF : 0x00);
+            patternShift = (patternShift & 0xFFFF0000) | PLANE[patternLowLatch]
+                    | PLANE[patternHighLatch] << 1;
+            attributeShift = (attributeShift & 0xFFFF0000) | (attributeLatch & 3) * 0x5555;
         }
 
         /**
-         * @param fineX which of the sixteen bits in flight is the one on screen now. It is the only
-         *              part of the scroll position applied here rather than by the fetch.
+         * @param fineX which of the sixteen pixels in flight is the one on screen now. It is the
+         *              only part of the scroll position applied here rather than by the fetch.
          * @return the low four bits of a palette address -- palette number in bits 3-2 and colour
          * within it in bits 1-0 -- or zero if the background is transparent here.
          */
         private int pixel(final int fineX) {
-            var bit = 0x8000 >> fineX;
-
-            var colour = ((patternShiftHigh & bit) != 0 ? 2 : 0)
-                    | ((patternShiftLow & bit) != 0 ? 1 : 0);
+            var at = 30 - 2 * fineX;
+            var colour = (patternShift >>> at) & 3;
 
             if (colour == 0) {
                 return 0;
             }
 
-            var palette = ((attributeShiftHigh & bit) != 0 ? 2 : 0)
-                    | ((attributeShiftLow & bit) != 0 ? 1 : 0);
-
-            return (palette << 2) | colour;
+            return ((attributeShift >>> at) & 3) << 2 | colour;
         }
 
         /**
          * Unlike the other units here this one carries its own list, because the eight fields were
-         * already next to each other and in this order in the file format.
+         * already next to each other and in this order in the file format -- which still has the
+         * four shift registers as four, one bit plane each, so the pairs are pulled apart on the
+         * way out and put back together on the way in.
          */
         private void serialize(final StateIO io) {
             nameTableLatch = io.u8(nameTableLatch);
             attributeLatch = io.u8(attributeLatch);
             patternLowLatch = io.u8(patternLowLatch);
             patternHighLatch = io.u8(patternHighLatch);
-            patternShiftLow = io.u16(patternShiftLow);
-            patternShiftHigh = io.u16(patternShiftHigh);
-            attributeShiftLow = io.u16(attributeShiftLow);
-            attributeShiftHigh = io.u16(attributeShiftHigh);
+            patternShift = withLowPlane(patternShift, io.u16(lowPlane(patternShift)));
+            patternShift = withHighPlane(patternShift, io.u16(highPlane(patternShift)));
+            attributeShift = withLowPlane(attributeShift, io.u16(lowPlane(attributeShift)));
+            attributeShift = withHighPlane(attributeShift, io.u16(highPlane(attributeShift)));
         }
     }
 
@@ -871,8 +1062,8 @@ public class PPU {
             }
             case 3 -> unit.counter = secondaryOAM[slot * 4 + 3];
 
-            case 4 -> unit.patternLow = fetchSpritePattern(slot, 0);
-            case 6 -> unit.patternHigh = fetchSpritePattern(slot, 8);
+            case 4 -> unit.loadLowPlane(fetchSpritePattern(slot, 0));
+            case 6 -> unit.loadHighPlane(fetchSpritePattern(slot, 8));
             default -> { /* the dots that only put an address out */ }
         }
 
@@ -886,7 +1077,8 @@ public class PPU {
 
     /**
      * One sprite output unit: an X down-counter, an attribute latch and a pair of eight bit shift
-     * registers.
+     * registers -- kept here as one, the two bit planes interleaved the way {@link Background}
+     * keeps them.
      * <p>
      * The counter is loaded from the sprite's X coordinate; it counts down once per visible dot and
      * the unit <em>halts</em> when it reaches zero, which is when its shift registers start putting
@@ -899,8 +1091,11 @@ public class PPU {
         private int counter;
         private boolean halted;
         private int attributes;
-        private int patternLow;
-        private int patternHigh;
+
+        /**
+         * Eight pixels of two bits each, the one going out next in bits 15-14.
+         */
+        private int pattern;
 
         /**
          * One dot of the X down-counter, which stops rather than wrapping: reaching zero is what
@@ -927,8 +1122,29 @@ public class PPU {
                 return;
             }
 
-            patternLow = (patternLow << 1) & 0xFF;
-            patternHigh = (patternHigh << 1) & 0xFF;
+            pattern = (pattern << 2) & 0xFFFF;
+        }
+
+        /**
+         * This many dots of {@link #clockCounter()} and {@link #shift()} together, which is what a
+         * unit goes through on a line with rendering on: counting down to its sprite, halting on
+         * the dot after the count runs out, and shifting from that dot on.
+         */
+        private void run(final int dots) {
+            var shifts = dots;
+
+            if (!halted) {
+                if (counter >= dots) {
+                    counter -= dots;
+                    return;
+                }
+
+                shifts = dots - counter;
+                counter = 0;
+                halted = true;
+            }
+
+            pattern = shifts >= 8 ? 0 : (pattern << 2 * shifts) & 0xFFFF;
         }
 
         /**
@@ -940,7 +1156,33 @@ public class PPU {
                 return 0;
             }
 
-            return ((patternHigh & 0x80) != 0 ? 2 : 0) | ((patternLow & 0x80) != 0 ? 1 : 0);
+            return (pattern >> 14) & 3;
+        }
+
+        /**
+         * Loads one bit plane and leaves the other alone. The two are fetched two dots apart, and
+         * nothing draws in between, but the hardware has two registers and so do the states.
+         *
+         * @param plane a pattern byte already spread out by {@link #PLANE} or {@link
+         *              #PLANE_FLIPPED}.
+         */
+        private void loadLowPlane(final int plane) {
+            pattern = (pattern & 0xAAAA) | plane;
+        }
+
+        private void loadHighPlane(final int plane) {
+            pattern = (pattern & 0x5555) | plane << 1;
+        }
+
+        /**
+         * The two halves of the file format's pair of eight bit registers.
+         */
+        private void serializeLowPlane(final StateIO io) {
+            loadLowPlane(PLANE[io.u8(lowPlane(pattern))]);
+        }
+
+        private void serializeHighPlane(final StateIO io) {
+            loadHighPlane(PLANE[io.u8(highPlane(pattern))]);
         }
     }
 
@@ -973,6 +1215,14 @@ public class PPU {
             return;
         }
 
+        if (dot == 1 && scanline < POST_RENDER_LINE && isRenderingEnabled()) {
+            resolveSpriteLine();
+        }
+
+        if (spriteLineResolved) {
+            return;
+        }
+
         for (var unit : spriteUnits) {
             unit.clockCounter();
         }
@@ -993,6 +1243,14 @@ public class PPU {
             return;
         }
 
+        if (spriteLineResolved) {
+            if (dot == SCREEN_WIDTH) {
+                settleSpriteLine(SCREEN_WIDTH);
+            }
+
+            return;
+        }
+
         for (var unit : spriteUnits) {
             unit.shift();
         }
@@ -1322,6 +1580,8 @@ public class PPU {
      *
      * @param unit  which of the eight, 0 to 7.
      * @param plane 0 for the low bit plane, 8 for the high one.
+     * @return the byte read, spread out for {@link SpriteUnit#loadLowPlane} or {@link
+     * SpriteUnit#loadHighPlane}.
      * @see <a href="https://forums.nesdev.org/viewtopic.php?t=26291">NESdev forums: sprites on scanline 0</a>
      */
     private int fetchSpritePattern(final int unit, final int plane) {
@@ -1346,7 +1606,7 @@ public class PPU {
 
         // A horizontally flipped sprite is loaded into the shift register back to front rather
         // than shifted the other way.
-        return (attributes & 0x40) != 0 ? reverseBits(data) : data;
+        return (attributes & 0x40) != 0 ? PLANE_FLIPPED[data] : PLANE[data];
     }
 
     /**
@@ -1377,13 +1637,62 @@ public class PPU {
 
     /**
      * Turns a pattern byte back to front, which is how a horizontally flipped sprite is drawn:
-     * the hardware loads the shift register the other way round rather than shifting the other
-     * way.
+     * the hardware loads the shift register back to front rather than shifting the other way.
      */
     private static int reverseBits(final int value) {
         return Integer.reverse(value) >>> 24;
     }
 
+    /**
+     * Every pattern byte with its bits moved apart to the even bits of a sixteen bit value -- bit
+     * 7 to bit 14, bit 6 to bit 12 and so on down -- which is one bit plane of a row of eight
+     * two bit pixels. The other plane is the same value one bit to the left, so a row of a tile is
+     * {@code PLANE[low] | PLANE[high] << 1} and the shift registers take all eight of its pixels
+     * in one go.
+     * <p>
+     * A table of every byte rather than a cache of the tiles a game has, because a decoded row is
+     * only ever a function of the two bytes the fetch read: there is nothing for a CHR RAM write, a
+     * bank switch or a loaded state to leave stale, and the fetches themselves still happen on the
+     * dots they always did, which is what MMC2's latches and MMC3's counter watch.
+     */
+    private static final int[] PLANE = new int[256];
+
+    /**
+     * {@link #PLANE} for a horizontally flipped sprite: the byte back to front first.
+     */
+    private static final int[] PLANE_FLIPPED = new int[256];
+
+    static {
+        for (var value = 0; value < 256; value++) {
+            PLANE[value] = Integer.expand(value, 0x5555);
+            PLANE_FLIPPED[value] = Integer.expand(reverseBits(value), 0x5555);
+        }
+    }
+
+    /**
+     * @return the low bit plane of a row of interleaved pixels, one bit per pixel, the way the
+     * hardware's own shift registers hold it and the way the states carry it.
+     */
+    private static int lowPlane(final int pixels) {
+        return Integer.compress(pixels, 0x55555555);
+    }
+
+    private static int highPlane(final int pixels) {
+        return Integer.compress(pixels, 0xAAAAAAAA);
+    }
+
+    /**
+     * @return {@code pixels} with its low bit plane replaced by {@code plane}, sixteen pixels
+     * wide -- the inverse of {@link #lowPlane(int)}.
+     */
+    private static int withLowPlane(final int pixels, final int plane) {
+        return (pixels & 0xAAAAAAAA) | Integer.expand(plane, 0x55555555);
+    }
+
+    private static int withHighPlane(final int pixels, final int plane) {
+        return (pixels & 0x55555555) | Integer.expand(plane, 0xAAAAAAAA);
+    }
+
     /**
      * The sprites the hardware ran out of output units for, drawn anyway.
      * <p>
@@ -1472,8 +1781,8 @@ public class PPU {
 
                 unit.counter = oam.peek(address + 3);
                 unit.attributes = attributes;
-                unit.patternLow = pattern(tile, attributes, row, height, 0);
-                unit.patternHigh = pattern(tile, attributes, row, height, 8);
+                unit.loadLowPlane(pattern(tile, attributes, row, height, 0));
+                unit.loadHighPlane(pattern(tile, attributes, row, height, 8));
             }
         }
 
@@ -1490,7 +1799,7 @@ public class PPU {
                 final int plane) {
             var data = vram.peek(spritePatternAddress(tile, attributes, row, height) + plane);
 
-            return (attributes & 0x40) != 0 ? reverseBits(data) : data;
+            return (attributes & 0x40) != 0 ? PLANE_FLIPPED[data] : PLANE[data];
         }
 
         private void clockCounters() {
@@ -1505,6 +1814,12 @@ public class PPU {
             }
         }
 
+        private void run(final int dots) {
+            for (var i = 0; i < count; i++) {
+                units[i].run(dots);
+            }
+        }
+
         /**
          * Puts them back to counting, on the same dot the real units are put back to counting on.
          */
@@ -1553,11 +1868,11 @@ public class PPU {
             }
 
             for (var unit : units) {
-                unit.patternLow = io.u8(unit.patternLow);
+                unit.serializeLowPlane(io);
             }
 
             for (var unit : units) {
-                unit.patternHigh = io.u8(unit.patternHigh);
+                unit.serializeHighPlane(io);
             }
 
             for (var unit : units) {
@@ -1574,6 +1889,18 @@ public class PPU {
      */
     private void renderPixel() {
         var x = dot - 1;
+
+        if (skipRendering) {
+            // The one thing the picture decides that a game can see. Asked only while it could
+            // still change anything: once the flag is up, or with no sprite 0 on the line, the
+            // answer is already known and nothing else here is anybody's business.
+            if (spriteZeroOnThisLine && !spriteZeroHit && isRenderingEnabled()) {
+                multiplex(x, backgroundPixel(x));
+            }
+
+            return;
+        }
+
         int entry;
 
         if (!isRenderingEnabled()) {
@@ -1603,49 +1930,64 @@ public class PPU {
      * @return the low five bits of the palette address to draw, zero meaning the backdrop.
      */
     private int multiplex(final int x, final int background) {
-        SpriteUnit winner = null;
-        var isSpriteZero = false;
-        var colour = 0;
-
-        if ((mask & MASK_SHOW_SPRITES) != 0 && (x >= 8 || (mask & MASK_SHOW_SPRITES_LEFT) != 0)) {
-            for (var i = 0; i < spriteUnits.length && winner == null; i++) {
-                if (spriteUnits[i].pixel() != 0) {
-                    winner = spriteUnits[i];
-                    isSpriteZero = i == 0;
-                }
+        var sprite = 0;
+
+        if (spriteLineResolved) {
+            sprite = isSpriteShown(x) ? spriteLine[x] : 0;
+        } else if (isSpriteShown(x)) {
+            // A line rendering was switched on or off part way along, which is the only kind the
+            // units are still asked about one dot at a time.
+            for (var i = 0; i < spriteUnits.length && sprite == 0; i++) {
+                sprite = spritePixel(spriteUnits[i], i == 0);
             }
 
             // Only once the hardware's own eight have all come out transparent, which is what
             // keeps first-opaque-wins meaning the same thing: every extra sprite is later in OAM
             // than every real one, so a real unit would have won anyway.
-            if (winner == null) {
-                winner = extraSprites.firstOpaque();
-            }
+            if (sprite == 0) {
+                var extra = extraSprites.firstOpaque();
 
-            if (winner != null) {
-                colour = winner.pixel();
+                if (extra != null) {
+                    sprite = spritePixel(extra, false);
+                }
             }
         }
 
+        return layer(x, background, sprite);
+    }
+
+    /**
+     * @return whether $2001 lets sprites be seen at this position along the scanline.
+     */
+    private boolean isSpriteShown(final int x) {
+        return (mask & MASK_SHOW_SPRITES) != 0 && (x >= 8 || (mask & MASK_SHOW_SPRITES_LEFT) != 0);
+    }
+
+    /**
+     * The half of {@link #multiplex} that comes after the sprite has been chosen, which is also
+     * where {@link #drawLine()} comes in with its sprite already worked out.
+     *
+     * @param sprite the winning sprite's pixel, as {@link #spritePixel} gives it, or nought.
+     */
+    private int layer(final int x, final int background, final int sprite) {
         // From here down the debug layer switches take part, but only in what is returned: the
-        // sprite search above has already run, and the hit flag below still uses the real
-        // background pixel, so a hidden layer stays invisible to the game itself.
+        // sprite search has already run, and the hit flag below still uses the real background
+        // pixel, so a hidden layer stays invisible to the game itself.
         var drawnBackground = backgroundLayerVisible ? background : 0;
 
-        if (winner == null) {
+        if (sprite == 0) {
             return drawnBackground;
         }
 
         // The hit is about two opaque pixels meeting, not about which of them is drawn, so a
         // sprite hidden behind the background still sets it. The last pixel of the line never
         // does, for reasons lost with the hardware.
-        if (isSpriteZero && spriteZeroOnThisLine && background != 0 && x != SCREEN_WIDTH - 1) {
+        if ((sprite & SPRITE_ZERO) != 0 && spriteZeroOnThisLine && background != 0
+                && x != SCREEN_WIDTH - 1) {
             spriteZeroHit = true;
         }
 
-        var attributes = winner.attributes;
-
-        if (background != 0 && (attributes & 0x20) != 0) {
+        if (background != 0 && (sprite & SPRITE_BEHIND) != 0) {
             return drawnBackground;
         }
 
@@ -1653,7 +1995,101 @@ public class PPU {
             return drawnBackground;
         }
 
-        return 0x10 | ((attributes & 0x03) << 2) | colour;
+        return sprite & 0x1F;
+    }
+
+    /**
+     * The bit of a {@link #spritePixel} saying the sprite is behind the background, which is where
+     * the attribute byte keeps it as well.
+     */
+    private static final int SPRITE_BEHIND = 0x20;
+
+    /**
+     * The bit of a {@link #spritePixel} saying it came out of the first output unit, which is the
+     * only one that can set the sprite 0 hit flag.
+     */
+    private static final int SPRITE_ZERO = 0x40;
+
+    /**
+     * @param zero whether this is the first of the eight units.
+     * @return what this unit is putting out, as one int: the low five bits of its palette address,
+     * then {@link #SPRITE_BEHIND} and {@link #SPRITE_ZERO}. Nought when it is transparent, since an
+     * opaque sprite always has bit 4 set.
+     */
+    private static int spritePixel(final SpriteUnit unit, final boolean zero) {
+        return spritePixel(unit.attributes, unit.pixel(), zero);
+    }
+
+    private static int spritePixel(final int attributes, final int colour, final boolean zero) {
+        if (colour == 0) {
+            return 0;
+        }
+
+        return 0x10 | (attributes & 0x03) << 2 | colour | (attributes & SPRITE_BEHIND)
+                | (zero ? SPRITE_ZERO : 0);
+    }
+
+    /**
+     * Works out what the sprites will put out along the whole of the scanline about to be drawn,
+     * into {@link #spriteLine}, on the understanding that rendering stays on to the end of it.
+     * <p>
+     * With rendering on for the whole line a unit's story is short. A unit already halted draws
+     * from the first pixel; any other halts on the dot its counter reaches nought, which at one
+     * count a dot is the pixel its counter says. It puts its eight pixels out from there and
+     * transparent ones after. The units go in slot order and a pixel is only taken if nobody
+     * before has it, which is first-opaque-wins; the extra sprites go after all eight, as they do
+     * in {@link #multiplex}.
+     * <p>
+     * Nothing here moves a unit. They are left where the line started, owing it, until
+     * {@link #settleSpriteLine} pays them -- at the end of the line, or on whichever dot before
+     * then rendering is switched off, since from that dot on they count without shifting and the
+     * answer worked out here stops being theirs. A sprite 0 hit is still raised on its own dot,
+     * because the flag is decided by {@link #layer} as the pixel is drawn, not here.
+     */
+    private void resolveSpriteLine() {
+        Arrays.fill(spriteLine, 0);
+
+        for (var i = 0; i < spriteUnits.length; i++) {
+            resolveSprite(spriteUnits[i], i == 0);
+        }
+
+        for (var i = 0; i < extraSprites.count; i++) {
+            resolveSprite(extraSprites.units[i], false);
+        }
+
+        spriteLineResolved = true;
+    }
+
+    private void resolveSprite(final SpriteUnit unit, final boolean zero) {
+        var start = unit.halted ? 0 : unit.counter;
+        var end = Math.min(start + 8, SCREEN_WIDTH);
+        var pattern = unit.pattern;
+
+        for (var x = start; x < end && pattern != 0; x++, pattern = (pattern << 2) & 0xFFFF) {
+            if (spriteLine[x] == 0) {
+                spriteLine[x] = spritePixel(unit.attributes, (pattern >> 14) & 3, zero);
+            }
+        }
+    }
+
+    /**
+     * Brings every unit up to where this many dots of the line would have left it, if
+     * {@link #spriteLine} was standing in for them; otherwise they are already there.
+     *
+     * @param dots how many of the line's drawing dots have gone by, 0 to 256.
+     */
+    private void settleSpriteLine(final int dots) {
+        if (!spriteLineResolved) {
+            return;
+        }
+
+        spriteLineResolved = false;
+
+        for (var unit : spriteUnits) {
+            unit.run(dots);
+        }
+
+        extraSprites.run(dots);
     }
 
     /**
@@ -1915,6 +2351,67 @@ public class PPU {
         oamAddress = (oamAddress + 1) & 0xFF;
     }
 
+    /**
+     * Whether nothing this chip does over the next {@code cpuCycles} CPU cycles can see OAM, so
+     * that an OAM transfer running through them may land every byte at once.
+     * <p>
+     * That is a window with no rendering line in it while rendering is on -- vblank, in practice,
+     * which is where nearly every game makes its transfer -- and any window at all while it is off,
+     * so long as it stops short of the pre-render line and the frame edge beyond it. A $2001 write
+     * still on its way in or an OAM corruption still to happen could change which of those it is,
+     * so neither may be pending. Nothing else is going to write $2001 in the meantime: the CPU is
+     * the one waiting for the transfer.
+     *
+     * @see #writeOAMBlock
+     */
+    boolean isOAMIdleFor(final int cpuCycles) {
+        if (maskDelay > 0 || corruptionPending || scanline == preRenderLine) {
+            return false;
+        }
+
+        if (isRenderingEnabled() && isRenderingLine()) {
+            return false;
+        }
+
+        return dotsAfter(cpuCycles) <= dotsUntil(preRenderLine, 0);
+    }
+
+    /**
+     * The rest of an OAM transfer in one go: {@code count} bytes through $2004, leaving OAM,
+     * OAMADDR and the data pins exactly as that many writes would have.
+     * <p>
+     * Called before the chip is clocked through the cycles the writes belong to, and only for a
+     * window {@link #isOAMIdleFor} has vouched for, so nothing can tell that the bytes arrived
+     * early -- except OAM's own decay, which is measured in dots. So each row is copied in as a
+     * block but stamped with the dots its writes would have landed on: the first byte on the
+     * transfer's second cycle, after its first read, and one more every two cycles after that.
+     */
+    void writeOAMBlock(final int[] data, final int count) {
+        var written = 0;
+
+        while (written < count) {
+            var address = (oamAddress + written) & 0xFF;
+            var run = Math.min(count - written, 8 - (address & 7));
+
+            oam.writeRow(address, data, written, run,
+                    clock + dotsAfter(2 * written + 2),
+                    clock + dotsAfter(2 * (written + run)));
+
+            written += run;
+        }
+
+        openBus.drive(data[count - 1], 0xFF);
+        oamAddress = (oamAddress + count) & 0xFF;
+    }
+
+    /**
+     * How many dots the next {@code cpuCycles} CPU cycles will draw, which on PAL depends on where
+     * the divider has got to: see {@link #beginCPUCycle()}.
+     */
+    private int dotsAfter(final int cpuCycles) {
+        return (masterClockRemainder + cpuCycles * region.cpuDivider()) / region.ppuDivider();
+    }
+
     /**
      * Writes $2005, the scroll register. Two writes: X then Y.
      */
@@ -2019,7 +2516,7 @@ public class PPU {
             v = (v + ((ctrl & CTRL_INCREMENT_32) != 0 ? 32 : 1)) & 0x7FFF;
         }
 
-        mapper.ppuAddress(v & 0x3FFF);
+        vram.drive(v & 0x3FFF);
     }
 
     // ================================================================ object attribute memory
@@ -2059,6 +2556,33 @@ public class PPU {
             bytes[address] = value;
         }
 
+        /**
+         * Writes a run of bytes that all fall in one row, the way that many $2004 writes from
+         * {@code firstOn} to {@code lastOn} would: the row decays or not as of the first of them,
+         * and is left refreshed as of the last. The attribute bytes lose the bits
+         * {@link PPU#writeOAMData} masks off.
+         */
+        private void writeRow(
+                final int address,
+                final int[] data,
+                final int from,
+                final int count,
+                final long firstOn,
+                final long lastOn) {
+            var row = address >> 3;
+
+            refreshRow(row, firstOn);
+            System.arraycopy(data, from, bytes, address, count);
+
+            for (var i = address; i < address + count; i++) {
+                if ((i & 3) == 2) {
+                    bytes[i] &= 0xE3;
+                }
+            }
+
+            refreshedOn[row] = lastOn;
+        }
+
         /**
          * Reads a byte without refreshing anything, for debug UIs.
          * <p>
@@ -2078,11 +2602,18 @@ public class PPU {
          * keeps sprite evaluation, $2004 and OAM DMA all seeing the same OAM.
          */
         private void refreshRow(final int row) {
-            if (clock - refreshedOn[row] >= oamDecayDots) {
+            refreshRow(row, clock);
+        }
+
+        /**
+         * The same, as of a dot other than the current one.
+         */
+        private void refreshRow(final int row, final long on) {
+            if (on - refreshedOn[row] >= oamDecayDots) {
                 Arrays.fill(bytes, row * 8, row * 8 + 8, 0);
             }
 
-            refreshedOn[row] = clock;
+            refreshedOn[row] = on;
         }
 
         /**
@@ -2281,6 +2812,15 @@ public class PPU {
      * @see com.github.dimiro1.mynes.state.SaveState
      */
     public void serialize(final StateIO io) {
+        // The units go in the file as the hardware would be holding them, and a state loaded part
+        // way along a line finishes it the slow way: what comes in replaces whatever the line
+        // worked out from the units it had before.
+        if (io.saving()) {
+            settleSpriteLine(dot - 1);
+        } else {
+            spriteLineResolved = false;
+        }
+
         scanline = io.u16(scanline);
         dot = io.u16(dot);
         frame = io.u64(frame);
@@ -2345,11 +2885,11 @@ public class PPU {
         }
 
         for (var unit : spriteUnits) {
-            unit.patternLow = io.u8(unit.patternLow);
+            unit.serializeLowPlane(io);
         }
 
         for (var unit : spriteUnits) {
-            unit.patternHigh = io.u8(unit.patternHigh);
+            unit.serializeHighPlane(io);
         }
 
         for (var unit : spriteUnits) {
@@ -2406,6 +2946,17 @@ public class PPU {
         return frame;
     }
 
+    /**
+     * Whether a frame has been completed since {@link #clearFrameCompleted()} was last called.
+     */
+    boolean isFrameCompleted() {
+        return frameCompleted;
+    }
+
+    void clearFrameCompleted() {
+        frameCompleted = false;
+    }
+
     /**
      * @return the scanline the beam is on, 0 to 261.
      */
@@ -2485,6 +3036,30 @@ public class PPU {
         return extraSprites.enabled;
     }
 
+    /**
+     * Stops drawing the picture, or starts again. For a front end that knows nobody is going to
+     * look at the frames it is about to run -- fast forward drops most of them, and a headless run
+     * only looks at the ones it photographs -- and set between frames, since a frame switched
+     * half way through is half a picture.
+     * <p>
+     * Everything a game can see carries on. The fetches are made on the same dots, so a cartridge
+     * watching the address bus sees nothing different; the evaluation runs, so the overflow flag
+     * rises; and where sprite 0 could still hit, the pixels are still weighed against each other,
+     * so the hit flag rises on the same dot. What goes is the rest of choosing a colour -- the
+     * multiplexing once sprite 0 has been settled, the palette and the framebuffer -- so the
+     * framebuffer goes on holding the last frame that was drawn.
+     * <p>
+     * Not part of the machine, like the layer switches: a save state does not carry it, and the
+     * same run with it on and off is the same run.
+     */
+    public void setSkipRendering(final boolean skip) {
+        skipRendering = skip;
+    }
+
+    public boolean isSkipRendering() {
+        return skipRendering;
+    }
+
     /**
      * Reads a palette RAM cell without side effects, for debug UIs. Mirroring is folded the same
      * way a real access folds it, so both a full $3F00 style address and a bare 0 to 31 index
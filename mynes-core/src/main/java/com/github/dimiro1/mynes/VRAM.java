@@ -33,8 +33,57 @@ public class VRAM {
 
     private final Mapper mapper;
 
+    /**
+     * {@link Mapper#watchesPPUAddress()}, asked once. Most boards are not watching, and every
+     * access made here would otherwise tell them anyway.
+     */
+    private final boolean addressWatched;
+
+    /**
+     * The cartridge's pattern table memory, ROM or RAM, when the mapper is willing to say where its
+     * banks are -- see {@link Mapper#chrPageOffset}. Null on a board that is not.
+     */
+    private final byte[] chr;
+
+    /**
+     * Where each 1KB page of $0000-$1FFF starts in {@link #chr}, or -1 for one that has to be read
+     * through the mapper.
+     * <p>
+     * Every background tile costs two pattern fetches and every sprite slot two more, and on a board
+     * like MMC3 each of those used to work out its bank from the registers afresh. The banks only move
+     * on a register write or -- on MMC2 and MMC4 -- when a fetch flips a latch, and the mapper says
+     * when through {@link Mapper#setCHRBankListener}, so the answers are kept here until then. Writes
+     * still go through the mapper, which is what knows whether the memory is ROM; they land in the
+     * same array this reads.
+     * <p>
+     * Not in {@link #serialize}: it is worked out from the mapper's registers, and the mapper's own
+     * load says they have moved.
+     */
+    private final int[] chrPages = new int[8];
+
+    /**
+     * Where each of the four nametables starts in {@link #ciram}, $2000 first.
+     * <p>
+     * Every tile the background draws costs a nametable fetch and an attribute fetch, and each of
+     * those used to ask the mapper how it wires the nametables. The answer only changes when a
+     * mirroring register is written, which the mapper says through
+     * {@link Mapper#setMirroringListener}, so it is kept here until then. A four screen cartridge's
+     * own two kilobytes sit in the top half of {@link #ciram}, so it is a table like any other.
+     * <p>
+     * Not in {@link #serialize}, for the same reason as {@link #chrPages}.
+     */
+    private final int[] nameTablePages = new int[4];
+
     public VRAM(final Mapper mapper) {
         this.mapper = mapper;
+        this.addressWatched = mapper.watchesPPUAddress();
+        this.chr = mapper.chrMemory();
+
+        mapper.setCHRBankListener(this::mapCHRPages);
+        mapCHRPages();
+
+        mapper.setMirroringListener(this::mapNameTablePages);
+        mapNameTablePages();
     }
 
     /**
@@ -48,7 +97,7 @@ public class VRAM {
 
         // Every access puts the address on the bus, wherever it is going: a mapper watching the
         // lines sees a nametable read just as clearly as a pattern table one.
-        mapper.ppuAddress(addr);
+        drive(addr);
 
         return peek(addr);
     }
@@ -69,10 +118,14 @@ public class VRAM {
         var addr = address & 0x3FFF;
 
         if (addr < 0x2000) {
-            return mapper.charRead(addr);
+            var page = chrPages[addr >> 10];
+
+            return page >= 0
+                    ? Byte.toUnsignedInt(chr[page + (addr & 0x3FF)])
+                    : mapper.charRead(addr);
         }
 
-        return ciram[ciramIndex(addr)];
+        return ciram[nameTableIndex(addr)];
     }
 
     /**
@@ -84,14 +137,28 @@ public class VRAM {
     public void write(final int address, final int data) {
         var addr = address & 0x3FFF;
 
-        mapper.ppuAddress(addr);
+        drive(addr);
 
         if (addr < 0x2000) {
             mapper.charWrite(addr, data);
             return;
         }
 
-        ciram[ciramIndex(addr)] = data & 0xFF;
+        ciram[nameTableIndex(addr)] = data & 0xFF;
+    }
+
+    /**
+     * Puts an address on the bus with no access going with it, for a cartridge that is watching.
+     * <p>
+     * The PPU does this whenever its address register moves outside rendering, since nothing else
+     * is driving the bus then; {@link #read} and {@link #write} do it on the way to their access.
+     *
+     * @param address an address already masked to $0000-$3FFF.
+     */
+    void drive(final int address) {
+        if (addressWatched) {
+            mapper.ppuAddress(address);
+        }
     }
 
     /**
@@ -102,36 +169,44 @@ public class VRAM {
      * inside its chunk rather than getting one of their own. The other way round would mean
      * inventing a public accessor for the array, which is the thing {@code peek} exists to avoid.
      * <p>
-     * The mirroring is not saved here. {@link #ciramIndex} asks the mapper afresh on every access,
-     * so it arrives with the mapper's registers instead.
+     * The mirroring is not saved here. It is the mapper's, so it arrives with the mapper's
+     * registers, and the mapper's load says so.
      */
     void serialize(final StateIO io) {
         io.bytes(ciram);
     }
 
+    /**
+     * Asks the mapper afresh where each page of the pattern tables is, for {@link #chrPages}. A page
+     * the memory does not hold the whole of is left to the mapper.
+     */
+    private void mapCHRPages() {
+        for (var page = 0; page < chrPages.length; page++) {
+            var offset = chr != null ? mapper.chrPageOffset(page) : -1;
+
+            chrPages[page] = offset >= 0 && offset + 0x400 <= chr.length ? offset : -1;
+        }
+    }
+
+    /**
+     * Asks the mapper afresh how the nametables are wired, for {@link #nameTablePages}.
+     */
+    private void mapNameTablePages() {
+        var mirroring = mapper.mirroring();
+
+        for (var nameTable = 0; nameTable < nameTablePages.length; nameTable++) {
+            nameTablePages[nameTable] = mirroring.page(nameTable) << 10;
+        }
+    }
+
     /**
      * Folds a nametable address onto the RAM that actually backs it.
-     * <p>
-     * The mapper is asked every time rather than cached, because a mapper with mirroring
-     * registers can change its answer between one access and the next.
      *
-     * @param address an address in $2000-$3EFF.
+     * @param address an address in $2000-$3EFF. $3000-$3EFF is a mirror of $2000-$2EFF, so only
+     *                the low twelve bits matter.
      * @return the index into {@link #ciram} that address names.
      */
-    private int ciramIndex(final int address) {
-        // $3000-$3EFF is a mirror of $2000-$2EFF, so only the low twelve bits matter.
-        var addr = address & 0x0FFF;
-
-        return switch (mapper.mirroring()) {
-            // A10 follows PPU A11: $2000/$2400 share, $2800/$2C00 share.
-            case HORIZONTAL -> ((addr >> 1) & 0x400) | (addr & 0x3FF);
-            // A10 follows PPU A10: $2000/$2800 share, $2400/$2C00 share.
-            case VERTICAL -> addr & 0x7FF;
-            // The cart supplies its own RAM, so nothing is shared.
-            case FOUR_SCREEN -> addr;
-            // A10 held low or high: every nametable is the same kilobyte.
-            case ONE_SCREEN_LOW -> addr & 0x3FF;
-            case ONE_SCREEN_HIGH -> 0x400 | (addr & 0x3FF);
-        };
+    private int nameTableIndex(final int address) {
+        return nameTablePages[(address >> 10) & 3] | (address & 0x3FF);
     }
 }
@@ -25,6 +25,44 @@ public interface Mapper {
      */
     int prgRead(int address);
 
+    /**
+     * The array {@link #prgPageOffset} indexes into: the cartridge's PRG ROM, as it came out of the
+     * .nes file.
+     *
+     * @return the ROM, or null on a board that answers -1 for every page.
+     */
+    default byte[] prgROM() {
+        return null;
+    }
+
+    /**
+     * Where one 8KB page of $8000-$FFFF is banked in from right now, for a console that would rather
+     * index {@link #prgROM()} itself than come through {@link #prgRead} for every opcode.
+     * <p>
+     * Every board here banks PRG in 8KB pages or bigger ones, so a page is always a single run of the
+     * ROM and the answer holds for all of it -- until the mapper switches banks, which is what
+     * {@link #setPRGBankListener} is for. A board that never switches can answer this and never call
+     * the listener at all.
+     *
+     * @param page which page, 0 for $8000 to 3 for $E000.
+     * @return the offset of the page's first byte in {@link #prgROM()}, or -1 for a page that has to
+     * be read through {@link #prgRead} -- which is what every page of a board that does not say
+     * otherwise is.
+     */
+    default int prgPageOffset(int page) {
+        return -1;
+    }
+
+    /**
+     * Hands the mapper something to call whenever what {@link #prgPageOffset} answers changes: a
+     * bank register written, or a state loaded over the old ones.
+     * <p>
+     * Called once the console is built, the same as {@link #setIRQHandler}. A mapper that answers
+     * {@link #prgPageOffset} and then moves a bank without calling this would go on running the old
+     * bank's code, so a board whose PRG switches has to take it.
+     */
+    default void setPRGBankListener(Runnable listener) { /* The PRG never moves by default */ }
+
     /**
      * Writes to $8000-$FFFF.
      * <p>
@@ -85,6 +123,51 @@ public interface Mapper {
      */
     void charWrite(int address, int data);
 
+    /**
+     * The array {@link #chrPageOffset} indexes into: the cartridge's CHR ROM, or the CHR RAM fitted
+     * in its place.
+     *
+     * @return the pattern table memory, or null on a board that answers -1 for every page.
+     */
+    default byte[] chrMemory() {
+        return null;
+    }
+
+    /**
+     * Where one 1KB page of the pattern tables is banked in from right now, for a PPU that would
+     * rather index {@link #chrMemory()} itself than come through {@link #charRead} for every fetch.
+     * <p>
+     * A kilobyte because that is the finest any board here banks CHR in -- MMC3's R2 to R5 -- so a
+     * page is always a single run of memory, however coarsely the board banks. The answer holds
+     * until a CHR bank register is written, or until MMC2 or MMC4 flips a latch on a fetch, which is
+     * what {@link #setCHRBankListener} is told about.
+     *
+     * @param page which page, 0 for $0000 to 7 for $1C00.
+     * @return the offset of the page's first byte in {@link #chrMemory()}, or -1 for a page that has
+     * to be read through {@link #charRead}.
+     */
+    default int chrPageOffset(int page) {
+        return -1;
+    }
+
+    /**
+     * Hands the mapper something to call whenever what {@link #chrPageOffset} answers changes.
+     * <p>
+     * The CHR counterpart of {@link #setPRGBankListener}, and with the same obligation: a board that
+     * answers {@link #chrPageOffset} and switches its pattern tables has to take it.
+     */
+    default void setCHRBankListener(Runnable listener) { /* The pattern tables never move by default */ }
+
+    /**
+     * Hands the mapper something to call whenever what {@link #mirroring()} answers changes.
+     * <p>
+     * The nametable counterpart of {@link #setCHRBankListener}. The console keeps the answer as a
+     * page table of its own rather than asking on every nametable fetch, so a board with a
+     * mirroring register has to take this, and call it when the register is written and when a
+     * state is loaded.
+     */
+    default void setMirroringListener(Runnable listener) { /* The nametables are soldered by default */ }
+
     /**
      * Tells the mapper what the PPU has just put on its address bus.
      * <p>
@@ -101,9 +184,24 @@ public interface Mapper {
      * <p>
      * The time base for a mapper that has to tell a real signal from a glitch on the address bus:
      * {@link #ppuAddress} says what the bus is doing, this says how long it has been doing it.
+     * Only made to a board that says {@link #interruptsFromPPU()}, since telling an edge from a
+     * glitch is only worth doing to something that interrupts on the edge.
      */
     default void ppuTick() { /* Nothing on the board is counting by default */ }
 
+    /**
+     * Whether this board does anything with {@link #ppuAddress}: counts A12 like MMC3, or flips a
+     * latch on a tile fetch like MMC2 and MMC4.
+     * <p>
+     * Asked once, when the console is wired up, and never again. The PPU puts an address out
+     * several times a dot, and a board that is not listening is most of the boards there are, so
+     * the console leaves the call out altogether rather than making it for nothing. Which means a
+     * board that overrides {@link #ppuAddress} has to say so here, or it never hears an address.
+     */
+    default boolean watchesPPUAddress() {
+        return false;
+    }
+
     /**
      * Hands the mapper the /IRQ line.
      * <p>
@@ -113,6 +211,24 @@ public interface Mapper {
      */
     default void setIRQHandler(IRQHandler handler) { /* No interrupt hardware by default */ }
 
+    /**
+     * Whether what the PPU puts on its address bus can pull /IRQ low.
+     * <p>
+     * Asked by a console whose PPU is allowed to fall behind the CPU -- see
+     * {@link com.github.dimiro1.mynes.NES#setCatchUp} -- which can only let it fall behind while
+     * nothing the PPU does could interrupt the processor. MMC3 counts scanlines off A12, so a
+     * rendering PPU can raise its interrupt on almost any line; a board that only listens to the
+     * CPU cannot raise one at all without a write the console already stops for.
+     * <p>
+     * Also whether the board hears {@link #ppuTick}, on the same bargain as
+     * {@link #watchesPPUAddress}: asked once, and the call left out for a board that answers no.
+     * The two were separate flags once, but a board counts dots only to filter the edges it
+     * interrupts on, so there is no board that would answer them differently.
+     */
+    default boolean interruptsFromPPU() {
+        return false;
+    }
+
     /**
      * Reads or writes everything the board remembers: its registers, its PRG RAM, and its CHR RAM
      * if it has any.
@@ -131,8 +247,8 @@ public interface Mapper {
     /**
      * How this cartridge wires the console's nametable RAM.
      * <p>
-     * Asked afresh on every nametable access rather than cached, because a mapper with mirroring
-     * registers can change the answer between one access and the next.
+     * Asked once when the console is built and again whenever {@link #setMirroringListener} is
+     * told it has changed, which for most boards is never: the answer is soldered.
      */
     Mirroring mirroring();
 }
@@ -45,13 +45,17 @@ public class Mapper0 implements Mapper {
 
     @Override
     public int prgRead(final int address) {
-        var offset = address & 0x7FFF;
+        return Byte.toUnsignedInt(prgROM[prgIndex(address)]);
+    }
 
-        if (prgROM.length == 0x4000 && offset >= 0x4000) {
-            return Byte.toUnsignedInt(prgROM[offset % 0x4000]);
-        }
+    @Override
+    public byte[] prgROM() {
+        return prgROM;
+    }
 
-        return Byte.toUnsignedInt(prgROM[offset]);
+    @Override
+    public int prgPageOffset(final int page) {
+        return prgIndex(0x8000 | page << 13);
     }
 
     @Override
@@ -72,6 +76,16 @@ public class Mapper0 implements Mapper {
         return prgRAM;
     }
 
+    @Override
+    public byte[] chrMemory() {
+        return chr;
+    }
+
+    @Override
+    public int chrPageOffset(final int page) {
+        return page << 10;
+    }
+
     @Override
     public int charRead(final int address) {
         return Byte.toUnsignedInt(chr[address & 0x1FFF]);
@@ -104,4 +118,18 @@ public class Mapper0 implements Mapper {
             io.bytes(chr);
         }
     }
+
+    /**
+     * @param address an address in $8000-$FFFF.
+     * @return where in {@link #prgROM} it lands.
+     */
+    private int prgIndex(final int address) {
+        var offset = address & 0x7FFF;
+
+        if (prgROM.length == 0x4000 && offset >= 0x4000) {
+            return offset % 0x4000;
+        }
+
+        return offset;
+    }
 }
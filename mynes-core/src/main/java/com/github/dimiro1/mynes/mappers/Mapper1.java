@@ -83,6 +83,22 @@ public class Mapper1 implements Mapper {
     private int chrBank1;
     private int prgBank;
 
+    /**
+     * Told whenever a PRG bank moves. Does nothing until the console hands over its own, so the
+     * board can still be driven by a test with no console around it.
+     */
+    private Runnable prgBankListener = () -> { };
+
+    /**
+     * Told whenever a CHR bank moves. Does nothing until the console hands over its own.
+     */
+    private Runnable chrBankListener = () -> { };
+
+    /**
+     * Told whenever the mirroring changes. Does nothing until the console hands over its own.
+     */
+    private Runnable mirroringListener = () -> { };
+
     /**
      * @param mirroring the header's mirroring, which MMC1 ignores: the control register drives
      *                  the line itself, and every MMC1 game sets it up before it draws anything
@@ -99,10 +115,22 @@ public class Mapper1 implements Mapper {
 
     @Override
     public int prgRead(final int address) {
-        var offset = address & 0x7FFF;
-        var bank = prgBankFor(offset) & prgBankMask;
+        return Byte.toUnsignedInt(prgROM[prgIndex(address)]);
+    }
+
+    @Override
+    public void setPRGBankListener(final Runnable listener) {
+        this.prgBankListener = listener;
+    }
 
-        return Byte.toUnsignedInt(prgROM[bank * PRG_BANK_SIZE + (offset & 0x3FFF)]);
+    @Override
+    public byte[] prgROM() {
+        return prgROM;
+    }
+
+    @Override
+    public int prgPageOffset(final int page) {
+        return prgIndex(0x8000 | page << 13);
     }
 
     @Override
@@ -110,6 +138,7 @@ public class Mapper1 implements Mapper {
         if ((data & 0x80) != 0) {
             resetShiftRegister();
             control |= PRG_MODE_FIXED_LAST;
+            prgBankListener.run();
             return;
         }
 
@@ -121,13 +150,18 @@ public class Mapper1 implements Mapper {
 
         // Bits 13 and 14 of the fifth write's address say where the five bits belong.
         switch ((address >> 13) & 3) {
-            case 0 -> control = shiftRegister;
+            case 0 -> {
+                control = shiftRegister;
+                mirroringListener.run();
+            }
             case 1 -> chrBank0 = shiftRegister;
             case 2 -> chrBank1 = shiftRegister;
             default -> prgBank = shiftRegister;
         }
 
         resetShiftRegister();
+        prgBankListener.run();
+        chrBankListener.run();
     }
 
     @Override
@@ -151,6 +185,21 @@ public class Mapper1 implements Mapper {
         return prgRAM;
     }
 
+    @Override
+    public void setCHRBankListener(final Runnable listener) {
+        this.chrBankListener = listener;
+    }
+
+    @Override
+    public byte[] chrMemory() {
+        return chr;
+    }
+
+    @Override
+    public int chrPageOffset(final int page) {
+        return charIndex(page << 10);
+    }
+
     @Override
     public int charRead(final int address) {
         return Byte.toUnsignedInt(chr[charIndex(address & 0x1FFF)]);
@@ -163,6 +212,11 @@ public class Mapper1 implements Mapper {
         }
     }
 
+    @Override
+    public void setMirroringListener(final Runnable listener) {
+        this.mirroringListener = listener;
+    }
+
     @Override
     public Mirroring mirroring() {
         return switch (control & CONTROL_MIRRORING) {
@@ -173,6 +227,17 @@ public class Mapper1 implements Mapper {
         };
     }
 
+    /**
+     * @param address an address in $8000-$FFFF.
+     * @return where in {@link #prgROM} it lands.
+     */
+    private int prgIndex(final int address) {
+        var offset = address & 0x7FFF;
+        var bank = prgBankFor(offset) & prgBankMask;
+
+        return bank * PRG_BANK_SIZE + (offset & 0x3FFF);
+    }
+
     /**
      * Works out which 16KB bank answers for one half of the PRG window.
      *
@@ -232,6 +297,12 @@ public class Mapper1 implements Mapper {
         if (chrIsRAM) {
             io.bytes(chr);
         }
+
+        if (!io.saving()) {
+            prgBankListener.run();
+            chrBankListener.run();
+            mirroringListener.run();
+        }
     }
 
     private boolean isPRGRAMEnabled() {
@@ -71,6 +71,22 @@ public class Mapper10 implements Mapper {
     private int prgBank;
     private boolean horizontalMirroring;
 
+    /**
+     * Told whenever a PRG bank moves. Does nothing until the console hands over its own, so the
+     * board can still be driven by a test with no console around it.
+     */
+    private Runnable prgBankListener = () -> { };
+
+    /**
+     * Told whenever a CHR bank moves. Does nothing until the console hands over its own.
+     */
+    private Runnable chrBankListener = () -> { };
+
+    /**
+     * Told whenever the mirroring changes. Does nothing until the console hands over its own.
+     */
+    private Runnable mirroringListener = () -> { };
+
     public Mapper10(final byte[] prgROM, final byte[] chrROM, final Mirroring mirroring) {
         this.prgROM = prgROM;
         this.chrIsRAM = chrROM.length == 0;
@@ -83,25 +99,51 @@ public class Mapper10 implements Mapper {
 
     @Override
     public int prgRead(final int address) {
-        var offset = address & 0x7FFF;
+        return Byte.toUnsignedInt(prgROM[prgIndex(address)]);
+    }
 
-        if (offset < PRG_BANK_SIZE) {
-            return Byte.toUnsignedInt(
-                    prgROM[(prgBank & prgBankMask) * PRG_BANK_SIZE + offset]);
-        }
+    @Override
+    public void setPRGBankListener(final Runnable listener) {
+        this.prgBankListener = listener;
+    }
+
+    @Override
+    public byte[] prgROM() {
+        return prgROM;
+    }
 
-        return Byte.toUnsignedInt(prgROM[lastBankBase + (offset & 0x3FFF)]);
+    @Override
+    public int prgPageOffset(final int page) {
+        return prgIndex(0x8000 | page << 13);
     }
 
     @Override
     public void prgWrite(final int address, final int data) {
         switch (address & 0xF000) {
-            case 0xA000 -> prgBank = data & 0x0F;
-            case 0xB000 -> chrBanks[0] = data & 0x1F;
-            case 0xC000 -> chrBanks[1] = data & 0x1F;
-            case 0xD000 -> chrBanks[2] = data & 0x1F;
-            case 0xE000 -> chrBanks[3] = data & 0x1F;
-            case 0xF000 -> horizontalMirroring = (data & 1) != 0;
+            case 0xA000 -> {
+                prgBank = data & 0x0F;
+                prgBankListener.run();
+            }
+            case 0xB000 -> {
+                chrBanks[0] = data & 0x1F;
+                chrBankListener.run();
+            }
+            case 0xC000 -> {
+                chrBanks[1] = data & 0x1F;
+                chrBankListener.run();
+            }
+            case 0xD000 -> {
+                chrBanks[2] = data & 0x1F;
+                chrBankListener.run();
+            }
+            case 0xE000 -> {
+                chrBanks[3] = data & 0x1F;
+                chrBankListener.run();
+            }
+            case 0xF000 -> {
+                horizontalMirroring = (data & 1) != 0;
+                mirroringListener.run();
+            }
             // $8000-$9FFF, which nothing on the board answers to.
             default -> { }
         }
@@ -122,6 +164,21 @@ public class Mapper10 implements Mapper {
         return prgRAM;
     }
 
+    @Override
+    public void setCHRBankListener(final Runnable listener) {
+        this.chrBankListener = listener;
+    }
+
+    @Override
+    public byte[] chrMemory() {
+        return chr;
+    }
+
+    @Override
+    public int chrPageOffset(final int page) {
+        return charIndex(page << 10);
+    }
+
     @Override
     public int charRead(final int address) {
         return Byte.toUnsignedInt(chr[charIndex(address & 0x1FFF)]);
@@ -140,6 +197,16 @@ public class Mapper10 implements Mapper {
         lastAddress = address;
     }
 
+    @Override
+    public boolean watchesPPUAddress() {
+        return true;
+    }
+
+    @Override
+    public void setMirroringListener(final Runnable listener) {
+        this.mirroringListener = listener;
+    }
+
     @Override
     public Mirroring mirroring() {
         return horizontalMirroring ? Mirroring.HORIZONTAL : Mirroring.VERTICAL;
@@ -161,6 +228,12 @@ public class Mapper10 implements Mapper {
         if (chrIsRAM) {
             io.bytes(chr);
         }
+
+        if (!io.saving()) {
+            prgBankListener.run();
+            chrBankListener.run();
+            mirroringListener.run();
+        }
     }
 
     /**
@@ -169,14 +242,39 @@ public class Mapper10 implements Mapper {
      */
     private void applyLatch(final int address) {
         switch (address & 0xFFF8) {
-            case 0x0FD8 -> latch[0] = LATCH_FD;
-            case 0x0FE8 -> latch[0] = LATCH_FE;
-            case 0x1FD8 -> latch[1] = LATCH_FD;
-            case 0x1FE8 -> latch[1] = LATCH_FE;
+            case 0x0FD8 -> setLatch(0, LATCH_FD);
+            case 0x0FE8 -> setLatch(0, LATCH_FE);
+            case 0x1FD8 -> setLatch(1, LATCH_FD);
+            case 0x1FE8 -> setLatch(1, LATCH_FE);
             default -> { }
         }
     }
 
+    /**
+     * Flips one window's latch, and says so only if it really moved: the PPU fetches the trigger
+     * tiles over and over, and most of those fetches find the latch already where they would put it.
+     */
+    private void setLatch(final int window, final int value) {
+        if (latch[window] != value) {
+            latch[window] = value;
+            chrBankListener.run();
+        }
+    }
+
+    /**
+     * @param address an address in $8000-$FFFF.
+     * @return where in {@link #prgROM} it lands.
+     */
+    private int prgIndex(final int address) {
+        var offset = address & 0x7FFF;
+
+        if (offset < PRG_BANK_SIZE) {
+            return (prgBank & prgBankMask) * PRG_BANK_SIZE + offset;
+        }
+
+        return lastBankBase + (offset & 0x3FFF);
+    }
+
     private int charIndex(final int address) {
         var window = address >> 12;
         var bank = chrBanks[window * 2 + latch[window]] & chrBankMask;
@@ -50,6 +50,17 @@ public class Mapper11 implements Mapper {
     private int prgBank;
     private int chrBank;
 
+    /**
+     * Told whenever a PRG bank moves. Does nothing until the console hands over its own, so the
+     * board can still be driven by a test with no console around it.
+     */
+    private Runnable prgBankListener = () -> { };
+
+    /**
+     * Told whenever a CHR bank moves. Does nothing until the console hands over its own.
+     */
+    private Runnable chrBankListener = () -> { };
+
     public Mapper11(final byte[] prgROM, final byte[] chrROM, final Mirroring mirroring) {
         this.prgROM = prgROM;
         this.chrIsRAM = chrROM.length == 0;
@@ -61,21 +72,45 @@ public class Mapper11 implements Mapper {
 
     @Override
     public int prgRead(final int address) {
-        var offset = address & 0x7FFF;
+        return Byte.toUnsignedInt(prgROM[prgIndex(address)]);
+    }
 
-        // A chip smaller than the window it sits in folds back on itself, the way a 16KB NROM
-        // does.
-        if (offset >= prgROM.length) {
-            return Byte.toUnsignedInt(prgROM[offset % prgROM.length]);
-        }
+    @Override
+    public void setPRGBankListener(final Runnable listener) {
+        this.prgBankListener = listener;
+    }
+
+    @Override
+    public byte[] prgROM() {
+        return prgROM;
+    }
 
-        return Byte.toUnsignedInt(prgROM[prgBank * PRG_BANK_SIZE + offset]);
+    @Override
+    public int prgPageOffset(final int page) {
+        return prgIndex(0x8000 | page << 13);
     }
 
     @Override
     public void prgWrite(final int address, final int data) {
         prgBank = (data & PRG_SELECT) & prgBankMask;
         chrBank = ((data & CHR_SELECT) >> 4) & chrBankMask;
+        prgBankListener.run();
+        chrBankListener.run();
+    }
+
+    @Override
+    public void setCHRBankListener(final Runnable listener) {
+        this.chrBankListener = listener;
+    }
+
+    @Override
+    public byte[] chrMemory() {
+        return chr;
+    }
+
+    @Override
+    public int chrPageOffset(final int page) {
+        return chrBank * CHR_BANK_SIZE + (page << 10);
     }
 
     @Override
@@ -107,5 +142,26 @@ public class Mapper11 implements Mapper {
         if (chrIsRAM) {
             io.bytes(chr);
         }
+
+        if (!io.saving()) {
+            prgBankListener.run();
+            chrBankListener.run();
+        }
+    }
+
+    /**
+     * @param address an address in $8000-$FFFF.
+     * @return where in {@link #prgROM} it lands.
+     */
+    private int prgIndex(final int address) {
+        var offset = address & 0x7FFF;
+
+        // A chip smaller than the window it sits in folds back on itself, the way a 16KB NROM
+        // does.
+        if (offset >= prgROM.length) {
+            return offset % prgROM.length;
+        }
+
+        return prgBank * PRG_BANK_SIZE + offset;
     }
 }
@@ -49,6 +49,12 @@ public class Mapper2 implements Mapper {
 
     private int prgBank;
 
+    /**
+     * Told whenever a PRG bank moves. Does nothing until the console hands over its own, so the
+     * board can still be driven by a test with no console around it.
+     */
+    private Runnable prgBankListener = () -> { };
+
     public Mapper2(final byte[] prgROM, final byte[] chrROM, final Mirroring mirroring) {
         this.prgROM = prgROM;
         this.chrIsRAM = chrROM.length == 0;
@@ -60,18 +66,38 @@ public class Mapper2 implements Mapper {
 
     @Override
     public int prgRead(final int address) {
-        var offset = address & 0x7FFF;
+        return Byte.toUnsignedInt(prgROM[prgIndex(address)]);
+    }
 
-        if (offset < PRG_BANK_SIZE) {
-            return Byte.toUnsignedInt(prgROM[prgBank * PRG_BANK_SIZE + offset]);
-        }
+    @Override
+    public void setPRGBankListener(final Runnable listener) {
+        this.prgBankListener = listener;
+    }
 
-        return Byte.toUnsignedInt(prgROM[lastBankBase + (offset & 0x3FFF)]);
+    @Override
+    public byte[] prgROM() {
+        return prgROM;
+    }
+
+    @Override
+    public int prgPageOffset(final int page) {
+        return prgIndex(0x8000 | page << 13);
     }
 
     @Override
     public void prgWrite(final int address, final int data) {
         prgBank = data & bankMask;
+        prgBankListener.run();
+    }
+
+    @Override
+    public byte[] chrMemory() {
+        return chr;
+    }
+
+    @Override
+    public int chrPageOffset(final int page) {
+        return page << 10;
     }
 
     @Override
@@ -102,5 +128,23 @@ public class Mapper2 implements Mapper {
         if (chrIsRAM) {
             io.bytes(chr);
         }
+
+        if (!io.saving()) {
+            prgBankListener.run();
+        }
+    }
+
+    /**
+     * @param address an address in $8000-$FFFF.
+     * @return where in {@link #prgROM} it lands.
+     */
+    private int prgIndex(final int address) {
+        var offset = address & 0x7FFF;
+
+        if (offset < PRG_BANK_SIZE) {
+            return prgBank * PRG_BANK_SIZE + offset;
+        }
+
+        return lastBankBase + (offset & 0x3FFF);
     }
 }
@@ -35,6 +35,11 @@ public class Mapper3 implements Mapper {
 
     private int chrBank;
 
+    /**
+     * Told whenever a CHR bank moves. Does nothing until the console hands over its own.
+     */
+    private Runnable chrBankListener = () -> { };
+
     public Mapper3(final byte[] prgROM, final byte[] chrROM, final Mirroring mirroring) {
         this.prgROM = prgROM;
         this.chrROM = chrROM;
@@ -44,18 +49,23 @@ public class Mapper3 implements Mapper {
 
     @Override
     public int prgRead(final int address) {
-        var offset = address & 0x7FFF;
+        return Byte.toUnsignedInt(prgROM[prgIndex(address)]);
+    }
 
-        if (prgROM.length == 0x4000 && offset >= 0x4000) {
-            return Byte.toUnsignedInt(prgROM[offset % 0x4000]);
-        }
+    @Override
+    public byte[] prgROM() {
+        return prgROM;
+    }
 
-        return Byte.toUnsignedInt(prgROM[offset]);
+    @Override
+    public int prgPageOffset(final int page) {
+        return prgIndex(0x8000 | page << 13);
     }
 
     @Override
     public void prgWrite(final int address, final int data) {
         chrBank = data & bankMask;
+        chrBankListener.run();
     }
 
     @Override
@@ -73,6 +83,21 @@ public class Mapper3 implements Mapper {
         return prgRAM;
     }
 
+    @Override
+    public void setCHRBankListener(final Runnable listener) {
+        this.chrBankListener = listener;
+    }
+
+    @Override
+    public byte[] chrMemory() {
+        return chrROM;
+    }
+
+    @Override
+    public int chrPageOffset(final int page) {
+        return chrBank * CHR_BANK_SIZE + (page << 10);
+    }
+
     @Override
     public int charRead(final int address) {
         return Byte.toUnsignedInt(chrROM[chrBank * CHR_BANK_SIZE + (address & 0x1FFF)]);
@@ -95,5 +120,23 @@ public class Mapper3 implements Mapper {
         chrBank = io.u8(chrBank);
 
         io.bytes(prgRAM);
+
+        if (!io.saving()) {
+            chrBankListener.run();
+        }
+    }
+
+    /**
+     * @param address an address in $8000-$FFFF.
+     * @return where in {@link #prgROM} it lands.
+     */
+    private int prgIndex(final int address) {
+        var offset = address & 0x7FFF;
+
+        if (prgROM.length == 0x4000 && offset >= 0x4000) {
+            return offset % 0x4000;
+        }
+
+        return offset;
     }
 }
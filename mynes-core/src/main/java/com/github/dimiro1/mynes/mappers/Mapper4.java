@@ -118,6 +118,22 @@ public class Mapper4 implements Mapper {
      */
     private IRQHandler irqHandler = asserted -> { };
 
+    /**
+     * Told whenever a PRG bank moves. Does nothing until the console hands over its own, so the
+     * board can still be driven by a test with no console around it.
+     */
+    private Runnable prgBankListener = () -> { };
+
+    /**
+     * Told whenever a CHR bank moves. Does nothing until the console hands over its own.
+     */
+    private Runnable chrBankListener = () -> { };
+
+    /**
+     * Told whenever the mirroring changes. Does nothing until the console hands over its own.
+     */
+    private Runnable mirroringListener = () -> { };
+
     /**
      * The level A12 was last seen at, and how many dots it has been low for.
      */
@@ -135,9 +151,22 @@ public class Mapper4 implements Mapper {
 
     @Override
     public int prgRead(final int address) {
-        var bank = prgBankFor((address & 0x7FFF) >> 13) & prgBankMask;
+        return Byte.toUnsignedInt(prgROM[prgIndex(address)]);
+    }
+
+    @Override
+    public void setPRGBankListener(final Runnable listener) {
+        this.prgBankListener = listener;
+    }
+
+    @Override
+    public byte[] prgROM() {
+        return prgROM;
+    }
 
-        return Byte.toUnsignedInt(prgROM[bank * PRG_PAGE_SIZE + (address & 0x1FFF)]);
+    @Override
+    public int prgPageOffset(final int page) {
+        return prgIndex(0x8000 | page << 13);
     }
 
     /**
@@ -150,9 +179,20 @@ public class Mapper4 implements Mapper {
     @Override
     public void prgWrite(final int address, final int data) {
         switch (address & 0xE001) {
-            case 0x8000 -> bankSelect = data;
-            case 0x8001 -> banks[bankSelect & SELECT_TARGET] = data;
-            case 0xA000 -> horizontalMirroring = (data & 1) != 0;
+            case 0x8000 -> {
+                bankSelect = data;
+                prgBankListener.run();
+                chrBankListener.run();
+            }
+            case 0x8001 -> {
+                banks[bankSelect & SELECT_TARGET] = data;
+                prgBankListener.run();
+                chrBankListener.run();
+            }
+            case 0xA000 -> {
+                horizontalMirroring = (data & 1) != 0;
+                mirroringListener.run();
+            }
             case 0xA001 -> prgRAMProtect = data;
             case 0xC000 -> irqLatch = data;
             case 0xC001 -> {
@@ -194,6 +234,21 @@ public class Mapper4 implements Mapper {
         return prgRAM;
     }
 
+    @Override
+    public void setCHRBankListener(final Runnable listener) {
+        this.chrBankListener = listener;
+    }
+
+    @Override
+    public byte[] chrMemory() {
+        return chr;
+    }
+
+    @Override
+    public int chrPageOffset(final int page) {
+        return charIndex(page << 10);
+    }
+
     @Override
     public int charRead(final int address) {
         return Byte.toUnsignedInt(chr[charIndex(address & 0x1FFF)]);
@@ -228,11 +283,26 @@ public class Mapper4 implements Mapper {
         }
     }
 
+    @Override
+    public boolean watchesPPUAddress() {
+        return true;
+    }
+
     @Override
     public void setIRQHandler(final IRQHandler handler) {
         this.irqHandler = handler;
     }
 
+    @Override
+    public boolean interruptsFromPPU() {
+        return true;
+    }
+
+    @Override
+    public void setMirroringListener(final Runnable listener) {
+        this.mirroringListener = listener;
+    }
+
     @Override
     public Mirroring mirroring() {
         if (headerMirroring == Mirroring.FOUR_SCREEN) {
@@ -263,6 +333,16 @@ public class Mapper4 implements Mapper {
         }
     }
 
+    /**
+     * @param address an address in $8000-$FFFF.
+     * @return where in {@link #prgROM} it lands.
+     */
+    private int prgIndex(final int address) {
+        var bank = prgBankFor((address & 0x7FFF) >> 13) & prgBankMask;
+
+        return bank * PRG_PAGE_SIZE + (address & 0x1FFF);
+    }
+
     /**
      * @param page which 8KB page of $8000-$FFFF is being read, 0 to 3.
      * @return the bank number that answers for it, before masking.
@@ -339,5 +419,11 @@ public class Mapper4 implements Mapper {
         if (chrIsRAM) {
             io.bytes(chr);
         }
+
+        if (!io.saving()) {
+            prgBankListener.run();
+            chrBankListener.run();
+            mirroringListener.run();
+        }
     }
 }
@@ -53,6 +53,17 @@ public class Mapper7 implements Mapper {
      */
     private int bankSelect;
 
+    /**
+     * Told whenever a PRG bank moves. Does nothing until the console hands over its own, so the
+     * board can still be driven by a test with no console around it.
+     */
+    private Runnable prgBankListener = () -> { };
+
+    /**
+     * Told whenever the mirroring changes. Does nothing until the console hands over its own.
+     */
+    private Runnable mirroringListener = () -> { };
+
     @SuppressWarnings("unused")
     public Mapper7(final byte[] prgROM, final byte[] chrROM, final Mirroring mirroring) {
         this.prgROM = prgROM;
@@ -63,20 +74,39 @@ public class Mapper7 implements Mapper {
 
     @Override
     public int prgRead(final int address) {
-        var offset = address & 0x7FFF;
+        return Byte.toUnsignedInt(prgROM[prgIndex(address)]);
+    }
 
-        // A chip smaller than the window it sits in folds back on itself, the way a 16KB NROM
-        // does. No real AxROM cart is that small, but a synthesised header can be.
-        if (offset >= prgROM.length) {
-            return Byte.toUnsignedInt(prgROM[offset % prgROM.length]);
-        }
+    @Override
+    public void setPRGBankListener(final Runnable listener) {
+        this.prgBankListener = listener;
+    }
+
+    @Override
+    public byte[] prgROM() {
+        return prgROM;
+    }
 
-        return Byte.toUnsignedInt(prgROM[(bankSelect & bankMask) * PRG_BANK_SIZE + offset]);
+    @Override
+    public int prgPageOffset(final int page) {
+        return prgIndex(0x8000 | page << 13);
     }
 
     @Override
     public void prgWrite(final int address, final int data) {
         bankSelect = data;
+        prgBankListener.run();
+        mirroringListener.run();
+    }
+
+    @Override
+    public byte[] chrMemory() {
+        return chr;
+    }
+
+    @Override
+    public int chrPageOffset(final int page) {
+        return page << 10;
     }
 
     @Override
@@ -91,6 +121,11 @@ public class Mapper7 implements Mapper {
         }
     }
 
+    @Override
+    public void setMirroringListener(final Runnable listener) {
+        this.mirroringListener = listener;
+    }
+
     @Override
     public Mirroring mirroring() {
         return (bankSelect & MIRRORING_HIGH) != 0
@@ -110,5 +145,26 @@ public class Mapper7 implements Mapper {
         if (chrIsRAM) {
             io.bytes(chr);
         }
+
+        if (!io.saving()) {
+            prgBankListener.run();
+            mirroringListener.run();
+        }
+    }
+
+    /**
+     * @param address an address in $8000-$FFFF.
+     * @return where in {@link #prgROM} it lands.
+     */
+    private int prgIndex(final int address) {
+        var offset = address & 0x7FFF;
+
+        // A chip smaller than the window it sits in folds back on itself, the way a 16KB NROM
+        // does. No real AxROM cart is that small, but a synthesised header can be.
+        if (offset >= prgROM.length) {
+            return offset % prgROM.length;
+        }
+
+        return (bankSelect & bankMask) * PRG_BANK_SIZE + offset;
     }
 }
@@ -60,6 +60,17 @@ public class Mapper71 implements Mapper {
      */
     private Mirroring mirroring;
 
+    /**
+     * Told whenever a PRG bank moves. Does nothing until the console hands over its own, so the
+     * board can still be driven by a test with no console around it.
+     */
+    private Runnable prgBankListener = () -> { };
+
+    /**
+     * Told whenever the mirroring changes. Does nothing until the console hands over its own.
+     */
+    private Runnable mirroringListener = () -> { };
+
     public Mapper71(final byte[] prgROM, final byte[] chrROM, final Mirroring mirroring) {
         this.prgROM = prgROM;
         this.chrIsRAM = chrROM.length == 0;
@@ -71,13 +82,22 @@ public class Mapper71 implements Mapper {
 
     @Override
     public int prgRead(final int address) {
-        var offset = address & 0x7FFF;
+        return Byte.toUnsignedInt(prgROM[prgIndex(address)]);
+    }
 
-        if (offset < PRG_BANK_SIZE) {
-            return Byte.toUnsignedInt(prgROM[prgBank * PRG_BANK_SIZE + offset]);
-        }
+    @Override
+    public void setPRGBankListener(final Runnable listener) {
+        this.prgBankListener = listener;
+    }
 
-        return Byte.toUnsignedInt(prgROM[lastBankBase + (offset & 0x3FFF)]);
+    @Override
+    public byte[] prgROM() {
+        return prgROM;
+    }
+
+    @Override
+    public int prgPageOffset(final int page) {
+        return prgIndex(0x8000 | page << 13);
     }
 
     @Override
@@ -86,10 +106,22 @@ public class Mapper71 implements Mapper {
             mirroring = (data & MIRRORING_HIGH) != 0
                     ? Mirroring.ONE_SCREEN_HIGH
                     : Mirroring.ONE_SCREEN_LOW;
+            mirroringListener.run();
             return;
         }
 
         prgBank = data & bankMask;
+        prgBankListener.run();
+    }
+
+    @Override
+    public byte[] chrMemory() {
+        return chr;
+    }
+
+    @Override
+    public int chrPageOffset(final int page) {
+        return page << 10;
     }
 
     @Override
@@ -104,6 +136,11 @@ public class Mapper71 implements Mapper {
         }
     }
 
+    @Override
+    public void setMirroringListener(final Runnable listener) {
+        this.mirroringListener = listener;
+    }
+
     @Override
     public Mirroring mirroring() {
         return mirroring;
@@ -121,5 +158,24 @@ public class Mapper71 implements Mapper {
         if (chrIsRAM) {
             io.bytes(chr);
         }
+
+        if (!io.saving()) {
+            prgBankListener.run();
+            mirroringListener.run();
+        }
+    }
+
+    /**
+     * @param address an address in $8000-$FFFF.
+     * @return where in {@link #prgROM} it lands.
+     */
+    private int prgIndex(final int address) {
+        var offset = address & 0x7FFF;
+
+        if (offset < PRG_BANK_SIZE) {
+            return prgBank * PRG_BANK_SIZE + offset;
+        }
+
+        return lastBankBase + (offset & 0x3FFF);
     }
 }
@@ -45,6 +45,23 @@ public enum Mirroring {
      */
     ONE_SCREEN_HIGH;
 
+    /**
+     * Which kilobyte of nametable RAM backs one of the four nametables the PPU addresses.
+     *
+     * @param nameTable 0 for $2000 to 3 for $2C00.
+     * @return 0 or 1 for the console's two kilobytes, 2 or 3 for the two a four screen cartridge
+     * carries.
+     */
+    public int page(final int nameTable) {
+        return switch (this) {
+            case HORIZONTAL -> nameTable >> 1;
+            case VERTICAL -> nameTable & 1;
+            case FOUR_SCREEN -> nameTable;
+            case ONE_SCREEN_LOW -> 0;
+            case ONE_SCREEN_HIGH -> 1;
+        };
+    }
+
     /**
      * Maps the mirroring field of an iNES header onto this enum.
      *
@@ -137,6 +137,10 @@ public final class SaveState {
      * Writes the machine out.
      */
     public static void write(final NES nes, final OutputStream out) throws IOException {
+        // A machine catching up may have its PPU and APU a few cycles behind the CPU. The state is
+        // of the machine as lockstep would have it, so pay them first.
+        nes.synchronize();
+
         var body = body(nes);
         var header = new byte[HEADER_BYTES];
 
@@ -269,7 +273,10 @@ public final class SaveState {
             }
         }
 
-        // Nothing above this line has touched the machine, and nothing below it can fail.
+        // Nothing above this line has touched the machine, and nothing below it can fail. Cycles
+        // the chips are owed belong to the machine being replaced, and would be paid into the one
+        // being put back if they were left owing.
+        nes.forgetOwedCycles();
         apply(chunks, TAG_CPU, nes.getCPU()::serialize);
         apply(chunks, TAG_PPU, nes.getPPU()::serialize);
         apply(chunks, TAG_APU, nes.getAPU()::serialize);
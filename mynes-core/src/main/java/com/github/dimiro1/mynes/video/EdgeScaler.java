@@ -0,0 +1,267 @@
+package com.github.dimiro1.mynes.video;
+
+import com.github.dimiro1.mynes.PPU;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.stream.IntStream;
+
+/**
+ * Magnifies a frame the way pixel art wants magnifying: along its edges rather than in blocks.
+ * <p>
+ * The Scale2x family -- AdvMAME's Scale2x and Scale3x, and Scale4x, which is Scale2x done twice.
+ * Each pixel becomes a square of them, and a corner of the square takes the colour of the two
+ * neighbours it sits between when those two agree with each other and the pixel is not part of a
+ * straight line through them. A diagonal staircase becomes a diagonal; a flat area, a straight edge
+ * and a single pixel on its own are left exactly as blocky as they were.
+ * <p>
+ * The family is chosen over the smarter xBR and HQnx because every question it asks is whether two
+ * pixels are the same colour -- and on a frame of colour indices that is an integer compare, with
+ * no colour space and no thresholds to tune, so it costs the same on every frame of every game.
+ * xBR and HQnx grade their blends by how different two colours look, which is a question about RGB
+ * and would mean colouring the frame first and comparing pixels as colours after.
+ * <p>
+ * Indices in, indices out: {@link #magnify} leaves the colouring to the caller, which lets a
+ * caller that changes palette colour the magnified frame again without magnifying it again.
+ * Big pictures are done in bands of lines across the common fork-join pool. An instance holds
+ * nothing but its scale, so one can be used from any number of threads at once.
+ */
+public final class EdgeScaler {
+    /**
+     * The largest scale there is a member of the family for. Past four the corners the rules
+     * round off are small next to the blocks they leave square, and nearest neighbour on top of a
+     * 4x picture does the rest as well as anything.
+     */
+    public static final int MAX_SCALE = 4;
+
+    /**
+     * How many source lines a band handed to one thread gets, at least.
+     */
+    private static final int BAND_LINES = 16;
+
+    private final int scale;
+
+    /**
+     * @param scale how many pixels across and down each pixel becomes, 1 to {@link #MAX_SCALE}. 1
+     *              is the frame as it was, for a caller that would rather not treat it apart.
+     * @throws IllegalArgumentException if the scale is outside that.
+     */
+    public EdgeScaler(final int scale) {
+        if (scale < 1 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("scale must be 1 to " + MAX_SCALE + ", not " + scale);
+        }
+
+        this.scale = scale;
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    /**
+     * Magnifies a frame of colour indices.
+     *
+     * @param frame        the PPU's framebuffer, {@link PPU#getFrameBuffer()}. Only read.
+     * @param cropOverscan whether to leave off the scanlines a television hides.
+     * @param into         an array to write into, or null. Used if it is exactly the right length.
+     * @return the magnified indices, {@code 256 * scale} to a row: {@code into} or a new array.
+     */
+    public int[] magnify(final int[] frame, final boolean cropOverscan, final int[] into) {
+        var height = cropOverscan ? FrameRenderer.VISIBLE_HEIGHT : PPU.SCREEN_HEIGHT;
+        var bands = scale == 1 ? 1 : Math.clamp(
+                Runtime.getRuntime().availableProcessors(), 1, height / BAND_LINES);
+
+        return magnify(frame, cropOverscan, into, bands);
+    }
+
+    /**
+     * The same, in a given number of bands, which is how the tests hold a banded picture up against
+     * one magnified on a single thread.
+     */
+    int[] magnify(final int[] frame, final boolean cropOverscan, final int[] into, final int bands) {
+        var top = cropOverscan ? FrameRenderer.OVERSCAN_TOP : 0;
+        var height = cropOverscan ? FrameRenderer.VISIBLE_HEIGHT : PPU.SCREEN_HEIGHT;
+        var length = PPU.SCREEN_WIDTH * scale * height * scale;
+        var out = into != null && into.length == length ? into : new int[length];
+
+        switch (scale) {
+            case 1 -> System.arraycopy(frame, top * PPU.SCREEN_WIDTH, out, 0, length);
+            case 2 -> inBands(bands, height, (from, to) ->
+                    scale2x(frame, top, PPU.SCREEN_WIDTH, height, from, to, out));
+            case 3 -> inBands(bands, height, (from, to) ->
+                    scale3x(frame, top, PPU.SCREEN_WIDTH, height, from, to, out));
+            default -> {
+                // Twice over, and the second pass needs the whole of the first done: a line of it
+                // looks at the lines either side, which can be another band's.
+                var half = new int[PPU.SCREEN_WIDTH * 2 * height * 2];
+
+                inBands(bands, height, (from, to) ->
+                        scale2x(frame, top, PPU.SCREEN_WIDTH, height, from, to, half));
+                inBands(bands, height * 2, (from, to) ->
+                        scale2x(half, 0, PPU.SCREEN_WIDTH * 2, height * 2, from, to, out));
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Magnifies a frame and colours it, for a caller that only wants the picture.
+     *
+     * @param frame        the PPU's framebuffer. Only read.
+     * @param palette      512 packed RGB entries, indexed the way the framebuffer is.
+     * @param cropOverscan whether to leave off the scanlines a television hides.
+     * @param into         the picture to draw over, or null. Used if it is a
+     *                     {@link BufferedImage#TYPE_INT_RGB} of exactly the size this draws.
+     * @return the picture, {@link BufferedImage#TYPE_INT_RGB}: {@code into} or a new one.
+     */
+    public BufferedImage render(
+            final int[] frame,
+            final int[] palette,
+            final boolean cropOverscan,
+            final BufferedImage into
+    ) {
+        var indices = magnify(frame, cropOverscan, null);
+        var width = PPU.SCREEN_WIDTH * scale;
+        var height = indices.length / width;
+
+        var image = into != null
+                && into.getType() == BufferedImage.TYPE_INT_RGB
+                && into.getWidth() == width
+                && into.getHeight() == height
+                ? into
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        var pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        for (var i = 0; i < pixels.length; i++) {
+            pixels[i] = palette[indices[i]];
+        }
+
+        return image;
+    }
+
+    /**
+     * The lines of a pass that one band does, {@code from} up to {@code to}.
+     */
+    @FunctionalInterface
+    private interface Band {
+        void lines(int from, int to);
+    }
+
+    private static void inBands(final int bands, final int height, final Band band) {
+        if (bands <= 1) {
+            band.lines(0, height);
+        } else {
+            IntStream.range(0, bands).parallel().forEach(
+                    i -> band.lines(height * i / bands, height * (i + 1) / bands));
+        }
+    }
+
+    /**
+     * Scale2x over the source lines {@code from} up to {@code to}. Off the edge of the picture, a
+     * pixel's missing neighbour is the pixel itself, which the rules read as a straight edge and
+     * leave alone.
+     *
+     * @param source the indices, {@code width} to a row.
+     * @param top    the row of {@code source} that is the picture's first line.
+     * @param height how many lines the picture has, so how far down a neighbour may be looked for.
+     */
+    private static void scale2x(
+            final int[] source, final int top, final int width, final int height,
+            final int from, final int to, final int[] out) {
+        var outWidth = width * 2;
+
+        for (var y = from; y < to; y++) {
+            var row = (top + y) * width;
+            var above = y == 0 ? row : row - width;
+            var below = y == height - 1 ? row : row + width;
+            var target = y * 2 * outWidth;
+
+            for (var x = 0; x < width; x++) {
+                var left = x == 0 ? 0 : -1;
+                var right = x == width - 1 ? 0 : 1;
+
+                var b = source[above + x];
+                var d = source[row + x + left];
+                var e = source[row + x];
+                var f = source[row + x + right];
+                var h = source[below + x];
+
+                var at = target + x * 2;
+
+                if (b != h && d != f) {
+                    out[at] = d == b ? d : e;
+                    out[at + 1] = b == f ? f : e;
+                    out[at + outWidth] = d == h ? d : e;
+                    out[at + outWidth + 1] = h == f ? f : e;
+                } else {
+                    out[at] = e;
+                    out[at + 1] = e;
+                    out[at + outWidth] = e;
+                    out[at + outWidth + 1] = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scale3x over the source lines {@code from} up to {@code to}, with the edges treated as
+     * {@link #scale2x} treats them. The corners are Scale2x's rules; the edge middles take a
+     * neighbour's colour only where a corner next to them did and the diagonal beyond does not
+     * carry on, which is what stops a one pixel line growing a bump.
+     */
+    private static void scale3x(
+            final int[] source, final int top, final int width, final int height,
+            final int from, final int to, final int[] out) {
+        var outWidth = width * 3;
+
+        for (var y = from; y < to; y++) {
+            var row = (top + y) * width;
+            var above = y == 0 ? row : row - width;
+            var below = y == height - 1 ? row : row + width;
+            var target = y * 3 * outWidth;
+
+            for (var x = 0; x < width; x++) {
+                var left = x == 0 ? 0 : -1;
+                var right = x == width - 1 ? 0 : 1;
+
+                var a = source[above + x + left];
+                var b = source[above + x];
+                var c = source[above + x + right];
+                var d = source[row + x + left];
+                var e = source[row + x];
+                var f = source[row + x + right];
+                var g = source[below + x + left];
+                var h = source[below + x];
+                var i = source[below + x + right];
+
+                var at = target + x * 3;
+                var middle = at + outWidth;
+                var bottom = middle + outWidth;
+
+                if (b != h && d != f) {
+                    out[at] = d == b ? d : e;
+                    out[at + 1] = (d == b && e != c) || (b == f && e != a) ? b : e;
+                    out[at + 2] = b == f ? f : e;
+                    out[middle] = (d == b && e != g) || (d == h && e != a) ? d : e;
+                    out[middle + 1] = e;
+                    out[middle + 2] = (b == f && e != i) || (h == f && e != c) ? f : e;
+                    out[bottom] = d == h ? d : e;
+                    out[bottom + 1] = (d == h && e != i) || (h == f && e != g) ? h : e;
+                    out[bottom + 2] = h == f ? f : e;
+                } else {
+                    out[at] = e;
+                    out[at + 1] = e;
+                    out[at + 2] = e;
+                    out[middle] = e;
+                    out[middle + 1] = e;
+                    out[middle + 2] = e;
+                    out[bottom] = e;
+                    out[bottom + 1] = e;
+                    out[bottom + 2] = e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.github.dimiro1.mynes.video;
+
+import com.github.dimiro1.mynes.PPU;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Turns a frame of the PPU's colour indices into the picture a composite television would have
+ * made of it, rather than the one a palette table makes.
+ * <p>
+ * The 2C02 has no RGB anywhere in it. It puts out a composite signal, eight samples a pixel, that
+ * sits at one of two voltages for each colour and switches between them in step with the colour
+ * subcarrier -- and what arrives on a television is that signal after the set has filtered it to
+ * pull the brightness and the colour back apart. The filtering is what a palette leaves out: it
+ * spreads each pixel into its neighbours, it lets the edges of the subcarrier leak into the
+ * brightness, and since a pixel is two thirds of a subcarrier cycle wide, the same colour next to
+ * the same neighbour comes out differently depending on where on the line it falls. Games knew all
+ * of this and drew for it. Dithered waterfalls that look like stripes through a palette were a
+ * blend on the screen they were drawn for.
+ * <p>
+ * Done literally that is a few hundred multiplies a pixel. But the decoding is linear right up to
+ * the gamma at the very end, so what a pixel contributes to the picture depends only on which of
+ * the 512 indices it is and which of the three subcarrier phases it started on -- and that is a
+ * table, built once in the constructor. Drawing a line is then adding up, for every pixel, its
+ * entry's contribution to the points around it. The three colour channels of a point are packed
+ * side by side into one {@code long}, each with a bias that keeps it from ever going negative, so
+ * that a point costs one add per neighbouring pixel rather than three; the same trick blargg's
+ * nes_ntsc plays with an {@code int}.
+ * <p>
+ * A pure post-process: it reads the frame and writes a picture, and the machine never knows it was
+ * there. Frame hashes, save states and colour counts are all still about the indices.
+ * <p>
+ * A filter is built for one {@link #scale()}, which is how many points each pixel is decoded into
+ * across and how many times each line is repeated down. The tables are the slow part and are
+ * immutable afterwards, so one filter can be shared by every picture that wants that size. It makes
+ * its own colours from the signal, so it takes no palette -- and since the signal it models is the
+ * NTSC one, it is the wrong answer for a PAL machine, whose chip encodes colour differently.
+ */
+public final class NTSCFilter {
+    /**
+     * The largest {@link #scale()}, which is the same eight times {@link FrameRenderer} stops at.
+     * Eight points a pixel is also one for every sample of the signal, so past this there is no
+     * more detail to find.
+     */
+    public static final int MAX_SCALE = FrameRenderer.MAX_SCALE;
+
+    /**
+     * The chip's master clock runs eight times for every pixel and twelve for every cycle of the
+     * colour subcarrier, so the phase a pixel starts on goes round three values in steps of four
+     * master clocks. Every scanline is 341 dots long, which moves the next one on by one step.
+     */
+    private static final int CLOCKS_PER_PIXEL = 8;
+    private static final int CLOCKS_PER_CYCLE = 12;
+    private static final int CLOCKS_PER_PHASE = 4;
+    private static final int PHASES = CLOCKS_PER_CYCLE / CLOCKS_PER_PHASE;
+
+    private static final int ENTRIES = 512;
+
+    /**
+     * The voltages the chip produces for the low and high halves of a colour, one for each of the
+     * four brightness rows of the palette, and the two ends of the scale a television takes as
+     * black and white. As measured on a 2C02 by the people who wrote the NESdev wiki's page on it.
+     */
+    private static final double[] LOW = {0.350, 0.518, 0.962, 1.550};
+    private static final double[] HIGH = {1.094, 1.506, 1.962, 1.962};
+    private static final double BLACK = 0.518;
+    private static final double WHITE = 1.962;
+
+    /**
+     * How much the signal drops while one of the emphasis bits is pulling it down. Measured, and
+     * the same number {@link com.github.dimiro1.mynes.palette.NESPalette} dims a channel by.
+     */
+    private static final double EMPHASIS_ATTENUATION = 0.746;
+
+    /**
+     * Where the television's colour burst lines up against the chip's, in master clocks. Nothing
+     * fixes it exactly -- it is the tint knob -- and this is where the decoded hues sit closest to
+     * the NESdev palette's.
+     */
+    private static final double HUE = 3.9;
+
+    /**
+     * How many master clocks of signal the television averages to make one point of the picture:
+     * one whole subcarrier cycle, which is what cancels the carrier out of a flat colour and leaves
+     * exactly its brightness and its hue behind.
+     */
+    private static final double WINDOW = CLOCKS_PER_CYCLE;
+
+    /**
+     * How many pixels either side of itself a pixel's signal reaches once it has been averaged. A
+     * window of twelve clocks spreads an eight clock pixel over twenty, which is into the next pixel
+     * on each side and no further.
+     */
+    private static final int REACH = 1;
+    private static final int SPAN = 2 * REACH + 1;
+
+    /**
+     * An index whose signal is black all the way along, and so contributes nothing: what is off
+     * either end of the line.
+     */
+    private static final int BLANK = 0x0F;
+
+    /**
+     * The fixed point the tables are kept in: 1.0 is {@link #LEVELS}, and the gamma table has one
+     * entry for each step between black and white.
+     */
+    private static final int LEVELS = 1 << 10;
+
+    /**
+     * Each channel's field in a packed point, and the bias every table entry carries so that adding
+     * up the {@link #SPAN} contributions to a point never borrows from the field above it. A single
+     * contribution is well inside plus or minus four times white, and the sum of three is well
+     * inside the field.
+     */
+    private static final int FIELD = 21;
+    private static final long FIELD_MASK = (1L << FIELD) - 1;
+    private static final int BIAS = 1 << 17;
+    private static final int SUM_BIAS = SPAN * BIAS;
+
+    /**
+     * The standard YIQ to RGB matrix, the last linear step of the decoding.
+     */
+    private static final double[] RED = {1.0, 0.946882, 0.623557};
+    private static final double[] GREEN = {1.0, -0.274788, -0.635691};
+    private static final double[] BLUE = {1.0, -1.108545, 1.709007};
+
+    /**
+     * How many lines a band handed to one thread gets, at least. Fewer would spend more on the
+     * handing out than on the lines.
+     */
+    private static final int BAND_LINES = 16;
+
+    private final int scale;
+
+    /**
+     * What each index contributes, for each phase: {@code SPAN * scale} packed points, from the
+     * first point of the pixel on its left to the last point of the pixel on its right, indexed
+     * {@code ((phase * ENTRIES) + index) * SPAN * scale}.
+     */
+    private final long[] kernels;
+
+    /**
+     * A channel's level, {@code 0} to {@code LEVELS - 1}, as an eight bit value with the
+     * television's gamma applied.
+     */
+    private final int[] gamma = new int[LEVELS];
+
+    /**
+     * Builds the tables for one size of picture. The work is in here, a few milliseconds of it, so
+     * a filter is meant to be made once and kept.
+     *
+     * @param scale how many points each pixel is decoded into across, and how many times each line
+     *              is repeated down: 1 to {@link #MAX_SCALE}.
+     * @throws IllegalArgumentException if the scale is outside that.
+     */
+    public NTSCFilter(final int scale) {
+        if (scale < 1 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("scale must be 1 to " + MAX_SCALE + ", not " + scale);
+        }
+
+        this.scale = scale;
+        this.kernels = new long[PHASES * ENTRIES * SPAN * scale];
+
+        for (var phase = 0; phase < PHASES; phase++) {
+            for (var index = 0; index < ENTRIES; index++) {
+                fillKernel(phase, index);
+            }
+        }
+
+        // The NESdev wiki's correction from the chip's response to a television's: the signal is
+        // close to linear in brightness, and a picture on a computer screen is not.
+        for (var level = 0; level < LEVELS; level++) {
+            gamma[level] = (int) (255.95 * Math.pow(level / (double) LEVELS, 2.2 / 1.8));
+        }
+    }
+
+    /**
+     * How many points each pixel is decoded into, and how many times each line is repeated.
+     */
+    public int scale() {
+        return scale;
+    }
+
+    /**
+     * Works out one index's contribution at one phase, which is the whole of the decoding done
+     * once: the pixel's eight samples of signal, averaged over the window that centres on each of
+     * the points it reaches, demodulated against the subcarrier and turned into RGB.
+     */
+    private void fillKernel(final int phase, final int index) {
+        var start = phase * CLOCKS_PER_PHASE;
+        var signal = new double[CLOCKS_PER_PIXEL];
+
+        for (var clock = 0; clock < CLOCKS_PER_PIXEL; clock++) {
+            signal[clock] = signal(index, (start + clock) % CLOCKS_PER_CYCLE);
+        }
+
+        var base = (phase * ENTRIES + index) * SPAN * scale;
+
+        for (var point = 0; point < SPAN * scale; point++) {
+            // Where the point sits, in master clocks from the start of this pixel: its own pixel
+            // is REACH pixels into the span.
+            var centre = ((point + 0.5) / scale - REACH) * CLOCKS_PER_PIXEL;
+            var from = centre - WINDOW / 2;
+            var to = centre + WINDOW / 2;
+
+            var y = 0.0;
+            var i = 0.0;
+            var q = 0.0;
+
+            for (var clock = 0; clock < CLOCKS_PER_PIXEL; clock++) {
+                // How much of this sample falls inside the window, so that a point between two
+                // samples is answered as well as one on top of one.
+                var overlap = Math.min(to, clock + 1) - Math.max(from, clock);
+
+                if (overlap <= 0) {
+                    continue;
+                }
+
+                var level = signal[clock] * overlap / WINDOW;
+                var angle = Math.PI * (start + clock + HUE) / 6;
+
+                y += level;
+                i += level * Math.cos(angle);
+                q += level * Math.sin(angle);
+            }
+
+            kernels[base + point] = (fixed(y, i, q, RED) << (2 * FIELD))
+                    | (fixed(y, i, q, GREEN) << FIELD)
+                    | fixed(y, i, q, BLUE);
+        }
+    }
+
+    private static long fixed(final double y, final double i, final double q, final double[] row) {
+        return Math.round((y * row[0] + i * row[1] + q * row[2]) * LEVELS) + BIAS;
+    }
+
+    /**
+     * The chip's output for {@code index} at one clock, with black at 0 and white at 1: the high
+     * voltage for half of every subcarrier cycle and the low one for the other half, the halves
+     * set by the hue. Grey is the high voltage throughout, and columns D to F the low.
+     */
+    private static double signal(final int index, final int clock) {
+        var hue = index & 0x0F;
+        var row = (index >> 4) & 0x03;
+        var emphasis = index >> 6;
+
+        if (hue > 0x0D) {
+            row = 1;
+        }
+
+        var low = LOW[row];
+        var high = HIGH[row];
+
+        if (hue == 0) {
+            low = high;
+        } else if (hue > 0x0C) {
+            high = low;
+        }
+
+        var level = inPhase(hue, clock) ? high : low;
+
+        // Each emphasis bit pulls the signal down for the half of the cycle that belongs to its
+        // colour -- red, green and blue, a third of a cycle apart -- which is why emphasising one
+        // reads as the other two being dimmed. Nothing happens to the blacks in columns E and F.
+        if (hue < 0x0E
+                && (((emphasis & 1) != 0 && inPhase(0, clock))
+                || ((emphasis & 2) != 0 && inPhase(4, clock))
+                || ((emphasis & 4) != 0 && inPhase(8, clock)))) {
+            level *= EMPHASIS_ATTENUATION;
+        }
+
+        return (level - BLACK) / (WHITE - BLACK);
+    }
+
+    private static boolean inPhase(final int hue, final int clock) {
+        return (hue + clock) % CLOCKS_PER_CYCLE < CLOCKS_PER_CYCLE / 2;
+    }
+
+    /**
+     * Draws a frame, into a picture already made if it is the right one.
+     * <p>
+     * The picture is {@link #scale()} times the frame each way. Big pictures are drawn in bands of
+     * scanlines across the common fork-join pool, since each line depends on nothing but its own
+     * row of the frame; small ones are done on the calling thread, where handing the work out
+     * would cost more than it saved.
+     *
+     * @param frame        the PPU's framebuffer, {@link PPU#getFrameBuffer()}. Only read.
+     * @param burst        which of the three subcarrier phases the frame's first line starts on.
+     *                     A rendering 2C02 moves it on by one a frame and back again the next, so
+     *                     passing the frame number's parity gets the same shimmer a television
+     *                     shows; passing 0 every time gets a steady picture.
+     * @param cropOverscan whether to leave off the scanlines a television hides.
+     * @param into         the picture to draw over, or null. Used if it is a
+     *                     {@link BufferedImage#TYPE_INT_RGB} of exactly the size this draws.
+     * @return the picture, {@link BufferedImage#TYPE_INT_RGB}: {@code into} or a new one.
+     */
+    public BufferedImage render(
+            final int[] frame,
+            final int burst,
+            final boolean cropOverscan,
+            final BufferedImage into
+    ) {
+        var height = cropOverscan ? FrameRenderer.VISIBLE_HEIGHT : PPU.SCREEN_HEIGHT;
+        var bands = scale == 1 ? 1 : Math.clamp(
+                Runtime.getRuntime().availableProcessors(), 1, height / BAND_LINES);
+
+        return render(frame, burst, cropOverscan, into, bands);
+    }
+
+    /**
+     * The same, in a given number of bands, which is how the tests hold a banded picture up against
+     * one drawn on a single thread.
+     */
+    BufferedImage render(
+            final int[] frame,
+            final int burst,
+            final boolean cropOverscan,
+            final BufferedImage into,
+            final int bands
+    ) {
+        var top = cropOverscan ? FrameRenderer.OVERSCAN_TOP : 0;
+        var height = cropOverscan ? FrameRenderer.VISIBLE_HEIGHT : PPU.SCREEN_HEIGHT;
+        var width = PPU.SCREEN_WIDTH * scale;
+
+        var image = into != null
+                && into.getType() == BufferedImage.TYPE_INT_RGB
+                && into.getWidth() == width
+                && into.getHeight() == height * scale
+                ? into
+                : new BufferedImage(width, height * scale, BufferedImage.TYPE_INT_RGB);
+
+        var pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        if (bands <= 1) {
+            drawLines(frame, burst, top, 0, height, pixels);
+        } else {
+            IntStream.range(0, bands).parallel().forEach(band -> drawLines(
+                    frame, burst, top, height * band / bands, height * (band + 1) / bands, pixels));
+        }
+
+        return image;
+    }
+
+    /**
+     * Draws the picture's lines {@code from} up to {@code to}, each into its own rows and nowhere
+     * else, which is what lets two bands be drawn at once.
+     */
+    private void drawLines(
+            final int[] frame,
+            final int burst,
+            final int top,
+            final int from,
+            final int to,
+            final int[] pixels
+    ) {
+        var width = PPU.SCREEN_WIDTH * scale;
+        var span = SPAN * scale;
+
+        // Room for every point a pixel on the line can reach, including the ones off either end
+        // that nothing is drawn from: REACH pixels of margin for the blank pixels beyond the line,
+        // and REACH more for what those reach in turn.
+        var points = new long[(PPU.SCREEN_WIDTH + 4 * REACH) * scale];
+
+        for (var y = from; y < to; y++) {
+            var line = top + y;
+            var sourceRow = line * PPU.SCREEN_WIDTH;
+
+            Arrays.fill(points, 0);
+
+            // The phase of the first pixel in the loop, REACH pixels before the line starts. Each
+            // pixel is two steps on from the last, and each line one step on from the one above.
+            var phase = Math.floorMod(line + burst - 2 * REACH, PHASES);
+
+            for (var x = -REACH; x < PPU.SCREEN_WIDTH + REACH; x++) {
+                var index = x < 0 || x >= PPU.SCREEN_WIDTH ? BLANK : frame[sourceRow + x];
+                var kernel = (phase * ENTRIES + index) * span;
+                var at = (x + REACH) * scale;
+
+                for (var i = 0; i < span; i++) {
+                    points[at + i] += kernels[kernel + i];
+                }
+
+                phase = phase == 0 ? PHASES - 1 : phase - 1;
+            }
+
+            var targetRow = y * scale * width;
+            var first = 2 * REACH * scale;
+
+            for (var i = 0; i < width; i++) {
+                var point = points[first + i];
+
+                pixels[targetRow + i] = channel(point >>> (2 * FIELD)) << 16
+                        | channel(point >>> FIELD) << 8
+                        | channel(point);
+            }
+
+            for (var i = 1; i < scale; i++) {
+                System.arraycopy(pixels, targetRow, pixels, targetRow + i * width, width);
+            }
+        }
+    }
+
+    /**
+     * One channel's field of a packed point, with the biases taken back off, clamped between black
+     * and white and put through the gamma.
+     */
+    private int channel(final long point) {
+        var level = (int) (point & FIELD_MASK) - SUM_BIAS;
+
+        return gamma[Math.clamp(level, 0, LEVELS - 1)];
+    }
+}
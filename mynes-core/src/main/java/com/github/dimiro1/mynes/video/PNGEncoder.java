@@ -0,0 +1,305 @@
+package com.github.dimiro1.mynes.video;
+
+import com.github.dimiro1.mynes.PPU;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a frame of colour indices straight to a PNG, as a palette image.
+ * <p>
+ * A NES frame is a few dozen colours out of 512, and it already arrives as indices -- so colouring
+ * it in as 24-bit RGB and handing that to ImageIO, which will write 24-bit RGB back out, is three
+ * bytes a pixel to compress where one will do, and a detour through a picture nobody keeps. This
+ * skips the picture: the colours the frame actually uses become the PNG's palette, in the order
+ * they first turn up, and each pixel is written as its place in it.
+ * <p>
+ * Magnifying is cheap here for the same reason it is blocky. The first copy of each line goes out
+ * as it is; the copies under it go out with the filter that subtracts the line above, which makes
+ * them rows of zeros the compressor hardly pays for. Compression is at the fastest level: what a
+ * higher one finds in a picture that is mostly flat runs and repeated rows is a few percent, and
+ * a run taking a screenshot every frame spends the difference sixty times a second.
+ * <p>
+ * A frame can in principle use more than 256 colours -- emphasis switched mid-frame, through every
+ * combination -- and no palette PNG holds that. Such a frame is written as 24-bit RGB instead, by
+ * the same code, and decodes to the same colours; nothing asks the caller to know.
+ * <p>
+ * One instance keeps its compressor and its buffers from one picture to the next, which is the
+ * point of having an instance, and is therefore for one thread at a time.
+ */
+public final class PNGEncoder {
+    /**
+     * How many entries a palette PNG can have, at eight bits a pixel.
+     */
+    public static final int MAX_COLOURS = 256;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+
+    private static final int COLOUR_TYPE_RGB = 2;
+    private static final int COLOUR_TYPE_INDEXED = 3;
+
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_UP = 2;
+
+    /**
+     * How much compressed picture goes in each IDAT chunk. Any size decodes the same; this one is
+     * big enough that the twelve bytes of framing each chunk costs are lost in it.
+     */
+    private static final int IDAT_BYTES = 1 << 16;
+
+    private static final int UNSEEN = -1;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * A frame index's place in the palette being written, or {@link #UNSEEN}.
+     */
+    private final int[] slots = new int[512];
+
+    /**
+     * The palette being written, as packed RGB, {@code count} of them in use.
+     */
+    private final int[] colours = new int[MAX_COLOURS];
+
+    /**
+     * The chunk being put together: its length, its type, up to {@link #IDAT_BYTES} of data and
+     * room for its CRC after.
+     */
+    private final byte[] chunk = new byte[8 + IDAT_BYTES + 4];
+
+    /**
+     * How much of the IDAT chunk being put together is filled.
+     */
+    private int filled;
+
+    private byte[] line = new byte[0];
+    private byte[] repeat = new byte[0];
+
+    /**
+     * Writes a frame of the PPU's.
+     *
+     * @param frame        a frame of colour indices, {@link PPU#getFrameBuffer()}. Read, never
+     *                     kept.
+     * @param palette      512 packed RGB entries indexed the way the frame is, which is what
+     *                     {@code NESPalette.colours()} hands out. The alpha byte is ignored.
+     * @param cropOverscan whether to hide the scanlines a television would.
+     * @param scale        how many times to magnify, 1 to {@link FrameRenderer#MAX_SCALE}.
+     * @param out          where the PNG goes. Written to in large pieces and not closed.
+     */
+    public void write(
+            final int[] frame,
+            final int[] palette,
+            final boolean cropOverscan,
+            final int scale,
+            final OutputStream out
+    ) throws IOException {
+        var top = cropOverscan ? FrameRenderer.OVERSCAN_TOP : 0;
+        var height = cropOverscan ? FrameRenderer.VISIBLE_HEIGHT : PPU.SCREEN_HEIGHT;
+
+        encode(frame, top * PPU.SCREEN_WIDTH, PPU.SCREEN_WIDTH, height, scale, palette, out);
+    }
+
+    /**
+     * Writes a picture of colour indices of any width, such as the one {@link EdgeScaler#magnify}
+     * returns, at one PNG pixel per index.
+     *
+     * @param indices the picture, {@code width} to a row and as many rows as that makes.
+     * @param width   how many indices a row has.
+     * @param palette as {@link #write(int[], int[], boolean, int, OutputStream)} takes it.
+     * @param out     where the PNG goes. Not closed.
+     */
+    public void write(
+            final int[] indices,
+            final int width,
+            final int[] palette,
+            final OutputStream out
+    ) throws IOException {
+        encode(indices, 0, width, indices.length / width, 1, palette, out);
+    }
+
+    private void encode(
+            final int[] indices,
+            final int offset,
+            final int width,
+            final int height,
+            final int scale,
+            final int[] palette,
+            final OutputStream out
+    ) throws IOException {
+        if (scale < 1 || scale > FrameRenderer.MAX_SCALE) {
+            throw new IllegalArgumentException(
+                    "scale must be 1 to " + FrameRenderer.MAX_SCALE + ", not " + scale);
+        }
+
+        var count = collect(indices, offset, width * height, palette);
+        var indexed = count <= MAX_COLOURS;
+        var stride = 1 + width * scale * (indexed ? 1 : 3);
+
+        if (line.length < stride) {
+            line = new byte[stride];
+            repeat = new byte[stride];
+            repeat[0] = FILTER_UP;
+        }
+
+        out.write(SIGNATURE);
+
+        putInt(8, width * scale);
+        putInt(12, height * scale);
+        chunk[16] = 8;
+        chunk[17] = (byte) (indexed ? COLOUR_TYPE_INDEXED : COLOUR_TYPE_RGB);
+        chunk[18] = 0;
+        chunk[19] = 0;
+        chunk[20] = 0;
+        emit(IHDR, 13, out);
+
+        if (indexed) {
+            for (var i = 0; i < count; i++) {
+                chunk[8 + i * 3] = (byte) (colours[i] >> 16);
+                chunk[9 + i * 3] = (byte) (colours[i] >> 8);
+                chunk[10 + i * 3] = (byte) colours[i];
+            }
+
+            emit(PLTE, count * 3, out);
+        }
+
+        deflater.reset();
+        filled = 0;
+        line[0] = FILTER_NONE;
+
+        for (var y = 0; y < height; y++) {
+            var source = offset + y * width;
+            var at = 1;
+
+            if (indexed) {
+                for (var x = 0; x < width; x++) {
+                    var slot = (byte) slots[indices[source + x]];
+
+                    for (var i = 0; i < scale; i++) {
+                        line[at++] = slot;
+                    }
+                }
+            } else {
+                for (var x = 0; x < width; x++) {
+                    var rgb = palette[indices[source + x]];
+
+                    for (var i = 0; i < scale; i++) {
+                        line[at++] = (byte) (rgb >> 16);
+                        line[at++] = (byte) (rgb >> 8);
+                        line[at++] = (byte) rgb;
+                    }
+                }
+            }
+
+            deflate(line, stride, out);
+
+            for (var i = 1; i < scale; i++) {
+                deflate(repeat, stride, out);
+            }
+        }
+
+        deflater.finish();
+
+        while (!deflater.finished()) {
+            drain(out);
+        }
+
+        if (filled > 0) {
+            emit(IDAT, filled, out);
+        }
+
+        emit(IEND, 0, out);
+    }
+
+    /**
+     * Finds the colours the picture uses and gives each a place in the palette, two indices that
+     * come out the same colour sharing one -- the chip has several blacks.
+     *
+     * @return how many places that took, or more than {@link #MAX_COLOURS} if it would take more
+     *         than a palette PNG has, at which point the counting stops.
+     */
+    private int collect(
+            final int[] indices, final int offset, final int length, final int[] palette) {
+        Arrays.fill(slots, UNSEEN);
+        var count = 0;
+
+        for (var i = offset; i < offset + length; i++) {
+            var index = indices[i];
+
+            if (slots[index] != UNSEEN) {
+                continue;
+            }
+
+            var rgb = palette[index] & 0xFFFFFF;
+            var slot = 0;
+
+            while (slot < count && colours[slot] != rgb) {
+                slot++;
+            }
+
+            if (slot == count) {
+                if (count == MAX_COLOURS) {
+                    return MAX_COLOURS + 1;
+                }
+
+                colours[count++] = rgb;
+            }
+
+            slots[index] = slot;
+        }
+
+        return count;
+    }
+
+    private void deflate(final byte[] bytes, final int length, final OutputStream out)
+            throws IOException {
+        deflater.setInput(bytes, 0, length);
+
+        while (!deflater.needsInput()) {
+            drain(out);
+        }
+    }
+
+    /**
+     * Takes what the compressor has ready into the IDAT chunk being put together, and sends the
+     * chunk on once it is full.
+     */
+    private void drain(final OutputStream out) throws IOException {
+        filled += deflater.deflate(chunk, 8 + filled, IDAT_BYTES - filled);
+
+        if (filled == IDAT_BYTES) {
+            emit(IDAT, filled, out);
+            filled = 0;
+        }
+    }
+
+    /**
+     * Frames the {@code length} bytes of data already at {@code chunk[8]} as a chunk of
+     * {@code type} and writes it, in one piece.
+     */
+    private void emit(final int type, final int length, final OutputStream out) throws IOException {
+        putInt(0, length);
+        putInt(4, type);
+
+        crc.reset();
+        crc.update(chunk, 4, 4 + length);
+        putInt(8 + length, (int) crc.getValue());
+
+        out.write(chunk, 0, 12 + length);
+    }
+
+    private void putInt(final int at, final int value) {
+        chunk[at] = (byte) (value >>> 24);
+        chunk[at + 1] = (byte) (value >>> 16);
+        chunk[at + 2] = (byte) (value >>> 8);
+        chunk[at + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.dimiro1.mynes;
+
+import com.github.dimiro1.mynes.state.StateIO;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Whether the APU clocking its channels only when something needs them is the same chip as one that
+ * clocked every channel on every cycle.
+ * <p>
+ * There is no chip of the second kind left to run beside it, so the numbers below are that chip's:
+ * taken from the tree before {@code APU.catchUp} existed, by running each ROM for four seconds with
+ * the band-limited mixer on and folding in every sample and, after every frame's worth of cycles,
+ * the APU's save state. The state is what catches a frame counter step, an interrupt or a DMC
+ * fetch landing a cycle out, which a ROM that is silent by then would never let the samples show.
+ * <p>
+ * Only the band-limited samples are pinned. The box filter's running sum became an integer in the
+ * same change, which is the sum clocking each cycle would have made but not the same doubles.
+ * <p>
+ * Each ROM runs twice: in lockstep, where the chip decides for itself when to catch up, and with
+ * {@link NES#setCatchUp} on, where {@code NES.clockChips} hands it its cycles in bulk on top. Both
+ * have to come out as the pinned run.
+ */
+class APUCatchUpTests {
+
+    /**
+     * Four seconds of frames, counted in CPU cycles rather than by the PPU so that both trees stop
+     * on the same cycle whatever either of them does at the edge of a frame.
+     */
+    private static final int FRAMES = 240;
+    private static final int FRAME_CYCLES = 29_781;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    @ParameterizedTest
+    @CsvSource({
+            // Length counters and the frame counter's half frames, with notes playing.
+            "/apu-test/1-len_ctr.nes,           NTSC, 0x6E52CF776021AD12, 0x285051FD8A896FBA",
+            "/apu-test/5-len_timing.nes,        NTSC, 0xD91751C666E93E61, 0xBBF6FEE6740D9D5A",
+            // The frame interrupt, against a $4017 write and a $4015 read.
+            "/apu-test/4-jitter.nes,            NTSC, 0xCC43E99BA16A15BF, 0x3984BFAF29B8937B",
+            "/apu-test/6-irq_flag_timing.nes,   NTSC, 0x922154C45763EABC, 0x1AD3722B0549282F",
+            // The DMC's fetches and its interrupt.
+            "/apu-test/7-dmc_basics.nes,        NTSC, 0x922154C45763EABC, 0x508F06C342FD18CC",
+            "/apu-test/8-dmc_rates.nes,         NTSC, 0x1DB9BE996C81F863, 0xE9C841F64284D155",
+            "/instr-misc/04-dummy_reads_apu.nes, NTSC, 0x6667A234EF72ABC2, 0xA8F2E53C77BE5FC1",
+            // A frame counter with PAL's step lengths, and DMC rates from PAL's table.
+            "/apu-test/4-jitter.nes,            PAL,  0x4278C17041C0EF38, 0x31FF8F0F507E84F4",
+            "/apu-test/8-dmc_rates.nes,         PAL,  0x1A43BAEEA8A2FBBC, 0x1094B98668C10667",
+    })
+    void soundsAndEndsEveryFrameAsTheChipClockedEveryCycleDid(
+            final String rom,
+            final Region region,
+            final String sound,
+            final String state) throws IOException {
+        for (var catchUp : new boolean[]{false, true}) {
+            var run = run(rom, region, catchUp);
+            var how = rom + (catchUp ? " catching up" : " in lockstep");
+
+            assertEquals(Long.parseUnsignedLong(sound.substring(2), 16), run[0], how + ": sound");
+            assertEquals(Long.parseUnsignedLong(state.substring(2), 16), run[1], how + ": state");
+        }
+    }
+
+    /**
+     * The samples and the save states, each folded into one FNV-1a hash.
+     */
+    private static long[] run(final String rom, final Region region, final boolean catchUp)
+            throws IOException {
+        var nes = load(rom, region);
+        nes.setCatchUp(catchUp);
+
+        var apu = nes.getAPU();
+        var sound = new long[]{FNV_OFFSET_BASIS};
+        var state = FNV_OFFSET_BASIS;
+
+        apu.setBandLimited(true);
+        apu.setAudioSink((samples, count) -> {
+            for (var i = 0; i < count; i++) {
+                sound[0] = fold(sound[0], samples[i] >> 8);
+                sound[0] = fold(sound[0], samples[i]);
+            }
+        });
+
+        for (var frame = 0; frame < FRAMES; frame++) {
+            for (var cycle = 0; cycle < FRAME_CYCLES; cycle++) {
+                nes.tick();
+            }
+
+            nes.synchronize();
+            apu.flushSamples();
+
+            var io = StateIO.writing();
+            apu.serialize(io);
+
+            for (var b : io.written()) {
+                state = fold(state, b);
+            }
+        }
+
+        return new long[]{sound[0], state};
+    }
+
+    private static long fold(final long hash, final int b) {
+        return (hash ^ (b & 0xFF)) * FNV_PRIME;
+    }
+
+    private static NES load(final String resource, final Region region) throws IOException {
+        try (var rom = APUCatchUpTests.class.getResourceAsStream(resource)) {
+            assertNotNull(rom, resource);
+            return new NES(Cart.load(rom.readAllBytes(), resource), region);
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package com.github.dimiro1.mynes;
 
+import com.github.dimiro1.mynes.state.StateIO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * The mixer and everything between it and a sound card: the two nonlinear ladders, the decimator
- * that turns 1.79 million values a second into 44100, and the filters that give the result the
- * console's tone.
+ * that turns 1.79 million values a second into 44100 -- or 48000, or 96000 -- and the filters that
+ * give the result the console's tone.
  * <p>
  * None of this is on the hardware's critical path in the way the timing is, so the tests here are
  * about the arithmetic rather than about cycles: the right number of samples, in the right range,
@@ -31,9 +38,30 @@ class APUMixerTests {
 
     private APU apu;
 
+    /**
+     * What the sink has been handed since the last {@link #frame()}, and the size of each block.
+     */
+    private short[] heard = new short[4096];
+    private int heardCount;
+    private final List<Integer> blocks = new ArrayList<>();
+
     @BeforeEach
     void setUp() {
-        apu = new APU(level -> { }, level -> { });
+        apu = listenedTo(new APU(level -> { }, level -> { }));
+    }
+
+    private APU listenedTo(final APU apu) {
+        apu.setAudioSink((samples, count) -> {
+            if (heardCount + count > heard.length) {
+                heard = Arrays.copyOf(heard, heard.length * 2);
+            }
+
+            System.arraycopy(samples, 0, heard, heardCount, count);
+            heardCount += count;
+            blocks.add(count);
+        });
+
+        return apu;
     }
 
     private void tick(final int cycles) {
@@ -47,12 +75,19 @@ class APUMixerTests {
      */
     private short[] frame() {
         tick(FRAME_CYCLES);
+        apu.flushSamples();
 
-        var out = new short[4096];
-        var drained = apu.drainSamples(out);
-        var samples = new short[drained];
+        return taken();
+    }
 
-        System.arraycopy(out, 0, samples, 0, drained);
+    /**
+     * Everything the sink has been handed since it was last asked.
+     */
+    private short[] taken() {
+        var samples = Arrays.copyOf(heard, heardCount);
+
+        heardCount = 0;
+        blocks.clear();
 
         return samples;
     }
@@ -106,38 +141,250 @@ class APUMixerTests {
                     "expected about " + expected + " over a hundred frames but got " + total);
         }
 
+        /**
+         * Nothing waits on anybody to ask: a second of samples arrives as it is made, full block
+         * after full block, with only the part filled since the last one still in the chip.
+         */
         @Test
-        void samplesPileUpUntilSomethingDrainsThem() {
-            tick(FRAME_CYCLES);
-            assertEquals(SAMPLES_PER_FRAME, apu.availableSamples(), 1);
+        void fullBlocksArriveWithoutBeingAskedFor() {
+            tick(60 * FRAME_CYCLES);
+
+            var made = (int) Math.round(60.0 * FRAME_CYCLES * 44100 / 1_789_773.0);
+
+            assertEquals(made / APU.BLOCK_SAMPLES, blocks.size(), 1);
+            assertTrue(blocks.stream().allMatch(count -> count == APU.BLOCK_SAMPLES),
+                    "every block handed over unasked is a full one: " + blocks);
+
+            var unasked = taken().length;
+            apu.flushSamples();
 
-            tick(FRAME_CYCLES);
-            assertEquals(2 * SAMPLES_PER_FRAME, apu.availableSamples(), 2);
+            assertEquals(made, unasked + taken().length, 1);
         }
 
         /**
-         * A machine nobody is listening to -- a test, or a front end that has stopped asking --
-         * must not grow a buffer without end.
+         * Either way of making the samples makes them at the rate asked for, straight from the
+         * chip's clock: a hundred frames at 48kHz are a hundred frames' worth at 48kHz.
          */
         @Test
-        void theRingStopsGrowingRatherThanFillingMemory() {
-            tick(60 * FRAME_CYCLES);
+        void anotherRateIsMadeStraightFromTheClock() {
+            for (var bandLimited : new boolean[]{false, true}) {
+                apu.setBandLimited(bandLimited);
+                apu.setSampleRate(48_000);
+                taken();
+
+                var total = 0;
+
+                for (var i = 0; i < 100; i++) {
+                    total += frame().length;
+                }
+
+                var expected = (int) Math.round(100.0 * FRAME_CYCLES * 48000 / 1_789_773.0);
 
-            assertEquals(8192, apu.availableSamples(), "the ring's size, and no more");
+                assertEquals(48_000, apu.getSampleRate());
+                assertEquals(expected, total, 1, "band-limited: " + bandLimited);
+            }
         }
 
+        /**
+         * What was made before the rate changed is handed over first, rather than going out later
+         * as if it had been made at the new one.
+         */
         @Test
-        void drainingTakesOnlyWhatFits() {
-            tick(FRAME_CYCLES);
+        void changingTheRateFlushesWhatWasMadeAtTheOld() {
+            tick(FRAME_CYCLES / 2);
+            apu.setSampleRate(96_000);
+
+            var before = taken().length;
 
-            var small = new short[100];
-            assertEquals(100, apu.drainSamples(small));
-            assertEquals(SAMPLES_PER_FRAME - 100, apu.availableSamples(), 1);
+            assertEquals(SAMPLES_PER_FRAME / 2, before, 1);
         }
 
         @Test
-        void drainingAnEmptyChipGivesNothing() {
-            assertEquals(0, apu.drainSamples(new short[64]));
+        void aRateItDoesNotMakeIsRefused() {
+            assertThrows(IllegalArgumentException.class, () -> apu.setSampleRate(22_050));
+            assertEquals(APU.SAMPLE_RATE, apu.getSampleRate());
+        }
+
+        @Test
+        void flushingAnEmptyChipGivesNothing() {
+            apu.flushSamples();
+
+            assertEquals(0, blocks.size());
+        }
+
+        /**
+         * A chip nobody is listening to makes no samples, rather than making them and dropping
+         * them -- and the channels under it go on exactly as they would have.
+         */
+        @Test
+        void withoutASinkNothingIsMadeAndNothingElseChanges() {
+            var silent = new APU(level -> { }, level -> { });
+
+            armBothPulses();
+            silent.write(0x4015, 0x03);
+            silent.write(0x4000, 0x7F);
+            silent.write(0x4001, 0x00);
+            silent.write(0x4002, 0x40);
+            silent.write(0x4003, 0x08);
+            silent.write(0x4004, 0x7F);
+            silent.write(0x4005, 0x00);
+            silent.write(0x4006, 0x40);
+            silent.write(0x4007, 0x08);
+
+            for (var i = 0; i < 12_345; i++) {
+                apu.tick();
+                silent.tick();
+            }
+
+            assertEquals(apu.pulse1Output(), silent.pulse1Output());
+            assertEquals(apu.pulse2Output(), silent.pulse2Output());
+            assertEquals(apu.triangleOutput(), silent.triangleOutput());
+            assertEquals(apu.noiseShiftRegister(), silent.noiseShiftRegister());
+            assertEquals(apu.frameCounterCycle(), silent.frameCounterCycle());
+
+            // Listened to from here on, it has nothing from before to hand over.
+            heardCount = 0;
+            silent.setAudioSink((samples, count) -> heardCount += count);
+            silent.flushSamples();
+
+            assertEquals(0, heardCount);
+        }
+    }
+
+    @Nested
+    @DisplayName("band-limited")
+    class BandLimited {
+        @BeforeEach
+        void bandLimited() {
+            apu.setBandLimited(true);
+        }
+
+        @Test
+        void aFrameIsStillAboutSevenHundredAndThirtyFourSamples() {
+            var total = 0;
+
+            for (var i = 0; i < 100; i++) {
+                total += frame().length;
+            }
+
+            var expected = (int) Math.round(100.0 * FRAME_CYCLES * 44100 / 1_789_773.0);
+
+            assertTrue(Math.abs(total - expected) <= 1,
+                    "expected about " + expected + " over a hundred frames but got " + total);
+        }
+
+        @Test
+        void silenceIsStillSilenceOnceThePowerOnStepHasDecayed() {
+            var thump = 0;
+
+            for (var sample : frame()) {
+                thump = Math.max(thump, Math.abs(sample));
+            }
+
+            for (var i = 0; i < 4; i++) {
+                frame();
+            }
+
+            for (var sample : frame()) {
+                assertEquals(0, sample, "expected silence but got " + sample);
+            }
+
+            assertTrue(thump > 1000, "and the step itself was there to decay");
+        }
+
+        /**
+         * A pulse at a period of eight, its highest note, is a 12.4kHz square wave whose third
+         * harmonic is at 37.3kHz -- which a 44.1kHz stream cannot hold, and which comes back as a
+         * tone at 6.8kHz if it is let through. The box filter lets a good deal of it through; the
+         * band-limited steps should leave next to none.
+         */
+        @Test
+        void theHighestPulseLeavesNoAliasBehind() {
+            var boxed = aliasOfTheHighestPulse(false);
+            var limited = aliasOfTheHighestPulse(true);
+
+            assertTrue(boxed > 0.02, "the box filter's alias should be there to remove: " + boxed);
+            assertTrue(limited < boxed / 10,
+                    "expected the alias well under a tenth of the box filter's " + boxed
+                            + " but it was " + limited);
+        }
+
+        /**
+         * How loud the 6.8kHz alias is against the 12.4kHz note itself.
+         */
+        private double aliasOfTheHighestPulse(final boolean bandLimited) {
+            apu = listenedTo(new APU(level -> { }, level -> { }));
+            apu.setBandLimited(bandLimited);
+
+            apu.write(0x4015, 0x01);
+            apu.write(0x4000, 0xBF);  // 50% duty, halt, constant volume 15
+            apu.write(0x4001, 0x00);
+            apu.write(0x4002, 0x08);
+            apu.write(0x4003, 0x00);
+
+            frame();
+
+            var samples = new short[4096];
+            var made = 0;
+
+            while (made < samples.length) {
+                var next = frame();
+                var taken = Math.min(next.length, samples.length - made);
+
+                System.arraycopy(next, 0, samples, made, taken);
+                made += taken;
+            }
+
+            var note = 1_789_773.0 / (16 * 9);
+            var alias = 44_100 - 3 * note;
+
+            return magnitude(samples, alias) / magnitude(samples, note);
+        }
+
+        /**
+         * A state taken part way through a note, with steps still being written out, carries on
+         * into the same samples as the machine it was taken from -- which is what a movie replayed
+         * from a state, with --audio, needs to make the same file twice.
+         */
+        @Test
+        void aRestoredStateCarriesOnIntoTheSameSamples() {
+            armBothPulses();
+            frame();
+            tick(12_345);
+            apu.flushSamples();
+            taken();
+
+            var state = StateIO.writing();
+            apu.serialize(state);
+
+            var expected = frame();
+
+            apu = listenedTo(new APU(level -> { }, level -> { }));
+            apu.setBandLimited(true);
+            apu.serialize(StateIO.reading(state.written()));
+
+            assertArrayEquals(expected, frame());
+        }
+
+        /**
+         * The Goertzel filter's answer for one frequency, under a Hann window so that the note
+         * itself does not leak into the bin the alias is looked for in.
+         */
+        private double magnitude(final short[] samples, final double hz) {
+            var coefficient = 2 * Math.cos(2 * Math.PI * hz / 44_100);
+            var previous = 0.0;
+            var beforeThat = 0.0;
+
+            for (var i = 0; i < samples.length; i++) {
+                var window = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (samples.length - 1));
+                var next = samples[i] * window + coefficient * previous - beforeThat;
+
+                beforeThat = previous;
+                previous = next;
+            }
+
+            return Math.sqrt(previous * previous + beforeThat * beforeThat
+                    - coefficient * previous * beforeThat);
         }
     }
 
@@ -0,0 +1,132 @@
+package com.github.dimiro1.mynes;
+
+import com.github.dimiro1.mynes.state.StateIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.FieldSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Whether a step written into the buffer comes out as that step, band-limited, and nothing else.
+ * <p>
+ * Driven at the NTSC clock, a cycle at a time, the way the APU drives it.
+ */
+class BlipBufferTests {
+    private static final double CLOCK_HZ = Region.NTSC.cpuClockHz();
+
+    /**
+     * Clocks the buffer until it has finished {@code count} samples and returns them.
+     */
+    private static double[] samples(final BlipBuffer blip, final int count) {
+        var samples = new double[count];
+        var made = 0;
+
+        while (made < count) {
+            if (blip.clock()) {
+                samples[made++] = blip.read();
+            }
+        }
+
+        return samples;
+    }
+
+    /**
+     * Wherever between two samples the step falls, it has settled at exactly its height by the
+     * time the buffer's width has gone by -- not near it. A sum that came out a little off each time
+     * would drift a long run's level away from the one the chip was at.
+     */
+    @Test
+    void aStepSettlesAtExactlyItsHeight() {
+        for (var cycles = 0; cycles < 41; cycles++) {
+            var blip = new BlipBuffer(CLOCK_HZ, APU.SAMPLE_RATE);
+
+            for (var i = 0; i < cycles; i++) {
+                if (blip.clock()) {
+                    blip.read();
+                }
+            }
+
+            blip.addDelta(1000);
+
+            var samples = samples(blip, BlipBuffer.WIDTH * 2);
+
+            for (var i = BlipBuffer.WIDTH; i < samples.length; i++) {
+                assertEquals(1000.0, samples[i], "sample " + i + " after " + cycles + " cycles");
+            }
+        }
+    }
+
+    /**
+     * A band-limited step rings a little either side of the edge and passes through the middle of
+     * it, which is what band-limiting it is. What it must not do is arrive all at once between one
+     * sample and the next, which would be the staircase again.
+     */
+    @Test
+    void aStepIsSpreadAcrossTheSamplesAroundIt() {
+        var blip = new BlipBuffer(CLOCK_HZ, APU.SAMPLE_RATE);
+        blip.addDelta(1000);
+
+        var samples = samples(blip, BlipBuffer.WIDTH);
+        var between = 0;
+        var halfway = false;
+
+        for (var sample : samples) {
+            if (sample != 0.0 && sample != 1000.0) {
+                between++;
+            }
+
+            halfway |= sample > 250 && sample < 750;
+        }
+
+        assertTrue(halfway, "the edge should pass through the middle of the step");
+        assertTrue(between >= 4, "and the samples either side of it should ring: " + between);
+    }
+
+    /**
+     * The rate: a second of cycles is a second of samples, to within the one the count is rounded
+     * to, at every rate the APU offers.
+     */
+    @ParameterizedTest
+    @FieldSource("com.github.dimiro1.mynes.APU#SAMPLE_RATES")
+    void aSecondOfCyclesIsASecondOfSamples(final int sampleRate) {
+        var blip = new BlipBuffer(CLOCK_HZ, sampleRate);
+        var made = 0;
+
+        for (var i = 0; i < (int) CLOCK_HZ; i++) {
+            if (blip.clock()) {
+                blip.read();
+                made++;
+            }
+        }
+
+        assertEquals(sampleRate, made, 1);
+    }
+
+    /**
+     * Steps still being written out when a state is taken come out of the restored buffer as they
+     * would have come out of the original.
+     */
+    @Test
+    void aBufferRestoredMidStepCarriesOn() {
+        var original = new BlipBuffer(CLOCK_HZ, APU.SAMPLE_RATE);
+        samples(original, 3);
+        original.addDelta(700);
+        original.clock();
+        original.addDelta(-300);
+
+        var state = StateIO.writing();
+        original.serialize(state);
+
+        var restored = new BlipBuffer(CLOCK_HZ, APU.SAMPLE_RATE);
+        restored.serialize(StateIO.reading(state.written()));
+
+        var expected = samples(original, BlipBuffer.WIDTH * 2);
+        var actual = samples(restored, BlipBuffer.WIDTH * 2);
+
+        for (var i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], "sample " + i);
+        }
+    }
+}
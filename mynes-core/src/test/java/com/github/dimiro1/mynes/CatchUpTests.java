@@ -0,0 +1,365 @@
+package com.github.dimiro1.mynes;
+
+import com.github.dimiro1.mynes.state.SaveState;
+import com.github.dimiro1.mynes.video.FrameAnalysis;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Whether a machine letting its PPU and APU fall behind is the same machine as one that does not.
+ * <p>
+ * {@link NES#setCatchUp} promises byte for byte the same run, and the only honest way to hold it to
+ * that is to run both side by side and compare everything: the picture, every sample, and the save
+ * state, which carries the cycle counters and interrupt latches that neither of the other two would
+ * show for frames. The ROMs are the ones that time things to the cycle -- an NMI edge against a
+ * $2002 read, the frame counter's IRQ against a $4015 read, MMC3's counter against the scanline --
+ * because those are what a chip caught up a cycle late or a cycle early would get wrong. Each of
+ * them passes in lockstep, so a difference here is the scheduler's and nobody else's.
+ */
+class CatchUpTests {
+
+    /**
+     * Four seconds of the machine, which takes every ROM here through its timing loops and most of
+     * them to their result screen. Every frame costs two save states, so not more than that.
+     */
+    private static final int FRAMES = 240;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/nestest/nestest.nes",
+            "/ppu-vbl-nmi/02-vbl_set_time.nes",
+            "/ppu-vbl-nmi/05-nmi_timing.nes",
+            "/ppu-vbl-nmi/06-suppression.nes",
+            "/ppu-vbl-nmi/10-even_odd_timing.nes",
+            "/apu-test/4-jitter.nes",
+            "/apu-test/6-irq_flag_timing.nes",
+            "/apu-test/7-dmc_basics.nes",
+            "/apu-test/8-dmc_rates.nes",
+            "/mmc3-test-2/4-scanline_timing.nes",
+            "/ppu-sprite-overflow/04-obscure.nes"})
+    void catchingUpRunsExactlyAsLockstepDoes(final String rom) throws IOException {
+        compare(rom, Region.NTSC);
+    }
+
+    /**
+     * PAL's cycles are not all the same length, which is the one thing the horizon the PPU works out
+     * has to allow for rather than count.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/nestest/nestest.nes",
+            "/apu-test/4-jitter.nes",
+            "/mmc3-test-2/4-scanline_timing.nes"})
+    void andOnAPALMachine(final String rom) throws IOException {
+        compare(rom, Region.PAL);
+    }
+
+    /**
+     * Skipping the passes of a waiting loop on top, which is only the same run if every pass the
+     * skip leaves out really was the same as the one it runs.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/nestest/nestest.nes",
+            "/ppu-vbl-nmi/02-vbl_set_time.nes",
+            "/ppu-vbl-nmi/05-nmi_timing.nes",
+            "/ppu-vbl-nmi/10-even_odd_timing.nes",
+            "/apu-test/6-irq_flag_timing.nes",
+            "/mmc3-test-2/4-scanline_timing.nes",
+            "/ppu-sprite-overflow/04-obscure.nes"})
+    void andSkippingIdleLoops(final String rom) throws IOException {
+        compare(rom, Region.NTSC, true);
+    }
+
+    /**
+     * Scanlines drawn all at once, which catch-up is what allows: {@link PPU#run} takes every
+     * visible line it is paid in full for in one pass. These put sprites on screen -- flipped,
+     * clipped at both edges, double height, more than eight to a line -- and the sprite 0 hit and
+     * overflow flags are what they are there to measure.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/ppu-sprite-hit/01-basics.nes",
+            "/ppu-sprite-hit/04-flip.nes",
+            "/ppu-sprite-hit/05-left_clip.nes",
+            "/ppu-sprite-hit/06-right_edge.nes",
+            "/ppu-sprite-hit/08-double_height.nes",
+            "/ppu-sprite-overflow/01-basics.nes",
+            "/ppu-sprite-overflow/02-details.nes"})
+    void andDrawingWholeScanlines(final String rom) throws IOException {
+        compare(rom, Region.NTSC);
+    }
+
+    /**
+     * {@link NES#runFrame} running an OAM transfer to its end in a loop of its own, against the
+     * same frames ticked one cycle at a time, which takes every transfer through
+     * {@link MMU#beginDMACycle}. The sprite ROMs move their sprites every frame and time the result
+     * to the dot; the DMC ones are what must make it stand aside.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/oam/oam_stress.nes",
+            "/ppu-sprite-hit/09-timing_basics.nes",
+            "/ppu-sprite-hit/10-timing_order.nes",
+            "/ppu-sprite-overflow/03-timing.nes",
+            "/apu-test/7-dmc_basics.nes",
+            "/apu-test/8-dmc_rates.nes"})
+    void aBulkOAMTransferIsTheCycleByCycleOne(final String rom) throws IOException {
+        compareByFrame(load(rom, Region.NTSC), load(rom, Region.NTSC), rom, FRAMES);
+    }
+
+    /**
+     * The same on a PAL machine, where a cycle is 3.2 dots and the dots a transfer landed in one go
+     * stamps its rows with have to be worked out rather than counted.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/oam/oam_read.nes",
+            "/ppu-sprite-hit/09-timing_basics.nes"})
+    void andOnAPALMachineToo(final String rom) throws IOException {
+        compareByFrame(load(rom, Region.PAL), load(rom, Region.PAL), rom, FRAMES);
+    }
+
+    /**
+     * A transfer the PPU can take as one block, since rendering is off, made into an OAMADDR that
+     * does not start on a row -- so one row is written at both ends of it -- from a page whose
+     * every byte has attribute bits the PPU has to drop.
+     */
+    @ParameterizedTest
+    @EnumSource(Region.class)
+    void aTransferLandedInOneGoIsTheCycleByCycleOne(final Region region) throws IOException {
+        // LDA #$05 / STA $2003 / LDA #$02 / STA $4014 / JMP $C00A
+        int[] code = {0xA9, 0x05, 0x8D, 0x03, 0x20, 0xA9, 0x02, 0x8D, 0x14, 0x40, 0x4C, 0x0A, 0xC0};
+
+        var byCycle = running(region, code);
+        var byFrame = running(region, code);
+
+        for (var i = 0; i < 0x100; i++) {
+            byCycle.getMemory().write(0x200 + i, 0xFF - i);
+            byFrame.getMemory().write(0x200 + i, 0xFF - i);
+        }
+
+        assertTrue(byFrame.getPPU().isOAMIdleFor(512), "the transfer is not taken as a block");
+
+        compareByFrame(byCycle, byFrame, "the transfer", 2);
+
+        assertEquals(0xFF, byFrame.getPPU().peekOAM(5));
+        assertEquals(0xFE & 0xE3, byFrame.getPPU().peekOAM(6), "an attribute kept bits 2 to 4");
+        assertEquals(0x00, byFrame.getPPU().peekOAM(4), "the last byte did not wrap round");
+    }
+
+    /**
+     * {@link NES#runFrame} against the same frames ticked one cycle at a time, which takes every
+     * OAM transfer through {@link MMU#beginDMACycle}.
+     */
+    private static void compareByFrame(
+            final NES byCycle, final NES byFrame, final String name, final int frames)
+            throws IOException {
+        for (var frame = 1; frame <= frames; frame++) {
+            var started = byCycle.getPPU().getFrame();
+            while (byCycle.getPPU().getFrame() == started) {
+                byCycle.tick();
+            }
+
+            byFrame.runFrame();
+
+            assertEquals(
+                    FrameAnalysis.hash(byCycle.getPPU().getFrameBuffer()),
+                    FrameAnalysis.hash(byFrame.getPPU().getFrameBuffer()),
+                    name + " drew a different picture on frame " + frame);
+
+            assertArrayEquals(
+                    save(byCycle),
+                    save(byFrame),
+                    name + " ended frame " + frame + " in a different state");
+        }
+    }
+
+    /**
+     * The shapes {@link CPU#idleLoopCycles} says are waiting, with how long a pass of each takes --
+     * and the near misses it must not, each of which would change something if it were skipped.
+     */
+    @Test
+    void whatCountsAsAnIdleLoop() {
+        // JMP $C000
+        assertEquals(3, running(0x4C, 0x00, 0xC0).getCPU().idleLoopCycles(0));
+
+        // LDA $2002 / BPL $C000, until VBlank and not after.
+        var vblankWait = running(0xAD, 0x02, 0x20, 0x10, 0xFB).getCPU();
+        assertEquals(7, vblankWait.idleLoopCycles(0x00));
+        assertEquals(0, vblankWait.idleLoopCycles(0x80), "the pass that sees VBlank leaves");
+
+        // BIT $2002 / BVC $C000 waits for sprite zero, which can land in the middle of a skip.
+        assertEquals(0, running(0x2C, 0x02, 0x20, 0x50, 0xFB).getCPU().idleLoopCycles(0));
+
+        // LDA $10 / BEQ $C000, waiting for the NMI handler to set a flag in zero page.
+        var flagWait = running(0xA5, 0x10, 0xF0, 0xFC);
+        assertEquals(6, flagWait.getCPU().idleLoopCycles(0));
+
+        flagWait.getMemory().write(0x10, 1);
+        assertEquals(0, flagWait.getCPU().idleLoopCycles(0), "the flag is set, so the loop is over");
+
+        // LDA $4015 / BPL $C000 reads a register that acknowledges an interrupt.
+        assertEquals(0, running(0xAD, 0x15, 0x40, 0x10, 0xFB).getCPU().idleLoopCycles(0));
+
+        // JMP $C003 goes somewhere else.
+        assertEquals(0, running(0x4C, 0x03, 0xC0).getCPU().idleLoopCycles(0));
+    }
+
+    /**
+     * The comparison above passes just as well if the chips are never allowed to fall behind at all,
+     * so this is what says the scheduler is doing something.
+     */
+    @Test
+    void theChipsReallyDoFallBehind() throws IOException {
+        var nes = load("/nestest/nestest.nes", Region.NTSC);
+        nes.setCatchUp(true);
+
+        var behind = 0;
+
+        for (var i = 0; i < 60 * 29_781; i++) {
+            nes.tick();
+
+            if (nes.isBehind()) {
+                behind++;
+            }
+        }
+
+        assertTrue(behind > 0, "the PPU and APU never fell behind the CPU");
+
+        nes.synchronize();
+        assertFalse(nes.isBehind(), "and synchronising brings them level");
+    }
+
+    /**
+     * A state taken mid-frame, with the chips owed cycles, has to be the state lockstep would have
+     * written at the same cycle -- which it is only if writing one pays them first.
+     */
+    @Test
+    void aStateTakenMidFrameIsTheLockstepState() throws IOException {
+        var lockstep = load("/mmc3-test-2/4-scanline_timing.nes", Region.NTSC);
+        var catchingUp = load("/mmc3-test-2/4-scanline_timing.nes", Region.NTSC);
+        catchingUp.setCatchUp(true);
+
+        for (var i = 0; i < 50; i++) {
+            for (var cycle = 0; cycle < 29_781 + 997; cycle++) {
+                lockstep.tick();
+                catchingUp.tick();
+            }
+
+            assertArrayEquals(save(lockstep), save(catchingUp), "at mid-frame stop " + i);
+        }
+    }
+
+    // ================================================================================== internals
+
+    private static void compare(final String rom, final Region region) throws IOException {
+        compare(rom, region, false);
+    }
+
+    private static void compare(
+            final String rom, final Region region, final boolean skipIdleLoops) throws IOException {
+        var lockstep = load(rom, region);
+        var catchingUp = load(rom, region);
+        catchingUp.setCatchUp(true);
+        catchingUp.setSkipIdleLoops(skipIdleLoops);
+
+        var expectedSound = new ByteArrayOutputStream();
+        var actualSound = new ByteArrayOutputStream();
+        lockstep.getAPU().setAudioSink(heardInto(expectedSound));
+        catchingUp.getAPU().setAudioSink(heardInto(actualSound));
+
+        for (var frame = 1; frame <= FRAMES; frame++) {
+            lockstep.runFrame();
+            catchingUp.runFrame();
+
+            assertEquals(
+                    FrameAnalysis.hash(lockstep.getPPU().getFrameBuffer()),
+                    FrameAnalysis.hash(catchingUp.getPPU().getFrameBuffer()),
+                    rom + " drew a different picture on frame " + frame);
+
+            lockstep.getAPU().flushSamples();
+            catchingUp.getAPU().flushSamples();
+
+            assertArrayEquals(
+                    expectedSound.toByteArray(),
+                    actualSound.toByteArray(),
+                    rom + " made a different sound on frame " + frame);
+
+            expectedSound.reset();
+            actualSound.reset();
+
+            assertArrayEquals(
+                    save(lockstep),
+                    save(catchingUp),
+                    rom + " ended frame " + frame + " in a different state");
+        }
+    }
+
+    /**
+     * A sink that keeps each sample as its two bytes, which is enough to compare two runs by.
+     */
+    private static AudioSink heardInto(final ByteArrayOutputStream sound) {
+        return (samples, count) -> {
+            for (var i = 0; i < count; i++) {
+                sound.write(samples[i] >> 8);
+                sound.write(samples[i]);
+            }
+        };
+    }
+
+    private static NES load(final String resource, final Region region) throws IOException {
+        try (var rom = CatchUpTests.class.getResourceAsStream(resource)) {
+            assertNotNull(rom, resource);
+            return new NES(Cart.load(rom.readAllBytes(), resource), region);
+        }
+    }
+
+    /**
+     * A machine standing at the first instruction of {@code code}, at $C000, past the reset sequence.
+     */
+    private static NES running(final int... code) {
+        return running(Region.NTSC, code);
+    }
+
+    private static NES running(final Region region, final int... code) {
+        var image = new byte[16 + 0x4000];
+
+        image[0] = 'N';
+        image[1] = 'E';
+        image[2] = 'S';
+        image[3] = 0x1A;
+        image[4] = 1;
+
+        for (var i = 0; i < code.length; i++) {
+            image[16 + i] = (byte) code[i];
+        }
+
+        image[16 + 0x3FFC] = 0x00;
+        image[16 + 0x3FFD] = (byte) 0xC0;
+
+        var nes = new NES(Cart.load(image, "idle.nes"), region);
+        nes.step();
+
+        return nes;
+    }
+
+    private static byte[] save(final NES nes) throws IOException {
+        var out = new ByteArrayOutputStream();
+
+        SaveState.write(nes, out);
+
+        return out.toByteArray();
+    }
+}
@@ -369,7 +369,7 @@ final class AccuracyCoinTests {
                     nes.getController1().setButtons(pressing ? Controller.BUTTON_START : 0);
                 }
 
-                advanceFrame(nes);
+                nes.runFrame();
 
                 if (memory.peek(RUNNING_ALL_TESTS) != 0) {
                     if (!started) {
@@ -427,18 +427,6 @@ final class AccuracyCoinTests {
         return (passed ? "PASS " : "FAIL ") + digit;
     }
 
-    /**
-     * Runs the machine until the PPU finishes the frame it is in the middle of.
-     */
-    private static void advanceFrame(final NES nes) {
-        var ppu = nes.getPPU();
-        var frame = ppu.getFrame();
-
-        while (ppu.getFrame() == frame) {
-            nes.tick();
-        }
-    }
-
     private static NES load() throws IOException {
         try (var romStream = AccuracyCoinTests.class.getResourceAsStream(ROM)) {
             assertNotNull(romStream, "ROM file not found: " + ROM);
@@ -0,0 +1,97 @@
+package com.github.dimiro1.mynes.mappers;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Whether {@link Mapper#chrPageOffset} is the same answer {@link Mapper#charRead} gives.
+ * <p>
+ * The CHR side of {@link MapperPRGPageTests}, with one thing the PRG side does not have: MMC2 and
+ * MMC4 switch banks on their own when the PPU fetches one of the trigger tiles, with no register
+ * written at all. So the walk here mixes the PPU's addresses in with the register writes, and a
+ * quarter of those land on a trigger.
+ */
+class MapperCHRPageTests {
+    private static final int PAGE_SIZE = 0x0400;
+
+    /**
+     * The addresses that flip MMC2's and MMC4's latches. Every other board ignores them.
+     */
+    private static final int[] TRIGGERS = {0x0FD8, 0x0FE8, 0x1FD8, 0x1FE8};
+
+    static Stream<Arguments> boards() {
+        var prg = StampedROM.of(16, 0x2000);
+        var chr = StampedROM.of(64, PAGE_SIZE);
+
+        return Stream.of(
+                arguments("NROM", new Mapper0(StampedROM.of(1, 0x4000), chr, Mirroring.VERTICAL)),
+                arguments("MMC1", new Mapper1(prg, chr, Mirroring.VERTICAL)),
+                arguments("UxROM", new Mapper2(prg, new byte[0], Mirroring.VERTICAL)),
+                arguments("CNROM", new Mapper3(StampedROM.of(2, 0x4000), chr, Mirroring.VERTICAL)),
+                arguments("MMC3", new Mapper4(prg, chr, Mirroring.VERTICAL)),
+                arguments("AxROM", new Mapper7(prg, new byte[0], Mirroring.VERTICAL)),
+                arguments("MMC2", new Mapper9(prg, chr, Mirroring.VERTICAL)),
+                arguments("MMC4", new Mapper10(prg, chr, Mirroring.VERTICAL)),
+                arguments("Color Dreams", new Mapper11(prg, chr, Mirroring.VERTICAL)),
+                arguments("GxROM", new Mapper66(prg, chr, Mirroring.VERTICAL)),
+                arguments("Camerica", new Mapper71(prg, new byte[0], Mirroring.VERTICAL)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("boards")
+    void thePageTableIsWhatTheMapperReads(final String name, final Mapper mapper) {
+        var heard = new int[1];
+        mapper.setCHRBankListener(() -> heard[0]++);
+
+        var random = new Random(name.hashCode());
+        var pages = pagesOf(mapper);
+
+        for (var step = 0; step < 1000; step++) {
+            if (random.nextInt(4) == 0) {
+                mapper.ppuAddress(TRIGGERS[random.nextInt(TRIGGERS.length)]);
+            } else if (random.nextBoolean()) {
+                mapper.ppuAddress(random.nextInt(0x2000));
+            } else {
+                mapper.prgWrite(0x8000 | random.nextInt(0x8000), random.nextInt(0x100));
+            }
+
+            var now = pagesOf(mapper);
+
+            for (var page = 0; page < 8; page++) {
+                var address = page << 10;
+                var memory = mapper.chrMemory();
+
+                assertTrue(now[page] >= 0, name + " page " + page);
+                assertEquals(mapper.charRead(address), Byte.toUnsignedInt(memory[now[page]]));
+                assertEquals(mapper.charRead(address | 0x3FF),
+                        Byte.toUnsignedInt(memory[now[page] + PAGE_SIZE - 1]));
+            }
+
+            if (!Arrays.equals(pages, now)) {
+                assertTrue(heard[0] > 0, name + " moved a bank without saying so");
+            }
+
+            heard[0] = 0;
+            pages = now;
+        }
+    }
+
+    private static int[] pagesOf(final Mapper mapper) {
+        var pages = new int[8];
+
+        for (var page = 0; page < 8; page++) {
+            pages[page] = mapper.chrPageOffset(page);
+        }
+
+        return pages;
+    }
+}
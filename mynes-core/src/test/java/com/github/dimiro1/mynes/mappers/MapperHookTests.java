@@ -0,0 +1,55 @@
+package com.github.dimiro1.mynes.mappers;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Whether every board that listens to the PPU says that it does.
+ * <p>
+ * The console asks {@link Mapper#watchesPPUAddress()} and {@link Mapper#interruptsFromPPU()} once
+ * and leaves the calls out for a board that answers no, so a board that overrides a hook and
+ * forgets the flag beside it is a board whose hook is never called -- and a board that raises a
+ * flag it has no hook for pays for calls that do nothing. The second flag is also what says a
+ * board's interrupt comes off the PPU, which is the only reason any board counts dots. Either
+ * way the answer has to be the same as whether the hook is overridden at all, which is something
+ * the class itself can be asked.
+ */
+class MapperHookTests {
+    static Stream<Arguments> boards() {
+        var chr = new byte[0x2000];
+
+        return Stream.of(
+                arguments("NROM", new Mapper0(new byte[0x4000], chr, Mirroring.VERTICAL)),
+                arguments("MMC1", new Mapper1(new byte[0x8000], chr, Mirroring.VERTICAL)),
+                arguments("UxROM", new Mapper2(new byte[0x8000], new byte[0], Mirroring.VERTICAL)),
+                arguments("CNROM", new Mapper3(new byte[0x8000], chr, Mirroring.VERTICAL)),
+                arguments("MMC3", new Mapper4(new byte[0x8000], chr, Mirroring.VERTICAL)),
+                arguments("AxROM", new Mapper7(new byte[0x8000], new byte[0], Mirroring.VERTICAL)),
+                arguments("MMC2", new Mapper9(new byte[0x8000], chr, Mirroring.VERTICAL)),
+                arguments("MMC4", new Mapper10(new byte[0x8000], chr, Mirroring.VERTICAL)),
+                arguments("Color Dreams", new Mapper11(new byte[0x8000], chr, Mirroring.VERTICAL)),
+                arguments("GxROM", new Mapper66(new byte[0x8000], chr, Mirroring.VERTICAL)),
+                arguments("Camerica", new Mapper71(new byte[0x8000], new byte[0], Mirroring.VERTICAL)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("boards")
+    void aBoardSaysWhichHooksItListensTo(final String name, final Mapper mapper) throws Exception {
+        assertEquals(overrides(mapper, "ppuAddress"), mapper.watchesPPUAddress(),
+                name + " and the address bus");
+        assertEquals(overrides(mapper, "ppuTick"), mapper.interruptsFromPPU(),
+                name + " and the dots");
+    }
+
+    private static boolean overrides(final Mapper mapper, final String hook) throws Exception {
+        var parameters = hook.equals("ppuAddress") ? new Class<?>[]{int.class} : new Class<?>[0];
+
+        return mapper.getClass().getMethod(hook, parameters).getDeclaringClass() != Mapper.class;
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.dimiro1.mynes.mappers;
+
+import com.github.dimiro1.mynes.state.StateIO;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Whether every board that can rewire its nametables says so through
+ * {@link Mapper#setMirroringListener}.
+ * <p>
+ * The console keeps the wiring as a page table and only asks {@link Mapper#mirroring()} again when
+ * it is told to, so a board that changes its answer without saying so leaves the PPU drawing out
+ * of the wrong kilobyte until something else happens to make it ask. The walk is the same one
+ * {@link MapperPRGPageTests} makes, and a state load is a change like any other.
+ */
+class MapperMirroringTests {
+    static Stream<Arguments> boards() {
+        var prg = StampedROM.of(16, 0x2000);
+        var chr = StampedROM.of(64, 0x0400);
+
+        return Stream.of(
+                arguments("MMC1", new Mapper1(prg, chr, Mirroring.VERTICAL)),
+                arguments("MMC3", new Mapper4(prg, chr, Mirroring.VERTICAL)),
+                arguments("AxROM", new Mapper7(prg, new byte[0], Mirroring.VERTICAL)),
+                arguments("MMC2", new Mapper9(prg, chr, Mirroring.VERTICAL)),
+                arguments("MMC4", new Mapper10(prg, chr, Mirroring.VERTICAL)),
+                arguments("Camerica", new Mapper71(prg, new byte[0], Mirroring.VERTICAL)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("boards")
+    void aChangeOfMirroringIsHeard(final String name, final Mapper mapper) {
+        var heard = new int[1];
+        mapper.setMirroringListener(() -> heard[0]++);
+
+        var random = new Random(name.hashCode());
+        var mirroring = mapper.mirroring();
+        var changes = 0;
+
+        for (var write = 0; write < 500; write++) {
+            mapper.prgWrite(0x8000 | random.nextInt(0x8000), random.nextInt(0x100));
+
+            if (mapper.mirroring() != mirroring) {
+                assertTrue(heard[0] > 0, name + " rewired its nametables without saying so");
+                changes++;
+            }
+
+            heard[0] = 0;
+            mirroring = mapper.mirroring();
+        }
+
+        assertTrue(changes > 0, name + " never changed its mirroring, so nothing above was tested");
+
+        var out = StateIO.writing();
+        mapper.serialize(out);
+        mapper.serialize(StateIO.reading(out.written()));
+
+        assertTrue(heard[0] > 0, name + " loaded a state without saying its mirroring might have moved");
+    }
+}
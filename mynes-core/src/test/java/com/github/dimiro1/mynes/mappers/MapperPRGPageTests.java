@@ -0,0 +1,88 @@
+package com.github.dimiro1.mynes.mappers;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Whether {@link Mapper#prgPageOffset} is the same answer {@link Mapper#prgRead} gives.
+ * <p>
+ * The console reads PRG ROM through the page table whenever it can and through the mapper only
+ * when it cannot, so a page table that disagrees with the mapper is a game running code out of a
+ * bank it never chose -- and one that goes stale is the same thing a bank switch later. Every board
+ * here is given a few hundred random register writes, and after each one the table has to match a
+ * read of the page's first and last bytes and its listener has to have heard about any change.
+ */
+class MapperPRGPageTests {
+    private static final int PAGE_SIZE = 0x2000;
+
+    static Stream<Arguments> boards() {
+        var prg = StampedROM.of(16, PAGE_SIZE);
+        var chr = new byte[0x8000];
+
+        return Stream.of(
+                arguments("NROM", new Mapper0(StampedROM.of(1, 0x4000), chr, Mirroring.VERTICAL)),
+                arguments("MMC1", new Mapper1(prg, chr, Mirroring.VERTICAL)),
+                arguments("UxROM", new Mapper2(prg, new byte[0], Mirroring.VERTICAL)),
+                arguments("CNROM", new Mapper3(StampedROM.of(4, PAGE_SIZE), chr, Mirroring.VERTICAL)),
+                arguments("MMC3", new Mapper4(prg, chr, Mirroring.VERTICAL)),
+                arguments("AxROM", new Mapper7(prg, new byte[0], Mirroring.VERTICAL)),
+                arguments("MMC2", new Mapper9(prg, chr, Mirroring.VERTICAL)),
+                arguments("MMC4", new Mapper10(prg, chr, Mirroring.VERTICAL)),
+                arguments("Color Dreams", new Mapper11(prg, chr, Mirroring.VERTICAL)),
+                arguments("GxROM", new Mapper66(prg, chr, Mirroring.VERTICAL)),
+                arguments("Camerica", new Mapper71(prg, new byte[0], Mirroring.VERTICAL)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("boards")
+    void thePageTableIsWhatTheMapperReads(final String name, final Mapper mapper) {
+        var heard = new int[1];
+        mapper.setPRGBankListener(() -> heard[0]++);
+
+        var random = new Random(name.hashCode());
+        var pages = pagesOf(mapper);
+
+        for (var write = 0; write < 500; write++) {
+            // Serial ports and all: MMC1 takes five of these to load one register.
+            mapper.prgWrite(0x8000 | random.nextInt(0x8000), random.nextInt(0x100));
+
+            var now = pagesOf(mapper);
+
+            for (var page = 0; page < 4; page++) {
+                var address = 0x8000 | page << 13;
+                var rom = mapper.prgROM();
+
+                assertTrue(now[page] >= 0, name + " page " + page);
+                assertEquals(mapper.prgRead(address), Byte.toUnsignedInt(rom[now[page]]));
+                assertEquals(mapper.prgRead(address | 0x1FFF),
+                        Byte.toUnsignedInt(rom[now[page] + PAGE_SIZE - 1]));
+            }
+
+            if (!Arrays.equals(pages, now)) {
+                assertTrue(heard[0] > 0, name + " moved a bank without saying so");
+            }
+
+            heard[0] = 0;
+            pages = now;
+        }
+    }
+
+    private static int[] pagesOf(final Mapper mapper) {
+        var pages = new int[4];
+
+        for (var page = 0; page < 4; page++) {
+            pages[page] = mapper.prgPageOffset(page);
+        }
+
+        return pages;
+    }
+}
@@ -159,6 +159,92 @@ class NESIntegrationTests {
                 "two PAL frames of CPU cycles");
     }
 
+    /**
+     * Where a front end used to stop by hand: the first cycle after which the counter has moved.
+     */
+    @Test
+    void runningAFrameStopsOnTheCycleThatEndsIt() {
+        for (var region : Region.values()) {
+            var byHand = nesRunning(region, NOP, NOP, NOP, NOP);
+            var byFrame = nesRunning(region, NOP, NOP, NOP, NOP);
+
+            for (var i = 0; i < 3; i++) {
+                var started = byHand.getPPU().getFrame();
+                while (byHand.getPPU().getFrame() == started) {
+                    byHand.tick();
+                }
+
+                byFrame.runFrame();
+
+                assertEquals(byHand.getCPU().getState().cycles(), byFrame.getCPU().getState().cycles(),
+                        region + " frame " + i);
+                assertEquals(byHand.getPPU().getFrame(), byFrame.getPPU().getFrame());
+                assertEquals(byHand.getPPU().getDot(), byFrame.getPPU().getDot());
+            }
+        }
+    }
+
+    /**
+     * How far past the edge that cycle goes: the dots it has left after the one that ended the
+     * frame, which is two on NTSC and, for the four-dot cycles PAL's 3.2 is made of, three.
+     */
+    @Test
+    void runningAFrameOvershootsByNoMoreThanTheRestOfACycle() {
+        for (var region : Region.values()) {
+            var nes = nesRunning(region, NOP, NOP, NOP, NOP);
+            var most = region == Region.NTSC ? 2 : 3;
+
+            for (var i = 0; i < 30; i++) {
+                nes.runFrame();
+
+                assertEquals(0, nes.getPPU().getScanline(), region + " frame " + i);
+                assertTrue(nes.getPPU().getDot() <= most,
+                        region + " frame " + i + " ran on to dot " + nes.getPPU().getDot());
+            }
+        }
+    }
+
+    /**
+     * The debuggers' frame, an instruction at a time: told on the instruction that crossed the
+     * edge and no other, and so no further past it than that instruction went -- which, when it is
+     * the store that starts an OAM transfer, is the five hundred cycles of the transfer as well.
+     */
+    @Test
+    void steppingSaysWhichInstructionFinishedTheFrame() {
+        // LDA #$02 / STA $4014 / JMP $C000, a transfer every nine cycles of program.
+        var nes = nesRunning(0xA9, 0x02, 0x8D, 0x14, 0x40, 0x4C, 0x00, 0xC0);
+        var ppu = nes.getPPU();
+
+        for (var frames = 0; frames < 5; ) {
+            var was = ppu.getFrame();
+            var finished = nes.step();
+
+            assertEquals(ppu.getFrame() != was, finished, "at frame " + was);
+
+            if (finished) {
+                frames++;
+
+                assertTrue(ppu.getScanline() < 8,
+                        "ran on to scanline " + ppu.getScanline() + ", past the overscan crop");
+            }
+        }
+    }
+
+    @Test
+    void runningCyclesRunsExactlyThatMany() {
+        var nes = nesRunning(Region.PAL, NOP, NOP, NOP, NOP);
+        var cpu = nes.getCPU();
+        var ppu = nes.getPPU();
+
+        var startCycles = cpu.getState().cycles();
+        var startDots = dotsSincePowerOn(ppu, Region.PAL);
+
+        nes.runCycles(50);
+
+        assertEquals(50, cpu.getState().cycles() - startCycles);
+        assertEquals(160, dotsSincePowerOn(ppu, Region.PAL) - startDots);
+    }
+
     /**
      * @return how many dots the PPU has run since power on, which is the only way to compare its
      * progress across a frame boundary.
@@ -256,6 +256,16 @@ class PPUAddressBusTests extends PPUFixture {
             dots++;
         }
 
+        @Override
+        public boolean watchesPPUAddress() {
+            return true;
+        }
+
+        @Override
+        public boolean interruptsFromPPU() {
+            return true;
+        }
+
         List<Integer> addresses() {
             return addresses;
         }
@@ -0,0 +1,81 @@
+package com.github.dimiro1.mynes.ppu;
+
+import com.github.dimiro1.mynes.Cart;
+import com.github.dimiro1.mynes.NES;
+import com.github.dimiro1.mynes.state.SaveState;
+import com.github.dimiro1.mynes.video.FrameAnalysis;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Whether a frame nobody draws is the same frame as one somebody does, apart from the picture.
+ * <p>
+ * {@link com.github.dimiro1.mynes.PPU#setSkipRendering} promises that nothing a game can see
+ * changes, and the picture is the only thing left to differ -- so the way to hold it to that is to
+ * leave four frames in five undrawn and draw the fifth. That frame overwrites every pixel the
+ * skipped ones left stale, so by the end of it the two machines have to agree on everything,
+ * picture and save state alike. The ROMs are the ones that would notice a sprite 0 hit or an
+ * overflow flag a dot out, and MMC3's counter is the one that would notice a fetch gone missing.
+ */
+class PPUSkipRenderingTests {
+    private static final int FRAMES = 240;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/ppu-sprite-hit/09-timing_basics.nes",
+            "/ppu-sprite-hit/10-timing_order.nes",
+            "/ppu-sprite-hit/11-edge_timing.nes",
+            "/ppu-sprite-overflow/03-timing.nes",
+            "/mmc3-test-2/4-scanline_timing.nes"})
+    void aFrameLeftUndrawnIsOnlyMissingItsPicture(final String rom) throws IOException {
+        for (var catchUp : new boolean[]{false, true}) {
+            var drawn = load(rom);
+            var skipped = load(rom);
+            drawn.setCatchUp(catchUp);
+            skipped.setCatchUp(catchUp);
+
+            for (var frame = 1; frame <= FRAMES; frame++) {
+                skipped.getPPU().setSkipRendering(frame % 5 != 0);
+
+                drawn.runFrame();
+                skipped.runFrame();
+
+                if (frame % 5 != 0) {
+                    continue;
+                }
+
+                assertEquals(
+                        FrameAnalysis.hash(drawn.getPPU().getFrameBuffer()),
+                        FrameAnalysis.hash(skipped.getPPU().getFrameBuffer()),
+                        rom + " drew a different picture on frame " + frame);
+
+                assertArrayEquals(
+                        save(drawn),
+                        save(skipped),
+                        rom + " ended frame " + frame + " in a different state");
+            }
+        }
+    }
+
+    private static NES load(final String resource) throws IOException {
+        try (var rom = PPUSkipRenderingTests.class.getResourceAsStream(resource)) {
+            assertNotNull(rom, resource);
+            return new NES(Cart.load(rom.readAllBytes(), resource));
+        }
+    }
+
+    private static byte[] save(final NES nes) throws IOException {
+        var out = new ByteArrayOutputStream();
+
+        SaveState.write(nes, out);
+
+        return out.toByteArray();
+    }
+}
@@ -585,6 +585,33 @@ class PPUSpriteTests extends PPUFixture {
             assertEquals(colour(SPRITE_COLOUR), pixelAt(20 + 8 * 10, 11), "and now the ninth too");
         }
 
+        /**
+         * {@link Drawing#keepCountingThroughAGapInTheRendering()}, for a sprite the hardware had
+         * no unit for. The extra units are counted and shifted by the same two clocks as the real
+         * ones, and stopped and started by the same gap.
+         */
+        @Test
+        void anExtraSpriteKeepsCountingThroughAGapInTheRendering() {
+            for (var i = 0; i < 9; i++) {
+                writeSprite(i, 10, SOLID_TILE, 0, 40 + i * 10);
+            }
+
+            ppu.setUnlimitedSprites(true);
+            startRendering();
+            renderFrames(2);
+
+            runTo(11, 5);
+            ppu.write(PPUMASK, 0x00);
+            runTo(11, 15);
+            ppu.write(PPUMASK, SHOW_EVERYTHING);
+            advanceFrames(1);
+
+            assertEquals(colour(SPRITE_COLOUR), pixelAt(40 + 8 * 10, 11),
+                    "the ninth sprite is where its X says");
+            assertEquals(colour(BACKDROP), pixelAt(40 + 8 * 10 + 8, 11),
+                    "and not ten pixels further along");
+        }
+
         @Test
         void allSixtyFourSpritesOnOneLineAreDrawn() {
             // Four pixels apart, so all sixty four fit across the 256 the beam draws.
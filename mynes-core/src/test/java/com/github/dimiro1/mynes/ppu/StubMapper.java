@@ -15,6 +15,7 @@ class StubMapper implements Mapper {
     private final int[] chr = new int[0x2000];
 
     private Mirroring mirroring;
+    private Runnable mirroringListener = () -> { };
 
     StubMapper() {
         this(Mirroring.HORIZONTAL);
@@ -26,6 +27,12 @@ class StubMapper implements Mapper {
 
     void setMirroring(final Mirroring mirroring) {
         this.mirroring = mirroring;
+        mirroringListener.run();
+    }
+
+    @Override
+    public void setMirroringListener(final Runnable listener) {
+        this.mirroringListener = listener;
     }
 
     @Override
@@ -52,8 +52,9 @@ class SaveStateCompletenessTests {
     /**
      * What a save state deliberately does not carry, and why.
      * <p>
-     * Keyed by {@code SimpleName.fieldName}. Every entry is a decision rather than an oversight, and
-     * the reason is here so that the next person to read it can disagree with it.
+     * Keyed by {@code SimpleName.fieldName}, or {@code SimpleName.*} for every field of an object
+     * that is scratch as a whole. Every entry is a decision rather than an oversight, and the reason
+     * is here so that the next person to read it can disagree with it.
      */
     private static final Map<String, String> NOT_IN_THE_STATE = Map.ofEntries(
             Map.entry("StandardController.buttons",
@@ -63,6 +64,9 @@ class SaveStateCompletenessTests {
                     "a debug switch belonging to whoever is watching, not to the machine"),
             Map.entry("PPU.spriteLayerVisible",
                     "the same, and restoring it would contradict the Debug menu's tick"),
+            Map.entry("PPU.skipRendering",
+                    "whether the front end is going to look at the frame being run, which is a"
+                            + " question about the front end"),
             Map.entry("ExtraSprites.enabled",
                     "whether anybody asked for the sprite limit to be lifted, which is the Hacks"
                             + " menu's tick rather than anything the machine holds. The units it"
@@ -79,16 +83,46 @@ class SaveStateCompletenessTests {
                             + " here whenever there are no codes, which is also what keeps the walk"
                             + " below out of the device: a field holding null is stepped over, where"
                             + " one holding a device would have its tables vandalised"),
-            Map.entry("APU.sampleRing",
-                    "the queue between the chip and the sound card rather than the chip. Both real"
-                            + " drivers drain it at the end of every frame, so a state taken through"
-                            + " either of them is taken when it is empty anyway"),
-            Map.entry("APU.sampleRead", "an index into that queue"),
-            Map.entry("APU.sampleWrite", "an index into that queue"),
-            Map.entry("APU.sampleCount", "how full that queue is"),
+            Map.entry("APU.sink",
+                    "where the samples go, which is the front end's sound card or file rather than"
+                            + " the chip -- the same as MMU.writeListener"),
+            Map.entry("APU.block",
+                    "the samples on their way to that sink. Every front end flushes it at the end"
+                            + " of every frame, so a state taken through any of them is taken when"
+                            + " it is empty anyway"),
+            Map.entry("APU.blockCount", "how full that block is"),
+            Map.entry("MMU.oamBlock",
+                    "the bytes of an OAM transfer landed in one go, on their way from the page to"
+                            + " the PPU inside a single call -- nothing is in it between calls"),
+            Map.entry("APU.bandLimited",
+                    "how the front end asked for the chip's output to be made into samples, which"
+                            + " the game cannot tell -- the same as NES.catchUp below"),
+            Map.entry("APU.sampleRate", "the same, for how many samples a second it is made into"),
+            Map.entry("APU.cyclesPerSample", "that rate, in the chip's own cycles"),
             Map.entry("CPU.speculating",
                     "true only in the middle of a halted cycle, which is run and then taken back."
                             + " A state is taken between cycles, where it is always false"),
+            Map.entry("NES.catchUp",
+                    "how the front end asked for the machine to be clocked rather than anything the"
+                            + " machine holds -- a run with it and a run without it are the same run,"
+                            + " so a state taken from one has to load into the other unchanged"),
+            Map.entry("NES.skipIdleLoops", "the same, for the loops a run on catch-up skips through"),
+            Map.entry("PPU.frameCompleted",
+                    "a signal to whoever is running the machine a frame at a time, lowered before"
+                            + " every frame it waits for -- nothing inside the machine reads it"),
+            Map.entry("Registers.*",
+                    "the copy of the CPU a halted cycle takes before it runs and puts back after."
+                            + " Kept rather than made afresh each time, so it is still holding the"
+                            + " last one between cycles, where nothing reads it"),
+            Map.entry("MMU.prgPages",
+                    "where the mapper's PRG banks sit in its ROM, worked out from its registers and"
+                            + " worked out again by the mapper's own load whenever they have moved"),
+            Map.entry("VRAM.chrPages", "the same, for the mapper's CHR banks and latches"),
+            Map.entry("VRAM.nameTablePages", "the same, for how the mapper wires the nametables"),
+            Map.entry("PPU.spriteLine",
+                    "what the sprite units will put out along the line being drawn, worked out from"
+                            + " them at its start. Saving settles the units it stands in for, and a"
+                            + " state loaded part way along a line finishes it without"),
             Map.entry("CPU.wroteThisCycle",
                     "the same scratch: what the cycle now running put on the bus, read once by the"
                             + " halt that armed it and meaningless to anybody else"));
@@ -129,7 +163,7 @@ class SaveStateCompletenessTests {
         var untested = new ArrayList<String>();
 
         for (var name : expected.keySet()) {
-            if (NOT_IN_THE_STATE.containsKey(name)) {
+            if (isLeftOut(name)) {
                 continue;
             }
 
@@ -199,12 +233,23 @@ class SaveStateCompletenessTests {
         var fields = fieldsOf(load()).keySet();
 
         for (var name : NOT_IN_THE_STATE.keySet()) {
-            assertTrue(fields.contains(name), name + " is on the exclusion list but does not exist");
+            var prefix = name.substring(0, name.length() - 1);
+
+            assertTrue(
+                    name.endsWith(".*")
+                            ? fields.stream().anyMatch(field -> field.startsWith(prefix))
+                            : fields.contains(name),
+                    name + " is on the exclusion list but does not exist");
         }
     }
 
     // ================================================================================== internals
 
+    private static boolean isLeftOut(final String name) {
+        return NOT_IN_THE_STATE.containsKey(name)
+                || NOT_IN_THE_STATE.containsKey(name.substring(0, name.indexOf('.')) + ".*");
+    }
+
     /**
      * Every primitive and primitive array reachable from the console, by
      * {@code SimpleName.fieldName}.
@@ -381,11 +426,13 @@ class SaveStateCompletenessTests {
     }
 
     /**
-     * The two arrays that come out of the .nes file rather than out of the machine.
+     * The two arrays that come out of the .nes file rather than out of the machine -- and the
+     * pattern table memory the PPU's bus keeps a reference to, which is the mapper's own array
+     * under another name and is ROM on the cartridge here.
      */
     private static boolean isCartridgeROM(final String name) {
         return name.endsWith(".prgROM") || name.endsWith(".chrROM")
-                || name.equals("Mapper0.chr");
+                || name.equals("Mapper0.chr") || name.equals("VRAM.chr");
     }
 
     private static boolean write(
@@ -464,14 +511,8 @@ class SaveStateCompletenessTests {
     }
 
     private static void run(final NES nes, final int frames) {
-        var ppu = nes.getPPU();
-
         for (var i = 0; i < frames; i++) {
-            var frame = ppu.getFrame();
-
-            do {
-                nes.tick();
-            } while (ppu.getFrame() == frame);
+            nes.runFrame();
         }
     }
 }
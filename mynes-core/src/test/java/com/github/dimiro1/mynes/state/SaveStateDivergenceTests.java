@@ -219,7 +219,7 @@ class SaveStateDivergenceTests {
      */
     private static void runToSavePoint(final NES nes) {
         for (var i = 0; i < SAVE_ON_FRAME; i++) {
-            advanceFrame(nes);
+            nes.runFrame();
         }
 
         for (var i = 0; i < MID_FRAME_CYCLES; i++) {
@@ -234,7 +234,7 @@ class SaveStateDivergenceTests {
         nes.getController1().setButtons(Controller.BUTTON_A | Controller.BUTTON_RIGHT);
 
         for (var i = 0; i < FRAMES_ON_THE_OTHER_MACHINE; i++) {
-            advanceFrame(nes);
+            nes.runFrame();
         }
 
         nes.getController1().setButtons(0);
@@ -252,7 +252,7 @@ class SaveStateDivergenceTests {
 
         for (var i = 0; i < frames; i++) {
             nes.getController1().setButtons(buttonsFor(i));
-            advanceFrame(nes);
+            nes.runFrame();
 
             steps.add(new Step(FrameAnalysis.hash(nes.getPPU().getFrameBuffer()), fingerprint(nes)));
         }
@@ -293,13 +293,4 @@ class SaveStateDivergenceTests {
 
         return out.toByteArray();
     }
-
-    private static void advanceFrame(final NES nes) {
-        var ppu = nes.getPPU();
-        var frame = ppu.getFrame();
-
-        do {
-            nes.tick();
-        } while (ppu.getFrame() == frame);
-    }
 }
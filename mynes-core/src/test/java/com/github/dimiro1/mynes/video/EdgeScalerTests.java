@@ -0,0 +1,143 @@
+package com.github.dimiro1.mynes.video;
+
+import com.github.dimiro1.mynes.PPU;
+import com.github.dimiro1.mynes.palette.Palettes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Whether the Scale2x family rounds off the corners it should and only those.
+ * <p>
+ * The frames are drawn in two indices, background and ink, so that every rule the scalers follow
+ * is a question with a visible answer: which of the magnified pixels came out in ink.
+ */
+class EdgeScalerTests {
+    private static final int PAPER = 0x0F;
+    private static final int INK = 0x30;
+
+    private static int[] blank() {
+        var frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+        Arrays.fill(frame, PAPER);
+
+        return frame;
+    }
+
+    private static int at(final int[] magnified, final int scale, final int x, final int y) {
+        return magnified[y * PPU.SCREEN_WIDTH * scale + x];
+    }
+
+    /**
+     * Up to three times. Scale4x is Scale2x run over Scale2x's own output, so the second pass finds
+     * a two by two block and rounds its corners, as it would any other.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    void aPixelOnItsOwnStaysASquare(final int scale) {
+        var frame = blank();
+        frame[100 * PPU.SCREEN_WIDTH + 50] = INK;
+
+        var out = new EdgeScaler(scale).magnify(frame, false, null);
+
+        for (var y = 99 * scale; y < 102 * scale; y++) {
+            for (var x = 49 * scale; x < 52 * scale; x++) {
+                var inside = x / scale == 50 && y / scale == 100;
+
+                assertEquals(inside ? INK : PAPER, at(out, scale, x, y), "(" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    /**
+     * A one pixel diagonal, which nearest neighbour draws as a staircase of squares touching only
+     * at their corners. The gap each step leaves is the corner these fill.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 4})
+    void aDiagonalIsJoinedUpAtTheCorners(final int scale) {
+        var frame = blank();
+
+        for (var i = 40; i < 60; i++) {
+            frame[i * PPU.SCREEN_WIDTH + i] = INK;
+        }
+
+        var out = new EdgeScaler(scale).magnify(frame, false, null);
+
+        // The pixel to the right of the step at (50, 50): its bottom-left corner sits between
+        // the ink on its left and the ink below it.
+        assertEquals(INK, at(out, scale, 51 * scale, 50 * scale + scale - 1));
+        // And its top-right corner is nowhere near either.
+        assertEquals(PAPER, at(out, scale, 51 * scale + scale - 1, 50 * scale));
+    }
+
+    @Test
+    void aStraightEdgeStaysStraight() {
+        var frame = blank();
+
+        for (var y = 0; y < PPU.SCREEN_HEIGHT; y++) {
+            Arrays.fill(frame, y * PPU.SCREEN_WIDTH, y * PPU.SCREEN_WIDTH + 128, INK);
+        }
+
+        var out = new EdgeScaler(3).magnify(frame, true, null);
+
+        for (var y = 0; y < FrameRenderer.VISIBLE_HEIGHT * 3; y++) {
+            for (var x = 0; x < PPU.SCREEN_WIDTH * 3; x++) {
+                assertEquals(x < 128 * 3 ? INK : PAPER, at(out, 3, x, y), "(" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    /**
+     * Each band reads the rows either side of its own, which can be another band's, and writes
+     * only its own -- so any split is the same picture. Scale4x's second pass is the one that would
+     * catch a band starting before the first pass had finished.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 4})
+    void theBandsMagnifyTheSameAsOneThread(final int scale) {
+        var random = new Random(scale);
+        var frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+
+        // Few colours, so that neighbours agree often enough for the rules to fire.
+        for (var i = 0; i < frame.length; i++) {
+            frame[i] = random.nextInt(3);
+        }
+
+        var scaler = new EdgeScaler(scale);
+        var serial = scaler.magnify(frame, true, null, 1);
+
+        for (var bands : new int[]{2, 5, 13}) {
+            assertArrayEquals(serial, scaler.magnify(frame, true, null, bands), bands + " bands");
+        }
+    }
+
+    @Test
+    void thePictureIsColouredThroughThePalette() {
+        var palette = Palettes.defaultPalette().colours();
+        var frame = blank();
+        frame[FrameRenderer.OVERSCAN_TOP * PPU.SCREEN_WIDTH] = INK;
+
+        var image = new EdgeScaler(2).render(frame, palette, true, null);
+
+        assertEquals(PPU.SCREEN_WIDTH * 2, image.getWidth());
+        assertEquals(FrameRenderer.VISIBLE_HEIGHT * 2, image.getHeight());
+        assertEquals(palette[INK] & 0xFFFFFF, image.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(palette[PAPER] & 0xFFFFFF, image.getRGB(3, 3) & 0xFFFFFF);
+        assertSame(image, new EdgeScaler(2).render(frame, palette, true, image));
+    }
+
+    @Test
+    void aScaleOutsideTheFamilyIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new EdgeScaler(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new EdgeScaler(EdgeScaler.MAX_SCALE + 1));
+    }
+}
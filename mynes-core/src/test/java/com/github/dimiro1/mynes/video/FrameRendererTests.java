@@ -7,6 +7,8 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -101,6 +103,33 @@ class FrameRendererTests {
                 "the fourth row of the picture is the next framebuffer row");
     }
 
+    /**
+     * A picture handed back is drawn over when it is the right size and left alone when it is not,
+     * and either way the result is the picture a fresh render would have made.
+     */
+    @Test
+    void aPictureHandedBackIsDrawnOverOnlyWhenItFits() {
+        var first = FrameRenderer.render(frameOf(0x21), PALETTE, true, 2);
+        var again = FrameRenderer.render(rowNumberedFrame(), PALETTE, true, 2, first);
+        var fresh = FrameRenderer.render(rowNumberedFrame(), PALETTE, true, 2);
+
+        assertSame(first, again);
+
+        for (var y = 0; y < fresh.getHeight(); y++) {
+            for (var x = 0; x < fresh.getWidth(); x++) {
+                assertEquals(fresh.getRGB(x, y), again.getRGB(x, y), "(" + x + ", " + y + ")");
+            }
+        }
+
+        var smaller = FrameRenderer.render(frameOf(0x21), PALETTE, true, 2);
+        var larger = FrameRenderer.render(rowNumberedFrame(), PALETTE, true, 3, smaller);
+
+        assertNotSame(smaller, larger);
+        assertEquals(PPU.SCREEN_WIDTH * 3, larger.getWidth());
+        assertEquals(PALETTE[0x21] & 0xFFFFFF, smaller.getRGB(0, 0) & 0xFFFFFF,
+                "a picture that did not fit is not drawn on");
+    }
+
     @Test
     void aScaleOutsideWhatItWillDoIsRefused() {
         assertThrows(IllegalArgumentException.class,
@@ -0,0 +1,225 @@
+package com.github.dimiro1.mynes.video;
+
+import com.github.dimiro1.mynes.PPU;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Whether the composite filter decodes what the chip would have sent, and only that.
+ * <p>
+ * There is no reference picture to hold it up against -- every television made a slightly
+ * different one -- so what is tested is the shape of the thing: a flat colour comes out flat and
+ * the hue it is named for, fine detail comes out coloured the way a composite set colours it, and
+ * splitting the work across threads changes nothing at all.
+ */
+class NTSCFilterTests {
+    private static int[] frameOf(final int entry) {
+        var frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+        Arrays.fill(frame, entry);
+
+        return frame;
+    }
+
+    private static int red(final int rgb) {
+        return (rgb >> 16) & 0xFF;
+    }
+
+    private static int green(final int rgb) {
+        return (rgb >> 8) & 0xFF;
+    }
+
+    private static int blue(final int rgb) {
+        return rgb & 0xFF;
+    }
+
+    /**
+     * The middle of the picture's first line, well clear of the edges, where the blank beyond the
+     * line bleeds in.
+     */
+    private static int middle(final int entry) {
+        var image = new NTSCFilter(1).render(frameOf(entry), 0, true, null);
+
+        return image.getRGB(PPU.SCREEN_WIDTH / 2, 0) & 0xFFFFFF;
+    }
+
+    /**
+     * Whether two colours are the same to within a step in each channel, which is as near as the
+     * tables can promise: each pixel's contribution is rounded to fixed point on its own, and three
+     * roundings do not always add up to the same one.
+     */
+    private static void assertClose(final int expected, final int actual, final String message) {
+        for (var shift = 0; shift < 24; shift += 8) {
+            assertTrue(Math.abs(((expected >> shift) & 0xFF) - ((actual >> shift) & 0xFF)) <= 1,
+                    message + ": " + Integer.toHexString(expected & 0xFFFFFF)
+                            + " against " + Integer.toHexString(actual & 0xFFFFFF));
+        }
+    }
+
+    /**
+     * A window of one subcarrier cycle takes exactly one whole cycle of a flat colour's signal
+     * wherever it sits, so a flat colour has to come out the same at every point along the line --
+     * whichever of the three phases the point's pixel started on.
+     */
+    @Test
+    void aFlatColourComesOutFlat() {
+        for (var entry : new int[]{0x00, 0x16, 0x21, 0x2A, 0x30, 0x0D, 0x56}) {
+            var image = new NTSCFilter(2).render(frameOf(entry), 1, false, null);
+            var expected = image.getRGB(PPU.SCREEN_WIDTH, PPU.SCREEN_HEIGHT);
+
+            for (var x = 4; x < image.getWidth() - 4; x++) {
+                for (var y = 0; y < image.getHeight(); y += 37) {
+                    assertClose(expected, image.getRGB(x, y),
+                            "entry " + Integer.toHexString(entry) + " at (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    void theHuesAreTheOnesTheColoursAreNamedFor() {
+        var red = middle(0x16);
+        var green = middle(0x1A);
+        var blue = middle(0x12);
+
+        assertTrue(red(red) > green(red) && red(red) > blue(red), Integer.toHexString(red));
+        assertTrue(green(green) > red(green) && green(green) > blue(green),
+                Integer.toHexString(green));
+        assertTrue(blue(blue) > red(blue) && blue(blue) > green(blue), Integer.toHexString(blue));
+    }
+
+    @Test
+    void blackIsBlackAndWhiteIsWhite() {
+        assertEquals(0x000000, middle(0x0F));
+        assertEquals(0x000000, middle(0x0D), "blacker than black is clamped, not wrapped");
+
+        var white = middle(0x30);
+
+        assertTrue(red(white) > 0xF0 && green(white) > 0xF0 && blue(white) > 0xF0,
+                Integer.toHexString(white));
+    }
+
+    /**
+     * Green and blue emphasised together, which dims the red that neither of them is.
+     */
+    @Test
+    void emphasisDimsTheOtherColours() {
+        var plain = middle(0x30);
+        var emphasised = middle(0b110 << 6 | 0x30);
+
+        assertTrue(red(emphasised) < red(plain), Integer.toHexString(emphasised));
+    }
+
+    /**
+     * Columns of black and white, one pixel each: no colour in the frame at all, and the thing a
+     * composite television is known for turning into one. The luma of a one pixel stripe is at
+     * about the subcarrier's frequency, and the set cannot tell it from colour.
+     */
+    @Test
+    void fineDetailBleedsIntoColour() {
+        var frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+
+        for (var i = 0; i < frame.length; i++) {
+            frame[i] = (i & 1) == 0 ? 0x0F : 0x30;
+        }
+
+        var image = new NTSCFilter(1).render(frame, 0, true, null);
+        var coloured = false;
+
+        for (var x = 8; x < PPU.SCREEN_WIDTH - 8; x++) {
+            var rgb = image.getRGB(x, 0);
+
+            coloured |= red(rgb) != green(rgb) || green(rgb) != blue(rgb);
+        }
+
+        assertTrue(coloured, "a composite picture of stripes should have colour fringes in it");
+    }
+
+    /**
+     * Each band is drawn into its own rows from its own rows of the frame, so any split has to
+     * produce the very same picture -- including splits that do not divide the height evenly.
+     */
+    @Test
+    void theBandsDrawTheSamePictureAsOneThread() {
+        var random = new Random(17);
+        var frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+
+        for (var i = 0; i < frame.length; i++) {
+            frame[i] = random.nextInt(512);
+        }
+
+        var filter = new NTSCFilter(4);
+        var serial = filter.render(frame, 1, true, null, 1);
+
+        for (var bands : new int[]{2, 7, 14}) {
+            var banded = filter.render(frame, 1, true, null, bands);
+
+            assertArrayEquals(
+                    serial.getRGB(0, 0, serial.getWidth(), serial.getHeight(), null, 0,
+                            serial.getWidth()),
+                    banded.getRGB(0, 0, banded.getWidth(), banded.getHeight(), null, 0,
+                            banded.getWidth()),
+                    bands + " bands");
+        }
+    }
+
+    @Test
+    void theFrameIsOnlyRead() {
+        var frame = frameOf(0x21);
+        frame[1000] = 0x1C5;
+        var before = frame.clone();
+
+        new NTSCFilter(3).render(frame, 2, false, null);
+
+        assertArrayEquals(before, frame);
+    }
+
+    /**
+     * Which phase the frame starts on moves the fringes about and nothing else: a flat field looks
+     * the same whichever it is, and stripes do not.
+     */
+    @Test
+    void theBurstPhaseMovesTheFringes() {
+        var frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+
+        for (var i = 0; i < frame.length; i++) {
+            frame[i] = (i & 1) == 0 ? 0x0F : 0x30;
+        }
+
+        var filter = new NTSCFilter(1);
+
+        assertNotEquals(
+                filter.render(frame, 0, true, null).getRGB(100, 0),
+                filter.render(frame, 1, true, null).getRGB(100, 0));
+        assertClose(
+                filter.render(frameOf(0x27), 0, true, null).getRGB(100, 0),
+                filter.render(frameOf(0x27), 1, true, null).getRGB(100, 0),
+                "a flat field");
+    }
+
+    @Test
+    void thePictureIsScaleTimesTheFrameAndIsDrawnOverWhenItFits() {
+        var filter = new NTSCFilter(3);
+        var first = filter.render(frameOf(0x21), 0, true, null);
+
+        assertEquals(PPU.SCREEN_WIDTH * 3, first.getWidth());
+        assertEquals(FrameRenderer.VISIBLE_HEIGHT * 3, first.getHeight());
+        assertSame(first, filter.render(frameOf(0x16), 0, true, first));
+        assertEquals(PPU.SCREEN_HEIGHT * 3, filter.render(frameOf(0x16), 0, false, first).getHeight());
+    }
+
+    @Test
+    void aScaleOutsideWhatItWillDoIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new NTSCFilter(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new NTSCFilter(NTSCFilter.MAX_SCALE + 1));
+    }
+}
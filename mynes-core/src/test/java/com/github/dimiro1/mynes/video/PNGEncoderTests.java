@@ -0,0 +1,172 @@
+package com.github.dimiro1.mynes.video;
+
+import com.github.dimiro1.mynes.PPU;
+import com.github.dimiro1.mynes.palette.Palettes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Whether the PNGs come out as the pictures {@link FrameRenderer} would have drawn, pixel for
+ * pixel.
+ * <p>
+ * ImageIO reads them back: it is not the thing writing them any more, which makes it a fair judge
+ * of whether they are PNGs at all.
+ */
+class PNGEncoderTests {
+    private static final int[] PALETTE = Palettes.defaultPalette().colours();
+
+    /**
+     * A frame in a handful of colours, the way a game draws one, laid out at random so that a pixel
+     * out of place anywhere shows.
+     */
+    private static int[] gameLikeFrame(final int seed) {
+        var random = new Random(seed);
+        var inks = new int[]{0x0F, 0x21, 0x16, 0x30, 0x1A, 0x0D, 0x27};
+        var frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+
+        for (var i = 0; i < frame.length; i++) {
+            frame[i] = inks[random.nextInt(inks.length)];
+        }
+
+        return frame;
+    }
+
+    private static BufferedImage decode(final ByteArrayOutputStream png) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+    }
+
+    private static int[] pixels(final BufferedImage image) {
+        var pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0,
+                image.getWidth());
+
+        for (var i = 0; i < pixels.length; i++) {
+            pixels[i] &= 0xFFFFFF;
+        }
+
+        return pixels;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    void theFrameComesBackAsTheRendererDrawsIt(final int scale) throws IOException {
+        var frame = gameLikeFrame(scale);
+        var png = new ByteArrayOutputStream();
+
+        new PNGEncoder().write(frame, PALETTE, true, scale, png);
+
+        var image = decode(png);
+
+        assertEquals(BufferedImage.TYPE_BYTE_INDEXED, image.getType(), "a palette image");
+        assertArrayEquals(
+                pixels(FrameRenderer.render(frame, PALETTE, true, scale)),
+                pixels(image));
+    }
+
+    @Test
+    void theOverscanIsKeptWhenAskedFor() throws IOException {
+        var frame = gameLikeFrame(0);
+        var png = new ByteArrayOutputStream();
+
+        new PNGEncoder().write(frame, PALETTE, false, 1, png);
+
+        var image = decode(png);
+
+        assertEquals(PPU.SCREEN_HEIGHT, image.getHeight());
+        assertArrayEquals(pixels(FrameRenderer.render(frame, PALETTE, false, 1)), pixels(image));
+    }
+
+    /**
+     * Every entry under every emphasis, in a palette where no two of them are the same colour --
+     * which the measured ones are not, since emphasis barely touches the blacks. That is more
+     * colours than a palette PNG has room for, so out it comes as RGB, and the same picture.
+     */
+    @Test
+    void aFrameOfMoreColoursThanFitIsWrittenAsRGB() throws IOException {
+        var palette = new int[512];
+        var frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+
+        for (var i = 0; i < palette.length; i++) {
+            palette[i] = 0xFF000000 | (i * 0x2F4A1) & 0xFFFFFF;
+        }
+
+        for (var i = 0; i < frame.length; i++) {
+            frame[i] = i % palette.length;
+        }
+
+        var png = new ByteArrayOutputStream();
+        new PNGEncoder().write(frame, palette, false, 2, png);
+
+        var image = decode(png);
+
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, image.getType(),
+                "too many colours for a palette");
+        assertArrayEquals(pixels(FrameRenderer.render(frame, palette, false, 2)), pixels(image));
+    }
+
+    /**
+     * The same encoder twice over, the second time with a smaller picture than the first: nothing
+     * of the first is left behind in the buffers it keeps.
+     */
+    @Test
+    void anEncoderUsedAgainWritesTheSameFile() throws IOException {
+        var encoder = new PNGEncoder();
+        var frame = gameLikeFrame(5);
+
+        var fresh = new ByteArrayOutputStream();
+        new PNGEncoder().write(frame, PALETTE, true, 1, fresh);
+
+        encoder.write(gameLikeFrame(6), PALETTE, false, 4, new ByteArrayOutputStream());
+
+        var reused = new ByteArrayOutputStream();
+        encoder.write(frame, PALETTE, true, 1, reused);
+
+        assertArrayEquals(fresh.toByteArray(), reused.toByteArray());
+    }
+
+    @Test
+    void aMagnifiedPictureIsWrittenAtItsOwnWidth() throws IOException {
+        var frame = gameLikeFrame(9);
+        var scaler = new EdgeScaler(2);
+        var png = new ByteArrayOutputStream();
+
+        new PNGEncoder().write(
+                scaler.magnify(frame, true, null), PPU.SCREEN_WIDTH * 2, PALETTE, png);
+
+        assertArrayEquals(pixels(scaler.render(frame, PALETTE, true, null)), pixels(decode(png)));
+    }
+
+    /**
+     * The point of it. A flat frame is the easy case for any encoder, so this is the hard one: a
+     * frame of noise, where a byte a pixel against three is most of the difference.
+     */
+    @Test
+    void itIsSmallerThanTheRGBPicture() throws IOException {
+        var frame = gameLikeFrame(3);
+        var indexed = new ByteArrayOutputStream();
+        var rgb = new ByteArrayOutputStream();
+
+        new PNGEncoder().write(frame, PALETTE, true, 2, indexed);
+        ImageIO.write(FrameRenderer.render(frame, PALETTE, true, 2), "png", rgb);
+
+        assertTrue(indexed.size() * 2 < rgb.size(), indexed.size() + " against " + rgb.size());
+    }
+
+    @Test
+    void aScaleOutsideWhatItWillDoIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new PNGEncoder().write(
+                gameLikeFrame(0), PALETTE, true, 0, new ByteArrayOutputStream()));
+    }
+}
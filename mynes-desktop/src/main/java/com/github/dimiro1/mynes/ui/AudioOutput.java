@@ -1,6 +1,8 @@
 package com.github.dimiro1.mynes.ui;
 
 import com.github.dimiro1.mynes.APU;
+import com.github.dimiro1.mynes.AudioSink;
+import org.jetbrains.annotations.Nullable;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
@@ -13,16 +15,23 @@ import java.lang.System.Logger.Level;
  * The sound card, as the emulation loop sees it: somewhere to put the samples the APU has
  * finished with.
  * <p>
- * One line, opened once and held for as long as a machine is running, and touched from the
- * emulation thread and no other -- same rule as the NES itself. {@link EmulatorRunner} drains the
- * APU once a frame and hands what it got straight to {@link #write}.
+ * One line, opened once and held for as long as a machine is running. Everything here but the
+ * three numbers at the bottom is called from the emulation thread and no other -- same rule as the
+ * NES itself. {@link EmulatorRunner} collects what the APU pushes over a frame and hands it
+ * straight to {@link #write}.
  * <p>
- * At normal speed that write is the second half of the loop's pacing. The line drains at exactly
- * 44100 samples a second of real time and the APU fills it at 44100 samples a second of emulated
- * time, so a blocking write cannot let the machine run fast: whichever clock is slower is the one
- * that paces, and the difference between them lands in the loop's own lag clamp. Fast forwarding
- * turns that off -- there is no way to hand a sound card audio faster than real time -- and what
- * does not fit is dropped, which is why fast forward sounds chopped rather than sped up.
+ * Which hands it to a thread of its own rather than to the card. The card is written from the
+ * audio thread, which blocks on it and so runs at exactly the card's pace, and between the two
+ * threads is an {@link AudioRing} that neither of them ever waits on. That takes the sound card out
+ * of the loop's pacing altogether: the machine keeps time by its own deadlines and nothing else, so
+ * a card that is slow to take a block can no longer hold a frame up. What is left is that the two
+ * clocks -- the loop's and the card's -- do not quite agree, and {@link RateControl} takes that up
+ * by playing the ring a fraction of a percent fast or slow until it stays as full as it should.
+ * <p>
+ * Which is also what lets the card's own buffer be small. It only has to cover the audio thread
+ * being late, a few milliseconds; a frame that takes too long is ridden out on the ring instead,
+ * and a ring that runs dry anyway holds its last sample rather than clicking, and is counted in
+ * {@link #underruns()}.
  * <p>
  * A machine with no sound device is not an error. {@link #open()} says so in the log and
  * everything after it does nothing, which is what lets the test suite and a headless CI run the
@@ -32,139 +41,313 @@ public final class AudioOutput {
     private static final Logger logger = System.getLogger("UI");
 
     /**
-     * How much sound the card is allowed to be holding, counted in frames' worth.
-     * <p>
-     * The latency dial. Less than this and a frame that takes a moment too long leaves the card
-     * with nothing to play, which is heard as a click; much more and a button press is audibly
-     * late. Four frames is about 67 milliseconds.
+     * How much sound the card itself is allowed to be holding, counted in frames' worth: about 17
+     * milliseconds. It used to be four, when the card's buffer was the only slack there was.
      */
-    private static final int BUFFER_FRAMES = 4;
+    private static final int LINE_FRAMES = 1;
 
-    private static final int BUFFER_SAMPLES = BUFFER_FRAMES * APU.SAMPLE_RATE / 60;
+    /**
+     * How full {@link RateControl} keeps the ring, in frames' worth -- the latency dial, about 33
+     * milliseconds. Less and a frame that takes a moment too long runs it dry; more and a button
+     * press is audibly late.
+     */
+    private static final int TARGET_FRAMES = 2;
+
+    /**
+     * How much the ring holds, in frames' worth. Twice the target, so that a burst of frames after
+     * a stall has somewhere to go while the rate brings the level back down.
+     */
+    private static final int RING_FRAMES = 2 * TARGET_FRAMES;
+
+    /**
+     * How many blocks a second the audio thread hands the card: four milliseconds at a time, a
+     * quarter of what the card holds, so it is always topped up well before it runs out.
+     */
+    private static final int CHUNKS_PER_SECOND = 250;
+
+    /**
+     * How often the audio thread writes its numbers to the log.
+     */
+    private static final long REPORT_NANOS = 10_000_000_000L;
 
     private static final int BYTES_PER_SAMPLE = 2;
 
     /**
-     * Signed sixteen bit, one channel, little endian -- which is what
-     * {@link APU#drainSamples(short[])} produces, and what every sound card takes without
-     * resampling it first.
+     * How many samples a second the line is opened at, which has to be the rate the APU was told
+     * to make them at. See {@link #setSampleRate}.
+     */
+    private int sampleRate = APU.SAMPLE_RATE;
+
+    /**
+     * The line, the ring in front of it and the thread between them, or all three null when there
+     * is no sound device -- which is the silent-but-running case every method below is written
+     * around.
      */
-    private static final AudioFormat FORMAT =
-            new AudioFormat(APU.SAMPLE_RATE, 8 * BYTES_PER_SAMPLE, 1, true, false);
+    private @Nullable SourceDataLine line;
+    private @Nullable AudioRing ring;
+    private @Nullable Thread thread;
 
     /**
-     * The line, or null when there is no sound device -- which is the silent-but-running case
-     * every method below is written around.
+     * What plays the ring, and keeps the three numbers. {@code volatile} for whoever reads those.
      */
-    private SourceDataLine line;
+    private volatile @Nullable RateControl control;
 
     /**
-     * The samples, as bytes. Kept between calls rather than allocated per frame: sixty a second
-     * of a few kilobytes each is garbage the emulation thread does not need to be making.
+     * Whether the audio thread is to carry on. Written here and read there.
      */
-    private byte[] bytes = new byte[BUFFER_SAMPLES * BYTES_PER_SAMPLE];
+    private volatile boolean playing;
+
+    /**
+     * As many zeroes as the longest write so far, handed over instead of the samples while muted.
+     * Grown rather than filled, since zeroes never need writing again.
+     */
+    private short[] silence = new short[0];
 
     private boolean muted;
 
     /**
-     * Opens the line. Call once, from the emulation thread, before the first {@link #write}.
+     * Opens the line and starts the audio thread. Call once, from the emulation thread, before the
+     * first {@link #write}.
      */
     public void open() {
-        if (line != null) {
+        if (thread != null) {
             throw new IllegalStateException("already open");
         }
 
+        var format = format();
+        var perFrame = sampleRate / 60;
+
         try {
-            line = AudioSystem.getSourceDataLine(FORMAT);
-            line.open(FORMAT, BUFFER_SAMPLES * BYTES_PER_SAMPLE);
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, LINE_FRAMES * perFrame * BYTES_PER_SAMPLE);
             line.start();
-
-            logger.log(Level.INFO, "audio open at " + APU.SAMPLE_RATE
-                    + "Hz with " + 1000 * BUFFER_SAMPLES / APU.SAMPLE_RATE + "ms of buffer");
         } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
             // No device, no mixer, or no permission to reach one. None of those are a reason not
             // to run the machine.
             line = null;
             logger.log(Level.WARNING, "no audio device available, running silently", e);
+            return;
         }
+
+        ring = new AudioRing(RING_FRAMES * perFrame);
+        control = new RateControl(ring, TARGET_FRAMES * perFrame);
+        playing = true;
+
+        var opened = line;
+        var controlled = control;
+        var chunk = sampleRate / CHUNKS_PER_SECOND;
+
+        // Above the emulation thread, since a late block here is heard and a late frame there is
+        // ridden out on the ring.
+        thread = Thread.ofPlatform()
+                .name("audio")
+                .daemon(true)
+                .priority(Thread.MAX_PRIORITY)
+                .start(() -> play(opened, controlled, chunk));
+
+        logger.log(Level.INFO, "audio open at " + sampleRate + "Hz with "
+                + 1000 * opened.getBufferSize() / BYTES_PER_SAMPLE / sampleRate
+                + "ms on the card and " + 1000 * TARGET_FRAMES / 60 + "ms in the ring");
     }
 
     /**
-     * Hands the card a run of samples.
+     * Hands a run of samples to the audio thread. Never waits.
      *
-     * @param samples  the samples, as {@link APU#drainSamples(short[])} left them.
+     * @param samples  the samples, as the APU handed them over.
      * @param count    how many of them are real.
-     * @param blocking true to wait until they all fit, which is what paces the machine at normal
-     *                 speed; false to write what fits now and drop the rest, which is what fast
-     *                 forwarding needs.
+     * @param realTime true when they were made at the speed they are to be played at, in which
+     *                 case all of them go into the ring and the rate keeps it level; false when
+     *                 fast forwarding or rewinding, where there is no way to hand a sound card audio
+     *                 faster than real time, and only what takes the ring up to its usual level
+     *                 goes in. The rest is dropped, which is why fast forward sounds chopped rather
+     *                 than sped up -- and the ring is left where normal speed wants it, rather than
+     *                 full and taking seconds to come back down.
      */
-    public void write(final short[] samples, final int count, final boolean blocking) {
-        if (line == null || count <= 0) {
+    public void write(final short[] samples, final int count, final boolean realTime) {
+        if (ring == null || count <= 0) {
             return;
         }
 
-        var length = count * BYTES_PER_SAMPLE;
-
-        if (bytes.length < length) {
-            bytes = new byte[length];
+        // Muting hands over silence rather than nothing, so that the ring and the rate go on
+        // exactly as they would have and unmuting is not a restart.
+        if (muted && silence.length < count) {
+            silence = new short[count];
         }
 
-        for (var i = 0; i < count; i++) {
-            // Muting writes silence rather than writing nothing, so that the pacing a blocking
-            // write does is exactly the same muted as not.
-            var sample = muted ? 0 : samples[i];
+        var from = muted ? silence : samples;
+        var taken = realTime
+                ? count
+                : Math.clamp(TARGET_FRAMES * sampleRate / 60 - ring.size(), 0, count);
 
-            bytes[2 * i] = (byte) sample;
-            bytes[2 * i + 1] = (byte) (sample >> 8);
-        }
-
-        if (!blocking) {
-            // Rounded down to a whole sample: half of one would put every sample after it in the
-            // wrong byte order, for good.
-            length = Math.min(length, line.available() & ~1);
-        }
-
-        if (length > 0) {
-            line.write(bytes, 0, length);
-        }
+        ring.offer(from, taken);
     }
 
     /**
-     * Throws away whatever the card has not played yet.
+     * Throws away whatever has not been played yet.
      * <p>
      * For the moments where what is queued has stopped being true: pausing, where it would
-     * otherwise play on for a tenth of a second after the picture froze, and resuming, where it
-     * would be a tenth of a second of the past.
+     * otherwise play on after the picture froze, and resuming, where it would be the past. The ring
+     * is emptied and the audio thread holds the last sample until there is a fresh ring's worth;
+     * the card's own frame or so plays out.
      */
     public void flush() {
-        if (line != null) {
-            line.flush();
+        if (ring != null) {
+            ring.discard();
         }
     }
 
     /**
-     * Silences the output without stopping it. What is already queued goes on playing, which is at
-     * most a frame or two.
+     * Silences the output without stopping it. What is already queued goes on playing, which is
+     * the ring's couple of frames.
      */
     public void setMuted(final boolean muted) {
         this.muted = muted;
     }
 
     /**
-     * Gives the line back. Anything queued is dropped rather than played out: this is called when
-     * a machine is being torn down, and finishing the last tenth of a second of its audio is not
-     * worth making the event dispatch thread wait for.
+     * Chooses the rate the line plays at: one of {@link APU#SAMPLE_RATES}, and the one the APU is
+     * making its samples at, since nothing between the two converts one into the other.
+     * <p>
+     * 48kHz is worth choosing wherever the computer's own mixer runs at 48kHz, which is most of
+     * them: handed 44.1kHz, the mixer resamples it again on the way through, and that second
+     * resampler is one the emulator has no say over. An open line is closed and opened again at
+     * the new rate, dropping whatever it was still holding, which is a click.
+     */
+    public void setSampleRate(final int sampleRate) {
+        if (sampleRate == this.sampleRate) {
+            return;
+        }
+
+        var open = thread != null;
+
+        if (open) {
+            close();
+        }
+
+        this.sampleRate = sampleRate;
+
+        if (open) {
+            open();
+        }
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Stops the audio thread and gives the line back. Anything queued is dropped rather than played
+     * out: this is called when a machine is being torn down, and finishing the last few frames of
+     * its audio is not worth making anybody wait for.
+     * <p>
+     * Waits for the audio thread, which is at most the one block it is handing the card -- four
+     * milliseconds, since the card goes on playing while it waits.
      */
     public void close() {
-        if (line == null) {
+        if (thread == null || line == null) {
             return;
         }
 
+        playing = false;
+
+        var interrupted = false;
+
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                // Not given up on: the line is about to be closed, and closing it under a write
+                // still in progress is the one thing here that could go wrong.
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
         line.stop();
         line.flush();
         line.close();
+
+        logger.log(Level.INFO, "audio closed after " + underruns() + " underruns");
+
         line = null;
+        ring = null;
+        control = null;
+        thread = null;
+    }
+
+    /**
+     * How full the ring was the last time the audio thread looked, in milliseconds of sound. Hovers
+     * around {@link #TARGET_FRAMES} worth while a machine is running and falls to nothing while it
+     * is paused. Safe from any thread, and 0 with no sound device.
+     */
+    public int fillMillis() {
+        var watched = control;
+
+        return watched == null ? 0 : (int) (1000L * watched.fillSamples() / sampleRate);
+    }
+
+    /**
+     * How many times the ring has run dry while a machine was running, which is how many times a
+     * frame came so late that the ring could not cover it. Pausing does not count. Safe from any
+     * thread, and 0 with no sound device.
+     */
+    public long underruns() {
+        var watched = control;
+
+        return watched == null ? 0 : watched.underruns();
+    }
 
-        logger.log(Level.INFO, "audio closed");
+    /**
+     * How far the audio thread is moving the rate to keep the ring level, as a fraction: 0.001 is
+     * playing a tenth of a percent fast. Within {@link RateControl#MAX_ADJUSTMENT} either way, and
+     * after the first second or so it is the difference between the two clocks. Safe from any
+     * thread, and 0 with no sound device.
+     */
+    public double adjustment() {
+        var watched = control;
+
+        return watched == null ? 0.0 : watched.adjustment();
+    }
+
+    /**
+     * The audio thread: the ring, at the rate control's rate, into the card, a block at a time for
+     * as long as the line is open.
+     */
+    private void play(final SourceDataLine line, final RateControl control, final int chunk) {
+        var samples = new short[chunk];
+        var bytes = new byte[chunk * BYTES_PER_SAMPLE];
+        var reported = System.nanoTime();
+
+        while (playing) {
+            control.fill(samples, chunk);
+
+            for (var i = 0; i < chunk; i++) {
+                bytes[2 * i] = (byte) samples[i];
+                bytes[2 * i + 1] = (byte) (samples[i] >> 8);
+            }
+
+            // Blocks until the card has room, which is what paces this thread.
+            line.write(bytes, 0, bytes.length);
+
+            var now = System.nanoTime();
+
+            if (now - reported >= REPORT_NANOS) {
+                reported = now;
+                logger.log(Level.DEBUG, () -> String.format(
+                        "audio ring %dms, rate %+.3f%%, %d underruns",
+                        fillMillis(), 100 * adjustment(), underruns()));
+            }
+        }
+    }
+
+    /**
+     * Signed sixteen bit, one channel, little endian -- which is what the APU hands its
+     * {@link AudioSink}, at the rate it was told to make them at.
+     */
+    private AudioFormat format() {
+        return new AudioFormat(sampleRate, 8 * BYTES_PER_SAMPLE, 1, true, false);
     }
 }
@@ -0,0 +1,135 @@
+package com.github.dimiro1.mynes.ui;
+
+/**
+ * The samples on their way from the emulation thread to the audio thread: a ring with exactly one
+ * writer and exactly one reader, and no lock between them.
+ * <p>
+ * No lock because the writer is the one thread with a deadline. A lock it could find held -- by a
+ * reader that the scheduler has just put to sleep with it -- is a frame it could be late for, and
+ * the whole point of handing the sound to another thread is that nothing the sound card does can
+ * make the machine late any more. So each side owns one counter and only reads the other's. The
+ * counters only ever go up and are {@code volatile}, and that is the whole of the synchronisation:
+ * a sample is copied in before the count that covers it is published, and copied out before the
+ * count that frees its place is.
+ * <p>
+ * Counted in samples from the start rather than as positions in the array, so that full and empty
+ * are not the same picture. A long of them at 96kHz runs out in three million years.
+ */
+final class AudioRing {
+    private final short[] samples;
+
+    /**
+     * How many samples have ever been written. Only the writer writes it.
+     */
+    private volatile long written;
+
+    /**
+     * How many samples have ever been read. Only the reader writes it.
+     */
+    private volatile long read;
+
+    /**
+     * How far the writer has asked for everything to be thrown away up to. See {@link #discard()}:
+     * it is the writer's, and the reader catches up to it.
+     */
+    private volatile long discarded;
+
+    /**
+     * How many times it has been, so the reader can tell that what it was about to play has gone.
+     * The writer's too.
+     */
+    private volatile int discards;
+
+    /**
+     * @param capacity how many samples it can hold.
+     */
+    AudioRing(final int capacity) {
+        this.samples = new short[capacity];
+    }
+
+    int capacity() {
+        return samples.length;
+    }
+
+    /**
+     * How many samples are waiting to be read. Exact on the reader's side; the writer can see a
+     * few more than there are, from a read or a discard that has not reached it yet, which only
+     * ever makes it more careful.
+     */
+    int size() {
+        // The marks before the count, for the reason poll() reads them in that order.
+        var tail = Math.max(read, discarded);
+
+        return (int) (written - tail);
+    }
+
+    /**
+     * The writer's side: copies in as many of the samples as there is room for.
+     *
+     * @return how many that was. The rest are the caller's to drop.
+     */
+    int offer(final short[] from, final int count) {
+        var head = written;
+
+        // Room counts from the discard mark as well as the reader's, or a reader that has stopped
+        // reading until the ring is back up to its level would never see it get there. So what the
+        // reader may still be copying out from behind the mark can be written over as it goes,
+        // which is why a reader asks for discards() again after every poll and drops what it
+        // took if the answer has changed: it was thrown away anyway.
+        var tail = Math.max(read, discarded);
+        var taken = Math.min(count, samples.length - (int) (head - tail));
+
+        var start = (int) (head % samples.length);
+        var first = Math.min(taken, samples.length - start);
+
+        // In two pieces when the run wraps round the end of the array.
+        System.arraycopy(from, 0, samples, start, first);
+        System.arraycopy(from, first, samples, 0, taken - first);
+
+        // Published after the copy, so the reader cannot see a count that covers samples that are
+        // not there yet.
+        written = head + taken;
+
+        return taken;
+    }
+
+    /**
+     * The writer's side: throws away everything written so far that has not been read yet.
+     * <p>
+     * The writer cannot move the reader's counter, which would be two threads writing one field,
+     * so it says how far to throw away to and the reader does it the next time it looks.
+     */
+    void discard() {
+        discarded = written;
+        discards++;
+    }
+
+    int discards() {
+        return discards;
+    }
+
+    /**
+     * The reader's side: copies out as many samples as there are, up to {@code count}.
+     * <p>
+     * Whole only if {@link #discards()} is the same after the call as before it. A discard in
+     * between hands the places being copied from back to the writer.
+     *
+     * @return how many that was.
+     */
+    int poll(final short[] into, final int count) {
+        // The discard mark before the count: it was set from a count at least as old as the one
+        // read after it, so the two can never say there are fewer than no samples.
+        var tail = Math.max(read, discarded);
+        var given = (int) Math.min(count, written - tail);
+
+        var start = (int) (tail % samples.length);
+        var first = Math.min(given, samples.length - start);
+
+        System.arraycopy(samples, start, into, 0, first);
+        System.arraycopy(samples, 0, into, first, given - first);
+
+        read = tail + given;
+
+        return given;
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.dimiro1.mynes.ui;
 
+import com.github.dimiro1.mynes.APU;
 import com.github.dimiro1.mynes.Region;
 import com.github.dimiro1.mynes.ui.input.KeyBindings;
 import com.github.dimiro1.mynes.palette.NESPalette;
@@ -39,11 +40,15 @@ public final class Config {
 
     private static final String PALETTE_KEY = "video.palette";
     private static final String PAL_PALETTE_KEY = "video.palette.pal";
+    private static final String NTSC_KEY = "video.ntsc";
     private static final String SCALE_KEY = "video.scale";
+    private static final String SMOOTH_SCALING_KEY = "video.smooth-scaling";
     private static final String SCREENSHOT_SCALE_KEY = "video.screenshot.scale";
     private static final String REGION_KEY = "emulation.region";
     private static final String FAST_FORWARD_KEY = "emulation.fast-forward";
     private static final String MUTED_KEY = "audio.muted";
+    private static final String BAND_LIMITED_KEY = "audio.band-limited";
+    private static final String SAMPLE_RATE_KEY = "audio.sample-rate";
     private static final String UNLIMITED_SPRITES_KEY = "hacks.unlimited-sprites";
     private static final String REWIND_SECONDS_KEY = "rewind.seconds";
     private static final String REWIND_KEY_KEY = "rewind.key";
@@ -87,12 +92,26 @@ public final class Config {
             # while a PAL game is running sets the second of these.
             """;
 
+    private static final String NTSC_HEADER = """
+            # Whether Settings > NTSC Filter is on: true draws the picture the way a composite
+            # television decoded the chip's signal, colour fringes and all, instead of through the
+            # palette above. Anything that is not true is off.
+            """;
+
     private static final String SCALE_HEADER = """
             # How many screen pixels wide a picture pixel is drawn, and so how big the window
             # opens: 1, 2, 3 or 4. Settings > Screen Size is the same setting, and the window
             # can still be dragged to any size at all from there.
             """;
 
+    private static final String SMOOTH_SCALING_HEADER = """
+            # Whether Settings > Smooth Scaling is on: true magnifies the picture to the screen
+            # size above with Scale2x, Scale3x or Scale4x, which round off the staircase a diagonal
+            # becomes and leave straight edges alone, and File > Screenshot does the same at its own
+            # size. A computer too slow to keep it up goes back to square pixels on its own and
+            # says so in the log. Anything that is not true is off.
+            """;
+
     private static final String SCREENSHOT_SCALE_HEADER = """
             # How many times File > Screenshot magnifies the picture on its way into the file:
             # 1, 2, 3 or 4. 1 is the 256x224 the machine drew and is what to keep; the rest are
@@ -118,6 +137,19 @@ public final class Config {
             # is sound switched on.
             """;
 
+    private static final String BAND_LIMITED_HEADER = """
+            # Whether Machine > Band-Limited Sound is on: true makes the sound from band-limited
+            # steps instead of averaging the chip's output, which takes out the whine the highest
+            # notes leave a few kilohertz below themselves. Anything that is not true is off.
+            """;
+
+    private static final String SAMPLE_RATE_HEADER = """
+            # How many samples a second the sound is made and played at, from Machine > Sample
+            # Rate: 44100, 48000 or 96000. 48000 is worth it wherever the computer's own mixer runs
+            # at 48000, which is most of them, since it then has nothing to resample. Anything else
+            # falls back to 44100.
+            """;
+
     private static final String HACKS_HEADER = """
             # Things the console does not do, from the Hacks menu. All of them off unless this
             # says true; anything that is not true is off. Unlimited sprites draws the sprites the
@@ -139,11 +171,15 @@ public final class Config {
     private KeyBindings keyBindings;
     private NESPalette palette;
     private NESPalette palPalette;
+    private boolean ntscFilter;
     private ScreenScale screenScale;
+    private boolean smoothScaling;
     private ScreenScale screenshotScale;
     private RegionSetting region;
     private EmulationSpeed fastForwardSpeed;
     private boolean muted;
+    private boolean bandLimited;
+    private int sampleRate;
     private boolean unlimitedSprites;
     private int rewindSeconds;
     private int rewindKey;
@@ -152,22 +188,30 @@ public final class Config {
             final KeyBindings keyBindings,
             final NESPalette palette,
             final NESPalette palPalette,
+            final boolean ntscFilter,
             final ScreenScale screenScale,
+            final boolean smoothScaling,
             final ScreenScale screenshotScale,
             final RegionSetting region,
             final EmulationSpeed fastForwardSpeed,
             final boolean muted,
+            final boolean bandLimited,
+            final int sampleRate,
             final boolean unlimitedSprites,
             final int rewindSeconds,
             final int rewindKey) {
         this.keyBindings = keyBindings;
         this.palette = palette;
         this.palPalette = palPalette;
+        this.ntscFilter = ntscFilter;
         this.screenScale = screenScale;
+        this.smoothScaling = smoothScaling;
         this.screenshotScale = screenshotScale;
         this.region = region;
         this.fastForwardSpeed = fastForwardSpeed;
         this.muted = muted;
+        this.bandLimited = bandLimited;
+        this.sampleRate = sampleRate;
         this.unlimitedSprites = unlimitedSprites;
         this.rewindSeconds = rewindSeconds;
         this.rewindKey = rewindKey;
@@ -200,11 +244,15 @@ public final class Config {
                 KeyBindings.from(properties),
                 paletteFrom(properties, PALETTE_KEY, Region.NTSC),
                 paletteFrom(properties, PAL_PALETTE_KEY, Region.PAL),
+                flagFrom(properties, NTSC_KEY),
                 screenScaleFrom(properties, SCALE_KEY, ScreenScale.defaultScale()),
+                flagFrom(properties, SMOOTH_SCALING_KEY),
                 screenScaleFrom(properties, SCREENSHOT_SCALE_KEY, ScreenScale.defaultScreenshotScale()),
                 regionFrom(properties),
                 fastForwardSpeedFrom(properties),
                 flagFrom(properties, MUTED_KEY),
+                flagFrom(properties, BAND_LIMITED_KEY),
+                sampleRateFrom(properties),
                 flagFrom(properties, UNLIMITED_SPRITES_KEY),
                 rewindSecondsFrom(properties),
                 KeyBindings.codeOf(
@@ -250,6 +298,35 @@ public final class Config {
         return clamped;
     }
 
+    /**
+     * The rate, or 44.1kHz for anything that is not one the APU makes. Not clamped to the nearest,
+     * the way the rewind length is: a sound card asked for a rate near the one somebody typed is
+     * not a wish granted approximately, it is a different setting.
+     */
+    private static int sampleRateFrom(final Properties properties) {
+        var value = properties.getProperty(SAMPLE_RATE_KEY);
+
+        if (value == null) {
+            return APU.SAMPLE_RATE;
+        }
+
+        try {
+            var rate = Integer.parseInt(value.trim());
+
+            if (APU.SAMPLE_RATES.contains(rate)) {
+                return rate;
+            }
+
+            logger.log(Level.WARNING, rate + " is not one of " + APU.SAMPLE_RATES + ", "
+                    + SAMPLE_RATE_KEY + " falls back to " + APU.SAMPLE_RATE);
+        } catch (NumberFormatException e) {
+            logger.log(Level.WARNING, value.trim() + " is not a number of samples a second, "
+                    + SAMPLE_RATE_KEY + " falls back to " + APU.SAMPLE_RATE);
+        }
+
+        return APU.SAMPLE_RATE;
+    }
+
     /**
      * One of the plain yes-or-no entries. Unlike the others there is nothing to fall back to and
      * nothing to warn about: anything that is not {@code true} is somebody who wants the ordinary
@@ -327,12 +404,24 @@ public final class Config {
                 .append(palPalette.id())
                 .append("\n\n");
 
+        text.append(NTSC_HEADER)
+                .append(NTSC_KEY)
+                .append('=')
+                .append(ntscFilter)
+                .append("\n\n");
+
         text.append(SCALE_HEADER)
                 .append(SCALE_KEY)
                 .append('=')
                 .append(screenScale.id())
                 .append("\n\n");
 
+        text.append(SMOOTH_SCALING_HEADER)
+                .append(SMOOTH_SCALING_KEY)
+                .append('=')
+                .append(smoothScaling)
+                .append("\n\n");
+
         text.append(SCREENSHOT_SCALE_HEADER)
                 .append(SCREENSHOT_SCALE_KEY)
                 .append('=')
@@ -357,6 +446,18 @@ public final class Config {
                 .append(muted)
                 .append("\n\n");
 
+        text.append(BAND_LIMITED_HEADER)
+                .append(BAND_LIMITED_KEY)
+                .append('=')
+                .append(bandLimited)
+                .append("\n\n");
+
+        text.append(SAMPLE_RATE_HEADER)
+                .append(SAMPLE_RATE_KEY)
+                .append('=')
+                .append(sampleRate)
+                .append("\n\n");
+
         text.append(HACKS_HEADER)
                 .append(UNLIMITED_SPRITES_KEY)
                 .append('=')
@@ -415,6 +516,19 @@ public final class Config {
         }
     }
 
+    /**
+     * Whether the picture goes through the NTSC filter rather than the palette. One setting for
+     * both kinds of machine, unlike the palette: it is a choice of television rather than of
+     * colours, and somebody who wants one wants it whatever is plugged in.
+     */
+    public boolean ntscFilter() {
+        return ntscFilter;
+    }
+
+    public void setNTSCFilter(final boolean ntscFilter) {
+        this.ntscFilter = ntscFilter;
+    }
+
     /**
      * How big the picture is drawn, and so how big the window opens. Remembered, since a window that
      * came back the wrong size on every run would be the first thing to fix every run.
@@ -427,6 +541,19 @@ public final class Config {
         this.screenScale = screenScale;
     }
 
+    /**
+     * Whether the picture is magnified with the edge-aware scalers rather than in square blocks.
+     * What is remembered is the asking: a session in which the computer could not keep up says
+     * nothing about the next one, which may have less else to do.
+     */
+    public boolean smoothScaling() {
+        return smoothScaling;
+    }
+
+    public void setSmoothScaling(final boolean smoothScaling) {
+        this.smoothScaling = smoothScaling;
+    }
+
     /**
      * How big File &gt; Screenshot writes the picture. A setting of its own rather than the window's
      * size, because the two are asked for different reasons: the window is as big as the display
@@ -478,6 +605,31 @@ public final class Config {
         this.muted = muted;
     }
 
+    /**
+     * Whether the sound is made from band-limited steps. Remembered for the reason Mute is, and
+     * not machine state for the reason the hacks are not: the game cannot tell.
+     */
+    public boolean bandLimited() {
+        return bandLimited;
+    }
+
+    public void setBandLimited(final boolean bandLimited) {
+        this.bandLimited = bandLimited;
+    }
+
+    /**
+     * How many samples a second the sound is made and played at: one of {@link APU#SAMPLE_RATES}.
+     * Remembered for the reason Mute is, and it had better be, since the right answer is decided by
+     * the computer rather than by the game.
+     */
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(final int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
     /**
      * Whether Hacks &gt; Unlimited Sprites is on. Remembered for the reason Mute is: it is a
      * preference about how the emulator should behave rather than something a particular game did,
@@ -1,5 +1,6 @@
 package com.github.dimiro1.mynes.ui;
 
+import com.github.dimiro1.mynes.APU;
 import com.github.dimiro1.mynes.NES;
 import com.github.dimiro1.mynes.cheat.GameGenieCode;
 import com.github.dimiro1.mynes.debug.Debugger;
@@ -76,9 +77,10 @@ public class EmulatorRunner {
     /**
      * How many samples the buffer between the APU and the sound card holds.
      * <p>
-     * A frame is about 735 of them, and the drain happens once a frame, so this is several
-     * frames' worth of slack for a frame that ran long. Anything past it stays in the APU's own
-     * ring until the next time round.
+     * A frame is about 735 of them at 44.1kHz, and no more than 1920 at any rate -- PAL at 96kHz --
+     * and the buffer is handed on and emptied once a frame, so this is always some slack for a
+     * frame that ran long. Anything past it is dropped: see
+     * {@link #hear}.
      */
     private static final int AUDIO_BUFFER_SAMPLES = 4096;
 
@@ -110,10 +112,12 @@ public class EmulatorRunner {
     private final long frameNanos;
 
     /**
-     * Where the APU's finished samples land on their way to the sound card. Belongs to the
-     * emulation thread, like everything else it is handed to.
+     * Where the APU's finished samples land on their way to the sound card, and how many of them
+     * the frame being run has put there so far. Belongs to the emulation thread, like everything
+     * else it is handed to.
      */
     private final short[] samples = new short[AUDIO_BUFFER_SAMPLES];
+    private int heard;
 
     /**
      * Work the UI has asked to have done to the machine. Drained on the emulation thread at frame
@@ -140,9 +144,10 @@ public class EmulatorRunner {
 
     /**
      * The sound that went with the history, kept alongside it and never without it. Null exactly
-     * when {@link #rewind} is.
+     * when {@link #rewind} is. Not final, because it is kept at the rate the APU makes its samples
+     * at: see {@link #setSampleRate}.
      */
-    private final @Nullable RewindAudio rewindAudio;
+    private @Nullable RewindAudio rewindAudio;
 
     private volatile boolean running;
 
@@ -242,7 +247,8 @@ public class EmulatorRunner {
             // Counted in frames rather than states, because sound is not something there can be
             // every other one of: the ring has to hold the frames in between as well, or the rewind
             // would play half the seconds it was showing.
-            this.rewindAudio = new RewindAudio(states * REWIND_INTERVAL);
+            this.rewindAudio = new RewindAudio(
+                    states * REWIND_INTERVAL, nes.getAPU().getSampleRate());
         } else {
             this.rewind = null;
             this.rewindAudio = null;
@@ -266,11 +272,9 @@ public class EmulatorRunner {
      * <p>
      * Blocks for at most the rest of the current frame, so around 17ms in the usual case, which is
      * short enough to do from the EDT. The interrupt is what makes that true: it cuts the wait the
-     * thread is likely to be sitting in.
-     * <p>
-     * The one wait it cannot cut is a full-buffer write to the sound card, which is not
-     * interruptible and can be another 67 milliseconds on top. Still under a tenth of a second,
-     * and only on the frame a machine happens to be torn down on.
+     * thread is likely to be sitting in. Nothing it does waits on the sound card any more -- that
+     * is the audio thread's, and closing it costs the one block it is handing over, a few
+     * milliseconds.
      */
     public void stop() {
         if (thread == null) {
@@ -301,7 +305,7 @@ public class EmulatorRunner {
     /**
      * The same, for something that replaces the machine's state wholesale rather than nudging it.
      * <p>
-     * The difference is the sound card, which is holding up to a tenth of a second of a game that,
+     * The difference is the sound queued ahead of the card, a few frames of a game that,
      * by the time it plays, will be a game the player is no longer in. Dropped rather than played
      * out, for the reason a pause drops it: what comes out of the speaker should be what is on the
      * screen.
@@ -310,9 +314,33 @@ public class EmulatorRunner {
         commands.add(() -> {
             command.run();
             audio.flush();
+            forgetHeard();
         });
     }
 
+    /**
+     * The APU's sink: a block of the frame being run, added to what the frame has made so far.
+     * <p>
+     * A frame that ran long enough to fill the buffer -- which takes several frames' worth of
+     * cycles, and a frame never does -- loses what does not fit rather than writing past the end.
+     */
+    private void hear(final short[] block, final int count) {
+        var kept = Math.min(count, samples.length - heard);
+
+        System.arraycopy(block, 0, samples, heard, kept);
+        heard += kept;
+    }
+
+    /**
+     * Throws away the sound of a frame that will now never finish, because the machine has just
+     * been put somewhere else. Left in, it would be played at the front of whichever frame
+     * finishes next, from a second of the game that is no longer on the screen.
+     */
+    private void forgetHeard() {
+        nes.getAPU().flushSamples();
+        heard = 0;
+    }
+
     /**
      * Freezes the machine, or lets it run again. Takes effect within a frame. While paused the
      * last finished frame stays on screen and posted commands still run.
@@ -538,6 +566,27 @@ public class EmulatorRunner {
         post(() -> audio.setMuted(muted));
     }
 
+    /**
+     * Makes and plays the sound at {@code sampleRate} from here on: one of
+     * {@link APU#SAMPLE_RATES}. Takes effect within a frame.
+     * <p>
+     * The APU and the sound card are told together, since nothing between them converts one rate
+     * into the other. It is a click -- the card's line is opened again -- and the sound kept for
+     * rewinding goes, because it was made at the old rate and would play back at the wrong pitch.
+     * The states stay, so rewinding past the change is silent rather than impossible.
+     */
+    public void setSampleRate(final int sampleRate) {
+        post(() -> {
+            nes.getAPU().setSampleRate(sampleRate);
+            forgetHeard();
+            audio.setSampleRate(sampleRate);
+
+            if (rewindAudio != null) {
+                rewindAudio = new RewindAudio(rewindAudio.capacity(), sampleRate);
+            }
+        });
+    }
+
     private void run() {
         logger.log(Level.INFO, "emulation started");
 
@@ -545,6 +594,8 @@ public class EmulatorRunner {
         var apu = nes.getAPU();
 
         try {
+            apu.setAudioSink(this::hear);
+            audio.setSampleRate(apu.getSampleRate());
             audio.open();
 
             // The floor of the history is the machine as it was switched on, so that rewinding all
@@ -576,9 +627,9 @@ public class EmulatorRunner {
 
                 if (paused && !stepping) {
                     if (!wasPaused) {
-                        // What the card is still holding is up to a tenth of a second of a game
-                        // that has stopped. Dropped rather than played out, so that the sound
-                        // stops when the picture does.
+                        // What is still queued for the card is a couple of frames of a game that
+                        // has stopped. Dropped rather than played out, so that the sound stops
+                        // when the picture does.
                         audio.flush();
                         wasPaused = true;
                     }
@@ -604,8 +655,8 @@ public class EmulatorRunner {
                     }
 
                     if (!wasRewinding) {
-                        // What the card is holding is up to a tenth of a second of a game that is
-                        // now running the other way. Dropped for the reason a pause drops it.
+                        // What is queued for the card is a couple of frames of a game that is now
+                        // running the other way. Dropped for the reason a pause drops it.
                         audio.flush();
                         screen.setRewinding(true);
                         wasRewinding = true;
@@ -620,6 +671,8 @@ public class EmulatorRunner {
                     var moved = rewind.rewind(nes, 1);
 
                     if (moved > 0) {
+                        forgetHeard();
+
                         // The frames that step actually gave back, which is two most of the time and
                         // one on the first step off a frame with no state of its own. Counted rather
                         // than assumed, so the sound is exactly the sound of the frames the picture
@@ -636,11 +689,11 @@ public class EmulatorRunner {
                         atFrameBoundary = true;
 
                         // Backwards, and at whatever rate the rewind is running -- so two frames of
-                        // it are handed over in the time the card plays one. Never blocking, for the
-                        // reason fast forward never blocks: there is no way to give a sound card
-                        // audio faster than real time, and waiting for it would slow the rewind down
-                        // to the speed of the thing being undone. What does not fit is dropped, so
-                        // this comes out chopped, which is very much what rewinding sounds like.
+                        // it are handed over in the time the card plays one. Not real time, for the
+                        // reason fast forward is not: there is no way to give a sound card audio
+                        // faster than it plays, so only what keeps the queue at its usual level goes
+                        // in and the rest is dropped. This comes out chopped, which is very much
+                        // what rewinding sounds like.
                         audio.write(samples, rewindAudio.take(given, samples), false);
 
                         // Nothing is re-emulated: the picture arrives with the state. What is left
@@ -669,9 +722,9 @@ public class EmulatorRunner {
                 }
 
                 if (wasRewinding) {
-                    // The other edge, and the same reasoning: the card is holding up to a tenth of
-                    // a second of a game running backwards, which stopped being true the moment the
-                    // key came up. What comes out of the speaker should be what is on the screen.
+                    // The other edge, and the same reasoning: what is queued for the card is a
+                    // game running backwards, which stopped being true the moment the key came up.
+                    // What comes out of the speaker should be what is on the screen.
                     audio.flush();
                     screen.setRewinding(false);
                     wasRewinding = false;
@@ -713,28 +766,41 @@ public class EmulatorRunner {
 
                 Debugger.Stop stop = null;
 
+                // Fast forward finishes frames faster than any display can show them, so most of
+                // them are dropped rather than handed over -- see below. Whether this one will be
+                // is known before it is run, and one that will not is not drawn either: the
+                // machine runs it exactly the same, and the 61440 pixels nobody would see are the
+                // one part of it that does not need doing. A watched frame is always drawn, since
+                // a breakpoint puts whatever it stops on in front of somebody.
+                var shown = speed == EmulationSpeed.NORMAL || debugger.isArmed()
+                        || System.nanoTime() - nextPresent >= 0;
+
+                ppu.setSkipRendering(!shown);
+
                 if (debugger.isArmed()) {
-                    stop = runWatchedFrame(lastFrame);
+                    stop = runWatchedFrame();
                 } else {
-                    // The PPU has no frame-complete callback; its frame counter is the signal. One
-                    // tick is three dots, so this can overshoot the boundary by up to two of them --
-                    // at most the first pixel of the next frame arrives early, on scanline 0, which
-                    // the overscan crop hides anyway.
-                    do {
-                        nes.tick();
-                    } while (ppu.getFrame() == lastFrame);
+                    // Stops on the cycle that ends the frame, so the first few dots of the next one
+                    // are already drawn -- on scanline 0, which the overscan crop hides anyway.
+                    nes.runFrame();
                 }
 
                 var completed = ppu.getFrame() != lastFrame;
 
                 atFrameBoundary = completed;
 
-                // Drained up here rather than at the two places below that used to do it, because
+                // Taken up here rather than at the two places below that used to do it, because
                 // the rewind ring has to be given the sound of a frame before anything decides
                 // whether that frame's sound is going to be played. A frame that stopped part way
                 // through is left alone, exactly as it was: there is no finished frame of sound in
-                // it, and the APU's own ring holds several frames' worth of slack.
-                var sampleCount = completed ? apu.drainSamples(samples) : 0;
+                // it, and what it has made so far waits in the buffer for the rest of it.
+                var sampleCount = 0;
+
+                if (completed) {
+                    apu.flushSamples();
+                    sampleCount = heard;
+                    heard = 0;
+                }
 
                 // Every frame that finished, wherever it finished -- stepped, halted, fast
                 // forwarded. One place, above everything below that might skip the rest of the
@@ -779,35 +845,37 @@ public class EmulatorRunner {
                 if (stop != null) {
                     // A stepped or halted frame still goes on the screen. Its sound does not: one
                     // frame of it played on its own is a click, and a machine stepped a frame at a
-                    // time would be a metronome of them. It was drained above rather than left, so
-                    // the APU's ring does not carry this frame across the stop and play it on the
-                    // far side -- and the rewind ring kept it, so going back over a stepped frame
-                    // still has its sound.
+                    // time would be a metronome of them. It was taken above rather than left, so
+                    // the buffer does not carry this frame across the stop and play it on the far
+                    // side -- and the rewind ring kept it, so going back over a stepped frame still
+                    // has its sound.
                     screen.present(ppu.getFrameBuffer());
                     continue;
                 }
 
-                // A frame's worth of sound, handed over before the picture is: at normal speed
-                // this blocks until the card has room, which is the other half of the pacing
-                // below, and there is no sense making the audio wait on a frame that is only
-                // going to be dropped anyway. Fast forwarding cannot block -- there is no way to
-                // hand a sound card audio faster than real time -- so what does not fit is lost,
-                // and fast forward sounds chopped rather than sped up.
+                // A frame's worth of sound, handed over before the picture is, since there is no
+                // sense making the audio wait on a frame that is only going to be dropped anyway.
+                // It never waits itself: the card is fed from a thread of its own, and the pacing
+                // below is all the pacing there is. Fast forwarding hands over only what keeps
+                // that thread's queue at its usual level -- there is no way to give a sound card
+                // audio faster than real time -- so fast forward sounds chopped rather than sped
+                // up.
                 audio.write(samples, sampleCount, speed == EmulationSpeed.NORMAL);
 
                 // Fast forward finishes frames faster than any display can show them, so most of
-                // them are dropped rather than handed over. A frame nobody will see still costs a
-                // quarter of a megabyte copied and 61440 palette lookups on this thread, under a
-                // lock the event dispatch thread wants for painting, and the picture is no better
-                // for it: what the eye gets either way is sixty frames a second, further apart in
-                // the machine's time.
+                // them are dropped rather than handed over. A frame nobody will see would still
+                // cost a quarter of a megabyte copied and 61440 palette lookups on this thread,
+                // under a lock the event dispatch thread wants for painting, and the picture is no
+                // better for it: what the eye gets either way is sixty frames a second, further
+                // apart in the machine's time. Which ones go was settled before the frame ran, so
+                // that the ones dropped were never drawn in the first place.
                 //
                 // Absolute again, and for a sharper reason than the frame deadline. Timing each
                 // one from when the last actually went out adds that frame's overshoot to the
                 // interval, and at two times speed -- where the picture wants every second frame
                 // and the overshoot is what decides which -- the drift costs a quarter of them.
                 var now = System.nanoTime();
-                if (speed == EmulationSpeed.NORMAL || now - nextPresent >= 0) {
+                if (shown) {
                     screen.present(ppu.getFrameBuffer());
 
                     nextPresent += frameNanos;
@@ -839,6 +907,7 @@ public class EmulatorRunner {
         } catch (Throwable t) {
             logger.log(Level.ERROR, "emulation failed at frame " + ppu.getFrame(), t);
         } finally {
+            apu.setAudioSink(null);
             audio.close();
 
             // A machine torn down mid-rewind would otherwise leave the marker painted over the next
@@ -857,31 +926,31 @@ public class EmulatorRunner {
      * exactly as it was, because a check that belongs here -- one an instruction, about 1.8 million
      * a second -- is one a machine nobody is debugging should not pay for.
      * <p>
-     * {@link NES#step()} runs to the next instruction boundary, so the end of the frame is noticed
-     * up to one instruction late rather than up to two dots late: seven cycles usually, and around
-     * five hundred when the step swallows an OAM DMA transfer. That is under five scanlines of the
-     * next frame drawn into the buffer before it is shown, and all of them are inside the eight
+     * {@link NES#step()} says when the frame is over, by the signal {@link NES#runFrame()} waits
+     * on, and it runs to the next instruction boundary -- so the end of the frame is noticed up to
+     * one instruction late rather than on the cycle itself: seven cycles usually, and around five
+     * hundred when the step swallows an OAM DMA transfer. That is under five scanlines of the next
+     * frame drawn into the buffer before it is shown, and all of them are inside the eight
      * {@link com.github.dimiro1.mynes.video.FrameRenderer#OVERSCAN_TOP} takes off the top.
      *
      * @return why it stopped, or null if the frame simply finished.
      */
-    private Debugger.Stop runWatchedFrame(final long lastFrame) {
-        var ppu = nes.getPPU();
+    private Debugger.Stop runWatchedFrame() {
         var cpu = nes.getCPU();
 
-        while (ppu.getFrame() == lastFrame) {
+        while (true) {
             var wasPC = cpu.getPC();
-
-            nes.step();
-
+            var finished = nes.step();
             var stop = debugger.afterInstruction(cpu.getPC(), wasPC);
 
             if (stop != null) {
                 return stop;
             }
-        }
 
-        return debugger.afterFrame(cpu.getPC());
+            if (finished) {
+                return debugger.afterFrame(cpu.getPC());
+            }
+        }
     }
 
     /**
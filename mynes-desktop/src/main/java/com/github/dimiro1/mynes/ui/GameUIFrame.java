@@ -1,6 +1,7 @@
 package com.github.dimiro1.mynes.ui;
 
 import com.formdev.flatlaf.util.SystemFileChooser;
+import com.github.dimiro1.mynes.APU;
 import com.github.dimiro1.mynes.Cart;
 import com.github.dimiro1.mynes.NES;
 import com.github.dimiro1.mynes.Region;
@@ -19,7 +20,6 @@ import com.github.dimiro1.mynes.ui.debugger.DebuggerFrame;
 import com.github.dimiro1.mynes.ui.input.ControllerSettingsDialog;
 import com.github.dimiro1.mynes.ui.input.KeyboardInput;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.event.MenuEvent;
 import javax.swing.event.MenuListener;
@@ -107,6 +107,8 @@ public class GameUIFrame extends JFrame {
     private final JCheckBoxMenuItem machineMenuPause = new JCheckBoxMenuItem("Pause");
     private final JCheckBoxMenuItem machineMenuFastForward = new JCheckBoxMenuItem("Fast Forward");
     private final JCheckBoxMenuItem machineMenuMute = new JCheckBoxMenuItem("Mute");
+    private final JCheckBoxMenuItem machineMenuBandLimited =
+            new JCheckBoxMenuItem("Band-Limited Sound");
     private final JCheckBoxMenuItem debugMenuBackground = new JCheckBoxMenuItem("Show Background", true);
     private final JCheckBoxMenuItem debugMenuSprites = new JCheckBoxMenuItem("Show Sprites", true);
     private final JCheckBoxMenuItem hacksMenuUnlimitedSprites =
@@ -263,10 +265,12 @@ public class GameUIFrame extends JFrame {
         keyboardInput.setRewindKey(config.rewindKey());
 
         screen.setPalette(config.palette(currentRegion()));
+        screen.setNTSCFilter(config.ntscFilter());
 
         // Before init()'s pack(), so the window opens at the size it was left at rather than opening
         // at the default and then jumping.
         screen.setScale(config.screenScale());
+        screen.setSmoothScaling(config.smoothScaling());
 
         init();
     }
@@ -373,6 +377,12 @@ public class GameUIFrame extends JFrame {
         machineMenuMute.setSelected(config.muted());
         machineMenu.add(machineMenuMute);
 
+        machineMenuBandLimited.setMnemonic(KeyEvent.VK_B);
+        machineMenuBandLimited.setSelected(config.bandLimited());
+        machineMenu.add(machineMenuBandLimited);
+
+        machineMenu.add(sampleRateMenu());
+
         debugMenu.setMnemonic(KeyEvent.VK_D);
         debugMenu.setEnabled(false);
 
@@ -414,7 +424,18 @@ public class GameUIFrame extends JFrame {
         JMenuItem settingsMenuPalette = new JMenuItem("Palette...", KeyEvent.VK_P);
         settingsMenu.add(settingsMenuPalette);
 
+        JCheckBoxMenuItem settingsMenuNTSC = new JCheckBoxMenuItem("NTSC Filter");
+        settingsMenuNTSC.setMnemonic(KeyEvent.VK_N);
+        settingsMenuNTSC.setSelected(config.ntscFilter());
+        settingsMenu.add(settingsMenuNTSC);
+
         settingsMenu.add(screenSizeMenu());
+
+        JCheckBoxMenuItem settingsMenuSmooth = new JCheckBoxMenuItem("Smooth Scaling");
+        settingsMenuSmooth.setMnemonic(KeyEvent.VK_M);
+        settingsMenuSmooth.setSelected(config.smoothScaling());
+        settingsMenu.add(settingsMenuSmooth);
+
         settingsMenu.add(screenshotSizeMenu());
 
         JMenu helpMenu = new JMenu("Help");
@@ -462,6 +483,20 @@ public class GameUIFrame extends JFrame {
                     saveConfig();
                 }).setVisible(true));
 
+        // The television again, and so the same as the palette: nothing is posted anywhere, and the
+        // frame already on screen is drawn again through the filter straight away.
+        settingsMenuNTSC.addActionListener(e -> {
+            config.setNTSCFilter(settingsMenuNTSC.isSelected());
+            screen.setNTSCFilter(settingsMenuNTSC.isSelected());
+            saveConfig();
+        });
+
+        settingsMenuSmooth.addActionListener(e -> {
+            config.setSmoothScaling(settingsMenuSmooth.isSelected());
+            screen.setSmoothScaling(settingsMenuSmooth.isSelected());
+            saveConfig();
+        });
+
         fileMenuScreenshot.addActionListener(e -> takeScreenshot());
 
         fileMenuOpen.addActionListener(e -> {
@@ -575,6 +610,17 @@ public class GameUIFrame extends JFrame {
             }
         });
 
+        machineMenuBandLimited.addActionListener(e -> {
+            config.setBandLimited(machineMenuBandLimited.isSelected());
+            saveConfig();
+
+            if (runner != null) {
+                var apu = nes.getAPU();
+                var bandLimited = machineMenuBandLimited.isSelected();
+                runner.post(() -> apu.setBandLimited(bandLimited));
+            }
+        });
+
         debugMenuBackground.addActionListener(e -> {
             if (runner != null) {
                 var ppu = nes.getPPU();
@@ -748,6 +794,45 @@ public class GameUIFrame extends JFrame {
         return menu;
     }
 
+    /**
+     * Builds the Sample Rate submenu, one item per rate the APU makes.
+     * <p>
+     * Here rather than under Settings because it is a fact about the sound card, which is what the
+     * items either side of it are about too. 48 kHz is the one to pick on a computer whose mixer
+     * runs at 48 kHz, which is most of them: the emulator then hands it exactly what it plays, and
+     * nothing on the way resamples the sound a second time. Picking one applies it to the running
+     * machine, with a click as the sound card's line is opened again.
+     */
+    private JMenu sampleRateMenu() {
+        var menu = new JMenu("Sample Rate");
+        menu.setMnemonic(KeyEvent.VK_T);
+
+        var group = new ButtonGroup();
+
+        for (var rate : APU.SAMPLE_RATES) {
+            var label = rate % 1000 == 0 ? rate / 1000 + " kHz" : rate / 1000.0 + " kHz";
+            var item = new JRadioButtonMenuItem(label, rate == config.sampleRate());
+
+            item.addActionListener(e -> {
+                if (rate == config.sampleRate()) {
+                    return;
+                }
+
+                config.setSampleRate(rate);
+                saveConfig();
+
+                if (runner != null) {
+                    runner.setSampleRate(rate);
+                }
+            });
+
+            group.add(item);
+            menu.add(item);
+        }
+
+        return menu;
+    }
+
     /**
      * Builds the Region submenu: believe the cartridge, or insist on one machine or the other.
      * <p>
@@ -881,19 +966,20 @@ public class GameUIFrame extends JFrame {
      * carries on regardless.
      */
     private void takeScreenshot() {
-        var image = screen.snapshot(config.screenshotScale());
-
-        if (image == null || romPath == null) {
-            // The item is greyed out until a machine starts, which leaves the moment between the
-            // machine starting and its first finished frame: about a sixtieth of a second of
-            // nothing to photograph.
+        if (romPath == null) {
             return;
         }
 
         var path = Screenshots.pathFor(gamePath(), LocalDateTime.now());
 
         try {
-            ImageIO.write(image, "png", path.toFile());
+            if (!screen.writeSnapshot(config.screenshotScale(), path)) {
+                // The item is greyed out until a machine starts, which leaves the moment between
+                // the machine starting and its first finished frame: about a sixtieth of a second
+                // of nothing to photograph.
+                return;
+            }
+
             // Not "at frame N": the machine is the emulation thread's, and a log line is nowhere
             // near reason enough to read it from this one.
             logger.log(Level.INFO, "wrote " + path.getFileName());
@@ -1509,11 +1595,14 @@ public class GameUIFrame extends JFrame {
         // palette is chosen, because this is the one moment the kind of machine can change.
         screen.setPalette(config.palette(nes.getRegion()));
 
-        // A fresh PPU has both layers on and no hacks, but the menus remember what the last one was
-        // told. The runner has not started yet, so the machine is still this thread's to touch.
+        // A fresh PPU has both layers on and no hacks, and a fresh APU averages its samples at
+        // 44.1kHz, but the menus remember what the last ones were told. The runner has not started
+        // yet, so the machine is still this thread's to touch.
         nes.getPPU().setBackgroundLayerVisible(debugMenuBackground.isSelected());
         nes.getPPU().setSpriteLayerVisible(debugMenuSprites.isSelected());
         nes.getPPU().setUnlimitedSprites(hacksMenuUnlimitedSprites.isSelected());
+        nes.getAPU().setBandLimited(machineMenuBandLimited.isSelected());
+        nes.getAPU().setSampleRate(config.sampleRate());
 
         // The watchpoints have to be wired to this machine's MMU rather than the last one's. Same
         // window as the two lines above: the runner does not exist yet, so this thread owns it.
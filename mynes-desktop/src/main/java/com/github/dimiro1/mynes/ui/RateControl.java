@@ -0,0 +1,214 @@
+package com.github.dimiro1.mynes.ui;
+
+import java.util.Arrays;
+
+/**
+ * Plays the samples in an {@link AudioRing} a little faster or a little slower than they were made,
+ * so that the ring stays about as full as it started.
+ * <p>
+ * Two clocks are involved and they do not agree. The emulation loop makes a second of samples every
+ * second by {@link System#nanoTime()}, and the sound card plays a second of them every second by
+ * its own crystal, which is out by a few hundredths of a percent on a good day. Left alone the
+ * difference piles up one way or the other: a ring that slowly fills is latency that grows for as
+ * long as the game is played, and one that slowly empties runs dry and crackles. Blocking on the
+ * card used to hide this by letting the card pace the machine instead, which only moved the
+ * argument into the loop's own deadlines.
+ * <p>
+ * So this is dynamic rate control, as Hans-Kristian Arntzen described it for RetroArch: how far the
+ * ring is from the level it should hold moves the rate the samples are read at, by at most
+ * {@link #MAX_ADJUSTMENT} either way. A fuller ring is read faster and an emptier one slower, and
+ * the ring settles wherever reading it matches filling it. Half a percent is under a tenth of a
+ * semitone, moved far too slowly to be heard moving, and several times the worst drift there is.
+ * <p>
+ * The fill is smoothed before it is used. The machine hands over a frame at a time, so the ring's
+ * level is a sawtooth a frame high, and steering by each tooth would wobble the pitch sixty times a
+ * second; steering by the average only follows the drift.
+ * <p>
+ * The reading between samples is linear. At a ratio this close to one the positions hardly move
+ * from one sample to the next, and a fancier kernel would be filtering a signal the APU has already
+ * filtered.
+ * <p>
+ * Belongs to the audio thread: everything here but the three numbers it reports is only ever
+ * touched by it.
+ */
+final class RateControl {
+    /**
+     * The furthest the rate is ever moved from the one the samples were made at.
+     */
+    static final double MAX_ADJUSTMENT = 0.005;
+
+    /**
+     * How much of each new look at the fill goes into the average. One thirty-second, at a look
+     * every four milliseconds, is an average over about an eighth of a second: eight teeth of the
+     * saw.
+     */
+    private static final double SMOOTHING = 1.0 / 32.0;
+
+    private final AudioRing ring;
+
+    /**
+     * The level the ring is steered towards, in samples. Nothing is played until the ring first
+     * reaches it, so that there is that much to ride out a late frame on.
+     */
+    private final int target;
+
+    /**
+     * Samples taken off the ring and not yet played past. A few at a time rather than one, since
+     * each trip to the ring is a pair of volatile reads and a write.
+     */
+    private final short[] input = new short[64];
+    private int inputCount;
+    private int inputIndex;
+
+    /**
+     * The two samples the output is between, and how far between them it has got.
+     */
+    private int previous;
+    private int next;
+    private double position;
+
+    private double smoothedFill;
+    private boolean primed;
+    private int discards;
+
+    private volatile int fill;
+    private volatile long underruns;
+    private volatile double adjustment;
+
+    /**
+     * @param ring   where the samples come from.
+     * @param target how full to keep it.
+     */
+    RateControl(final AudioRing ring, final int target) {
+        this.ring = ring;
+        this.target = target;
+        this.discards = ring.discards();
+    }
+
+    /**
+     * Fills {@code into} with the next {@code count} samples to play.
+     * <p>
+     * Always fills all of them. A ring that is not ready -- at the start, after the writer threw it
+     * away, or run dry -- gives the last sample held, rather than silence, so that stopping is not
+     * itself a click; and it is not read again until it is back up to the target.
+     */
+    void fill(final short[] into, final int count) {
+        caughtDiscard();
+
+        var available = waiting();
+
+        if (!primed) {
+            if (available < target) {
+                hold(into, 0, count);
+                return;
+            }
+
+            primed = true;
+            smoothedFill = available;
+        }
+
+        smoothedFill += (available - smoothedFill) * SMOOTHING;
+
+        var step = 1.0 + MAX_ADJUSTMENT
+                * Math.clamp((smoothedFill - target) / target, -1.0, 1.0);
+
+        fill = available;
+        adjustment = step - 1.0;
+
+        for (var i = 0; i < count; i++) {
+            while (position >= 1.0) {
+                if (!advance()) {
+                    // A ring thrown away while this was filling is empty too, and no more an
+                    // underrun than one thrown away before it started.
+                    if (primed && !caughtDiscard()) {
+                        underruns++;
+                    }
+
+                    primed = false;
+                    hold(into, i, count);
+                    return;
+                }
+
+                position -= 1.0;
+            }
+
+            into[i] = (short) Math.round(previous + (next - previous) * position);
+            position += step;
+        }
+    }
+
+    /**
+     * Whether the writer has thrown the ring away since it last looked -- and if it has, forgets
+     * whatever it was about to play, and the point of the few it had already taken off, and waits
+     * for the ring to fill again. Not an underrun: somebody asked for this.
+     */
+    private boolean caughtDiscard() {
+        var now = ring.discards();
+
+        if (now == discards) {
+            return false;
+        }
+
+        discards = now;
+        inputIndex = inputCount;
+        primed = false;
+
+        return true;
+    }
+
+    /**
+     * Moves on by one sample, if there is one.
+     */
+    private boolean advance() {
+        if (inputIndex == inputCount) {
+            inputCount = ring.poll(input, input.length);
+            inputIndex = 0;
+
+            // Asked again after the copy rather than trusted from before it. A discard frees the
+            // places the copy was reading, and the writer may have filled them with the next
+            // samples part way through: what came out is some of each, and is dropped.
+            if (caughtDiscard() || inputCount == 0) {
+                return false;
+            }
+        }
+
+        previous = next;
+        next = input[inputIndex++];
+
+        return true;
+    }
+
+    private void hold(final short[] into, final int from, final int to) {
+        Arrays.fill(into, from, to, (short) next);
+        fill = waiting();
+    }
+
+    /**
+     * What is waiting to be played: the ring, and what has already been taken off it.
+     */
+    private int waiting() {
+        return ring.size() + inputCount - inputIndex;
+    }
+
+    /**
+     * How many samples were waiting the last time it looked. Safe from any thread.
+     */
+    int fillSamples() {
+        return fill;
+    }
+
+    /**
+     * How many times the ring has run dry under it. Safe from any thread.
+     */
+    long underruns() {
+        return underruns;
+    }
+
+    /**
+     * How far the rate is moved from the one the samples were made at, as a fraction: 0.001 is
+     * reading them a tenth of a percent fast. Safe from any thread.
+     */
+    double adjustment() {
+        return adjustment;
+    }
+}
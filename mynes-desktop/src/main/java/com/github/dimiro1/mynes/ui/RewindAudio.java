@@ -1,7 +1,5 @@
 package com.github.dimiro1.mynes.ui;
 
-import com.github.dimiro1.mynes.APU;
-
 /**
  * The sound that went with the last few seconds, so that rewinding can play it backwards.
  * <p>
@@ -11,30 +9,31 @@ import com.github.dimiro1.mynes.APU;
  * <p>
  * Beside {@link com.github.dimiro1.mynes.state.Rewind} rather than inside it, and in this module
  * rather than the core, because it is a fact about having a sound card. A headless run has no
- * speaker and a save state has no sound in it: the APU's sample ring is deliberately left out of the
- * format, on the grounds that it is the queue between the chip and the card rather than the chip.
+ * speaker and a save state has no sound in it: the APU's samples are deliberately left out of the
+ * format, on the grounds that they are on their way from the chip to the card rather than the chip.
  * That is the right decision and this is what it costs -- the sound has to be kept separately,
  * fed on exactly the frames the state ring is fed on, or the two would drift and the rewind would
  * play the wrong seconds.
  *
  * <h2>Why it is one array</h2>
  *
- * A frame is about 735 samples, and the obvious shape -- a queue of {@code short[]} -- would make
- * sixty arrays a second of garbage on the emulation thread, which is the one thread with a deadline.
- * So it is one flat buffer of fixed slots with the frames written round it, and after the
- * constructor nothing here allocates anything. Thirty seconds costs about 3MB, which is small beside
- * the states it accompanies.
+ * A frame is about 735 samples at 44.1kHz, and the obvious shape -- a queue of {@code short[]} --
+ * would make sixty arrays a second of garbage on the emulation thread, which is the one thread with
+ * a deadline. So it is one flat buffer of fixed slots with the frames written round it, and after
+ * the constructor nothing here allocates anything. Thirty seconds costs about 3MB at 44.1kHz and
+ * twice that at 96kHz, which is small beside the states it accompanies.
  */
 final class RewindAudio {
 
+    private final int capacity;
+
     /**
-     * How big one frame's slot is. Sized for PAL, which fits 882 samples into its longer frame
-     * against NTSC's 735 -- one number for both, since the few kilobytes it wastes on an NTSC
-     * machine are not worth a second code path.
+     * How big one frame's slot is. Sized for PAL, which fits 882 samples into its longer frame at
+     * 44.1kHz against NTSC's 735 -- one number for both, since the few kilobytes it wastes on an
+     * NTSC machine are not worth a second code path.
      */
-    private static final int SAMPLES_PER_FRAME = APU.SAMPLE_RATE / 50 + 16;
+    private final int slot;
 
-    private final int capacity;
     private final short[] samples;
     private final int[] counts;
 
@@ -47,12 +46,16 @@ final class RewindAudio {
     private int size;
 
     /**
-     * @param capacity how many frames of sound to keep. The same number of frames the states cover,
-     *                 so the two run out together.
+     * @param capacity   how many frames of sound to keep. The same number of frames the states
+     *                   cover, so the two run out together.
+     * @param sampleRate the rate the APU is making them at, which is what a frame's slot is sized
+     *                   from. Sound kept at one rate is not sound to play back at another, so a
+     *                   change of rate is a new one of these.
      */
-    RewindAudio(final int capacity) {
+    RewindAudio(final int capacity, final int sampleRate) {
         this.capacity = capacity;
-        this.samples = new short[capacity * SAMPLES_PER_FRAME];
+        this.slot = sampleRate / 50 + 16;
+        this.samples = new short[capacity * slot];
         this.counts = new int[capacity];
     }
 
@@ -68,9 +71,9 @@ final class RewindAudio {
 
         // A frame that ran long can produce more than a slot holds. Losing the tail of it is a
         // handful of samples out of a rewind that is already a scrub.
-        var kept = Math.clamp(count, 0, SAMPLES_PER_FRAME);
+        var kept = Math.clamp(count, 0, slot);
 
-        System.arraycopy(from, 0, samples, newest * SAMPLES_PER_FRAME, kept);
+        System.arraycopy(from, 0, samples, newest * slot, kept);
         counts[newest] = kept;
 
         if (size < capacity) {
@@ -91,7 +94,7 @@ final class RewindAudio {
         var written = 0;
 
         for (var i = 0; i < frames && size > 0; i++) {
-            var base = newest * SAMPLES_PER_FRAME;
+            var base = newest * slot;
 
             for (var sample = counts[newest] - 1; sample >= 0 && written < into.length; sample--) {
                 into[written++] = samples[base + sample];
@@ -104,6 +107,13 @@ final class RewindAudio {
         return written;
     }
 
+    /**
+     * How many frames of sound it can hold.
+     */
+    int capacity() {
+        return capacity;
+    }
+
     /**
      * How many frames of sound are held.
      */
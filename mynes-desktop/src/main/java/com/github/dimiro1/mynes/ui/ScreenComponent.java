@@ -3,13 +3,24 @@ package com.github.dimiro1.mynes.ui;
 import com.github.dimiro1.mynes.PPU;
 import com.github.dimiro1.mynes.palette.NESPalette;
 import com.github.dimiro1.mynes.palette.Palettes;
+import com.github.dimiro1.mynes.video.EdgeScaler;
 import com.github.dimiro1.mynes.video.FrameRenderer;
+import com.github.dimiro1.mynes.video.NTSCFilter;
+import com.github.dimiro1.mynes.video.PNGEncoder;
 import org.jetbrains.annotations.Nullable;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The television. Draws the PPU's framebuffer, scaled and letterboxed to fill the window, in
@@ -20,16 +31,29 @@ import java.awt.image.DataBufferInt;
  * changing it is one field on the event dispatch thread, and it holds across a power cycle without
  * anything having to remember to re-apply it.
  * <p>
- * Two threads meet here. The emulation thread hands over a finished frame through
- * {@link #present(int[])}, the event dispatch thread paints it, and a lock covers both buffers so
- * that a paint never catches a half copied picture. The lock is held for an arraycopy of 240KB and
- * 61440 array lookups, sixty times a second -- tens of microseconds, so neither side waits for
- * long.
+ * Two threads meet here, and they meet through three buffers rather than a lock. The emulation
+ * thread colours each finished frame into a buffer nobody else is looking at and swaps it into the
+ * middle; the event dispatch thread swaps the middle one out whenever a newer frame is there and
+ * paints whatever it is holding. Neither ever waits for the other. A slow paint used to hold up the
+ * emulation for as long as it took, and at eight times speed the emulation held up the paint back;
+ * now a frame the painter never got round to is simply overtaken by the next.
  * <p>
  * The picture is cropped, by {@link FrameRenderer#OVERSCAN_TOP} and its neighbours, which is also
  * where the reason for it is written down.
+ * <p>
+ * With the NTSC filter on, the palette steps aside and each frame is decoded the way a composite
+ * television would have shown it, at {@link #FILTER_SCALE} points a pixel. Same buffers, same
+ * threads, only a bigger picture in each.
+ * <p>
+ * Smooth scaling is the other way to a bigger picture: the frame magnified by an {@link EdgeScaler}
+ * to the screen size the user picked, still in colour indices, and coloured after. It is the one
+ * piece of drawing whose cost grows with the picture, so it is timed, and a computer that cannot
+ * keep it inside {@link #SCALER_BUDGET_NANOS} goes back to nearest neighbour rather than dropping
+ * frames for it. The NTSC filter is a television rather than a magnification, and wins when both
+ * are on.
  */
 public class ScreenComponent extends JComponent {
+    private static final Logger logger = System.getLogger("UI");
 
     /**
      * How tall the rewind marker is as a fraction of the picture, and how small it is allowed to get
@@ -46,41 +70,98 @@ public class ScreenComponent extends JComponent {
     private static final Color MARKER_FILL = new Color(255, 255, 255, 210);
     private static final Color MARKER_SHADOW = new Color(0, 0, 0, 140);
 
-    private final Object frameLock = new Object();
-    private final BufferedImage image = new BufferedImage(
-            PPU.SCREEN_WIDTH, PPU.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    /**
+     * How many points a pixel the window's composite filter decodes into. Two is where the colour
+     * fringes stop looking like whole pixels of the wrong colour, and it costs about a millisecond
+     * and a half a frame on one core; the window is scaled up from there like any other picture.
+     */
+    private static final int FILTER_SCALE = 2;
+
+    /**
+     * How long magnifying and colouring a frame may take, and for how many frames running, before
+     * smooth scaling gives up. A quarter of a sixtieth of a second leaves the emulation the rest;
+     * half a second of frames over it is a computer that cannot, rather than one that was busy for
+     * a moment.
+     */
+    private static final long SCALER_BUDGET_NANOS = 4_000_000;
+    private static final int SCALER_STRIKES = 30;
+
+    /**
+     * Which buffer the emulation thread is colouring into and which one the painter is drawing
+     * from. Each is owned outright by its thread, which is what lets them be used without a lock.
+     */
+    private final Buffer[] buffers = {new Buffer(), new Buffer(), new Buffer()};
+    private int back = 0;
+    private int front = 1;
+
+    /**
+     * The third buffer, handed between the two threads: its index, and {@link #FRESH} while it
+     * holds a frame the painter has not taken yet. Swapped rather than set, so that each side
+     * gives up the buffer it had in the same step as it takes this one.
+     */
+    private final AtomicInteger middle = new AtomicInteger(2);
+    private static final int FRESH = 4;
+
+    /**
+     * The palette everything is drawn in. Written on the event dispatch thread and read by both,
+     * which is what {@code volatile} is for; a buffer coloured in the old one is coloured again
+     * the moment the painter notices.
+     */
+    private volatile int[] palette = Palettes.defaultPalette().colours();
 
     /**
-     * The image's own storage, written into directly. Reaching for the backing array like this
-     * costs the image its hardware acceleration, which is the trade: one pass per frame beats
-     * 61440 calls to {@link BufferedImage#setRGB}.
+     * The composite filter everything is drawn through instead of the palette, or null for none.
+     * Shared by both threads the way {@link #palette} is, and for the same reason; the filter
+     * itself is immutable once built, so the two can use it at once.
      */
-    private final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    private volatile @Nullable NTSCFilter filter;
 
     /**
-     * The last frame as the PPU handed it over, in colour indices. Kept so that changing the
-     * palette can recolour the picture already on screen instead of waiting for another frame --
-     * which, with the emulator paused, is not coming.
+     * What magnifies each frame, or null for nearest neighbour. Built on the event dispatch thread
+     * from the two settings below it, and dropped by the emulation thread when it runs over budget.
      */
-    private final int[] frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+    private volatile @Nullable EdgeScaler scaler;
 
     /**
-     * Whether {@link #frame} holds a picture yet. Without this the window before any ROM is loaded
-     * would colourise an all-zero frame to entry 0, which is dark grey rather than the black a
-     * television off shows.
+     * Whether smooth scaling was asked for and at what size, both on the event dispatch thread.
      */
-    private boolean hasFrame;
+    private boolean smoothScaling;
+    private int scaleFactor = ScreenScale.defaultScale().factor();
 
-    private int[] palette = Palettes.defaultPalette().colours();
+    /**
+     * Set by the emulation thread when the scaler has run over budget for too long, and cleared only
+     * by asking for smooth scaling again, so that a slow computer is not offered it back every time
+     * the window changes size.
+     */
+    private volatile boolean scalerTooSlow;
+
+    /**
+     * How many frames in a row the scaler has run over budget, and which scaler that was counted
+     * against. Only the emulation thread touches either.
+     */
+    private int slowFrames;
+    private @Nullable EdgeScaler timed;
+
+    /**
+     * How many frames have been presented, which is what says where the chip left the subcarrier:
+     * a rendering 2C02 swaps between two phases frame by frame. Only the emulation thread touches
+     * it.
+     */
+    private long presented;
 
     /**
      * Whether to draw the rewind marker over the picture. Written by the emulation thread and read
-     * by the event dispatch thread when it paints, which is what {@code volatile} is here for; it is
-     * outside {@link #frameLock} on purpose, since a marker that appeared a frame late would be
-     * nobody's problem and holding the lock for it would be.
+     * by the event dispatch thread when it paints, which is what {@code volatile} is here for. It
+     * is not in the buffers, since a marker that appeared a frame late would be nobody's problem.
      */
     private volatile boolean rewinding;
 
+    /**
+     * What {@link #writeSnapshot} writes with, kept from one screenshot to the next. Only the event
+     * dispatch thread touches it.
+     */
+    private final PNGEncoder png = new PNGEncoder();
+
     public ScreenComponent() {
         setScale(ScreenScale.defaultScale());
         setOpaque(true);
@@ -99,27 +180,97 @@ public class ScreenComponent extends JComponent {
                 PPU.SCREEN_WIDTH * scale.factor(),
                 FrameRenderer.VISIBLE_HEIGHT * scale.factor()));
 
+        scaleFactor = scale.factor();
+        updateScaler();
+
         revalidate();
     }
 
     /**
-     * Takes a copy of a completed frame and asks for a repaint.
+     * Magnifies the picture from now on with an {@link EdgeScaler} to the size set by
+     * {@link #setScale}, or goes back to nearest neighbour. Asking for it again after it gave up
+     * is a second chance, which is the only one it gets.
+     */
+    public void setSmoothScaling(final boolean on) {
+        smoothScaling = on;
+
+        if (on) {
+            scalerTooSlow = false;
+        }
+
+        updateScaler();
+        repaint();
+    }
+
+    /**
+     * Whether smooth scaling is actually being done, as opposed to asked for. False once the
+     * emulation thread has given up on it.
+     */
+    public boolean isSmoothScaling() {
+        return scaler != null;
+    }
+
+    private void updateScaler() {
+        scaler = smoothScaling && !scalerTooSlow && scaleFactor > 1
+                ? new EdgeScaler(scaleFactor)
+                : null;
+    }
+
+    /**
+     * Takes a copy of a completed frame, coloured, and asks for a repaint.
      * <p>
-     * Called from the emulation thread. {@link #repaint()} is one of the few Swing methods that is
-     * safe to call from anywhere: it only posts a request to the event queue.
+     * Called from the emulation thread. A copy still, because the PPU goes on drawing the next
+     * frame into the same array, and a save state or the rewind history reads it there -- but it is
+     * made into the back buffer, which the painter cannot be reading, so it costs the emulation
+     * the copy and the colouring and never a wait. {@link #repaint()} is one of the few Swing
+     * methods that is safe to call from anywhere: it only posts a request to the event queue.
      *
      * @param frameBuffer the PPU's live framebuffer, {@link PPU#getFrameBuffer()}.
      */
     public void present(final int[] frameBuffer) {
-        synchronized (frameLock) {
-            System.arraycopy(frameBuffer, 0, frame, 0, frame.length);
-            hasFrame = true;
-            colourise();
+        var buffer = buffers[back];
+
+        System.arraycopy(frameBuffer, 0, buffer.frame, 0, buffer.frame.length);
+        buffer.burst = (int) (presented++ & 1);
+        buffer.scaledWith = null;
+
+        var filter = this.filter;
+        var scaler = this.scaler;
+        var started = System.nanoTime();
+
+        buffer.colourise(palette, filter, scaler);
+
+        if (filter == null && scaler != null) {
+            budget(scaler, System.nanoTime() - started);
         }
 
+        back = middle.getAndSet(back | FRESH) & ~FRESH;
+
         repaint();
     }
 
+    /**
+     * Counts a frame the scaler took {@code nanos} over, and gives up on it after
+     * {@link #SCALER_STRIKES} of them in a row over budget. On the emulation thread.
+     */
+    private void budget(final EdgeScaler scaler, final long nanos) {
+        if (scaler != timed) {
+            timed = scaler;
+            slowFrames = 0;
+        }
+
+        slowFrames = nanos > SCALER_BUDGET_NANOS ? slowFrames + 1 : 0;
+
+        if (slowFrames >= SCALER_STRIKES) {
+            scalerTooSlow = true;
+            this.scaler = null;
+
+            logger.log(Level.WARNING, "smooth scaling took over "
+                    + SCALER_BUDGET_NANOS / 1_000_000 + " ms a frame for " + SCALER_STRIKES
+                    + " frames running; drawing with nearest neighbour instead");
+        }
+    }
+
     /**
      * Draws the rewind marker over the picture, or stops.
      * <p>
@@ -157,13 +308,62 @@ public class ScreenComponent extends JComponent {
      * one.
      */
     public @Nullable BufferedImage snapshot(final ScreenScale scale) {
-        synchronized (frameLock) {
-            if (!hasFrame) {
-                return null;
-            }
+        var buffer = latest();
+
+        if (buffer.colouredIn == null) {
+            return null;
+        }
+
+        // A filter of the screenshot's own size rather than the window's, since a picture decoded
+        // at two points a pixel and then blown up is not the one a television would have drawn.
+        if (filter != null) {
+            return new NTSCFilter(scale.factor()).render(buffer.frame, buffer.burst, true, null);
+        }
+
+        // Smooth whenever it was asked for, whether or not the window could keep up with it: a
+        // screenshot is one frame, and nobody is waiting on the next.
+        if (smoothScaling && scale.factor() > 1) {
+            return new EdgeScaler(scale.factor()).render(buffer.frame, palette, true, null);
+        }
+
+        return FrameRenderer.render(buffer.frame, palette, true, scale.factor());
+    }
 
-            return FrameRenderer.render(frame, palette, true, scale.factor());
+    /**
+     * Writes the picture {@link #snapshot} would return to a PNG, and nothing at all before the
+     * first frame.
+     * <p>
+     * Through the palette, that picture is a handful of colour indices, and it is written as them:
+     * a palette PNG straight from the frame, a fraction of the size of the RGB one and without a
+     * picture being drawn first. Through the NTSC filter it is thousands of colours and goes out as
+     * RGB.
+     *
+     * @return whether there was a picture to write.
+     */
+    public boolean writeSnapshot(final ScreenScale scale, final Path path) throws IOException {
+        var buffer = latest();
+
+        if (buffer.colouredIn == null) {
+            return false;
         }
+
+        if (filter != null) {
+            ImageIO.write(snapshot(scale), "png", path.toFile());
+
+            return true;
+        }
+
+        try (var out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            if (smoothScaling && scale.factor() > 1) {
+                var width = PPU.SCREEN_WIDTH * scale.factor();
+                png.write(new EdgeScaler(scale.factor()).magnify(buffer.frame, true, null),
+                        width, palette, out);
+            } else {
+                png.write(buffer.frame, palette, true, scale.factor(), out);
+            }
+        }
+
+        return true;
     }
 
     /**
@@ -175,26 +375,50 @@ public class ScreenComponent extends JComponent {
      * here rather than from the next one.
      */
     public void setPalette(final NESPalette palette) {
-        synchronized (frameLock) {
-            this.palette = palette.colours();
-            colourise();
-        }
+        this.palette = palette.colours();
 
         repaint();
     }
 
     /**
-     * Maps the frame's colour indices through the palette into the image. The caller holds
-     * {@link #frameLock}.
+     * Draws everything from now on through the NTSC filter, or through the palette again, including
+     * the frame already on screen. Called on the event dispatch thread, and taking effect the way
+     * {@link #setPalette} does.
      */
-    private void colourise() {
-        if (!hasFrame) {
+    public void setNTSCFilter(final boolean on) {
+        if (on == (filter != null)) {
             return;
         }
 
-        for (var i = 0; i < pixels.length; i++) {
-            pixels[i] = palette[frame[i]];
+        filter = on ? new NTSCFilter(FILTER_SCALE) : null;
+
+        repaint();
+    }
+
+    /**
+     * The newest frame there is, on the event dispatch thread: the middle buffer if the emulation
+     * thread has put one there since the last look, otherwise the one already being painted.
+     * Coloured again first if the palette, the filter or the scaler has changed since it was
+     * coloured.
+     */
+    private Buffer latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & ~FRESH;
         }
+
+        var buffer = buffers[front];
+        var palette = this.palette;
+        var filter = this.filter;
+        var scaler = this.scaler;
+
+        if (buffer.colouredIn != null
+                && (buffer.colouredIn != palette
+                || buffer.filteredBy != filter
+                || buffer.scaledWith != scaler)) {
+            buffer.colourise(palette, filter, scaler);
+        }
+
+        return buffer;
     }
 
     @Override
@@ -221,12 +445,20 @@ public class ScreenComponent extends JComponent {
             var x = (getWidth() - width) / 2;
             var y = (getHeight() - height) / 2;
 
-            synchronized (frameLock) {
+            var buffer = latest();
+
+            // Nothing until the first frame: an image of zeros would be black anyway, but an
+            // uncoloured one is not a picture of anything.
+            if (buffer.colouredIn != null) {
+                // A filtered or magnified picture is bigger than the frame by the same whole number
+                // each way.
+                var points = buffer.image.getWidth() / PPU.SCREEN_WIDTH;
+
                 g2.drawImage(
-                        image,
+                        buffer.image,
                         x, y, x + width, y + height,
-                        0, FrameRenderer.OVERSCAN_TOP,
-                        PPU.SCREEN_WIDTH, FrameRenderer.VISIBLE_BOTTOM,
+                        0, FrameRenderer.OVERSCAN_TOP * points,
+                        PPU.SCREEN_WIDTH * points, FrameRenderer.VISIBLE_BOTTOM * points,
                         null);
             }
 
@@ -280,4 +512,91 @@ public class ScreenComponent extends JComponent {
             }
         }
     }
+
+    /**
+     * One frame, both as the PPU handed it over and as it is drawn.
+     */
+    private static final class Buffer {
+        /**
+         * The frame as drawn: the frame's own size through the palette alone, and bigger through
+         * the filter or the scaler. Replaced whenever it is the wrong size for the next.
+         */
+        private BufferedImage image = new BufferedImage(
+                PPU.SCREEN_WIDTH, PPU.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        /**
+         * The frame in colour indices. Kept so that changing the palette can recolour the picture
+         * already on screen instead of waiting for another frame -- which, with the emulator
+         * paused, is not coming.
+         */
+        private final int[] frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+
+        /**
+         * The palette {@link #image} was last coloured in, or null while this holds no frame at
+         * all. Without that the window before any ROM is loaded would colourise an all-zero frame
+         * to entry 0, which is dark grey rather than the black a television off shows.
+         */
+        private int @Nullable [] colouredIn;
+
+        /**
+         * The filter {@link #image} was last drawn through, or null if it was the palette.
+         */
+        private @Nullable NTSCFilter filteredBy;
+
+        /**
+         * Which subcarrier phase the frame started on, for the filter.
+         */
+        private int burst;
+
+        /**
+         * The frame magnified, still in indices, so that a change of palette colours it again
+         * without magnifying it again -- and the scaler that did it, or null while there is
+         * nothing here for the frame as it stands.
+         */
+        private int @Nullable [] scaled;
+        private @Nullable EdgeScaler scaledWith;
+
+        private void colourise(
+                final int[] palette,
+                final @Nullable NTSCFilter filter,
+                final @Nullable EdgeScaler scaler) {
+            if (filter != null) {
+                image = filter.render(frame, burst, false, image);
+            } else if (scaler != null) {
+                if (scaledWith != scaler) {
+                    scaled = scaler.magnify(frame, false, scaled);
+                }
+
+                lookUp(palette, scaled, scaler.scale());
+            } else {
+                lookUp(palette, frame, 1);
+            }
+
+            colouredIn = palette;
+            filteredBy = filter;
+            scaledWith = scaler;
+        }
+
+        /**
+         * Colours {@code indices}, {@code scale} times the frame each way, into {@link #image}.
+         */
+        private void lookUp(final int[] palette, final int[] indices, final int scale) {
+            if (image.getWidth() != PPU.SCREEN_WIDTH * scale
+                    || image.getHeight() != PPU.SCREEN_HEIGHT * scale) {
+                image = new BufferedImage(
+                        PPU.SCREEN_WIDTH * scale,
+                        PPU.SCREEN_HEIGHT * scale,
+                        BufferedImage.TYPE_INT_RGB);
+            }
+
+            // The image's own storage, written into directly. Reaching for the backing array like
+            // this costs the image its hardware acceleration, which is the trade: one pass per
+            // frame beats 61440 calls to BufferedImage.setRGB.
+            var pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+            for (var i = 0; i < pixels.length; i++) {
+                pixels[i] = palette[indices[i]];
+            }
+        }
+    }
 }
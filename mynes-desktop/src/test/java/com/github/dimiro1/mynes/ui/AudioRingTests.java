@@ -0,0 +1,103 @@
+package com.github.dimiro1.mynes.ui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The ring between the emulation thread and the audio thread, from one thread: what matters here is
+ * the counting, since the threading is nothing but the order two volatile fields are written in.
+ * <p>
+ * The case worth the most is a discard the reader has not caught up with. The reader stops reading
+ * once the ring is thrown away under it, until the ring is back up to its level -- so if throwing
+ * away did not make room, it never would be.
+ */
+class AudioRingTests {
+
+    private final short[] out = new short[16];
+
+    private static short[] samples(final int... values) {
+        var samples = new short[values.length];
+
+        for (var i = 0; i < values.length; i++) {
+            samples[i] = (short) values[i];
+        }
+
+        return samples;
+    }
+
+    @Test
+    void whatIsOfferedIsPolledInOrder() {
+        var ring = new AudioRing(4);
+
+        assertEquals(3, ring.offer(samples(1, 2, 3), 3));
+        assertEquals(3, ring.size());
+        assertEquals(3, ring.poll(out, out.length));
+        assertArrayEquals(samples(1, 2, 3), first(3));
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void onlyWhatFitsIsTaken() {
+        var ring = new AudioRing(4);
+
+        assertEquals(4, ring.offer(samples(1, 2, 3, 4, 5, 6), 6));
+        assertEquals(0, ring.offer(samples(7), 1));
+        assertEquals(4, ring.size());
+    }
+
+    /**
+     * A run that goes round the end of the array is copied in two pieces each way, and comes back
+     * as one.
+     */
+    @Test
+    void aRunWrapsRoundTheEnd() {
+        var ring = new AudioRing(4);
+        ring.offer(samples(1, 2, 3), 3);
+        ring.poll(out, 3);
+
+        assertEquals(3, ring.offer(samples(4, 5, 6), 3));
+        assertEquals(3, ring.poll(out, out.length));
+        assertArrayEquals(samples(4, 5, 6), first(3));
+    }
+
+    @Test
+    void aPollTakesNoMoreThanItAsksFor() {
+        var ring = new AudioRing(4);
+        ring.offer(samples(1, 2, 3), 3);
+
+        assertEquals(2, ring.poll(out, 2));
+        assertEquals(1, ring.size());
+    }
+
+    @Test
+    void aDiscardEmptiesTheRingAndIsCounted() {
+        var ring = new AudioRing(4);
+        ring.offer(samples(1, 2, 3), 3);
+
+        ring.discard();
+
+        assertEquals(0, ring.size());
+        assertEquals(1, ring.discards());
+        assertEquals(0, ring.poll(out, out.length));
+    }
+
+    @Test
+    void aDiscardMakesRoomBeforeTheReaderHasLooked() {
+        var ring = new AudioRing(4);
+        ring.offer(samples(1, 2, 3, 4), 4);
+
+        ring.discard();
+
+        assertEquals(4, ring.offer(samples(5, 6, 7, 8), 4));
+        assertEquals(4, ring.poll(out, out.length));
+        assertArrayEquals(samples(5, 6, 7, 8), first(4));
+    }
+
+    private short[] first(final int count) {
+        var samples = new short[count];
+        System.arraycopy(out, 0, samples, 0, count);
+        return samples;
+    }
+}
@@ -454,6 +454,57 @@ class ConfigTests {
             assertTrue(Config.load(config()).muted());
         }
 
+        @Test
+        void bandLimitedSoundSurvivesTheRoundTrip() throws IOException {
+            assertFalse(Config.load(config()).bandLimited(), "averaged until asked otherwise");
+
+            var config = Config.load(config());
+            config.setBandLimited(true);
+            config.save(config());
+
+            assertTrue(Config.load(config()).bandLimited());
+        }
+
+        @Test
+        void theSampleRateSurvivesTheRoundTrip() throws IOException {
+            assertEquals(44_100, Config.load(config()).sampleRate(), "44.1kHz until asked otherwise");
+
+            var config = Config.load(config());
+            config.setSampleRate(48_000);
+            config.save(config());
+
+            assertEquals(48_000, Config.load(config()).sampleRate());
+        }
+
+        @Test
+        void aSampleRateTheChipDoesNotMakeFallsBack() throws IOException {
+            assertEquals(44_100, Config.load(write("audio.sample-rate=22050\n")).sampleRate());
+            assertEquals(44_100, Config.load(write("audio.sample-rate=48k\n")).sampleRate());
+            assertEquals(96_000, Config.load(write("audio.sample-rate= 96000 \n")).sampleRate());
+        }
+
+        @Test
+        void theNTSCFilterSurvivesTheRoundTrip() throws IOException {
+            assertFalse(Config.load(config()).ntscFilter(), "off until somebody asks for it");
+
+            var config = Config.load(config());
+            config.setNTSCFilter(true);
+            config.save(config());
+
+            assertTrue(Config.load(config()).ntscFilter());
+        }
+
+        @Test
+        void smoothScalingSurvivesTheRoundTrip() throws IOException {
+            assertFalse(Config.load(config()).smoothScaling(), "square pixels until asked otherwise");
+
+            var config = Config.load(config());
+            config.setSmoothScaling(true);
+            config.save(config());
+
+            assertTrue(Config.load(config()).smoothScaling());
+        }
+
         @Test
         void theSpriteLimitHackSurvivesTheRoundTrip() throws IOException {
             var config = Config.load(config());
@@ -0,0 +1,115 @@
+package com.github.dimiro1.mynes.ui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reading the ring at a rate steered by how full it is.
+ * <p>
+ * Nothing here listens to anything. What can be pinned down without a sound card is the steering
+ * -- which way a fuller or emptier ring moves the rate, and that it never moves it further than
+ * {@link RateControl#MAX_ADJUSTMENT} -- and what happens at the edges: a ring not yet full enough to
+ * start, one that runs dry, and one thrown away on purpose, which is not the same thing.
+ */
+class RateControlTests {
+
+    private static final int TARGET = 100;
+
+    private final AudioRing ring = new AudioRing(4 * TARGET);
+    private final RateControl control = new RateControl(ring, TARGET);
+    private final short[] out = new short[TARGET];
+
+    private void offer(final int count, final int value) {
+        var samples = new short[count];
+        Arrays.fill(samples, (short) value);
+        ring.offer(samples, count);
+    }
+
+    @Test
+    void nothingIsReadUntilTheRingReachesItsLevel() {
+        offer(TARGET - 1, 7);
+
+        control.fill(out, 10);
+
+        assertEquals(TARGET - 1, ring.size());
+        assertEquals(0, out[9]);
+        assertEquals(0, control.underruns());
+    }
+
+    @Test
+    void aRingAtItsLevelIsReadAtTheRateItWasMadeAt() {
+        offer(TARGET, 7);
+
+        control.fill(out, 10);
+
+        assertEquals(0.0, control.adjustment());
+        assertEquals(7, out[9]);
+    }
+
+    @Test
+    void aFullerRingIsReadFasterButNeverMoreThanTheMost() {
+        offer(4 * TARGET, 7);
+
+        control.fill(out, 10);
+
+        assertEquals(RateControl.MAX_ADJUSTMENT, control.adjustment(), 1e-12);
+    }
+
+    @Test
+    void anEmptierRingIsReadSlower() {
+        offer(TARGET, 7);
+        control.fill(out, TARGET / 2);
+
+        // Long enough for the average to follow the level down.
+        for (var i = 0; i < 32; i++) {
+            control.fill(out, 1);
+        }
+
+        assertTrue(control.adjustment() < 0, "adjustment " + control.adjustment());
+        assertTrue(control.adjustment() >= -RateControl.MAX_ADJUSTMENT);
+    }
+
+    /**
+     * Run dry, it holds the last sample rather than dropping to silence, which would be a click of
+     * its own on top of the gap.
+     */
+    @Test
+    void aRingRunDryIsAnUnderrunAndHoldsTheLastSample() {
+        offer(TARGET, 7);
+
+        control.fill(out, out.length);
+        control.fill(out, out.length);
+
+        assertEquals(1, control.underruns());
+        assertEquals(7, out[out.length - 1]);
+    }
+
+    @Test
+    void aRingThrownAwayIsNotAnUnderrun() {
+        offer(TARGET, 7);
+        control.fill(out, 10);
+
+        ring.discard();
+        control.fill(out, out.length);
+
+        assertEquals(0, control.underruns());
+        assertEquals(7, out[out.length - 1]);
+    }
+
+    @Test
+    void afterADiscardItStartsAgainFromTheNewSamples() {
+        offer(TARGET, 7);
+        control.fill(out, 10);
+        ring.discard();
+
+        offer(TARGET, 9);
+        control.fill(out, 10);
+
+        assertEquals(9, out[9]);
+        assertEquals(0, control.underruns());
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.dimiro1.mynes.ui;
 
+import com.github.dimiro1.mynes.APU;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -43,7 +44,7 @@ class RewindAudioTests {
 
     @Test
     void aFrameComesBackBackwards() {
-        var audio = new RewindAudio(4);
+        var audio = new RewindAudio(4, APU.SAMPLE_RATE);
         capture(audio, 1, 3);
 
         assertEquals(3, audio.take(1, out));
@@ -56,7 +57,7 @@ class RewindAudioTests {
      */
     @Test
     void severalFramesComeBackAsOneRunOfSoundInReverse() {
-        var audio = new RewindAudio(4);
+        var audio = new RewindAudio(4, APU.SAMPLE_RATE);
         capture(audio, 1, 3);
         capture(audio, 2, 3);
 
@@ -66,7 +67,7 @@ class RewindAudioTests {
 
     @Test
     void aFrameIsGoneOnceItHasBeenTaken() {
-        var audio = new RewindAudio(4);
+        var audio = new RewindAudio(4, APU.SAMPLE_RATE);
         capture(audio, 1, 2);
         capture(audio, 2, 2);
 
@@ -84,7 +85,7 @@ class RewindAudioTests {
      */
     @Test
     void aSilentFrameStillCountsAsAFrame() {
-        var audio = new RewindAudio(4);
+        var audio = new RewindAudio(4, APU.SAMPLE_RATE);
         capture(audio, 1, 2);
         audio.capture(new short[0], 0);
         capture(audio, 3, 2);
@@ -96,7 +97,7 @@ class RewindAudioTests {
 
     @Test
     void theOldestFrameIsDroppedWhenItIsFull() {
-        var audio = new RewindAudio(2);
+        var audio = new RewindAudio(2, APU.SAMPLE_RATE);
         capture(audio, 1, 1);
         capture(audio, 2, 1);
         capture(audio, 3, 1);
@@ -113,7 +114,7 @@ class RewindAudioTests {
      */
     @Test
     void itKeepsWorkingOnceItHasWrappedSeveralTimes() {
-        var audio = new RewindAudio(3);
+        var audio = new RewindAudio(3, APU.SAMPLE_RATE);
 
         for (var i = 1; i <= 20; i++) {
             capture(audio, i, 2);
@@ -126,9 +127,29 @@ class RewindAudioTests {
                 "the last three frames, newest first and each one backwards");
     }
 
+    /**
+     * A slot is sized from the rate, so the longest frame there is -- PAL at 96kHz, 1920 samples --
+     * goes in and comes back whole.
+     */
+    @Test
+    void aSlotHoldsAWholeFrameAtTheHighestRate() {
+        var audio = new RewindAudio(2, 96_000);
+        var frame = new short[1920];
+        frame[0] = 1;
+        frame[1919] = 2;
+
+        audio.capture(frame, frame.length);
+
+        var back = new short[frame.length];
+
+        assertEquals(frame.length, audio.take(1, back));
+        assertEquals(2, back[0]);
+        assertEquals(1, back[1919]);
+    }
+
     @Test
     void aRingNobodyFedHandsBackNothing() {
-        assertEquals(0, new RewindAudio(4).take(1, out));
+        assertEquals(0, new RewindAudio(4, APU.SAMPLE_RATE).take(1, out));
     }
 
     private short[] first(final int count) {
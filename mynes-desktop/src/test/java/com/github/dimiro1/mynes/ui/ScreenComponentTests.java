@@ -2,14 +2,23 @@ package com.github.dimiro1.mynes.ui;
 
 import com.github.dimiro1.mynes.PPU;
 import com.github.dimiro1.mynes.palette.Palettes;
+import com.github.dimiro1.mynes.video.EdgeScaler;
 import com.github.dimiro1.mynes.video.FrameRenderer;
+import com.github.dimiro1.mynes.video.NTSCFilter;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import javax.imageio.ImageIO;
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -107,6 +116,30 @@ class ScreenComponentTests {
                 painted(screen, 0, OVERSCAN_TOP));
     }
 
+    /**
+     * Frames the painter never got round to are overtaken rather than queued, and a paint with no
+     * new frame to take keeps the one it has -- which is every paint while the emulator is paused.
+     */
+    @Test
+    void theNewestFrameIsTheOnePainted() {
+        var screen = new ScreenComponent();
+        var palette = Palettes.defaultPalette();
+
+        screen.present(frameOf(0x21));
+        screen.present(frameOf(0x16));
+        screen.present(frameOf(0x2A));
+
+        assertEquals(palette.colour(0x2A) & 0xFFFFFF, painted(screen, 0, OVERSCAN_TOP));
+        assertEquals(palette.colour(0x2A) & 0xFFFFFF, painted(screen, 0, OVERSCAN_TOP));
+
+        for (var colour = 0x01; colour <= 0x0C; colour++) {
+            screen.present(frameOf(colour));
+
+            assertEquals(palette.colour(colour) & 0xFFFFFF, painted(screen, 0, OVERSCAN_TOP),
+                    "colour " + colour);
+        }
+    }
+
     @Test
     void changingThePaletteRecoloursTheFrameAlreadyHere() {
         var screen = new ScreenComponent();
@@ -120,6 +153,63 @@ class ScreenComponentTests {
         assertEquals(classic.colour(0x21) & 0xFFFFFF, painted(screen, 0, OVERSCAN_TOP));
     }
 
+    /**
+     * The filter is the television again, so it behaves like the palette: the frame already here is
+     * drawn through it without waiting for another, and switching it off puts the palette back.
+     */
+    @Test
+    void theNTSCFilterRedrawsTheFrameAlreadyHere() {
+        var screen = new ScreenComponent();
+        var frame = frameOf(0x21);
+        var decoded = new NTSCFilter(1).render(frame, 0, true, null).getRGB(128, 100) & 0xFFFFFF;
+
+        screen.present(frame);
+        screen.setNTSCFilter(true);
+
+        assertEquals(decoded, painted(screen, 128, OVERSCAN_TOP + 100));
+        assertEquals(decoded, screen.snapshot(ScreenScale.ONE_TIMES).getRGB(128, 100) & 0xFFFFFF);
+
+        screen.setNTSCFilter(false);
+
+        assertEquals(
+                Palettes.defaultPalette().colour(0x21) & 0xFFFFFF,
+                painted(screen, 128, OVERSCAN_TOP + 100));
+    }
+
+    /**
+     * A diagonal, the one thing the scalers are for: with smooth scaling on, a snapshot at the
+     * screen's size is what the scaler draws on its own, and with it off the staircase comes back.
+     */
+    @Test
+    void smoothScalingRoundsOffTheStaircase() {
+        var screen = new ScreenComponent();
+        var frame = frameOf(0x0F);
+
+        for (var i = 40; i < 60; i++) {
+            frame[(OVERSCAN_TOP + i) * PPU.SCREEN_WIDTH + i] = 0x30;
+        }
+
+        var palette = Palettes.defaultPalette().colours();
+        var smooth = new EdgeScaler(2).render(frame, palette, true, null);
+
+        screen.setScale(ScreenScale.TWO_TIMES);
+        screen.setSmoothScaling(true);
+        screen.present(frame);
+
+        assertTrue(screen.isSmoothScaling());
+
+        var snapshot = screen.snapshot(ScreenScale.TWO_TIMES);
+
+        assertEquals(smooth.getRGB(51 * 2, 50 * 2 + 1), snapshot.getRGB(51 * 2, 50 * 2 + 1));
+        assertEquals(palette[0x30] & 0xFFFFFF, snapshot.getRGB(51 * 2, 50 * 2 + 1) & 0xFFFFFF);
+
+        screen.setSmoothScaling(false);
+
+        assertEquals(
+                palette[0x0F] & 0xFFFFFF,
+                screen.snapshot(ScreenScale.TWO_TIMES).getRGB(51 * 2, 50 * 2 + 1) & 0xFFFFFF);
+    }
+
     @Test
     void theScaleSetsHowBigTheComponentAsksToBe() {
         var screen = new ScreenComponent();
@@ -240,6 +330,41 @@ class ScreenComponentTests {
                 image.getRGB(0, 0) & 0xFFFFFF);
     }
 
+    /**
+     * The file is written from the indices rather than from the snapshot, so it is held up against
+     * the snapshot: the same picture, whichever way it was magnified.
+     */
+    @Test
+    void aSnapshotWrittenToAFileIsTheSnapshot(@TempDir final Path dir) throws IOException {
+        var screen = new ScreenComponent();
+        var path = dir.resolve("shot.png");
+
+        assertFalse(screen.writeSnapshot(ScreenScale.TWO_TIMES, path), "nothing to photograph yet");
+        assertFalse(Files.exists(path), "and no empty file left behind");
+
+        var frame = frameOf(0x0F);
+        for (var i = 40; i < 60; i++) {
+            frame[(OVERSCAN_TOP + i) * PPU.SCREEN_WIDTH + i] = 0x30;
+        }
+        screen.present(frame);
+
+        for (var smooth : new boolean[]{false, true}) {
+            screen.setSmoothScaling(smooth);
+
+            assertTrue(screen.writeSnapshot(ScreenScale.TWO_TIMES, path));
+
+            var expected = screen.snapshot(ScreenScale.TWO_TIMES);
+            var written = ImageIO.read(path.toFile());
+
+            assertArrayEquals(
+                    expected.getRGB(0, 0, expected.getWidth(), expected.getHeight(), null, 0,
+                            expected.getWidth()),
+                    written.getRGB(0, 0, written.getWidth(), written.getHeight(), null, 0,
+                            written.getWidth()),
+                    smooth ? "smooth" : "square");
+        }
+    }
+
     @Test
     void aSnapshotStartsAtTheFirstLineATelevisionWouldHaveShown() {
         var screen = new ScreenComponent();
@@ -2,6 +2,7 @@ package com.github.dimiro1.mynes.headless;
 
 import com.github.dimiro1.mynes.Cart;
 import com.github.dimiro1.mynes.NES;
+import com.github.dimiro1.mynes.Region;
 import com.github.dimiro1.mynes.patch.IPSPatch;
 import com.github.dimiro1.mynes.patch.InvalidPatchException;
 import com.github.dimiro1.mynes.state.BatteryRAM;
@@ -11,6 +12,8 @@ import com.github.dimiro1.mynes.state.SaveStateException;
 import com.github.dimiro1.mynes.palette.Palettes;
 
 import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.lang.System.Logger;
@@ -159,7 +162,10 @@ public final class Headless {
         // No AudioOutput: opening a sound card would make the run depend on the computer it ran on,
         // and there is nobody here to listen to it anyway. The samples are counted, and written to
         // a file if one was asked for.
-        try (var wav = options.audio() ? new WavWriter(options.wavPath()) : null) {
+        try (var wav = options.audio()
+                ? new WavWriter(options.wavPath(), options.sampleRate())
+                : null;
+             var video = openVideo(options, region, palette.colours())) {
             var session = new Session(
                     new NES(cart, region), palette.colours(), wav);
 
@@ -168,6 +174,12 @@ public final class Headless {
             // whether the run started from power on.
             session.nes().getPPU().setUnlimitedSprites(
                     options.hacks().contains(Options.UNLIMITED_SPRITES));
+            session.nes().setCatchUp(options.catchUp());
+            session.nes().setSkipIdleLoops(options.skipIdle());
+            session.nes().getAPU().setBandLimited(options.bandLimited());
+            session.nes().getAPU().setSampleRate(options.sampleRate());
+            session.setMuted(options.mute());
+            session.setNTSCFilter(options.ntsc());
 
             // And a Game Genie is not machine state either, for the same reason and one more: the
             // cartridge it is plugged into is untouched, so a state taken with codes in has nothing
@@ -233,7 +245,16 @@ public final class Headless {
 
             var outcome = options.interactive()
                     ? interactive(options, session)
-                    : oneShot(options, session, frames, movie);
+                    : oneShot(options, session, frames, movie, video);
+
+            if (video != null) {
+                // Here rather than at the end of the try, so the report is written after the last
+                // frame has been and a stream that failed at the very end still fails the run.
+                video.close();
+                logger.log(Level.INFO, "streamed " + video.frames() + " frames of "
+                        + video.width() + "x" + video.height() + " "
+                        + options.videoFormat().id() + " to " + options.video());
+            }
 
             // Read before the movie is written, so what the report calls the run is the run and not
             // the few milliseconds of filing that follow it.
@@ -296,6 +317,7 @@ public final class Headless {
                             startedAt,
                             patched.applied(),
                             outcome.screenshots(),
+                            video == null ? 0 : video.frames(),
                             dumps,
                             expectations,
                             recorded,
@@ -361,16 +383,53 @@ public final class Headless {
         return new Patched(patched, List.copyOf(applied));
     }
 
+    /**
+     * Opens the stream {@code --video} asked for, or answers null when it asked for none.
+     * <p>
+     * Standard output is opened as the file it is rather than through {@code System.out}, which
+     * would swallow a reader closing the pipe without a word and leave the run writing a video into
+     * nowhere. The command line has already made sure nothing else is printed there.
+     */
+    private static VideoWriter openVideo(
+            final Options options, final Region region, final int[] palette) throws IOException {
+        if (options.video() == null) {
+            return null;
+        }
+
+        var parent = options.video().getParent();
+        if (!options.videoToStandardOutput() && parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        var out = options.videoToStandardOutput()
+                ? new FileOutputStream(FileDescriptor.out)
+                : Files.newOutputStream(options.video());
+
+        return new VideoWriter(
+                out,
+                options.videoFormat(),
+                palette,
+                !options.fullFrame(),
+                options.scale(),
+                options.ntsc(),
+                region.frameNanos());
+    }
+
     /**
      * Plays the schedule, or the movie.
      *
      * @param frames how many to run, which is the movie's own length when there is one and nobody
      *               named a number.
      * @param movie  the movie to play, or null to walk {@code --input} and {@code --reset-at}.
+     * @param video  where every frame {@code --video-every} picks goes, or null.
      */
     private static Outcome oneShot(
-            final Options options, final Session session, final long frames, final Movie movie)
-            throws IOException {
+            final Options options,
+            final Session session,
+            final long frames,
+            final Movie movie,
+            final VideoWriter video
+    ) throws IOException {
         var resets = new HashSet<>(options.resetAt());
         var screenshots = new ArrayList<Long>();
         var deadline = System.nanoTime() + options.timeout().toNanos();
@@ -396,8 +455,18 @@ public final class Headless {
                 session.setButtons(options.input().buttonsAt(frame));
             }
 
+            // The frame asked to end the run is drawn whatever else is, because the report
+            // describes its picture. One cut short by the timeout may not have been.
+            session.setSkipRendering(options.skipRender()
+                    && frame != frames
+                    && !options.wantsScreenshotAt(frame)
+                    && !options.wantsVideoAt(frame));
             session.advanceFrame();
 
+            if (video != null && options.wantsVideoAt(frame)) {
+                video.write(session.nes().getPPU().getFrameBuffer(), (int) (session.frame() & 1));
+            }
+
             if (options.wantsScreenshotAt(frame)) {
                 shoot(options, session, frame);
                 screenshots.add(frame);
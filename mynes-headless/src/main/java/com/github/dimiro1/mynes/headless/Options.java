@@ -1,5 +1,6 @@
 package com.github.dimiro1.mynes.headless;
 
+import com.github.dimiro1.mynes.APU;
 import com.github.dimiro1.mynes.Cart;
 import com.github.dimiro1.mynes.Region;
 import com.github.dimiro1.mynes.cheat.GameGenieCode;
@@ -38,13 +39,31 @@ import java.util.TreeSet;
  * @param screenshotFrames frames to photograph.
  * @param screenshotLast   whether to photograph whichever frame the run ends on.
  * @param screenshotEvery  photograph every this many frames, or 0 for none.
+ * @param video            where to stream the pictures to, or null for nowhere. A path of
+ *                         {@code -} is standard output; {@link #videoToStandardOutput()} asks.
+ * @param videoFormat      how to spell them.
+ * @param videoEvery       stream every this many frames.
  * @param scale            how many times to magnify a screenshot.
  * @param fullFrame        whether to keep the scanlines a television hides.
  * @param region           which machine to run the cartridge on, or null to believe its header.
  * @param palette          which measurement of the chip's colours to draw with, or null to let the
  *                         region decide.
+ * @param ntsc             whether to draw screenshots the way a composite television would have
+ *                         shown the signal, rather than through the palette.
  * @param audio            whether to write the sound to a file as well as counting it.
+ * @param bandLimited      whether to make the samples from band-limited steps rather than by
+ *                         averaging each one's cycles.
+ * @param sampleRate       how many samples a second to make: one of {@link APU#SAMPLE_RATES}.
+ * @param mute             whether to make no sound at all. The game runs the same; the mixer and
+ *                         its filters are left out, and the sound is not counted.
  * @param hacks            which of the things the hardware does not do to switch on.
+ * @param catchUp          whether to let the PPU and APU fall behind the CPU between the accesses
+ *                         that would show it. Changes how fast the run goes and nothing else.
+ * @param skipIdle         whether to skip the CPU through loops that only wait, on top of
+ *                         catchUp, which it implies. The same again: faster and nothing else.
+ * @param skipRender       whether to leave undrawn every frame that is not photographed and is
+ *                         not the last. The game runs the same; only the pictures nobody keeps
+ *                         are missing, and the frames counted as changing with them.
  * @param genie            Game Genie codes to put in the cartridge slot, already decoded.
  * @param dumps            which memories to write out when the run ends.
  * @param loadState        a save state to start from instead of power on, or null.
@@ -80,12 +99,22 @@ public record Options(
         Set<Long> screenshotFrames,
         boolean screenshotLast,
         long screenshotEvery,
+        Path video,
+        VideoWriter.Format videoFormat,
+        long videoEvery,
         int scale,
         boolean fullFrame,
         Region region,
         NESPalette palette,
+        boolean ntsc,
         boolean audio,
+        boolean bandLimited,
+        int sampleRate,
+        boolean mute,
         Set<String> hacks,
+        boolean catchUp,
+        boolean skipIdle,
+        boolean skipRender,
         List<GameGenieCode> genie,
         List<String> dumps,
         Path loadState,
@@ -221,6 +250,24 @@ public record Options(
                                     the run ended on. Repeatable.
                                       --screenshot 60,300,last
               --screenshot-every N  A screenshot every N frames.
+              --video FILE          Stream every frame as it is drawn, to FILE or, given "-", to
+                                    standard output -- which then wants --quiet, and --report FILE
+                                    if the report was going there too. Uncompressed and big, and
+                                    meant for an encoder at the other end of a pipe:
+                                      --video - --quiet | ffmpeg -i - run.mp4
+                                    Written from a thread of its own, a few frames behind the
+                                    machine; a reader slower than the machine holds it up rather
+                                    than losing frames. --scale, --full-frame, --palette and --ntsc
+                                    all apply, and frames that go into it are drawn even under
+                                    --skip-render. Not with --interactive.
+              --video-format y4m|rgb
+                                    y4m (the default) is YUV4MPEG2, 4:4:4, with the size and the
+                                    exact frame rate in its header, so an encoder needs telling
+                                    nothing. rgb is bare rgb24 with no header at all:
+                                      ffmpeg -f rawvideo -pix_fmt rgb24 -s 256x224 -r 60.0988 -i -
+              --video-every N       Only every Nth frame, counted from power on. Default 1. The
+                                    y4m header still says the machine's own rate, so an encoder
+                                    told nothing else plays the result N times too fast.
               --scale N             Magnify the picture N times, 1 to 8. Default 1, which is 256x224.
               --full-frame          Write all 240 scanlines instead of the 224 a television shows.
                                     The emulator's own window hides the same eight at each end, so
@@ -230,11 +277,30 @@ public record Options(
                                     nesdev, or 2c07 on a PAL machine, whose PPU does not generate
                                     the same colours at all. --list-palettes has the rest.
               --list-palettes       Print the palette ids and names, then stop.
+              --ntsc                Draw the screenshots through a composite television instead of
+                                    a palette: the chip's signal decoded the way an NTSC set
+                                    decodes it, colour fringes, blending and all. Makes its own
+                                    colours, so --palette has no say, and is the wrong television
+                                    for a PAL machine. The frame hash is of the machine's picture
+                                    rather than the television's, so it is the same either way.
 
             Sound
               --audio               Also write <out>/audio.wav: signed sixteen bit, one channel,
-                                    44100Hz. The report's peak, RMS and silent frame counts are
-                                    there either way; this only adds the file.
+                                    at --sample-rate. The report's peak, RMS and silent frame
+                                    counts are there either way; this only adds the file.
+              --band-limited        Make the samples from the chip's output as band-limited steps
+                                    instead of averaging the cycles under each one, which leaves
+                                    out the whine the highest notes fold back down into the audible
+                                    range, and costs less. Still the same samples every run.
+              --sample-rate HZ      How many samples a second to make: 44100, 48000 or 96000.
+                                    Default 44100. Each is made straight from the chip's clock
+                                    rather than from one of the others, so a file for something
+                                    that runs at 48kHz need not be resampled on its way there.
+              --mute                Make no sound at all, for a run that only wants the picture.
+                                    The game runs exactly as it would, but the mixer and its
+                                    filters are left out of every frame. The report's sound is all
+                                    noughts and audio.muted says why. Not with --audio or
+                                    --expect-audio.
 
             Hacks, which are things the console does not do
               --hack NAME[,NAME..]  Switch one on. All of them are off unless named here, and
@@ -247,6 +313,26 @@ public record Options(
                                                           still rises and the cartridge sees the
                                                           same address bus.
 
+            Scheduling
+              --catch-up            Run the CPU ahead of the picture and sound chips, and bring them
+                                    level only when the CPU touches one of them or one of them is
+                                    about to interrupt it. Every frame, sample and save state is
+                                    byte for byte what the default lockstep produces, so this is
+                                    not a hack and is not in run.hacks; it only changes how long
+                                    the run takes.
+              --skip-idle           As well, skip the CPU through the JMP * and LDA $2002 / BPL
+                                    loops games wait for the next frame in, rather than running
+                                    every pass of them. Implies --catch-up, and is byte for byte
+                                    the same run for the same reason.
+              --skip-render         Draw only the frames that are photographed and the one the run
+                                    is asked to end on. The rest still run exactly as they would --
+                                    sprite 0 hit, the overflow flag and what the cartridge sees of
+                                    the address bus are all unchanged -- but their pictures are not
+                                    composed or hashed, which is a good part of what a frame costs.
+                                    So video.frameChanges counts only the frames that were drawn,
+                                    and --expect-motion is refused. A run cut short by --timeout
+                                    reports the last picture drawn rather than the last frame run.
+
             Game Genie, which is a thing the console did do
               --genie CODE[,CODE..] Put a code in the cartridge slot. Repeatable. Six letters or
                                     eight, from APZLGITYEOXUKSVN -- there is no B, C, D or R in a
@@ -357,12 +443,22 @@ public record Options(
         var screenshotFrames = new TreeSet<Long>();
         var screenshotLast = false;
         var screenshotEvery = 0L;
+        Path video = null;
+        VideoWriter.Format videoFormat = null;
+        var videoEvery = 0L;
         var scale = 1;
         var fullFrame = false;
         Region region = null;
         NESPalette palette = null;
+        var ntsc = false;
         var audio = false;
+        var bandLimited = false;
+        var sampleRate = APU.SAMPLE_RATE;
+        var mute = false;
         var hacks = new LinkedHashSet<String>();
+        var catchUp = false;
+        var skipIdle = false;
+        var skipRender = false;
         var genie = new ArrayList<GameGenieCode>();
         var dumps = new LinkedHashSet<String>();
         Path loadState = null;
@@ -406,12 +502,28 @@ public record Options(
                         parseScreenshots(value(args, ++i, flag), screenshotFrames);
                 case "--screenshot-every" -> screenshotEvery =
                         positive(value(args, ++i, flag), flag);
+                case "--video" -> video = Path.of(value(args, ++i, flag));
+                case "--video-format" -> videoFormat = parseVideoFormat(value(args, ++i, flag));
+                case "--video-every" -> {
+                    videoEvery = positive(value(args, ++i, flag), flag);
+
+                    if (videoEvery == 0) {
+                        throw new UsageException("--video-every is 1 or more: 1 is every frame.");
+                    }
+                }
                 case "--scale" -> scale = parseScale(value(args, ++i, flag));
                 case "--full-frame" -> fullFrame = true;
                 case "--region" -> region = parseRegion(value(args, ++i, flag));
                 case "--palette" -> palette = parsePalette(value(args, ++i, flag));
+                case "--ntsc" -> ntsc = true;
                 case "--audio" -> audio = true;
+                case "--band-limited" -> bandLimited = true;
+                case "--sample-rate" -> sampleRate = parseSampleRate(value(args, ++i, flag));
+                case "--mute" -> mute = true;
                 case "--hack" -> parseHacks(value(args, ++i, flag), hacks);
+                case "--catch-up" -> catchUp = true;
+                case "--skip-idle" -> skipIdle = true;
+                case "--skip-render" -> skipRender = true;
                 case "--genie" -> parseGenie(value(args, ++i, flag), genie);
                 case "--dump" -> parseDumps(value(args, ++i, flag), dumps);
                 case "--load-state" -> loadState = Path.of(value(args, ++i, flag));
@@ -464,9 +576,41 @@ public record Options(
                     "a replay is a run of a schedule that is already written down");
         }
 
+        if (video == null && (videoFormat != null || videoEvery != 0)) {
+            throw new UsageException("--video-format and --video-every say how to write a video,"
+                    + " and there is none without --video.");
+        }
+
+        if (video != null && interactive) {
+            throw new UsageException("--video streams the frames of a schedule, and --interactive"
+                    + " has none. Its screenshot command writes a picture at a time.");
+        }
+
+        if (videoEvery == 0) {
+            videoEvery = 1;
+        }
+
+        if (mute && (audio || expectAudio)) {
+            throw new UsageException((audio ? "--audio writes" : "--expect-audio listens to")
+                    + " the sound, and --mute says not to make any. Drop one of the two.");
+        }
+
+        if (skipRender && expectMotion >= 0) {
+            throw new UsageException("--expect-motion counts the frames that changed, and"
+                    + " --skip-render leaves most of them undrawn. Drop one of the two.");
+        }
+
         var report = STDOUT.equals(reportPath) ? null
                 : reportPath == null ? outDir.resolve(REPORT_NAME) : Path.of(reportPath);
 
+        // One stream of bytes cannot be two documents. The report is printed unless it is filed and
+        // --quiet says not to, and a video with JSON in the middle of it is neither.
+        if (video != null && STDOUT.equals(video.toString()) && (report == null || !quiet)) {
+            throw new UsageException("--video - writes the video to standard output, where the"
+                    + " report would be printed as well. Add --quiet"
+                    + (report == null ? ", and --report FILE instead of --report -." : "."));
+        }
+
         return new Options(
                 rom,
                 List.copyOf(patches),
@@ -482,12 +626,22 @@ public record Options(
                 Set.copyOf(screenshotFrames),
                 screenshotLast,
                 screenshotEvery,
+                video,
+                videoFormat == null ? VideoWriter.Format.Y4M : videoFormat,
+                videoEvery,
                 scale,
                 fullFrame,
                 region,
                 palette,
+                ntsc,
                 audio,
+                bandLimited,
+                sampleRate,
+                mute,
                 Set.copyOf(hacks),
+                catchUp || skipIdle,
+                skipIdle,
+                skipRender,
                 List.copyOf(genie),
                 List.copyOf(dumps),
                 loadState,
@@ -546,6 +700,22 @@ public record Options(
         return outDir.resolve("frame-%06d.png").toString();
     }
 
+    /**
+     * Whether {@code --video} was given {@code -}, for standard output, rather than a file.
+     */
+    public boolean videoToStandardOutput() {
+        return video != null && STDOUT.equals(video.toString());
+    }
+
+    /**
+     * Whether a frame goes into the video. Counted from power on, the way
+     * {@code --screenshot-every} is, so two runs of different lengths agree about which frames
+     * they share.
+     */
+    public boolean wantsVideoAt(final long frame) {
+        return video != null && frame % videoEvery == 0;
+    }
+
     public Path dumpPath(final String what) {
         return outDir.resolve(what + ".bin");
     }
@@ -608,6 +778,16 @@ public record Options(
         };
     }
 
+    private static VideoWriter.Format parseVideoFormat(final String text) {
+        var format = VideoWriter.Format.byId(text.toLowerCase());
+
+        if (format == null) {
+            throw new UsageException("--video-format is y4m or rgb, not \"" + text + "\".");
+        }
+
+        return format;
+    }
+
     private static int parseScale(final String text) {
         try {
             var scale = Integer.parseInt(text);
@@ -623,6 +803,22 @@ public record Options(
         }
     }
 
+    private static int parseSampleRate(final String text) {
+        try {
+            var rate = Integer.parseInt(text);
+
+            if (!APU.SAMPLE_RATES.contains(rate)) {
+                throw new UsageException("--sample-rate is one of " + APU.SAMPLE_RATES + ", not "
+                        + rate + ".");
+            }
+
+            return rate;
+        } catch (NumberFormatException e) {
+            throw new UsageException("--sample-rate wants a number of samples a second, not \""
+                    + text + "\".");
+        }
+    }
+
     /**
      * Reads a screenshot list, adding the frames to {@code frames}.
      *
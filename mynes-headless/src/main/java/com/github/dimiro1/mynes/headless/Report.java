@@ -1,6 +1,5 @@
 package com.github.dimiro1.mynes.headless;
 
-import com.github.dimiro1.mynes.APU;
 import com.github.dimiro1.mynes.Cart;
 import com.github.dimiro1.mynes.state.Movie;
 
@@ -75,6 +74,7 @@ public final class Report {
      * @param startedAt       when it started.
      * @param patches         the patches applied to the ROM image before it was read as a cartridge.
      * @param screenshots     the frames photographed.
+     * @param videoFrames     how many frames went into the {@code --video} stream.
      * @param dumps           the memories written out.
      * @param expectations    what was asked of the run, and whether it held.
      * @param recorded        the movie this run wrote, or null if it recorded nothing.
@@ -89,6 +89,7 @@ public final class Report {
             Instant startedAt,
             List<Patch> patches,
             List<Long> screenshots,
+            long videoFrames,
             List<Dump> dumps,
             List<Expectation> expectations,
             Movie recorded,
@@ -262,6 +263,7 @@ public final class Report {
 
         var video = report.putObject("video");
         video.put("palette", options.paletteFor(region).id());
+        video.put("filter", options.ntsc() ? "ntsc" : "none");
         video.put("overscan", options.fullFrame() ? "full" : "cropped");
         video.put("scale", options.scale());
 
@@ -277,6 +279,9 @@ public final class Report {
             node.put("count", colour.count());
         }
 
+        // Whether frames were left undrawn, which is what says frameChanges only counted the drawn
+        // ones. Always present, so two reports still compare key for key.
+        video.put("skipRender", options.skipRender());
         video.put("frameChanges", session.frameChanges());
         video.put("framesSinceLastChange", session.framesSinceLastChange());
 
@@ -295,10 +300,23 @@ public final class Report {
             screenshots.put("truncated", true);
         }
 
+        // Null rather than missing without --video, the way audio.wav is.
+        if (options.video() != null) {
+            var stream = video.putObject("stream");
+            stream.put("path", options.videoToStandardOutput() ? "-" : options.video().toString());
+            stream.put("format", options.videoFormat().id());
+            stream.put("every", options.videoEvery());
+            stream.put("frames", outcome.videoFrames());
+        } else {
+            video.putNull("stream");
+        }
+
         var audio = report.putObject("audio");
-        audio.put("sampleRate", APU.SAMPLE_RATE);
+        audio.put("sampleRate", nes.getAPU().getSampleRate());
+        audio.put("bandLimited", nes.getAPU().isBandLimited());
+        audio.put("muted", options.mute());
         audio.put("samples", audioStats.samples());
-        audio.put("seconds", seconds(audioStats.samples()));
+        audio.put("seconds", seconds(audioStats.samples(), nes.getAPU().getSampleRate()));
         audio.put("peak", audioStats.peak());
         audio.put("rms", audioStats.rms());
         audio.put("silentFrames", audioStats.silentFrames());
@@ -426,8 +444,8 @@ public final class Report {
         return Math.round(rate * 10.0) / 10.0;
     }
 
-    private static double seconds(final long samples) {
-        return Math.round(samples * 1_000.0 / APU.SAMPLE_RATE) / 1_000.0;
+    private static double seconds(final long samples, final int sampleRate) {
+        return Math.round(samples * 1_000.0 / sampleRate) / 1_000.0;
     }
 
     /**
@@ -8,10 +8,13 @@ import com.github.dimiro1.mynes.state.MovieRecorder;
 import com.github.dimiro1.mynes.state.Rewind;
 import com.github.dimiro1.mynes.state.SaveState;
 import com.github.dimiro1.mynes.video.FrameAnalysis;
-import com.github.dimiro1.mynes.video.FrameRenderer;
+import com.github.dimiro1.mynes.video.NTSCFilter;
+import com.github.dimiro1.mynes.video.PNGEncoder;
 import org.jetbrains.annotations.Nullable;
 
 import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -34,18 +37,14 @@ import java.util.List;
  * not depend on and cannot resolve a link into.
  */
 public final class Session {
-    /**
-     * Where the APU's samples land on their way to being counted, and to the WAV file if one was
-     * asked for. A frame is about 735 of them.
-     */
-    private static final int AUDIO_BUFFER_SAMPLES = 4096;
-
     /**
      * What one frame looked like.
      *
      * @param number  frames since power on, counting the one just finished.
-     * @param hash    a hash of the visible picture, {@link FrameAnalysis#hash(int[])}.
-     * @param changed whether that picture differs from the frame before it.
+     * @param hash    a hash of the visible picture, {@link FrameAnalysis#hash(int[])}. The last
+     *                picture drawn, for a frame that was run with drawing switched off.
+     * @param changed whether that picture differs from the frame before it. Never, for a frame
+     *                that was not drawn.
      * @param stop    why the machine stopped part way through, or null if the frame simply
      *                finished. A frame that was cut short is not counted or hashed: there is no
      *                finished picture to hash.
@@ -79,6 +78,27 @@ public final class Session {
     private final int[] palette;
     private final WavWriter wav;
 
+    /**
+     * What writes the screenshots, keeping its compressor and buffers from one to the next: a run
+     * photographing every frame writes tens of thousands of them.
+     */
+    private final PNGEncoder png = new PNGEncoder();
+
+    /**
+     * The last screenshot through the composite filter, drawn over for the next one. A run
+     * photographing every frame at eight times would otherwise make a fourteen megabyte picture per
+     * frame only to throw it away.
+     */
+    private @Nullable BufferedImage screenshot;
+
+    /**
+     * Whether screenshots go through the composite filter rather than the palette, and the filter
+     * itself once one has been needed. Its tables are built for one magnification, so a screenshot
+     * asking for another builds it again.
+     */
+    private boolean composite;
+    private @Nullable NTSCFilter ntsc;
+
     /**
      * Where breakpoints and watchpoints live. Constructed here rather than passed in because a
      * session is the only thing that can drive one: it owns the loop that has to run an instruction
@@ -119,7 +139,21 @@ public final class Session {
      */
     private long framesRewound;
 
-    private final short[] samples = new short[AUDIO_BUFFER_SAMPLES];
+    /**
+     * Whether the APU is making any sound for this session to count. See {@link #setMuted}.
+     */
+    private boolean muted;
+
+    /**
+     * Whether every sample of the frame being run has been zero so far.
+     */
+    private boolean silentFrame = true;
+
+    /**
+     * What went wrong writing to the WAV file, kept to be thrown at the end of the frame: the APU
+     * pushes its samples from inside the frame, through a sink that cannot throw.
+     */
+    private @Nullable IOException wavFailure;
 
     /**
      * The sound of the whole run, which is what the report describes.
@@ -150,6 +184,7 @@ public final class Session {
         this.wav = wav;
         this.previousHash = FrameAnalysis.hash(nes.getPPU().getFrameBuffer());
 
+        nes.getAPU().setAudioSink(this::hear);
         debugger.attach(nes);
         genie.attach(nes);
     }
@@ -182,6 +217,40 @@ public final class Session {
         nes.getController1().setButtons(mask);
     }
 
+    /**
+     * Leaves the picture undrawn from the next frame until told otherwise, or draws it again.
+     * <p>
+     * For a run that knows which frames it is going to keep. The machine runs exactly as it would
+     * -- see {@link com.github.dimiro1.mynes.PPU#setSkipRendering} -- and a frame run this way is
+     * still counted, recorded and captured for rewinding, but it is not hashed, since the picture
+     * it would be hashing is a frame or more old.
+     */
+    public void setSkipRendering(final boolean skip) {
+        nes.getPPU().setSkipRendering(skip);
+    }
+
+    /**
+     * Stops the APU making sound at all from here on, or starts it again.
+     * <p>
+     * For a run that only wants the picture. The machine runs exactly as it would -- see
+     * {@link com.github.dimiro1.mynes.APU#setAudioSink} -- but the mixer and its filters are left
+     * out of every frame, and nothing is counted: a muted frame is not a silent one, and the
+     * readings describe only the frames that were listened to.
+     */
+    public void setMuted(final boolean muted) {
+        this.muted = muted;
+        nes.getAPU().setAudioSink(muted ? null : this::hear);
+    }
+
+    /**
+     * Draws screenshots from now on the way a composite television would have shown them, or
+     * through the palette again. Nothing about the machine changes, nor the frame hashes, which
+     * are of what the chip drew.
+     */
+    public void setNTSCFilter(final boolean on) {
+        composite = on;
+    }
+
     /**
      * The console's Reset button.
      * <p>
@@ -200,23 +269,18 @@ public final class Session {
     /**
      * Runs the machine until the PPU finishes a frame, then writes down what happened.
      * <p>
-     * One tick is three dots, so this can overshoot the frame boundary by up to two of them -- at
-     * most the first pixel of the next frame arrives early, on scanline 0, which is under the
-     * overscan crop the hash is taken through.
+     * Stops on the cycle that ends the frame, so the first few dots of the next one are already
+     * drawn -- on scanline 0, which is under the overscan crop the hash is taken through. See
+     * {@link NES#runFrame()}.
      */
     public Frame advanceFrame() throws IOException {
-        var ppu = nes.getPPU();
-        var completed = ppu.getFrame();
-
         // Asked once a frame rather than once an instruction, which is the whole of why a session
         // with nothing to look for runs exactly as fast as it did before any of this existed.
         if (debugger.isArmed()) {
-            return watchedFrame(completed);
+            return watchedFrame();
         }
 
-        do {
-            nes.tick();
-        } while (ppu.getFrame() == completed);
+        nes.runFrame();
 
         return endOfFrame(null);
     }
@@ -225,29 +289,29 @@ public final class Session {
      * The same frame, clocked an instruction at a time so that a breakpoint can stop part way
      * through one.
      * <p>
-     * {@link NES#step()} runs to the next instruction boundary rather than to the next dot, so the
-     * end of a frame is noticed up to one instruction late -- seven cycles usually, and around five
-     * hundred when the step swallows an OAM DMA transfer. That is a few scanlines of the next frame
-     * drawn into the buffer before it is hashed, and all of them are inside the eight
+     * {@link NES#step()} says when the frame is over, by the signal {@link NES#runFrame()} waits
+     * on, and it runs to the next instruction boundary rather than to the next dot -- so the end of
+     * a frame is noticed up to one instruction late: seven cycles usually, and around five hundred
+     * when the step swallows an OAM DMA transfer. That is a few scanlines of the next frame drawn
+     * into the buffer before it is hashed, and all of them are inside the eight
      * {@link com.github.dimiro1.mynes.video.FrameRenderer#OVERSCAN_TOP} takes off the top.
      */
-    private Frame watchedFrame(final long completed) throws IOException {
-        var ppu = nes.getPPU();
+    private Frame watchedFrame() throws IOException {
         var cpu = nes.getCPU();
+        var finished = false;
         Debugger.Stop stop = null;
 
-        while (ppu.getFrame() == completed && stop == null) {
+        while (!finished && stop == null) {
             var wasPC = cpu.getPC();
 
-            nes.step();
-
+            finished = nes.step();
             stop = debugger.afterInstruction(cpu.getPC(), wasPC);
         }
 
-        if (ppu.getFrame() == completed) {
+        if (!finished) {
             // Stopped part way through. Nothing is counted and nothing is hashed, because there is
             // no finished picture yet -- and the next call carries on with the same frame.
-            return new Frame(completed, previousHash, false, stop);
+            return new Frame(nes.getPPU().getFrame(), previousHash, false, stop);
         }
 
         return endOfFrame(stop != null ? stop : debugger.afterFrame(cpu.getPC()));
@@ -256,9 +320,10 @@ public final class Session {
     /**
      * Runs instructions rather than frames, stopping early if the debugger says to.
      * <p>
-     * Frames still finish underneath -- the sound is collected and the picture counted whenever the
-     * PPU crosses a boundary -- because the APU's ring holds only a few frames of samples and a long
-     * step that never drained it would lose the end of them.
+     * Frames still finish underneath -- the sound is counted and the picture hashed whenever the
+     * PPU crosses a boundary -- so that a frame stepped through is as much a frame as one run
+     * whole. The sound itself arrives as it is made either way: the APU pushes it, a block at a
+     * time, however long the step.
      */
     public Stepped stepInstructions(final long count) throws IOException {
         var ppu = nes.getPPU();
@@ -267,16 +332,14 @@ public final class Session {
         var ran = 0L;
 
         while (ran < count && stop == null) {
-            var completed = ppu.getFrame();
             var wasPC = cpu.getPC();
 
-            nes.step();
-            ran++;
-
-            if (ppu.getFrame() != completed) {
+            if (nes.step()) {
                 endOfFrame(null);
             }
 
+            ran++;
+
             stop = debugger.afterInstruction(cpu.getPC(), wasPC);
         }
 
@@ -306,6 +369,10 @@ public final class Session {
             recorder.frame(buttons);
         }
 
+        if (ppu.isSkipRendering()) {
+            return new Frame(ppu.getFrame(), previousHash, false, stop);
+        }
+
         var hash = FrameAnalysis.hash(ppu.getFrameBuffer());
         var changed = hash != previousHash;
         previousHash = hash;
@@ -375,15 +442,32 @@ public final class Session {
      */
     public void screenshot(final Path path, final boolean cropOverscan, final int scale)
             throws IOException {
-        var image = FrameRenderer.render(
-                nes.getPPU().getFrameBuffer(), palette, cropOverscan, scale);
+        var frame = nes.getPPU().getFrameBuffer();
 
         var parent = path.getParent();
         if (parent != null) {
             Files.createDirectories(parent);
         }
 
-        ImageIO.write(image, "png", path.toFile());
+        if (!composite) {
+            // Straight from the indices to the file, with no picture in between.
+            try (var out = new BufferedOutputStream(Files.newOutputStream(path))) {
+                png.write(frame, palette, cropOverscan, scale, out);
+            }
+
+            return;
+        }
+
+        if (ntsc == null || ntsc.scale() != scale) {
+            ntsc = new NTSCFilter(scale);
+        }
+
+        // The frame number's parity, which is where a rendering chip leaves the subcarrier phase --
+        // so the same frame of the same run is always the same picture. Thousands of colours, which
+        // is no palette's business: this one goes out as RGB through ImageIO.
+        screenshot = ntsc.render(frame, (int) (frame() & 1), cropOverscan, screenshot);
+
+        ImageIO.write(screenshot, "png", path.toFile());
     }
 
     // ============================================================================ reading memory
@@ -703,31 +787,48 @@ public final class Session {
 
     // ================================================================================== internals
 
+    /**
+     * The end of a frame's sound: whatever the APU was still holding is pushed through
+     * {@link #hear}, and the frame is counted as silent or not.
+     */
     private void collectAudio() throws IOException {
-        var count = nes.getAPU().drainSamples(samples);
+        nes.getAPU().flushSamples();
+
+        var failed = wavFailure;
 
-        if (count == 0) {
-            total.endFrame(true);
-            window.endFrame(true);
+        if (failed != null) {
+            throw failed;
+        }
+
+        if (muted) {
             return;
         }
 
-        var silent = true;
+        total.endFrame(silentFrame);
+        window.endFrame(silentFrame);
+        silentFrame = true;
+    }
 
+    /**
+     * The APU's sink: a block of samples, counted and written to the WAV file straight out of the
+     * chip's own array.
+     */
+    private void hear(final short[] samples, final int count) {
         for (var i = 0; i < count; i++) {
             if (samples[i] != 0) {
-                silent = false;
+                silentFrame = false;
             }
 
             total.add(samples[i]);
             window.add(samples[i]);
         }
 
-        total.endFrame(silent);
-        window.endFrame(silent);
-
-        if (wav != null) {
-            wav.write(samples, count);
+        if (wav != null && wavFailure == null) {
+            try {
+                wav.write(samples, count);
+            } catch (IOException e) {
+                wavFailure = e;
+            }
         }
     }
 
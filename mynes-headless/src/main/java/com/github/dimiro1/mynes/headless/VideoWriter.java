@@ -0,0 +1,353 @@
+package com.github.dimiro1.mynes.headless;
+
+import com.github.dimiro1.mynes.PPU;
+import com.github.dimiro1.mynes.video.FrameRenderer;
+import com.github.dimiro1.mynes.video.NTSCFilter;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams the run's pictures to a file or a pipe as they are made, for an encoder on the other end
+ * to turn into a video.
+ * <p>
+ * Two formats, both of them nothing but pixels. YUV4MPEG2 says in its header how big a frame is and
+ * how fast they go, so {@code ffmpeg -i -} needs telling nothing; raw RGB says nothing at all and
+ * is for a tool that wants its pixels exactly as they were drawn. Either way a frame is 170
+ * kilobytes at 1x, ten megabytes a second, which is the reason a pipe is the place for it.
+ * <p>
+ * Written from a thread of its own. What {@link #write} does on the emulation thread is copy the
+ * frame's indices into a buffer off a ring and hand it over -- a quarter of a megabyte of memory
+ * copied, a few tens of microseconds -- and the colouring, the conversion and the writing all
+ * happen on the other side. The ring is bounded: a reader slower than the machine fills it and
+ * then holds the machine up, frame for frame, rather than letting frames go missing or memory grow
+ * without end. A video with holes in it would be a video of some other run.
+ * <p>
+ * Whatever goes wrong on the writing thread -- a reader that closed the pipe, a full disk, or a
+ * bug that throws something unchecked -- is kept and thrown out of the next {@link #write} or out
+ * of {@link #close()}, so the run stops with an error rather than carrying on into a file that
+ * ended some time ago.
+ */
+public final class VideoWriter implements Closeable {
+    /**
+     * How the pixels are spelled.
+     */
+    public enum Format {
+        /**
+         * YUV4MPEG2, at full chroma resolution -- 4:4:4, since halving the colour of a picture
+         * whose pixels are one dot wide is the encoder's decision to make, not this one's. BT.601,
+         * at the studio range every encoder assumes of a file that does not say.
+         */
+        Y4M("y4m"),
+
+        /**
+         * Three bytes a pixel, red first, row after row, frame after frame, with nothing between
+         * them: {@code -f rawvideo -pix_fmt rgb24} to ffmpeg, which then has to be told the size
+         * and the rate.
+         */
+        RGB("rgb");
+
+        private final String id;
+
+        Format(final String id) {
+            this.id = id;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        /**
+         * @return the format named, or null if there is none of that name.
+         */
+        public static @Nullable Format byId(final String id) {
+            for (var format : values()) {
+                if (format.id.equals(id)) {
+                    return format;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * How many frames can be waiting for the writing thread before the emulation thread waits for
+     * it instead. Enough to ride out an encoder stopping to think for a tenth of a second; more
+     * would only be more memory spent on a reader that is simply slower than the machine.
+     */
+    static final int RING = 8;
+
+    private static final int FRAME_LENGTH = PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT;
+
+    private static final byte[] FRAME_HEADER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * One frame's indices on their way across.
+     */
+    private static final class Slot {
+        private final int[] frame = new int[FRAME_LENGTH];
+        private int burst;
+    }
+
+    /**
+     * Handed over last, to tell the writing thread there is nothing after it.
+     */
+    private static final Slot END = new Slot();
+
+    private final OutputStream out;
+    private final Format format;
+    private final int[] palette;
+    private final boolean cropOverscan;
+    private final int scale;
+    private final @Nullable NTSCFilter ntsc;
+    private final int width;
+    private final int height;
+
+    private final BlockingQueue<Slot> free = new ArrayBlockingQueue<>(RING);
+
+    /**
+     * One more place than there are slots, so that {@link #END} always fits behind them.
+     */
+    private final BlockingQueue<Slot> full = new ArrayBlockingQueue<>(RING + 1);
+
+    private final Thread thread;
+
+    /**
+     * What stopped the writing thread writing. Anything at all, not only an {@link IOException}:
+     * a writer that died of something unchecked and said nothing would leave the run to finish
+     * into a video that stopped where it did.
+     */
+    private volatile @Nullable Throwable failure;
+
+    private long frames;
+    private boolean closed;
+
+    /**
+     * The writing thread's own: the picture each frame is coloured into and the bytes it is
+     * spelled out in, both kept from one frame to the next.
+     */
+    private @Nullable BufferedImage picture;
+    private final byte[] bytes;
+
+    /**
+     * Writes the header, if the format has one, and starts the writing thread.
+     *
+     * @param out          where the video goes. Closed by {@link #close()}.
+     * @param format       how to spell it.
+     * @param palette      512 packed ARGB entries to colour the frames with.
+     * @param cropOverscan whether to hide the scanlines a television would.
+     * @param scale        how many times to magnify, 1 to {@link FrameRenderer#MAX_SCALE}.
+     * @param composite    whether to decode the frames through the NTSC filter instead of the
+     *                     palette.
+     * @param frameNanos   how long a frame lasts, which is what a Y4M header's rate is made of.
+     */
+    public VideoWriter(
+            final OutputStream out,
+            final Format format,
+            final int[] palette,
+            final boolean cropOverscan,
+            final int scale,
+            final boolean composite,
+            final long frameNanos
+    ) throws IOException {
+        this.out = out;
+        this.format = format;
+        this.palette = palette;
+        this.cropOverscan = cropOverscan;
+        this.scale = scale;
+        this.ntsc = composite ? new NTSCFilter(scale) : null;
+        this.width = PPU.SCREEN_WIDTH * scale;
+        this.height = (cropOverscan ? FrameRenderer.VISIBLE_HEIGHT : PPU.SCREEN_HEIGHT) * scale;
+
+        var header = format == Format.Y4M ? FRAME_HEADER.length : 0;
+        this.bytes = new byte[header + width * height * 3];
+        System.arraycopy(FRAME_HEADER, 0, bytes, 0, header);
+
+        if (format == Format.Y4M) {
+            // The rate as the fraction it really is rather than as 60, which would leave the
+            // picture drifting away from the sound by a sixth of a percent -- a second every ten
+            // minutes. "Ip" is progressive, "A1:1" square pixels.
+            out.write(("YUV4MPEG2 W" + width + " H" + height + " F1000000000:" + frameNanos
+                    + " Ip A1:1 C444\n").getBytes(StandardCharsets.US_ASCII));
+        }
+
+        for (var i = 0; i < RING; i++) {
+            free.add(new Slot());
+        }
+
+        thread = Thread.ofPlatform().name("video").daemon(true).start(this::drain);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * How many frames have been handed over so far.
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * Hands a frame over to be written.
+     *
+     * @param frame the PPU's framebuffer. Copied, so the machine can carry on drawing into it the
+     *              moment this returns.
+     * @param burst which phase the chip left the colour subcarrier on, for the NTSC filter.
+     * @throws IOException if an earlier frame could not be written.
+     */
+    public void write(final int[] frame, final int burst) throws IOException {
+        rethrow();
+
+        Slot slot;
+
+        try {
+            slot = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for the video to be written");
+        }
+
+        System.arraycopy(frame, 0, slot.frame, 0, FRAME_LENGTH);
+        slot.burst = burst;
+
+        full.add(slot);
+        frames++;
+    }
+
+    /**
+     * Waits for every frame handed over to be written, then closes the stream.
+     *
+     * @throws IOException if any of them could not be.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        full.add(END);
+
+        var interrupted = false;
+
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                // Not given up on: the frames already handed over are the end of the video, and a
+                // stream closed under them would cut it off part way through one.
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        rethrow();
+    }
+
+    private void rethrow() throws IOException {
+        var failed = failure;
+
+        if (failed instanceof IOException) {
+            throw new IOException("the video could not be written: " + failed.getMessage(), failed);
+        }
+
+        if (failed != null) {
+            throw new IOException("the video could not be written: " + failed, failed);
+        }
+    }
+
+    /**
+     * The writing thread. Once something has gone wrong it goes on taking frames and handing the
+     * slots straight back, so the emulation thread never waits on a writer that will not write --
+     * it finds out from {@link #failure} instead.
+     * <p>
+     * The slot goes back whatever {@link #encode} throws, checked or not. One that did not would
+     * be a slot short for good, and eight of them would be an emulation thread waiting in
+     * {@link #write} for a writer that is no longer there.
+     */
+    private void drain() {
+        while (true) {
+            Slot slot;
+
+            try {
+                slot = full.take();
+            } catch (InterruptedException e) {
+                // Nothing interrupts this thread but the end of the process.
+                return;
+            }
+
+            if (slot == END) {
+                return;
+            }
+
+            try {
+                if (failure == null) {
+                    encode(slot);
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                failure = e;
+            } finally {
+                free.add(slot);
+            }
+        }
+    }
+
+    private void encode(final Slot slot) throws IOException {
+        picture = ntsc != null
+                ? ntsc.render(slot.frame, slot.burst, cropOverscan, picture)
+                : FrameRenderer.render(slot.frame, palette, cropOverscan, scale, picture);
+
+        var pixels = ((DataBufferInt) picture.getRaster().getDataBuffer()).getData();
+
+        if (format == Format.RGB) {
+            for (var i = 0; i < pixels.length; i++) {
+                bytes[i * 3] = (byte) (pixels[i] >> 16);
+                bytes[i * 3 + 1] = (byte) (pixels[i] >> 8);
+                bytes[i * 3 + 2] = (byte) pixels[i];
+            }
+        } else {
+            var y = FRAME_HEADER.length;
+            var u = y + pixels.length;
+            var v = u + pixels.length;
+
+            for (var i = 0; i < pixels.length; i++) {
+                var r = (pixels[i] >> 16) & 0xFF;
+                var g = (pixels[i] >> 8) & 0xFF;
+                var b = pixels[i] & 0xFF;
+
+                // BT.601 at studio range, in the eight bit fixed point everybody writes it in.
+                bytes[y + i] = (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+                bytes[u + i] = (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+                bytes[v + i] = (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+            }
+        }
+
+        out.write(bytes);
+    }
+}
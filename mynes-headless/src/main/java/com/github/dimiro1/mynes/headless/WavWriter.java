@@ -11,10 +11,10 @@ import java.nio.file.Path;
  * Writes the APU's output to a WAV file as it arrives.
  * <p>
  * Streaming rather than collecting, because the amount of sound a run makes is decided by how long
- * the run is: a second of it is 88 kilobytes, so an hour would be three hundred megabytes of heap
- * held for no reason other than that nobody had written it down yet. The only thing kept in memory
- * is the byte buffer the samples are turned into, reused between calls -- the same trade the
- * window's {@code AudioOutput} makes on its way to the sound card.
+ * the run is: a second of it is 88 kilobytes at 44.1kHz, so an hour would be three hundred
+ * megabytes of heap held for no reason other than that nobody had written it down yet. The only
+ * thing kept in memory is the byte buffer the samples are turned into, reused between calls -- the
+ * same trade the window's {@code AudioOutput} makes on its way to the sound card.
  * <p>
  * A RIFF header has to say how long the sound is, and nothing knows that until the run ends, so the
  * two lengths go down as zeroes and are patched in {@link #close()}. That is why this writes to a
@@ -33,12 +33,19 @@ public final class WavWriter implements Closeable {
     private static final int DATA_SIZE_OFFSET = 40;
 
     private final RandomAccessFile file;
+    private final int sampleRate;
 
     private byte[] bytes = new byte[0];
     private long samples;
 
-    public WavWriter(final Path path) throws IOException {
+    /**
+     * @param path       where to write the file, over whatever is there.
+     * @param sampleRate the rate the samples will be at, which the header carries. One of
+     *                   {@link APU#SAMPLE_RATES} in practice, though a WAV file has no opinion.
+     */
+    public WavWriter(final Path path, final int sampleRate) throws IOException {
         this.file = new RandomAccessFile(path.toFile(), "rw");
+        this.sampleRate = sampleRate;
 
         // A file being written over may be longer than the one replacing it.
         file.setLength(0);
@@ -52,7 +59,7 @@ public final class WavWriter implements Closeable {
     /**
      * Appends samples.
      *
-     * @param source signed sixteen bit samples at {@link APU#SAMPLE_RATE}.
+     * @param source signed sixteen bit samples at the rate the file was opened with.
      * @param count  how many of them to take from the front of {@code source}.
      */
     public void write(final short[] source, final int count) throws IOException {
@@ -101,8 +108,8 @@ public final class WavWriter implements Closeable {
         writeIntLE(16);                                     // the size of this chunk
         writeShortLE((short) 1);                            // PCM, uncompressed
         writeShortLE((short) CHANNELS);
-        writeIntLE(APU.SAMPLE_RATE);
-        writeIntLE(APU.SAMPLE_RATE * BYTES_PER_SAMPLE);     // bytes a second
+        writeIntLE(sampleRate);
+        writeIntLE(sampleRate * BYTES_PER_SAMPLE);          // bytes a second
         writeShortLE((short) BYTES_PER_SAMPLE);             // bytes in one sample across channels
         writeShortLE((short) BITS_PER_SAMPLE);
 
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioSystem;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -193,6 +194,77 @@ class HeadlessRunTests {
         assertFalse(Files.exists(out.resolve("audio.wav")));
     }
 
+    /**
+     * Muting leaves the game alone -- the picture is the same frame for frame -- and the sound it
+     * did not make is not counted as silence.
+     */
+    @Test
+    void aMutedRunDrawsTheSamePicturesAndCountsNoSound() throws Exception {
+        run();
+        var heard = report();
+
+        run("--mute");
+        var muted = report();
+
+        assertEquals(
+                heard.at("/video/finalFrame/hash").asText(),
+                muted.at("/video/finalFrame/hash").asText());
+        assertEquals(heard.at("/video/frameChanges"), muted.at("/video/frameChanges"));
+        assertFalse(heard.at("/audio/muted").asBoolean());
+        assertTrue(muted.at("/audio/muted").asBoolean());
+        assertTrue(heard.at("/audio/samples").asLong() > 0);
+        assertEquals(0, muted.at("/audio/samples").asLong());
+        assertEquals(0, muted.at("/audio/silentFrames").asLong());
+    }
+
+    /**
+     * Another rate is the same run's sound, as long as it was and no longer, with the file and the
+     * report both saying what it was made at.
+     */
+    @Test
+    void anotherSampleRateIsTheSameLengthOfSound() throws Exception {
+        run();
+        var standard = report();
+
+        run("--audio", "--sample-rate", "48000");
+        var faster = report();
+
+        assertEquals(44_100, standard.at("/audio/sampleRate").asInt());
+        assertEquals(48_000, faster.at("/audio/sampleRate").asInt());
+        assertEquals(standard.at("/audio/seconds").asDouble(),
+                faster.at("/audio/seconds").asDouble(), 0.001);
+        assertEquals(
+                standard.at("/video/finalFrame/hash").asText(),
+                faster.at("/video/finalFrame/hash").asText());
+
+        try (var stream = AudioSystem.getAudioInputStream(out.resolve("audio.wav").toFile())) {
+            assertEquals(48_000, (int) stream.getFormat().getSampleRate());
+            assertEquals(faster.at("/audio/samples").asLong(), stream.getFrameLength());
+        }
+    }
+
+    /**
+     * Band-limited or not, the same run is the same file: nothing in either way of making the
+     * samples depends on anything but the machine.
+     */
+    @Test
+    void aBandLimitedWavIsTheSameFileEveryRun() throws Exception {
+        run("--audio", "--band-limited");
+        var first = Files.readAllBytes(out.resolve("audio.wav"));
+
+        assertTrue(report().at("/audio/bandLimited").asBoolean());
+
+        run("--audio", "--band-limited");
+
+        assertArrayEquals(first, Files.readAllBytes(out.resolve("audio.wav")));
+
+        run("--audio");
+
+        assertFalse(report().at("/audio/bandLimited").asBoolean());
+        assertFalse(Arrays.equals(first, Files.readAllBytes(out.resolve("audio.wav"))),
+                "and it is not the averaged one");
+    }
+
     @Test
     void aWavFileIsWrittenWhenItIsAskedFor() throws Exception {
         run("--audio");
@@ -419,6 +491,113 @@ class HeadlessRunTests {
         assertNotEquals(untouched, pressed);
     }
 
+    /**
+     * Frames nobody keeps are left undrawn, and the ones somebody does keep come out exactly as
+     * they would have: the photographed one, and the last, which the report describes.
+     */
+    @Test
+    void skippingTheRenderLeavesThePicturesThatAreKeptAsTheyWere() throws Exception {
+        run("--frames", "120", "--input", "20:start", "--screenshot", "90");
+        var drawn = report();
+        var photographed = Files.readAllBytes(out.resolve("frame-000090.png"));
+
+        run("--frames", "120", "--input", "20:start", "--screenshot", "90", "--skip-render");
+        var skipped = report();
+
+        assertArrayEquals(photographed, Files.readAllBytes(out.resolve("frame-000090.png")));
+        assertEquals(
+                drawn.at("/video/finalFrame/hash").asText(),
+                skipped.at("/video/finalFrame/hash").asText());
+        assertEquals(drawn.at("/run/cpuCycles").asLong(), skipped.at("/run/cpuCycles").asLong());
+
+        assertFalse(drawn.at("/video/skipRender").asBoolean());
+        assertTrue(skipped.at("/video/skipRender").asBoolean());
+        assertTrue(skipped.at("/video/frameChanges").asLong()
+                < drawn.at("/video/frameChanges").asLong());
+    }
+
+    /**
+     * The television changes and the machine does not: the same run through the composite filter
+     * writes a different picture of the same frame, with the same hash.
+     */
+    @Test
+    void theNTSCFilterChangesThePictureAndNotTheFrame() throws Exception {
+        run("--frames", "60", "--screenshot", "last");
+        var plain = report();
+        var palette = Files.readAllBytes(out.resolve("frame-000060.png"));
+
+        run("--frames", "60", "--screenshot", "last", "--ntsc");
+        var filtered = report();
+
+        assertFalse(Arrays.equals(palette, Files.readAllBytes(out.resolve("frame-000060.png"))));
+        assertEquals(
+                plain.at("/video/finalFrame/hash").asText(),
+                filtered.at("/video/finalFrame/hash").asText());
+        assertEquals("none", plain.at("/video/filter").asText());
+        assertEquals("ntsc", filtered.at("/video/filter").asText());
+    }
+
+    /**
+     * The video is the pictures the screenshots are, frame for frame: the last frame of a raw RGB
+     * stream holds up against the PNG of the same frame, byte for byte once both are pixels.
+     */
+    @Test
+    void aVideoHoldsTheFramesTheScreenshotsDo() throws Exception {
+        var video = out.resolve("run.rgb");
+
+        assertEquals(Headless.EXIT_OK, run("--frames", "60", "--screenshot", "60",
+                "--video", video.toString(), "--video-format", "rgb", "--video-every", "2"));
+
+        var bytes = Files.readAllBytes(video);
+        var frameBytes = 256 * 224 * 3;
+
+        assertEquals(30L * frameBytes, bytes.length, "every other frame of sixty");
+        assertEquals(30, report().at("/video/stream/frames").asLong());
+        assertEquals("rgb", report().at("/video/stream/format").asText());
+
+        var image = ImageIO.read(out.resolve("frame-000060.png").toFile());
+        var last = 29 * frameBytes;
+
+        for (var y = 0; y < 224; y++) {
+            for (var x = 0; x < 256; x++) {
+                var at = last + (y * 256 + x) * 3;
+                var rgb = (bytes[at] & 0xFF) << 16 | (bytes[at + 1] & 0xFF) << 8
+                        | bytes[at + 2] & 0xFF;
+
+                assertEquals(image.getRGB(x, y) & 0xFFFFFF, rgb, "(" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    /**
+     * A Y4M stream says what it is at the top, and each frame after it is a marker and three full
+     * planes -- which is all a reader has to go on to find where one frame ends.
+     */
+    @Test
+    void aY4MStreamSaysHowBigAndHowFast() throws Exception {
+        var video = out.resolve("run.y4m");
+
+        assertEquals(Headless.EXIT_OK, run("--frames", "60", "--scale", "2",
+                "--video", video.toString(), "--video-every", "6", "--skip-render"));
+
+        var bytes = Files.readAllBytes(video);
+        var header = "YUV4MPEG2 W512 H448 F1000000000:16639267 Ip A1:1 C444\n";
+        var frame = "FRAME\n".length() + 512 * 448 * 3;
+
+        assertEquals(header, new String(bytes, 0, header.length(), StandardCharsets.US_ASCII));
+        assertEquals(header.length() + 10L * frame, bytes.length);
+        assertTrue(report().at("/audio/wav").isNull());
+        assertTrue(report().at("/video/frameChanges").asLong() > 0,
+                "frames that go into the video are drawn, --skip-render or not");
+    }
+
+    @Test
+    void aRunWithoutAVideoSaysSo() throws Exception {
+        run();
+
+        assertTrue(report().at("/video/stream").isNull());
+    }
+
     /**
      * What a save state is for, from outside the emulator: a run that starts from one draws the
      * picture the run it was taken from was looking at.
@@ -74,6 +74,7 @@ class OptionsTests {
         assertNull(options.region(), "and nobody named that either, so the cartridge does");
         assertFalse(options.fullFrame());
         assertFalse(options.audio());
+        assertFalse(options.bandLimited());
     }
 
     @Test
@@ -375,6 +376,45 @@ class OptionsTests {
         }
     }
 
+    /**
+     * Motion is counted over the frames that were drawn, and most of them would not have been.
+     */
+    @Test
+    void skippingTheRenderRefusesToCountMotion() {
+        assertFalse(parse("--rom", "x.nes").skipRender());
+        assertTrue(parse("--rom", "x.nes", "--skip-render").skipRender());
+
+        var refused = refused("--rom", "x.nes", "--skip-render", "--expect-motion", "5");
+
+        assertTrue(refused.getMessage().contains("--skip-render"));
+        assertTrue(refused.getMessage().contains("--expect-motion"));
+    }
+
+    @Test
+    void theSampleRateIsOneTheChipMakes() {
+        assertEquals(44_100, parse("--rom", "x.nes").sampleRate());
+        assertEquals(48_000, parse("--rom", "x.nes", "--sample-rate", "48000").sampleRate());
+        assertEquals(96_000, parse("--rom", "x.nes", "--sample-rate", "96000").sampleRate());
+
+        assertTrue(refused("--rom", "x.nes", "--sample-rate", "22050").getMessage()
+                .contains("48000"));
+        assertTrue(refused("--rom", "x.nes", "--sample-rate", "48k").getMessage()
+                .contains("48k"));
+    }
+
+    /**
+     * A muted run makes no sound, so there is nothing to write and nothing to listen for.
+     */
+    @Test
+    void mutingRefusesEverythingThatWantsTheSound() {
+        assertFalse(parse("--rom", "x.nes").mute());
+        assertTrue(parse("--rom", "x.nes", "--mute").mute());
+
+        assertTrue(refused("--rom", "x.nes", "--mute", "--audio").getMessage().contains("--audio"));
+        assertTrue(refused("--rom", "x.nes", "--mute", "--expect-audio").getMessage()
+                .contains("--expect-audio"));
+    }
+
     /**
      * Everything else combines. A recorded run is an ordinary run with somebody taking notes.
      */
@@ -393,6 +433,56 @@ class OptionsTests {
         assertTrue(options.interactive());
     }
 
+    @Test
+    void noVideoIsStreamedUnlessOneIsNamed() {
+        var options = parse("--rom", "x.nes");
+
+        assertNull(options.video());
+        assertFalse(options.wantsVideoAt(60));
+    }
+
+    @Test
+    void aVideoIsEveryFrameInY4MUnlessToldOtherwise() {
+        var options = parse("--rom", "x.nes", "--video", "run.y4m");
+
+        assertEquals(Path.of("run.y4m"), options.video());
+        assertEquals(VideoWriter.Format.Y4M, options.videoFormat());
+        assertTrue(options.wantsVideoAt(1));
+        assertTrue(options.wantsVideoAt(2));
+        assertFalse(options.videoToStandardOutput());
+
+        var every = parse("--rom", "x.nes", "--video", "run.rgb", "--video-format", "rgb",
+                "--video-every", "3");
+
+        assertEquals(VideoWriter.Format.RGB, every.videoFormat());
+        assertFalse(every.wantsVideoAt(2));
+        assertTrue(every.wantsVideoAt(3));
+    }
+
+    /**
+     * A pipe carries one thing. The report goes to standard output unless it is filed and told to
+     * keep quiet, so a video there is refused until it is.
+     */
+    @Test
+    void aVideoOnStandardOutputWantsTheReportOffIt() {
+        assertTrue(refused("--rom", "x.nes", "--video", "-").getMessage().contains("--quiet"));
+        assertTrue(refused("--rom", "x.nes", "--video", "-", "--quiet", "--report", "-")
+                .getMessage().contains("--report FILE"));
+
+        assertTrue(parse("--rom", "x.nes", "--video", "-", "--quiet").videoToStandardOutput());
+    }
+
+    @Test
+    void theVideoFlagsAreRefusedWhereTheyCannotMeanAnything() {
+        assertTrue(refused("--rom", "x.nes", "--video-every", "2").getMessage().contains("--video"));
+        assertTrue(refused("--rom", "x.nes", "--video", "v.y4m", "--video-format", "mkv")
+                .getMessage().contains("mkv"));
+        assertTrue(refused("--rom", "x.nes", "--video", "v.y4m", "--video-every", "0")
+                .getMessage().contains("--video-every"));
+        assertTrue(refused("--rom", "x.nes", "--video", "v.y4m", "--interactive")
+                .getMessage().contains("--interactive"));
+    }
+
     @Test
     void theUsageExplainsThatARewindIsNotInTheMovie() {
         assertTrue(Options.usage().contains("never re-enacts the revert"),
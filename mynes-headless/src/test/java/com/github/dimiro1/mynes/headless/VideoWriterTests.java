@@ -0,0 +1,72 @@
+package com.github.dimiro1.mynes.headless;
+
+import com.github.dimiro1.mynes.PPU;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * The video, written from a thread of its own -- and what the emulation thread hears when that
+ * thread fails.
+ * <p>
+ * The failures worth having a test for are the ones nobody declared. A writer that died of one
+ * without saying so would take its slot with it, and the machine would go on handing frames over
+ * until the ring ran out and then wait for good. So each of these runs under a timeout: a hang is
+ * the failure.
+ */
+class VideoWriterTests {
+
+    private static final long FRAME_NANOS = 16_639_267L;
+
+    private static final Duration PATIENCE = Duration.ofSeconds(10);
+
+    private final int[] frame = new int[PPU.SCREEN_WIDTH * PPU.SCREEN_HEIGHT];
+
+    /**
+     * A palette with no entries in it, which every pixel of every frame indexes past.
+     */
+    @Test
+    void anEncoderThatThrowsSomethingUncheckedStopsTheRunRatherThanHangingIt() throws IOException {
+        var writer = new VideoWriter(
+                new ByteArrayOutputStream(), VideoWriter.Format.RGB, new int[0], false, 1, false,
+                FRAME_NANOS);
+
+        assertTimeoutPreemptively(PATIENCE, () -> {
+            var thrown = assertThrows(IOException.class, () -> {
+                for (var i = 0; i < 4 * VideoWriter.RING; i++) {
+                    writer.write(frame, 0);
+                }
+            });
+
+            assertInstanceOf(ArrayIndexOutOfBoundsException.class, thrown.getCause());
+            assertThrows(IOException.class, writer::close);
+        });
+    }
+
+    @Test
+    void anErrorOnTheWritingThreadIsThrownOutOfClose() throws IOException {
+        var out = new OutputStream() {
+            @Override
+            public void write(final int b) {
+                throw new OutOfMemoryError("no room for the frame");
+            }
+        };
+
+        var writer = new VideoWriter(
+                out, VideoWriter.Format.RGB, new int[512], false, 1, false, FRAME_NANOS);
+
+        assertTimeoutPreemptively(PATIENCE, () -> {
+            writer.write(frame, 0);
+
+            var thrown = assertThrows(IOException.class, writer::close);
+            assertInstanceOf(OutOfMemoryError.class, thrown.getCause());
+        });
+    }
+}
@@ -36,7 +36,7 @@ class WavWriterTests {
     private Path write(final short[] samples, final int count) throws IOException {
         var path = directory.resolve("audio.wav");
 
-        try (var writer = new WavWriter(path)) {
+        try (var writer = new WavWriter(path, APU.SAMPLE_RATE)) {
             writer.write(samples, count);
         }
 
@@ -57,6 +57,20 @@ class WavWriterTests {
         }
     }
 
+    @Test
+    void theHeaderCarriesTheRateItWasOpenedWith() throws Exception {
+        var path = directory.resolve("audio.wav");
+
+        try (var writer = new WavWriter(path, 48_000)) {
+            writer.write(ramp(480), 480);
+        }
+
+        try (var stream = AudioSystem.getAudioInputStream(path.toFile())) {
+            assertEquals(48_000, (int) stream.getFormat().getSampleRate());
+            assertEquals(480, stream.getFrameLength());
+        }
+    }
+
     @Test
     void everySampleSurvivesTheRoundTrip() throws Exception {
         var samples = ramp(500);
@@ -101,7 +115,7 @@ class WavWriterTests {
     void aRunWithNoSoundStillWritesAValidFile() throws Exception {
         var path = directory.resolve("silent.wav");
 
-        try (var writer = new WavWriter(path)) {
+        try (var writer = new WavWriter(path, APU.SAMPLE_RATE)) {
             assertEquals(0, writer.samples());
         }
 
@@ -117,7 +131,7 @@ class WavWriterTests {
         var path = directory.resolve("audio.wav");
         Files.write(path, new byte[100_000]);
 
-        try (var writer = new WavWriter(path)) {
+        try (var writer = new WavWriter(path, APU.SAMPLE_RATE)) {
             writer.write(ramp(10), 10);
         }
 